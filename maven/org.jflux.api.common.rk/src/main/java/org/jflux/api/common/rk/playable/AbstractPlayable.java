@@ -16,35 +16,41 @@
 
 package org.jflux.api.common.rk.playable;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.jflux.api.common.rk.utils.TimeUtils;
+import org.jflux.api.core.util.LongSource;
 
 /**
  * A basic implementation of Playable.  Useful as a base class.
  * 
+ * The state and times may be read from any thread without locking.  State
+ * changes are made one at a time, and PlayableListeners are notified after
+ * each change without holding the transition lock.
+ * 
  * @author Matthew Stevenson <www.jflux.org>
  */
 public abstract class AbstractPlayable implements Playable{
     /**
      * The current PlayState.
      */
-    protected PlayState myPlayState;
+    protected volatile PlayState myPlayState;
     /**
      * The time given when starting.
      */
-    protected Long myStartTime;
+    protected volatile Long myStartTime;
     /**
      * The time given when last being paused.
      */
-    protected Long myPauseTime;
+    protected volatile Long myPauseTime;
     /**
      * The time given when last being resumed.
      */
-    protected Long myResumeTime;
+    protected volatile Long myResumeTime;
     /**
      * The time given when last being stopped.
      */
-    protected Long myStopTime;
+    protected volatile Long myStopTime;
     /**
      * Listeners for PlayState changes
      */
@@ -53,23 +59,31 @@ public abstract class AbstractPlayable implements Playable{
     /**
      * The total elapsed time while paused.
      */
-    protected Long myElapsedPauseTime;
+    protected volatile Long myElapsedPauseTime;
+    
+    private final Object myTransitionLock;
+    private volatile LongSource myClock;
 
     /**
      * Creates a new Playable in a pending state.
      */
     public AbstractPlayable(){
+        myTransitionLock = new Object();
         myElapsedPauseTime = 0L;
         myPlayState = PlayState.PENDING;
+        myPlayableListeners = new CopyOnWriteArrayList<PlayableListener>();
     }
 
     @Override
     public void addPlayableListener(PlayableListener listener) {
-        if(myPlayableListeners == null){
-            myPlayableListeners = new ArrayList<PlayableListener>();
-        }
-        if(!myPlayableListeners.contains(listener)){
-            myPlayableListeners.add(listener);
+        synchronized(myTransitionLock){
+            if(myPlayableListeners == null){
+                myPlayableListeners = 
+                        new CopyOnWriteArrayList<PlayableListener>();
+            }
+            if(!myPlayableListeners.contains(listener)){
+                myPlayableListeners.add(listener);
+            }
         }
     }
 
@@ -120,45 +134,56 @@ public abstract class AbstractPlayable implements Playable{
 
     @Override
     public boolean start(long time) {
-        if(myPlayState == PlayState.RUNNING){
-            return false;
-        }
-        if(!onStart(time)){
-            return false;
+        PlayState prev;
+        synchronized(myTransitionLock){
+            if(myPlayState == PlayState.RUNNING){
+                return false;
+            }
+            if(!onStart(time)){
+                return false;
+            }
+            myStartTime = time;
+            myElapsedPauseTime = 0L;
+            prev = changeState(PlayState.RUNNING, time);
         }
-        myStartTime = time;
-        myElapsedPauseTime = 0L;
-        changeState(PlayState.RUNNING, time);
+        firePlayStateChanged(prev, PlayState.RUNNING, time);
         return true;
     }
 
     @Override
     public boolean pause(long time) {
-        if(myPlayState != PlayState.RUNNING){
-            return false;
-        }
-        if(!onPause(time)){
-            return false;
+        PlayState prev;
+        synchronized(myTransitionLock){
+            if(myPlayState != PlayState.RUNNING){
+                return false;
+            }
+            if(!onPause(time)){
+                return false;
+            }
+            myPauseTime = time;
+            prev = changeState(PlayState.PAUSED, time);
         }
-        myPauseTime = time;
-        changeState(PlayState.PAUSED, time);
+        firePlayStateChanged(prev, PlayState.PAUSED, time);
         return true;
     }
     
     @Override
     public boolean complete(long time){
-        if(myPlayState == PlayState.COMPLETED){
-            return true;
-        }
-        if(!onComplete(time)){
-            return false;
-        }
-        if(myPlayState == PlayState.PAUSED){
-            long elapsed = time - myPauseTime;
-            myElapsedPauseTime += elapsed;
+        PlayState prev;
+        synchronized(myTransitionLock){
+            if(myPlayState == PlayState.COMPLETED){
+                return true;
+            }
+            if(!onComplete(time)){
+                return false;
+            }
+            if(myPlayState == PlayState.PAUSED){
+                long elapsed = time - myPauseTime;
+                myElapsedPauseTime += elapsed;
+            }
+            prev = changeState(PlayState.COMPLETED, time);
         }
-        myStopTime = time;
-        changeState(PlayState.COMPLETED, time);
+        firePlayStateChanged(prev, PlayState.COMPLETED, time);
         afterComplete(time);
         return true;
     }
@@ -170,28 +195,37 @@ public abstract class AbstractPlayable implements Playable{
 
     @Override
     public boolean resume(long time) {
-        if(myPlayState != PlayState.PAUSED){
-            return false;
-        }
-        if(!onResume(time)){
-            return false;
+        PlayState prev;
+        synchronized(myTransitionLock){
+            if(myPlayState != PlayState.PAUSED){
+                return false;
+            }
+            if(!onResume(time)){
+                return false;
+            }
+            myResumeTime = time;
+            long elapsed = time - myPauseTime;
+            myElapsedPauseTime += elapsed;
+            prev = changeState(PlayState.RUNNING, time);
         }
-        myResumeTime = time;
-        long elapsed = time - myPauseTime;
-        myElapsedPauseTime += elapsed;
-        changeState(PlayState.RUNNING, time);
+        firePlayStateChanged(prev, PlayState.RUNNING, time);
         return true;
     }
 
     @Override
     public boolean stop(long time) {
-        if(myPlayState == PlayState.STOPPED || myPlayState == PlayState.COMPLETED){
-            return false;
-        }
-        if(!onStop(time)){
-            return false;
+        PlayState prev;
+        synchronized(myTransitionLock){
+            if(myPlayState == PlayState.STOPPED 
+                    || myPlayState == PlayState.COMPLETED){
+                return false;
+            }
+            if(!onStop(time)){
+                return false;
+            }
+            prev = changeState(PlayState.STOPPED, time);
         }
-        changeState(PlayState.STOPPED, time);
+        firePlayStateChanged(prev, PlayState.STOPPED, time);
         return true;
     }
 
@@ -217,37 +251,66 @@ public abstract class AbstractPlayable implements Playable{
 
     @Override
     public Long getElapsedPlayTime(long time){
-        if(myStartTime == null){
+        Long startTime = myStartTime;
+        if(startTime == null){
             return 0L;
         }
-        if(myPlayState == PlayState.RUNNING){
-            return time - (myStartTime + myElapsedPauseTime);
-        }else if(myPlayState == PlayState.PAUSED){
-            long ret = time - (myStartTime + myElapsedPauseTime);
-            if(myPauseTime != null){
-                ret -= time - myPauseTime;
+        PlayState state = myPlayState;
+        long pausedTime = myElapsedPauseTime;
+        if(state == PlayState.RUNNING){
+            return time - (startTime + pausedTime);
+        }else if(state == PlayState.PAUSED){
+            long ret = time - (startTime + pausedTime);
+            Long pauseTime = myPauseTime;
+            if(pauseTime != null){
+                ret -= time - pauseTime;
             }
             return ret;
-        }else if(myPlayState == PlayState.COMPLETED){
-            return myStopTime - (myStartTime + myElapsedPauseTime);
-        }else if(myPlayState == PlayState.STOPPED){
-            return myStopTime - (myStartTime + myElapsedPauseTime);
-        }else if(myPlayState == PlayState.PENDING){
-            return 0L;
+        }else if(state == PlayState.COMPLETED 
+                || state == PlayState.STOPPED){
+            return myStopTime - (startTime + pausedTime);
         }
         return 0L;
     }
 
+    /**
+     * Returns the elapsed play time at the current time of this Playable's
+     * clock.
+     * @return elapsed play time
+     */
+    public Long getElapsedPlayTime(){
+        return getElapsedPlayTime(getClock().getAsLong());
+    }
+
+    /**
+     * Returns the clock used to read the current time.  Defaults to the
+     * TimeUtils clock.
+     * @return the clock
+     */
+    public LongSource getClock(){
+        LongSource clock = myClock;
+        return clock == null ? TimeUtils.getClock() : clock;
+    }
+
+    /**
+     * Sets the clock used to read the current time.  It must use the same
+     * time base as the times given to start, pause, resume and stop.
+     * @param clock the clock, or null to use the TimeUtils clock
+     */
+    public void setClock(LongSource clock){
+        myClock = clock;
+    }
+
     @Override
     public Long getElapsedPauseTime(long time){
         return myElapsedPauseTime;
     }
 
-    private void changeState(PlayState state, long time){
+    private PlayState changeState(PlayState state, long time){
         PlayState prev = myPlayState;
         myStopTime = time;
         myPlayState = state;
-        firePlayStateChanged(prev, myPlayState, myStopTime);
+        return prev;
     }
 
     /**
@@ -16,37 +16,35 @@
 package org.jflux.api.common.rk.utils;
 
 import org.jflux.api.core.Listener;
-import java.util.ArrayList;
-import java.util.List;
+import org.jflux.api.core.util.ListenerArray;
 
 /**
  *
  * @author Matthew Stevenson <www.jflux.org>
  */
 public class EventRepeater<Msg> implements Listener<Msg> {
-    private List<Listener<Msg>> myListeners;
+    private ListenerArray<Msg> myListeners;
     
     public EventRepeater(){
-        myListeners = new ArrayList<Listener<Msg>>();
+        myListeners = new ListenerArray<Msg>();
     }
     
     @Override
     public void handleEvent(Msg event) {
-        for(Listener<Msg> l : myListeners){
-            l.handleEvent(event);
-        }
+        myListeners.notifyListeners(event);
     }
     
     public void addListener(Listener<Msg> listener){
-        if(listener == this){
+        if(listener == null || listener == this){
             return;
         }
-        if(!myListeners.contains(listener)){
-            myListeners.add(listener);
-        }
+        myListeners.addListener(listener);
     }   
     
     public void removeListener(Listener<Msg> listener){
-        myListeners.remove(listener);
+        if(listener == null){
+            return;
+        }
+        myListeners.removeListener(listener);
     }
 }
@@ -16,6 +16,8 @@
 
 package org.jflux.api.common.rk.utils;
 
+import org.jflux.api.core.util.LongSource;
+import org.jflux.api.core.util.TimestampSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,14 +28,42 @@ import org.slf4j.LoggerFactory;
  */
 public class TimeUtils {
 	private static final Logger theLogger = LoggerFactory.getLogger(TimeUtils.class);
+	private static volatile LongSource theClock = TimestampSource.getSystemClock();
 
 	/**
-	 * Returns the current clock time.
+	 * Returns the current clock time in milliseconds since the epoch.  By
+	 * default this is the system clock, because it stamps the
+	 * timestampMillisecUTC fields of messages, which are compared with
+	 * clocks in other processes.  It follows adjustments to the system clock
+	 * and may step backwards; use TimestampSource.getMonotonicClock() to
+	 * order or time local events.
 	 *
 	 * @return current clock time
 	 */
 	public static long now() {
-		return System.currentTimeMillis();
+		return theClock.getAsLong();
+	}
+
+	/**
+	 * Returns the clock used by now().
+	 *
+	 * @return the clock
+	 */
+	public static LongSource getClock() {
+		return theClock;
+	}
+
+	/**
+	 * Sets the clock used by now().  The clock must return milliseconds since
+	 * the epoch.
+	 *
+	 * @param clock the clock
+	 */
+	public static void setClock(LongSource clock) {
+		if (clock == null) {
+			throw new NullPointerException();
+		}
+		theClock = clock;
 	}
 
 	/**
@@ -16,19 +16,25 @@
 
 package org.jflux.api.common.rk.utils;
 
+import java.util.concurrent.TimeUnit;
+import org.jflux.api.core.util.ScheduledTask;
+import org.jflux.api.core.util.WheelTimer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Abstract class for performing an action at regular intervals.
+ * Ticks run at a fixed rate on the shared WheelTimer rather than on a thread
+ * of their own.  A tick which overruns the interval causes the missed ticks
+ * to be skipped.
  *
  * @author Matthew Stevenson <www.jflux.org>
  */
-//TODO Uses ScheduledExecutor to handle TimerLoop
 public abstract class TimerLoop {
 	private static final Logger theLogger = LoggerFactory.getLogger(TimerLoop.class);
 	private long myInterval;
 	private boolean myStop;
+	private ScheduledTask myTask;
 
 	/**
 	 * Creates a new TimerLoop with the given interval in milliseconds.
@@ -45,8 +51,13 @@ public abstract class TimerLoop {
 	 *
 	 * @param interval number of milliseconds between performing the action
 	 */
-	public void setIntervalLength(long interval) {
+	public synchronized void setIntervalLength(long interval) {
 		myInterval = interval;
+		if (myStop) {
+			return;
+		}
+		stop();
+		start();
 	}
 
 	/**
@@ -66,38 +77,46 @@ public abstract class TimerLoop {
 	 */
 	protected abstract void timerTick(long time, long interval);
 
+	/**
+	 * Returns the handle of the running schedule, for reading its jitter
+	 * and overrun statistics.
+	 *
+	 * @return the current ScheduledTask, or null if stopped
+	 */
+	public synchronized ScheduledTask getScheduledTask() {
+		return myTask;
+	}
+
 	/**
 	 * Start performing the action at intervals.
 	 */
-	public void start() {
+	public synchronized void start() {
 		if (!myStop) {
 			return;
 		}
 		myStop = false;
-		new Thread(new Runnable() {
-			@Override
-			public void run() {
-				while (!myStop) {
-					timerStep();
-				}
-			}
-		}).start();
+		final long interval = myInterval;
+		myTask = WheelTimer.getSharedTimer().scheduleAtFixedRate(
+				new Runnable() {
+					@Override
+					public void run() {
+						timerStep(interval);
+					}
+				}, 0, Math.max(1L, interval), TimeUnit.MILLISECONDS);
 	}
 
 	/**
 	 * Stop the timer.
 	 */
-	public void stop() {
+	public synchronized void stop() {
 		myStop = true;
+		if (myTask != null) {
+			myTask.cancel();
+			myTask = null;
+		}
 	}
 
-	private void timerStep() {
-		long start = TimeUtils.now();
-		timerTick(start, myInterval);
-		long elapsed = TimeUtils.now() - start;
-		long sleep = myInterval - elapsed;
-		if (sleep >= 0) {
-			TimeUtils.sleep(sleep);
-		}
+	private void timerStep(long interval) {
+		timerTick(TimeUtils.now(), interval);
 	}
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core;
+
+import java.util.List;
+
+/**
+ * Listener which can handle a batch of events in one call.  Notifiers which
+ * support batches check for this interface and pass whole batches; other
+ * Listeners receive the events one at a time.
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <T> type of event to listen for
+ */
+public interface BatchListener<T> extends Listener<T> {
+
+    /**
+     * Handles a batch of events, in order.  The List is owned by the caller
+     * and must not be modified or kept after returning.
+     * @param events event data
+     */
+    public void handleEvents(List<T> events);
+
+    /**
+     * BatchListener wrapping a single-event Listener, delivering each event
+     * of a batch in turn
+     * @param <T> type of event to listen for
+     */
+    public static class DefaultBatchListener<T> implements BatchListener<T> {
+        private Listener<T> myListener;
+
+        /**
+         * Builds a DefaultBatchListener around a Listener
+         * @param listener Listener to receive the events
+         */
+        public DefaultBatchListener(Listener<T> listener){
+            if(listener == null){
+                throw new NullPointerException();
+            }
+            myListener = listener;
+        }
+
+        /**
+         * Passes an event to the Listener
+         * @param input event data
+         */
+        @Override
+        public void handleEvent(T input) {
+            myListener.handleEvent(input);
+        }
+
+        /**
+         * Passes each event to the Listener in order
+         * @param events event data
+         */
+        @Override
+        public void handleEvents(List<T> events) {
+            deliver(myListener, events);
+        }
+
+        /**
+         * Delivers a batch to a Listener, as a whole if it is a
+         * BatchListener, otherwise one event at a time
+         * @param <T> type of event
+         * @param listener Listener to receive the events
+         * @param events event data
+         */
+        public static <T> void deliver(Listener<T> listener, List<T> events){
+            if(listener instanceof BatchListener){
+                ((BatchListener<T>)listener).handleEvents(events);
+                return;
+            }
+            for(int i = 0, n = events.size(); i < n; i++){
+                listener.handleEvent(events.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core;
+
+import java.util.List;
+
+/**
+ * Notifier which can send a batch of events in one call, passing the whole
+ * batch to each BatchListener and the events one at a time to other
+ * Listeners
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <E> type of event the Listeners handle
+ */
+public interface BatchNotifier<E> extends Notifier<E> {
+
+    /**
+     * Sends a batch of events to all managed listeners.  The List must not be
+     * modified while it is being sent.
+     * @param events events to send, in order
+     */
+    public void notifyEvents(List<E> events);
+}
@@ -15,7 +15,11 @@
  */
 package org.jflux.api.core.chain;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import org.jflux.api.core.Adapter;
 
@@ -73,6 +77,25 @@ public class AdapterChain<A,B> implements Adapter<A,B> {
         }
         return (B)o;
     }
+    
+    /**
+     * Fuses the chain into a single Adapter.  The Adapters are composed into
+     * one MethodHandle, so each call is a single invocation instead of a walk
+     * through the list.  The result behaves exactly like this chain: every
+     * Adapter is called in order, and a null returned by one Adapter is
+     * passed to the next.  Adapters added to the chain later are not seen.
+     * <p>
+     * The handle is held in a field, so the gain depends on the runtime
+     * specializing a hot MethodHandle for its bound Adapters, which HotSpot
+     * does from 8u40 after about a hundred calls.  The Adapters are then
+     * inlined into one compiled body, while a list walk makes a megamorphic
+     * call per stage.  On older runtimes, or for chains called only a few
+     * times, the list walk may be as fast.
+     * @return fused Adapter
+     */
+    public CompiledAdapterChain<A,B> compile(){
+        return new CompiledAdapterChain<A,B>(myAdapters);
+    }
 
     /**
      * Created an AdapterChainBuilder from a single Adapter
@@ -133,5 +156,72 @@ public class AdapterChain<A,B> implements Adapter<A,B> {
         public Adapter<X,Y> done(){
             return new AdapterChain<X, Y>(myAdapterList);
         }
+
+        /**
+         * Generate a fused AdapterChain
+         * @return new CompiledAdapterChain
+         */
+        public CompiledAdapterChain<X,Y> compile(){
+            return new CompiledAdapterChain<X, Y>(myAdapterList);
+        }
+    }
+    
+    /**
+     * Adapter chain fused into a single MethodHandle
+     * @param <X> input data type
+     * @param <Y> output data type
+     */
+    public final static class CompiledAdapterChain<X,Y> implements Adapter<X,Y> {
+        private final static MethodHandle theAdaptHandle = findAdaptHandle();
+        private final MethodHandle myHandle;
+        private final List<Adapter> myAdapters;
+        
+        CompiledAdapterChain(List<Adapter> adapters){
+            if(adapters == null){
+                throw new NullPointerException();
+            }
+            myAdapters = Collections.unmodifiableList(
+                    new ArrayList<Adapter>(adapters));
+            MethodHandle handle = MethodHandles.identity(Object.class);
+            for(Adapter adapter : myAdapters){
+                handle = MethodHandles.filterReturnValue(
+                        handle, theAdaptHandle.bindTo(adapter));
+            }
+            myHandle = handle;
+        }
+        
+        /**
+         * Get the fused Adapters
+         * @return unmodifiable List of Adapters
+         */
+        public List<Adapter> getAdapters(){
+            return myAdapters;
+        }
+
+        /**
+         * Adapts data through the fused chain
+         * @param a input data
+         * @return output data
+         */
+        @Override
+        public Y adapt(X a) {
+            try{
+                return (Y)(Object)myHandle.invokeExact((Object)a);
+            }catch(RuntimeException | Error ex){
+                throw ex;
+            }catch(Throwable t){
+                throw new RuntimeException(t);
+            }
+        }
+        
+        private static MethodHandle findAdaptHandle(){
+            try{
+                return MethodHandles.publicLookup().findVirtual(
+                        Adapter.class, "adapt", 
+                        MethodType.methodType(Object.class, Object.class));
+            }catch(NoSuchMethodException | IllegalAccessException ex){
+                throw new ExceptionInInitializerError(ex);
+            }
+        }
     }
 }
@@ -102,9 +102,14 @@ public class DefaultConfiguration<K> extends AbstractConfiguration<K> {
      */
     @Override
     protected <T> ConfigProperty<T> getConfigProperty(K key){
-        if(!myPropertyMap.containsKey(key)){
-            return null;
-        }
         return myPropertyMap.get(key);
     }
+    
+    /**
+     * Creates an immutable, array-indexed copy of the current property values
+     * @return FrozenConfig of the current values
+     */
+    public FrozenConfig<K> freeze(){
+        return FrozenConfig.freeze(this);
+    }
 }
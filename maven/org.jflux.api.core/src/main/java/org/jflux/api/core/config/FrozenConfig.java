@@ -0,0 +1,322 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.jflux.api.core.config.ReadOnlyConfig.ReadOnlyProperty;
+
+/**
+ * Immutable Configuration with array-indexed values.  Keys are resolved to
+ * an index through an open-addressed table built once when the configuration
+ * is frozen, so a lookup hashes the key once with no containsKey/get pair.
+ *
+ * Code reading a property repeatedly should resolve a Handle once with
+ * getHandle and read through it; a Handle read is a single array load with
+ * no hashing or type check.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <K> type of key used in the configuration
+ */
+public final class FrozenConfig<K> extends AbstractConfiguration<K> {
+    private final Object[] myKeys;
+    private final Class[] myClasses;
+    private final Object[] myValues;
+    private final ReadOnlyProperty[] myProperties;
+    private final Object[] myTable;
+    private final int[] myTableIndices;
+    private final int myMask;
+    private final Set<K> myKeySet;
+
+    private FrozenConfig(List<K> keys, List<Class> classes, List<Object> values){
+        int size = keys.size();
+        myKeys = keys.toArray();
+        myClasses = classes.toArray(new Class[size]);
+        myValues = values.toArray();
+        myProperties = new ReadOnlyProperty[size];
+        for(int i = 0; i < size; i++){
+            myProperties[i] = new ReadOnlyProperty(myClasses[i], myValues[i]);
+        }
+        int capacity = Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1;
+        myTable = new Object[capacity];
+        myTableIndices = new int[capacity];
+        myMask = capacity - 1;
+        for(int i = 0; i < size; i++){
+            int slot = hash(myKeys[i]) & myMask;
+            while(myTable[slot] != null){
+                slot = (slot + 1) & myMask;
+            }
+            myTable[slot] = myKeys[i];
+            myTableIndices[slot] = i;
+        }
+        myKeySet = Collections.unmodifiableSet(new LinkedHashSet<K>(keys));
+    }
+
+    /**
+     * Creates a FrozenConfig holding the current values of a Configuration
+     * @param <K> key type
+     * @param config Configuration to copy
+     * @return immutable copy of the Configuration
+     */
+    public static <K> FrozenConfig<K> freeze(Configuration<K> config){
+        if(config == null){
+            throw new NullPointerException();
+        }
+        if(config instanceof FrozenConfig){
+            return (FrozenConfig<K>)config;
+        }
+        return new Builder<K>().addAll(config).build();
+    }
+
+    @Override
+    public Set<K> getKeySet() {
+        return myKeySet;
+    }
+
+    /**
+     * Returns the number of properties
+     * @return number of properties
+     */
+    public int size(){
+        return myKeys.length;
+    }
+
+    /**
+     * Returns the index of a key, which is stable for the life of this
+     * configuration
+     * @param key the key
+     * @return index of the key, or -1 if the key is not present
+     */
+    public int indexOf(K key){
+        if(key == null){
+            return -1;
+        }
+        int slot = hash(key) & myMask;
+        Object k;
+        while((k = myTable[slot]) != null){
+            if(k == key || k.equals(key)){
+                return myTableIndices[slot];
+            }
+            slot = (slot + 1) & myMask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value at an index
+     * @param <T> type of the property
+     * @param index index from indexOf
+     * @return the property value
+     */
+    public <T> T getPropertyValue(int index){
+        return (T)myValues[index];
+    }
+
+    /**
+     * Resolves a typed Handle for reading a property.  The key and type are
+     * checked once here rather than on every read.
+     * @param <T> type of the property
+     * @param propertyClass class of the property value
+     * @param key property key
+     * @return Handle for the property
+     * @throws IllegalArgumentException if the key is not present or the
+     * property is not of the given class
+     */
+    public <T> Handle<T> getHandle(Class<T> propertyClass, K key){
+        if(propertyClass == null || key == null){
+            throw new NullPointerException();
+        }
+        int index = indexOf(key);
+        if(index < 0){
+            throw new IllegalArgumentException(
+                    "Key (" + key + ") not found.");
+        }
+        if(!propertyClass.isAssignableFrom(myClasses[index])){
+            throw new IllegalArgumentException("Property (" + key 
+                    + ") is a " + myClasses[index].getName() 
+                    + ", not a " + propertyClass.getName() + ".");
+        }
+        return new Handle<T>(myValues, index, key, myClasses[index]);
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public <T> T getPropertyValue(K key) {
+        int i = indexOf(key);
+        return i < 0 ? null : (T)myValues[i];
+    }
+
+    @Override
+    public <T> T getPropertyValue(Class<T> propertyClass, K key) {
+        if(propertyClass == null || key == null){
+            throw new NullPointerException();
+        }
+        int i = indexOf(key);
+        if(i < 0 || !propertyClass.isAssignableFrom(myClasses[i])){
+            return null;
+        }
+        return (T)myValues[i];
+    }
+
+    @Override
+    public <T> Class<T> getPropertyClass(K key) {
+        int i = indexOf(key);
+        return i < 0 ? null : myClasses[i];
+    }
+
+    /**
+     * Get the property associated with a key
+     * @param <T> type of the property
+     * @param key the key
+     * @return property associated with the key
+     */
+    @Override
+    protected <T> ConfigProperty<T> getConfigProperty(K key) {
+        int i = indexOf(key);
+        return i < 0 ? null : myProperties[i];
+    }
+
+    private static int hash(Object key){
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Typed accessor for one property of a FrozenConfig
+     * @param <T> type of the property
+     */
+    public final static class Handle<T> {
+        private final Object[] myValues;
+        private final int myIndex;
+        private final Object myKey;
+        private final Class myValueClass;
+
+        Handle(Object[] values, int index, Object key, Class valueClass){
+            myValues = values;
+            myIndex = index;
+            myKey = key;
+            myValueClass = valueClass;
+        }
+
+        /**
+         * Returns the property value
+         * @return the property value
+         */
+        public T getValue(){
+            return (T)myValues[myIndex];
+        }
+
+        /**
+         * Returns the index of the property
+         * @return the index of the property
+         */
+        public int getIndex(){
+            return myIndex;
+        }
+
+        /**
+         * Returns the property key
+         * @return the property key
+         */
+        public Object getKey(){
+            return myKey;
+        }
+
+        /**
+         * Returns the class of the property value
+         * @return class of the property value
+         */
+        public Class<T> getPropertyClass(){
+            return myValueClass;
+        }
+    }
+
+    /**
+     * Collects properties and freezes them into a FrozenConfig
+     * @param <K> type of key used in the configuration
+     */
+    public static class Builder<K> {
+        private final List<K> myKeys;
+        private final List<Class> myClasses;
+        private final List<Object> myValues;
+        private final Set<K> myKeySet;
+
+        /**
+         * Creates an empty Builder
+         */
+        public Builder(){
+            myKeys = new ArrayList<K>();
+            myClasses = new ArrayList<Class>();
+            myValues = new ArrayList<Object>();
+            myKeySet = new LinkedHashSet<K>();
+        }
+
+        /**
+         * Adds a typed property
+         * @param <T> type of the property
+         * @param propClass class of the property
+         * @param key the key
+         * @param val the value
+         * @return this Builder
+         */
+        public <T> Builder<K> add(Class<T> propClass, K key, T val){
+            if(propClass == null || key == null){
+                throw new NullPointerException();
+            }
+            if(!myKeySet.add(key)){
+                throw new IllegalStateException("Unable to add property.  "
+                        + "Key (" + key + ") already in use.");
+            }
+            myKeys.add(key);
+            myClasses.add(propClass);
+            myValues.add(val);
+            return this;
+        }
+
+        /**
+         * Adds the current values of every property in a Configuration
+         * @param config Configuration to copy
+         * @return this Builder
+         */
+        public Builder<K> addAll(Configuration<K> config){
+            if(config == null){
+                throw new NullPointerException();
+            }
+            for(K key : config.getKeySet()){
+                Class c = config.getPropertyClass(key);
+                add(c == null ? Object.class : c, 
+                        key, config.getPropertyValue(key));
+            }
+            return this;
+        }
+
+        /**
+         * Creates an immutable FrozenConfig from the added properties.  The
+         * Builder may continue to be used.
+         * @return new FrozenConfig
+         */
+        public FrozenConfig<K> build(){
+            return new FrozenConfig<K>(myKeys, myClasses, myValues);
+        }
+    }
+}
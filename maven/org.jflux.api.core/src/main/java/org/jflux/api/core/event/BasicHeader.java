@@ -116,7 +116,8 @@ public class BasicHeader<SourceRef, Time> implements Header<SourceRef, Time> {
          * Build a HeaderFactory from generators of source reference, timestamp,
          * event type, and properties
          * @param sourceRefAdapter Adapter to generate source reference
-         * @param timestampSource Source to generate timestamp
+         * @param timestampSource Source to generate timestamp, such as a
+         * TimestampSource for Long timestamps
          * @param eventTypeAdapter Adapter to generate event type
          * @param propsAdapter Adapter to generate properties
          */
@@ -176,6 +177,7 @@ public class BasicHeader<SourceRef, Time> implements Header<SourceRef, Time> {
                 throw new NullPointerException();
             }
             mySourceRef = sourceRef;
+            myTimestampSource = timestampSource;
             myEventType = eventType;
             myProperties = props;
         }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.event;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jflux.api.core.Adapter;
+import org.jflux.api.core.Source;
+import org.jflux.api.core.util.ObjectPool;
+import org.jflux.api.core.util.Recyclable;
+import org.jflux.api.core.util.SourceAdapter;
+
+/**
+ * Reusable Event.  Events created by a PooledEventFactory are returned to
+ * their pool by release() once the last consumer is finished with them.
+ * Releasing an event also releases its header if the header is Recyclable.
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <H> type of metadata
+ * @param <D> type of data
+ */
+public class PooledEvent<H,D> implements Event<H,D>, Recyclable {
+    private final ObjectPool<PooledEvent<H,D>> myPool;
+    private final AtomicBoolean myReleased;
+    private H myHeader;
+    private D myData;
+
+    /**
+     * Builds an unpooled PooledEvent.  Releasing it only clears it.
+     */
+    public PooledEvent(){
+        this(null);
+    }
+
+    /**
+     * Builds a PooledEvent belonging to a pool
+     * @param pool pool to return the event to when released
+     */
+    public PooledEvent(ObjectPool<PooledEvent<H,D>> pool){
+        myPool = pool;
+        myReleased = new AtomicBoolean();
+    }
+
+    /**
+     * Sets the metadata and data
+     * @param header the metadata
+     * @param data the data
+     */
+    public void set(H header, D data){
+        myHeader = header;
+        myData = data;
+    }
+
+    /**
+     * Gets the event's metadata
+     * @return the metadata
+     */
+    @Override
+    public H getHeader() {
+        return myHeader;
+    }
+
+    /**
+     * Gets the event's data
+     * @return the data
+     */
+    @Override
+    public D getData() {
+        return myData;
+    }
+
+    /**
+     * Releases the header if it is Recyclable, then clears the event and
+     * returns it to its pool
+     * @throws IllegalStateException if the event was already released
+     */
+    @Override
+    public void release() {
+        if(!myReleased.compareAndSet(false, true)){
+            throw new IllegalStateException("Event already released.");
+        }
+        H header = myHeader;
+        set(null, null);
+        if(header instanceof Recyclable){
+            ((Recyclable)header).release();
+        }
+        if(myPool != null){
+            myPool.recycle(this);
+        }
+    }
+
+    /**
+     * Marks an event taken from the pool as in use
+     */
+    void acquired(){
+        myReleased.set(false);
+    }
+
+    /**
+     * Adapter to generate pooled Events from data alone
+     * @param <H> type of metadata
+     * @param <D> type of data
+     */
+    public static class PooledEventFactory<H,D> implements
+            Adapter<D,Event<H,D>> {
+        private Adapter<D,H> myHeaderFactory;
+        private ObjectPool<PooledEvent<H,D>> myPool;
+
+        /**
+         * Builds a new factory using an Adapter to generate the metadata
+         * @param headerFactory Adapter generating metadata
+         */
+        public PooledEventFactory(Adapter<D,H> headerFactory){
+            this(headerFactory, ObjectPool.DEFAULT_CAPACITY);
+        }
+
+        /**
+         * Builds a new factory using an Adapter to generate the metadata
+         * @param headerFactory Adapter generating metadata
+         * @param poolCapacity maximum number of idle events to keep
+         */
+        public PooledEventFactory(Adapter<D,H> headerFactory,
+                int poolCapacity){
+            if(headerFactory == null){
+                throw new NullPointerException();
+            }
+            myHeaderFactory = headerFactory;
+            EventPoolSource<H,D> source = new EventPoolSource<H,D>();
+            myPool = new ObjectPool<PooledEvent<H,D>>(source, poolCapacity);
+            source.myPool = myPool;
+        }
+
+        /**
+         * Builds a new factory using a Source to generate the metadata
+         * @param headerSource Source generating metadata
+         */
+        public PooledEventFactory(Source<H> headerSource){
+            this(new SourceAdapter<D, H>(headerSource));
+        }
+
+        /**
+         * Turns a piece of data into a PooledEvent
+         * @param a the data
+         * @return the event
+         */
+        @Override
+        public PooledEvent<H,D> adapt(D a) {
+            PooledEvent<H,D> event = myPool.acquire();
+            event.acquired();
+            event.set(myHeaderFactory.adapt(a), a);
+            return event;
+        }
+
+        /**
+         * Gets the pool of events
+         * @return the event pool
+         */
+        public ObjectPool<PooledEvent<H,D>> getPool(){
+            return myPool;
+        }
+    }
+
+    private static class EventPoolSource<H,D> implements
+            Source<PooledEvent<H,D>> {
+        private ObjectPool<PooledEvent<H,D>> myPool;
+
+        @Override
+        public PooledEvent<H,D> getValue() {
+            return new PooledEvent<H,D>(myPool);
+        }
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.event;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jflux.api.core.Adapter;
+import org.jflux.api.core.Source;
+import org.jflux.api.core.util.LongSource;
+import org.jflux.api.core.util.ObjectPool;
+import org.jflux.api.core.util.Recyclable;
+import org.jflux.api.core.util.TimestampSource;
+
+/**
+ * Reusable Header with a primitive timestamp.  Headers created by a
+ * PooledHeaderFactory or PooledHeaderSource are returned to their pool by
+ * release() once the last consumer is finished with them.
+ *
+ * getTimestamp() boxes the timestamp; use getTimestampValue() on hot paths.
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <SourceRef> type of source reference
+ */
+public class PooledHeader<SourceRef> implements
+        MutableHeader<SourceRef, Long>, Recyclable {
+    private final ObjectPool<PooledHeader<SourceRef>> myPool;
+    private final AtomicBoolean myReleased;
+    private SourceRef mySourceRef;
+    private long myTimestamp;
+    private String myEventType;
+    private Map<String,String> myProperties;
+
+    /**
+     * Builds an unpooled PooledHeader.  Releasing it only clears it.
+     */
+    public PooledHeader(){
+        this(null);
+    }
+
+    /**
+     * Builds a PooledHeader belonging to a pool
+     * @param pool pool to return the header to when released
+     */
+    public PooledHeader(ObjectPool<PooledHeader<SourceRef>> pool){
+        myPool = pool;
+        myReleased = new AtomicBoolean();
+    }
+
+    /**
+     * Sets all fields of the header
+     * @param sourceRef the source reference
+     * @param timestamp the timestamp
+     * @param eventType the event type
+     * @param props the properties
+     */
+    public void set(SourceRef sourceRef, long timestamp,
+            String eventType, Map<String,String> props){
+        mySourceRef = sourceRef;
+        myTimestamp = timestamp;
+        myEventType = eventType;
+        myProperties = props;
+    }
+
+    /**
+     * Gets the source reference
+     * @return the source reference
+     */
+    @Override
+    public SourceRef getSourceReference() {
+        return mySourceRef;
+    }
+
+    /**
+     * Gets the timestamp as a boxed Long
+     * @return the timestamp
+     */
+    @Override
+    public Long getTimestamp() {
+        return myTimestamp;
+    }
+
+    /**
+     * Gets the timestamp without boxing
+     * @return the timestamp
+     */
+    public long getTimestampValue() {
+        return myTimestamp;
+    }
+
+    /**
+     * Gets the event type
+     * @return the event type
+     */
+    @Override
+    public String getEventType() {
+        return myEventType;
+    }
+
+    /**
+     * Gets the properties
+     * @return Map of properties
+     */
+    @Override
+    public Map<String,String> getHeaderProperties() {
+        return myProperties;
+    }
+
+    /**
+     * Set the source reference
+     * @param sourceRef the source reference
+     */
+    @Override
+    public void setSourceReference(SourceRef sourceRef) {
+        mySourceRef = sourceRef;
+    }
+
+    /**
+     * Set the timestamp
+     * @param timestamp the timestamp
+     */
+    @Override
+    public void setTimestamp(Long timestamp) {
+        if(timestamp == null){
+            throw new NullPointerException();
+        }
+        myTimestamp = timestamp;
+    }
+
+    /**
+     * Set the timestamp without boxing
+     * @param timestamp the timestamp
+     */
+    public void setTimestampValue(long timestamp) {
+        myTimestamp = timestamp;
+    }
+
+    /**
+     * Set the event type
+     * @param eventType the event type
+     */
+    @Override
+    public void setEventType(String eventType) {
+        myEventType = eventType;
+    }
+
+    /**
+     * Set the properties
+     * @param headerProperties the properties
+     */
+    @Override
+    public void setHeaderProperties(Map<String,String> headerProperties) {
+        myProperties = headerProperties;
+    }
+
+    /**
+     * Clears the header and returns it to its pool
+     * @throws IllegalStateException if the header was already released
+     */
+    @Override
+    public void release() {
+        if(!myReleased.compareAndSet(false, true)){
+            throw new IllegalStateException("Header already released.");
+        }
+        set(null, 0L, null, null);
+        if(myPool != null){
+            myPool.recycle(this);
+        }
+    }
+
+    /**
+     * Marks a header taken from the pool as in use
+     */
+    void acquired(){
+        myReleased.set(false);
+    }
+
+    static <S> ObjectPool<PooledHeader<S>> createPool(int capacity){
+        HeaderPoolSource<S> source = new HeaderPoolSource<S>();
+        ObjectPool<PooledHeader<S>> pool =
+                new ObjectPool<PooledHeader<S>>(source, capacity);
+        source.myPool = pool;
+        return pool;
+    }
+
+    private static class HeaderPoolSource<S> implements
+            Source<PooledHeader<S>> {
+        private ObjectPool<PooledHeader<S>> myPool;
+
+        @Override
+        public PooledHeader<S> getValue() {
+            return new PooledHeader<S>(myPool);
+        }
+    }
+
+    /**
+     * Adapter to generate pooled headers from raw data.  Property maps are
+     * interned, so headers with equal properties share one immutable Map.
+     * @param <Data> type of raw data
+     * @param <SourceRef> source reference type
+     */
+    public static class PooledHeaderFactory<Data,SourceRef> implements
+            Adapter<Data,Header<SourceRef,Long>> {
+        private Adapter<Data,SourceRef> mySourceRefAdapter;
+        private LongSource myTimestampSource;
+        private Adapter<Data,String> myEventTypeAdapter;
+        private Adapter<Data,Map<String,String>> myPropertiesAdapter;
+        private PropertyInterner myInterner;
+        private ObjectPool<PooledHeader<SourceRef>> myPool;
+
+        /**
+         * Build a PooledHeaderFactory with the default pool capacity
+         * @param sourceRefAdapter Adapter to generate source reference
+         * @param timestampSource clock to generate timestamp, or null to
+         * use the shared system clock, comparable across processes
+         * @param eventTypeAdapter Adapter to generate event type
+         * @param propsAdapter Adapter to generate properties
+         */
+        public PooledHeaderFactory(
+                Adapter<Data,SourceRef> sourceRefAdapter,
+                LongSource timestampSource,
+                Adapter<Data,String> eventTypeAdapter,
+                Adapter<Data,Map<String,String>> propsAdapter){
+            this(sourceRefAdapter, timestampSource, eventTypeAdapter,
+                    propsAdapter, ObjectPool.DEFAULT_CAPACITY);
+        }
+
+        /**
+         * Build a PooledHeaderFactory
+         * @param sourceRefAdapter Adapter to generate source reference
+         * @param timestampSource clock to generate timestamp, or null to
+         * use the shared system clock, comparable across processes
+         * @param eventTypeAdapter Adapter to generate event type
+         * @param propsAdapter Adapter to generate properties
+         * @param poolCapacity maximum number of idle headers to keep
+         */
+        public PooledHeaderFactory(
+                Adapter<Data,SourceRef> sourceRefAdapter,
+                LongSource timestampSource,
+                Adapter<Data,String> eventTypeAdapter,
+                Adapter<Data,Map<String,String>> propsAdapter,
+                int poolCapacity){
+            if(sourceRefAdapter == null
+                    || eventTypeAdapter == null || propsAdapter == null){
+                throw new NullPointerException();
+            }
+            mySourceRefAdapter = sourceRefAdapter;
+            myTimestampSource = timestampSource == null
+                    ? TimestampSource.getSystemClock() : timestampSource;
+            myEventTypeAdapter = eventTypeAdapter;
+            myPropertiesAdapter = propsAdapter;
+            myInterner = new PropertyInterner();
+            myPool = PooledHeader.createPool(poolCapacity);
+        }
+
+        /**
+         * Generate a PooledHeader from raw data
+         * @param a the raw data
+         * @return the PooledHeader
+         */
+        @Override
+        public PooledHeader<SourceRef> adapt(Data a) {
+            PooledHeader<SourceRef> header = myPool.acquire();
+            header.acquired();
+            long time = myTimestampSource.getAsLong();
+            header.set(mySourceRefAdapter.adapt(a), time,
+                    myEventTypeAdapter.adapt(a),
+                    myInterner.intern(myPropertiesAdapter.adapt(a)));
+            return header;
+        }
+
+        /**
+         * Gets the pool of headers
+         * @return the header pool
+         */
+        public ObjectPool<PooledHeader<SourceRef>> getPool(){
+            return myPool;
+        }
+    }
+
+    /**
+     * Source to generate pooled headers on demand.  Every header shares one
+     * immutable copy of the properties.
+     * @param <SourceRef> source reference type
+     */
+    public static class PooledHeaderSource<SourceRef> implements
+            Source<Header<SourceRef,Long>> {
+        private SourceRef mySourceRef;
+        private LongSource myTimestampSource;
+        private String myEventType;
+        private Map<String,String> myProperties;
+        private ObjectPool<PooledHeader<SourceRef>> myPool;
+
+        /**
+         * Builds a PooledHeaderSource with the default pool capacity
+         * @param sourceRef the source reference
+         * @param timestampSource timestamp generator, or null to use the
+         * shared system clock, comparable across processes
+         * @param eventType the event type
+         * @param props Map of properties
+         */
+        public PooledHeaderSource(
+                SourceRef sourceRef, LongSource timestampSource,
+                String eventType, Map<String,String> props){
+            this(sourceRef, timestampSource, eventType, props,
+                    ObjectPool.DEFAULT_CAPACITY);
+        }
+
+        /**
+         * Builds a PooledHeaderSource
+         * @param sourceRef the source reference
+         * @param timestampSource timestamp generator, or null to use the
+         * shared system clock, comparable across processes
+         * @param eventType the event type
+         * @param props Map of properties
+         * @param poolCapacity maximum number of idle headers to keep
+         */
+        public PooledHeaderSource(
+                SourceRef sourceRef, LongSource timestampSource,
+                String eventType, Map<String,String> props,
+                int poolCapacity){
+            mySourceRef = sourceRef;
+            myTimestampSource = timestampSource == null
+                    ? TimestampSource.getSystemClock() : timestampSource;
+            myEventType = eventType;
+            myProperties = props == null ? null : Collections.unmodifiableMap(
+                    new HashMap<String,String>(props));
+            myPool = PooledHeader.createPool(poolCapacity);
+        }
+
+        /**
+         * Builds a PooledHeader
+         * @return the PooledHeader
+         */
+        @Override
+        public PooledHeader<SourceRef> getValue() {
+            PooledHeader<SourceRef> header = myPool.acquire();
+            header.acquired();
+            long time = myTimestampSource.getAsLong();
+            header.set(mySourceRef, time, myEventType, myProperties);
+            return header;
+        }
+
+        /**
+         * Gets the pool of headers
+         * @return the header pool
+         */
+        public ObjectPool<PooledHeader<SourceRef>> getPool(){
+            return myPool;
+        }
+    }
+}
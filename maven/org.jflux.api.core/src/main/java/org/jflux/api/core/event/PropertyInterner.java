@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.event;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonicalizes Header property maps, so headers with equal properties share
+ * one immutable Map.  Properties equal to the previous call's are matched
+ * against the last shared Map before the table is searched, so a steady
+ * stream of equal properties is interned without hashing the Map.  Interning
+ * properties which are already shared allocates nothing; only a new set of
+ * properties is copied.
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class PropertyInterner {
+    /**
+     * Default maximum number of distinct property maps kept
+     */
+    public final static int DEFAULT_MAX_SIZE = 256;
+
+    private final ConcurrentHashMap<Map<String,String>,Map<String,String>> myMaps;
+    private final int myMaxSize;
+    private volatile Map<String,String> myLast;
+
+    /**
+     * Builds a PropertyInterner with the default maximum size
+     */
+    public PropertyInterner(){
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Builds a PropertyInterner
+     * @param maxSize maximum number of distinct property maps to keep.  Maps
+     * seen after the interner is full are copied but not shared.
+     */
+    public PropertyInterner(int maxSize){
+        if(maxSize < 0){
+            throw new IllegalArgumentException(
+                    "Max size must not be negative: " + maxSize);
+        }
+        myMaxSize = maxSize;
+        myMaps = new ConcurrentHashMap<Map<String,String>,Map<String,String>>();
+    }
+
+    /**
+     * Returns the shared immutable Map equal to the given properties
+     * @param props properties to intern
+     * @return shared immutable copy of the properties, or null if props is
+     * null
+     */
+    public Map<String,String> intern(Map<String,String> props){
+        if(props == null){
+            return null;
+        }
+        Map<String,String> last = myLast;
+        if(last != null && (last == props || last.equals(props))){
+            return last;
+        }
+        Map<String,String> shared = myMaps.get(props);
+        if(shared == null){
+            shared = Collections.unmodifiableMap(
+                    new HashMap<String,String>(props));
+            if(myMaps.size() < myMaxSize){
+                Map<String,String> prev = myMaps.putIfAbsent(shared, shared);
+                if(prev != null){
+                    shared = prev;
+                }
+            }
+        }
+        myLast = shared;
+        return shared;
+    }
+
+    /**
+     * Get the number of distinct property maps being shared
+     * @return number of interned maps
+     */
+    public int size(){
+        return myMaps.size();
+    }
+}
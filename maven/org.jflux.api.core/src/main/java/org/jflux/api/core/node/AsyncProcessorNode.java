@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.node;
+
+import java.util.concurrent.Executor;
+import org.jflux.api.core.Adapter;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.Notifier;
+import org.jflux.api.core.playable.BasicPlayable;
+import org.jflux.api.core.playable.ConditionalListener;
+import org.jflux.api.core.playable.ConditionalNotifier;
+import org.jflux.api.core.playable.DropMonitor;
+import org.jflux.api.core.util.AsyncListener;
+import org.jflux.api.core.util.AsyncListener.OverflowPolicy;
+import org.jflux.api.core.util.CopyOnWriteNotifier;
+import org.jflux.api.core.util.QueueMonitor;
+
+/**
+ * ProcessorNode which queues its input and runs its Adapter on an Executor.
+ * The upstream Notifier returns as soon as the event is queued.
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <In> input information type
+ * @param <Out> output information type
+ */
+public class AsyncProcessorNode<In, Out> extends
+        BasicPlayable implements ProcessorNode<In, Out>, QueueMonitor, DropMonitor {
+    private Adapter<In, Out> myProcessor;
+    private AsyncListener<In> myQueue;
+    private ConditionalListener<In> myInputListener;
+    private ConditionalNotifier<Out> myOutputNotifier;
+
+    /**
+     * Builds an AsyncProcessorNode with the default Executor, capacity and the
+     * BLOCK OverflowPolicy
+     * @param proc Adapter to run
+     */
+    public AsyncProcessorNode(Adapter<In,Out> proc){
+        this(proc, AsyncListener.getDefaultExecutor(),
+                AsyncListener.DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Builds an AsyncProcessorNode
+     * @param proc Adapter to run
+     * @param executor Executor used to run the Adapter
+     * @param capacity maximum number of queued input events
+     * @param policy behavior when the input queue is full
+     */
+    public AsyncProcessorNode(Adapter<In,Out> proc,
+            Executor executor, int capacity, OverflowPolicy policy){
+        if(proc == null){
+            throw new NullPointerException();
+        }
+        myProcessor = proc;
+        myQueue = new AsyncListener<In>(
+                new DefaultInputListener(), executor, capacity, policy);
+        myInputListener = new ConditionalListener<In>(this, myQueue);
+        myOutputNotifier = new ConditionalNotifier<Out>(
+                this, new CopyOnWriteNotifier<Out>());
+    }
+
+    /**
+     * Get the internal Listener for receiving
+     * @return the internal Listener
+     */
+    @Override
+    public Listener<In> getListener() {
+        return myInputListener;
+    }
+
+    /**
+     * Get the internal Notifier for sending
+     * @return the internal Notifier
+     */
+    @Override
+    public Notifier<Out> getNotifier() {
+        return myOutputNotifier;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return myQueue.getQueueDepth();
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return myQueue.getQueueCapacity();
+    }
+
+    /**
+     * Get the number of events dropped because the queue was full or the
+     * node was not running
+     * @return number of dropped events
+     */
+    @Override
+    public long getDroppedCount() {
+        return myQueue.getDroppedCount() + myInputListener.getDroppedCount()
+                + myOutputNotifier.getDroppedCount();
+    }
+
+    /**
+     * Get the number of events dropped while in the given state
+     * @param reason PlayState at the time of the drop
+     * @return number of events dropped in that state
+     */
+    @Override
+    public long getDroppedCount(PlayState reason) {
+        return myInputListener.getDroppedCount(reason)
+                + myOutputNotifier.getDroppedCount(reason);
+    }
+
+    @Override
+    public long getDeliveredCount() {
+        return myQueue.getDeliveredCount();
+    }
+
+    class DefaultInputListener implements Listener<In>{
+        @Override
+        public void handleEvent(In event) {
+            if(event == null){
+                return;
+            }
+            Out out = myProcessor.adapt(event);
+            if(out != null){
+                myOutputNotifier.notifyListeners(out);
+            }
+        }
+    }
+}
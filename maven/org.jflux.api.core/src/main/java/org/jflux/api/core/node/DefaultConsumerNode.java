@@ -17,6 +17,7 @@ package org.jflux.api.core.node;
 
 import org.jflux.api.core.playable.BasicPlayable;
 import org.jflux.api.core.playable.ConditionalListener;
+import org.jflux.api.core.playable.DropMonitor;
 import org.jflux.api.core.Listener;
 
 /**
@@ -25,8 +26,8 @@ import org.jflux.api.core.Listener;
  * @param <In> information type
  */
 public class DefaultConsumerNode<In> extends 
-        BasicPlayable implements ConsumerNode<In> {
-    private Listener<In> myListener;
+        BasicPlayable implements ConsumerNode<In>, DropMonitor {
+    private ConditionalListener<In> myListener;
 
     /**
      * Builds a DefaultConsumerNode around a listener
@@ -47,4 +48,23 @@ public class DefaultConsumerNode<In> extends
     public Listener<In> getListener() {
         return myListener;
     }
+
+    /**
+     * Get the number of events dropped while not running
+     * @return number of dropped events
+     */
+    @Override
+    public long getDroppedCount() {
+        return myListener.getDroppedCount();
+    }
+
+    /**
+     * Get the number of events dropped while in the given state
+     * @param reason PlayState at the time of the drop
+     * @return number of events dropped in that state
+     */
+    @Override
+    public long getDroppedCount(PlayState reason) {
+        return myListener.getDroppedCount(reason);
+    }
 }
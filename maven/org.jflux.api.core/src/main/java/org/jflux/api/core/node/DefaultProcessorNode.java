@@ -18,6 +18,7 @@ package org.jflux.api.core.node;
 import org.jflux.api.core.playable.BasicPlayable;
 import org.jflux.api.core.playable.ConditionalListener;
 import org.jflux.api.core.playable.ConditionalNotifier;
+import org.jflux.api.core.playable.DropMonitor;
 import org.jflux.api.core.Adapter;
 import org.jflux.api.core.util.DefaultNotifier;
 import org.jflux.api.core.Listener;
@@ -30,10 +31,10 @@ import org.jflux.api.core.Notifier;
  * @param <Out> output information type
  */
 public class DefaultProcessorNode<In, Out> extends 
-        BasicPlayable implements ProcessorNode<In, Out> {
+        BasicPlayable implements ProcessorNode<In, Out>, DropMonitor {
     private Adapter<In, Out> myProcessor;
-    private Listener<In> myInputListener;
-    private Notifier<Out> myOutputNotifier;
+    private ConditionalListener<In> myInputListener;
+    private ConditionalNotifier<Out> myOutputNotifier;
 
     /**
      * Builds a DefaultProcessorNode from an Adapter
@@ -68,6 +69,27 @@ public class DefaultProcessorNode<In, Out> extends
         return myOutputNotifier;
     }
     
+    /**
+     * Get the number of events dropped while not running
+     * @return number of dropped events
+     */
+    @Override
+    public long getDroppedCount() {
+        return myInputListener.getDroppedCount()
+                + myOutputNotifier.getDroppedCount();
+    }
+
+    /**
+     * Get the number of events dropped while in the given state
+     * @param reason PlayState at the time of the drop
+     * @return number of events dropped in that state
+     */
+    @Override
+    public long getDroppedCount(PlayState reason) {
+        return myInputListener.getDroppedCount(reason)
+                + myOutputNotifier.getDroppedCount(reason);
+    }
+
     class DefaultInputListener implements Listener<In>{
         @Override
         public void handleEvent(In event) {
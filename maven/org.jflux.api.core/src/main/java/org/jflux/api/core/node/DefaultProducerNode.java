@@ -17,6 +17,7 @@ package org.jflux.api.core.node;
 
 import org.jflux.api.core.playable.BasicPlayable;
 import org.jflux.api.core.playable.ConditionalNotifier;
+import org.jflux.api.core.playable.DropMonitor;
 import org.jflux.api.core.Notifier;
 
 /**
@@ -25,8 +26,8 @@ import org.jflux.api.core.Notifier;
  * @param <Out> information type
  */
 public class DefaultProducerNode<Out> extends 
-        BasicPlayable implements ProducerNode<Out> {
-    private Notifier<Out> myNotifier;
+        BasicPlayable implements ProducerNode<Out>, DropMonitor {
+    private ConditionalNotifier<Out> myNotifier;
 
     /**
      * Builds a DefaultProducerNode around a Notifier
@@ -47,4 +48,23 @@ public class DefaultProducerNode<Out> extends
     public Notifier<Out> getNotifier() {
         return myNotifier;
     }
+
+    /**
+     * Get the number of events dropped while not running
+     * @return number of dropped events
+     */
+    @Override
+    public long getDroppedCount() {
+        return myNotifier.getDroppedCount();
+    }
+
+    /**
+     * Get the number of events dropped while in the given state
+     * @param reason PlayState at the time of the drop
+     * @return number of events dropped in that state
+     */
+    @Override
+    public long getDroppedCount(PlayState reason) {
+        return myNotifier.getDroppedCount(reason);
+    }
 }
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.jflux.api.core.Adapter;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.Notifier;
+import org.jflux.api.core.Source;
+import org.jflux.api.core.playable.ConditionalListener;
+import org.jflux.api.core.playable.DropMonitor;
+import org.jflux.api.core.playable.Playable;
+import org.jflux.api.core.playable.Playable.PlayState;
+import org.jflux.api.core.playable.PlayableGroup;
+import org.jflux.api.core.util.AsyncListener;
+import org.jflux.api.core.util.AsyncListener.OverflowPolicy;
+import org.jflux.api.core.util.CopyOnWriteNotifier;
+import org.jflux.api.core.util.DefaultSource;
+import org.jflux.api.core.util.QueueMonitor;
+
+/**
+ * ProcessorNode which runs several copies of a processing segment in
+ * parallel.  Each input event is assigned to a partition by the key from a
+ * partition Adapter, and each partition has its own queue and worker.  Events
+ * with equal keys always go to the same partition, so they are processed and
+ * sent in order; events with different keys may be reordered.
+ *
+ * Input is only accepted while the node is RUNNING, like the other nodes;
+ * events arriving at any other time are dropped before they are queued.
+ *
+ * Output events are sent from the partition workers, so Listeners on the
+ * Notifier may be called from several threads at once.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <In> input information type
+ * @param <Out> output information type
+ */
+public class PartitionedProcessorNode<In, Out> extends
+        PlayableGroup implements ProcessorNode<In, Out>, QueueMonitor,
+        DropMonitor {
+    private final Adapter<In,?> myPartitioner;
+    private final AsyncListener<In>[] myPartitions;
+    private final List<Playable> mySegments;
+    private final ConditionalListener<In> myInputListener;
+    private final Notifier<Out> myOutputNotifier;
+
+    /**
+     * Builds a PartitionedProcessorNode with a worker thread for each
+     * partition, the default capacity and the BLOCK OverflowPolicy
+     * @param segmentFactory creates the segment for each partition
+     * @param partitioner gives the partition key of an input event
+     * @param partitions number of partitions
+     */
+    public PartitionedProcessorNode(
+            Source<? extends ProcessorNode<In,Out>> segmentFactory,
+            Adapter<In,?> partitioner, int partitions){
+        this(segmentFactory, partitioner, partitions,
+                new Source<Executor>() {
+                    @Override
+                    public Executor getValue() {
+                        return AsyncListener.newWorkerExecutor(
+                                "jflux-partition-");
+                    }
+                },
+                AsyncListener.DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Builds a PartitionedProcessorNode
+     * @param segmentFactory creates the segment for each partition
+     * @param partitioner gives the partition key of an input event
+     * @param partitions number of partitions
+     * @param executor Executor used to run the segments
+     * @param capacity maximum number of queued events per partition
+     * @param policy behavior when a partition's queue is full
+     */
+    public PartitionedProcessorNode(
+            Source<? extends ProcessorNode<In,Out>> segmentFactory,
+            Adapter<In,?> partitioner, int partitions,
+            Executor executor, int capacity, OverflowPolicy policy){
+        this(segmentFactory, partitioner, partitions,
+                new DefaultSource<Executor>(checkExecutor(executor)),
+                capacity, policy);
+    }
+
+    private PartitionedProcessorNode(
+            Source<? extends ProcessorNode<In,Out>> segmentFactory,
+            Adapter<In,?> partitioner, int partitions,
+            Source<Executor> executors, int capacity, OverflowPolicy policy){
+        if(segmentFactory == null || partitioner == null){
+            throw new NullPointerException();
+        }
+        if(partitions < 1){
+            throw new IllegalArgumentException(
+                    "Partitions must be positive: " + partitions);
+        }
+        myPartitioner = partitioner;
+        myOutputNotifier = new CopyOnWriteNotifier<Out>();
+        myPartitions = new AsyncListener[partitions];
+        List<Playable> segments = new ArrayList<Playable>(partitions);
+        Listener<Out> output = new OutputListener();
+        for(int i = 0; i < partitions; i++){
+            ProcessorNode<In,Out> segment = segmentFactory.getValue();
+            if(segment == null){
+                throw new NullPointerException();
+            }
+            segment.getNotifier().addListener(output);
+            myPartitions[i] = new AsyncListener<In>(segment.getListener(), 
+                    executors.getValue(), capacity, policy);
+            segments.add(segment);
+        }
+        mySegments = Collections.unmodifiableList(segments);
+        myInputListener =
+                new ConditionalListener<In>(this, new PartitionListener());
+    }
+
+    private static Executor checkExecutor(Executor executor){
+        if(executor == null){
+            throw new NullPointerException();
+        }
+        return executor;
+    }
+
+    /**
+     * Get the internal Listener for receiving
+     * @return the internal Listener
+     */
+    @Override
+    public Listener<In> getListener() {
+        return myInputListener;
+    }
+
+    /**
+     * Get the internal Notifier for sending
+     * @return the internal Notifier
+     */
+    @Override
+    public Notifier<Out> getNotifier() {
+        return myOutputNotifier;
+    }
+
+    /**
+     * Get the number of partitions
+     * @return number of partitions
+     */
+    public int getPartitionCount(){
+        return myPartitions.length;
+    }
+
+    /**
+     * Get the queue statistics for a single partition
+     * @param partition index of the partition
+     * @return QueueMonitor for the partition
+     */
+    public QueueMonitor getQueueMonitor(int partition){
+        return myPartitions[partition];
+    }
+
+    /**
+     * Get the deepest queue among all partitions
+     * @return number of events queued for the busiest partition
+     */
+    @Override
+    public int getQueueDepth() {
+        int depth = 0;
+        for(AsyncListener<In> queue : myPartitions){
+            depth = Math.max(depth, queue.getQueueDepth());
+        }
+        return depth;
+    }
+
+    /**
+     * Get the queue capacity of each partition
+     * @return capacity per partition
+     */
+    @Override
+    public int getQueueCapacity() {
+        return myPartitions[0].getQueueCapacity();
+    }
+
+    /**
+     * Get the total number of events dropped, either because the node was not
+     * RUNNING or because a partition's queue was full
+     * @return number of dropped events
+     */
+    @Override
+    public long getDroppedCount() {
+        long count = myInputListener.getDroppedCount();
+        for(AsyncListener<In> queue : myPartitions){
+            count += queue.getDroppedCount();
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of events dropped while the node was in the given state
+     * @param reason PlayState at the time of the drop
+     * @return number of events dropped in that state
+     */
+    @Override
+    public long getDroppedCount(PlayState reason) {
+        return myInputListener.getDroppedCount(reason);
+    }
+
+    /**
+     * Get the total number of events delivered across all partitions
+     * @return number of delivered events
+     */
+    @Override
+    public long getDeliveredCount() {
+        long count = 0;
+        for(AsyncListener<In> queue : myPartitions){
+            count += queue.getDeliveredCount();
+        }
+        return count;
+    }
+
+    /**
+     * Get the segment of every partition
+     * @return collection of segments
+     */
+    @Override
+    protected Iterable<Playable> getPlayables() {
+        return mySegments;
+    }
+
+    int getPartition(In event){
+        Object key = myPartitioner.adapt(event);
+        if(key == null){
+            return 0;
+        }
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % myPartitions.length;
+    }
+
+    class PartitionListener implements Listener<In>{
+        @Override
+        public void handleEvent(In event) {
+            if(event == null){
+                return;
+            }
+            myPartitions[getPartition(event)].handleEvent(event);
+        }
+    }
+
+    class OutputListener implements Listener<Out>{
+        @Override
+        public void handleEvent(Out event) {
+            myOutputNotifier.notifyListeners(event);
+        }
+    }
+}
@@ -21,9 +21,11 @@ import org.jflux.api.core.node.ConsumerNode;
 import org.jflux.api.core.node.Node;
 import org.jflux.api.core.node.ProcessorNode;
 import org.jflux.api.core.node.ProducerNode;
+import org.jflux.api.core.playable.DropMonitor;
 import org.jflux.api.core.playable.Playable;
 import org.jflux.api.core.playable.PlayableGroup;
 import org.jflux.api.core.Notifier;
+import org.jflux.api.core.util.QueueMonitor;
 
 /**
  * Cluster of Nodes, linking a ProducerNode and ConsumerNode through one or more
@@ -268,6 +270,49 @@ public class NodeChain<P,C> extends PlayableGroup implements Node{
         n.removeListener(consumer.getListener());
     }
 
+    /**
+     * Get the queue statistics of every queued Node in the chain, including
+     * Nodes in nested NodeChains, in chain order
+     * @return List of QueueMonitors
+     */
+    public List<QueueMonitor> getQueueMonitors(){
+        List<QueueMonitor> monitors = new ArrayList<QueueMonitor>();
+        collectQueueMonitors(monitors);
+        return monitors;
+    }
+    
+    private void collectQueueMonitors(List<QueueMonitor> monitors){
+        for(Playable p : myPlayables){
+            if(p instanceof NodeChain){
+                ((NodeChain)p).collectQueueMonitors(monitors);
+            }else if(p instanceof QueueMonitor){
+                monitors.add((QueueMonitor)p);
+            }
+        }
+    }
+
+    /**
+     * Get the drop counts of every Node in the chain which tracks events
+     * dropped while not running, including Nodes in nested NodeChains, in
+     * chain order
+     * @return List of DropMonitors
+     */
+    public List<DropMonitor> getDropMonitors(){
+        List<DropMonitor> monitors = new ArrayList<DropMonitor>();
+        collectDropMonitors(monitors);
+        return monitors;
+    }
+
+    private void collectDropMonitors(List<DropMonitor> monitors){
+        for(Playable p : myPlayables){
+            if(p instanceof NodeChain){
+                ((NodeChain)p).collectDropMonitors(monitors);
+            }else if(p instanceof DropMonitor){
+                monitors.add((DropMonitor)p);
+            }
+        }
+    }
+
     /**
      * Get all managed Nodes
      * @return collection of Nodes
@@ -17,10 +17,15 @@ package org.jflux.api.core.node.chain;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 import org.jflux.api.core.node.*;
 import org.jflux.api.core.Adapter;
 import org.jflux.api.core.Listener;
 import org.jflux.api.core.Notifier;
+import org.jflux.api.core.Source;
+import org.jflux.api.core.util.AsyncListener;
+import org.jflux.api.core.util.AsyncListener.OverflowPolicy;
+import org.jflux.api.core.util.EmptyAdapter;
 
 /**
  * Utility class to build a NodeChain from components
@@ -119,6 +124,80 @@ public class NodeChainBuilder<H,T> {
         return (NodeChainBuilder<H,N>)this;
     }
     
+    /**
+     * Add a stage boundary to the chain.  Events are queued at the boundary
+     * and the rest of the chain runs on its own worker thread, so each stage
+     * of the chain can run on a separate core.
+     * @return the NodeChainBuilder itself
+     */
+    public NodeChainBuilder<H,T> stage(){
+        return stage(AsyncListener.DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+    }
+    
+    /**
+     * Add a stage boundary to the chain, with its own worker thread
+     * @param capacity maximum number of queued events
+     * @param policy behavior when the queue is full
+     * @return the NodeChainBuilder itself
+     */
+    public NodeChainBuilder<H,T> stage(int capacity, OverflowPolicy policy){
+        return stage(AsyncListener.newWorkerExecutor("jflux-stage-"), 
+                capacity, policy);
+    }
+    
+    /**
+     * Add a stage boundary to the chain, run on the given Executor
+     * @param executor Executor running the rest of the chain
+     * @param capacity maximum number of queued events
+     * @param policy behavior when the queue is full
+     * @return the NodeChainBuilder itself
+     */
+    public NodeChainBuilder<H,T> stage(
+            Executor executor, int capacity, OverflowPolicy policy){
+        return attach(new AsyncProcessorNode<T, T>(
+                new EmptyAdapter<T, T>(), executor, capacity, policy));
+    }
+    
+    /**
+     * Add a stateless Adapter to the chain, run by several partition workers
+     * in parallel.  Events with equal partition keys are processed in order.
+     * @param <N> intermediate data type
+     * @param partitioner gives the partition key of an event
+     * @param partitions number of partitions
+     * @param adapter Adapter to add, shared by all partitions
+     * @return the NodeChainBuilder itself
+     */
+    public <N> NodeChainBuilder<H,N> partition(Adapter<T,?> partitioner,
+            int partitions, final Adapter<T,N> adapter){
+        if(adapter == null){
+            throw new NullPointerException();
+        }
+        return partition(partitioner, partitions, 
+                new Source<ProcessorNode<T,N>>() {
+                    @Override
+                    public ProcessorNode<T, N> getValue() {
+                        return new DefaultProcessorNode<T, N>(adapter);
+                    }
+                });
+    }
+    
+    /**
+     * Add a processing segment to the chain, with a copy of the segment for
+     * each partition running in parallel.  Events with equal partition keys
+     * are processed in order.
+     * @param <N> intermediate data type
+     * @param partitioner gives the partition key of an event
+     * @param partitions number of partitions
+     * @param segmentFactory creates the segment for each partition
+     * @return the NodeChainBuilder itself
+     */
+    public <N> NodeChainBuilder<H,N> partition(
+            Adapter<T,?> partitioner, int partitions, 
+            Source<? extends ProcessorNode<T,N>> segmentFactory){
+        return attach(new PartitionedProcessorNode<T, N>(
+                segmentFactory, partitioner, partitions));
+    }
+    
     /**
      * Add a Listener (-> ConsumerNode) to the chain
      * @param consumer Listener to add
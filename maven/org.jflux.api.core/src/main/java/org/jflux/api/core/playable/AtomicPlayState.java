@@ -0,0 +1,146 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.playable;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.playable.Playable.PlayState;
+import org.jflux.api.core.util.ListenerArray;
+
+/**
+ * PlayState holder which is safe to read and change from any thread.
+ * <p>
+ * Reading the state is a single volatile read.  Changes are made with
+ * compare-and-set, and each change is reported to Listeners as a
+ * PlayStateChange after it is made, without holding any lock.  Changes
+ * made concurrently from several threads may be reported in a different
+ * order than they were made; the current state is always the result of the
+ * last successful change.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public final class AtomicPlayState {
+    private final Playable mySource;
+    private final AtomicReference<PlayState> myState;
+    private final ListenerArray<PlayStateChange> myListeners;
+
+    /**
+     * Builds an AtomicPlayState
+     * @param source Playable reported as the source of changes
+     * @param initial initial PlayState, may be null
+     */
+    public AtomicPlayState(Playable source, PlayState initial){
+        if(source == null){
+            throw new NullPointerException();
+        }
+        mySource = source;
+        myState = new AtomicReference<PlayState>(initial);
+        myListeners = new ListenerArray<PlayStateChange>();
+    }
+
+    /**
+     * Gets the current state
+     * @return current PlayState
+     */
+    public PlayState get(){
+        return myState.get();
+    }
+
+    /**
+     * Sets the state unconditionally
+     * @param state new PlayState
+     * @return the previous PlayState
+     */
+    public PlayState set(PlayState state){
+        PlayState prev = myState.getAndSet(state);
+        if(prev != state){
+            fireChange(prev, state);
+        }
+        return prev;
+    }
+
+    /**
+     * Sets the state if it is currently the expected state
+     * @param expect expected current PlayState
+     * @param update new PlayState
+     * @return true if the state was changed
+     */
+    public boolean compareAndSet(PlayState expect, PlayState update){
+        if(!myState.compareAndSet(expect, update)){
+            return false;
+        }
+        if(expect != update){
+            fireChange(expect, update);
+        }
+        return true;
+    }
+
+    /**
+     * Sets the state if it is currently any of the expected states
+     * @param update new PlayState
+     * @param expect allowed current PlayStates
+     * @return true if the state was changed
+     */
+    public boolean transition(PlayState update, PlayState... expect){
+        while(true){
+            PlayState cur = myState.get();
+            if(!contains(expect, cur)){
+                return false;
+            }
+            if(compareAndSet(cur, update)){
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Adds a Listener for state changes
+     * @param listener Listener to add
+     */
+    public void addListener(Listener<PlayStateChange> listener){
+        myListeners.addListener(listener);
+    }
+
+    /**
+     * Removes a Listener for state changes
+     * @param listener Listener to remove
+     */
+    public void removeListener(Listener<PlayStateChange> listener){
+        myListeners.removeListener(listener);
+    }
+
+    private void fireChange(PlayState prev, PlayState state){
+        if(myListeners.size() == 0 || state == null){
+            return;
+        }
+        myListeners.notifyListeners(
+                new PlayStateChange(mySource, prev, state));
+    }
+
+    private static boolean contains(PlayState[] states, PlayState state){
+        for(PlayState s : states){
+            if(s == state){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(myState.get());
+    }
+}
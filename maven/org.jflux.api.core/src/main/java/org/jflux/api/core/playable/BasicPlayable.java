@@ -15,67 +15,87 @@
  */
 package org.jflux.api.core.playable;
 
+import org.jflux.api.core.Listener;
+
 /**
- * Simple implementation of Playable
+ * Simple implementation of Playable.  The state is held in an
+ * AtomicPlayState, so it may be read and changed from any thread.
+ * <p>
+ * Each transition is a single compare-and-set from the states it is legal
+ * in, and returns false without changing the state from any other:
+ * <ul>
+ * <li>start: INITIALIZING, PENDING, COMPLETED, ABORTED or ERROR</li>
+ * <li>pause: RUNNING</li>
+ * <li>resume: PAUSED</li>
+ * <li>stop: INITIALIZING, PENDING, RUNNING, PAUSED or ERROR</li>
+ * <li>complete: RUNNING or PAUSED</li>
+ * </ul>
+ * A request for the state the object is already in succeeds without 
+ * reporting a change, so groups may safely repeat a transition on their 
+ * members.  Subclasses with side effects should check the state first.
  * @author Matthew Stevenson <www.jflux.org>
  */
 public class BasicPlayable implements Playable{
-    private PlayState myPlayState;
+    private final AtomicPlayState myPlayState;
     
     /**
      * Create a new BasicPlayable in INITIALIZING state
      */
     public BasicPlayable(){
-        myPlayState = PlayState.INITIALIZING;
+        myPlayState = new AtomicPlayState(this, PlayState.INITIALIZING);
     }
     
     /**
      * Starts the object
-     * @return success
+     * @return false if the object is paused
      */
     @Override
     public boolean start() {
-        myPlayState = PlayState.RUNNING;
-        return true;
+        return myPlayState.transition(PlayState.RUNNING,
+                PlayState.INITIALIZING, PlayState.PENDING,
+                PlayState.COMPLETED, PlayState.ABORTED, PlayState.ERROR,
+                PlayState.RUNNING);
     }
 
     /**
      * Pauses the object
-     * @return success
+     * @return false if the object is not running or paused
      */
     @Override
     public boolean pause() {
-        myPlayState = PlayState.PAUSED;
-        return true;
+        return myPlayState.transition(PlayState.PAUSED,
+                PlayState.RUNNING, PlayState.PAUSED);
     }
 
     /**
      * Resumes the object
-     * @return success
+     * @return false if the object is not paused or running
      */
     @Override
     public boolean resume() {
-        myPlayState = PlayState.RUNNING;
-        return true;
+        return myPlayState.transition(PlayState.RUNNING,
+                PlayState.PAUSED, PlayState.RUNNING);
     }
 
     /**
      * Stops the object
-     * @return success
+     * @return false if the object is completed
      */
     @Override
     public boolean stop() {
-        myPlayState = PlayState.ABORTED;
-        return true;
+        return myPlayState.transition(PlayState.ABORTED,
+                PlayState.INITIALIZING, PlayState.PENDING,
+                PlayState.RUNNING, PlayState.PAUSED, PlayState.ERROR,
+                PlayState.ABORTED);
     }
     
     /**
      * Complete's the object's operation
-     * @return success
+     * @return false if the object is not running, paused or completed
      */
     protected boolean complete() {
-        myPlayState = PlayState.COMPLETED;
-        return true;
+        return myPlayState.transition(PlayState.COMPLETED,
+                PlayState.RUNNING, PlayState.PAUSED, PlayState.COMPLETED);
     }
 
     /**
@@ -84,7 +104,42 @@ public class BasicPlayable implements Playable{
      */
     @Override
     public PlayState getPlayState() {
-        return myPlayState;
+        return myPlayState.get();
+    }
+    
+    /**
+     * Sets the object's state unconditionally
+     * @param state new PlayState
+     * @return the previous PlayState
+     */
+    protected PlayState setPlayState(PlayState state) {
+        return myPlayState.set(state);
+    }
+    
+    /**
+     * Sets the object's state if it is currently the expected state
+     * @param expect expected current PlayState
+     * @param update new PlayState
+     * @return true if the state was changed
+     */
+    protected boolean compareAndSetPlayState(
+            PlayState expect, PlayState update) {
+        return myPlayState.compareAndSet(expect, update);
+    }
+    
+    /**
+     * Adds a Listener notified after each change of state
+     * @param listener Listener to add
+     */
+    public void addPlayStateListener(Listener<PlayStateChange> listener) {
+        myPlayState.addListener(listener);
     }
     
+    /**
+     * Removes a Listener for changes of state
+     * @param listener Listener to remove
+     */
+    public void removePlayStateListener(Listener<PlayStateChange> listener) {
+        myPlayState.removeListener(listener);
+    }
 }
@@ -15,18 +15,24 @@
  */
 package org.jflux.api.core.playable;
 
+import java.util.List;
+import org.jflux.api.core.BatchListener;
+import org.jflux.api.core.BatchListener.DefaultBatchListener;
 import org.jflux.api.core.Listener;
 
 /**
- * Listener that only works if a Playable is running
+ * Listener that only works if a Playable is running.  Events received while
+ * the Playable is not running are dropped and counted, and may be sent to a
+ * dead-letter Listener.
  *
  * @param <E> input data type
  * @author Matthew Stevenson <www.jflux.org>
  */
-public class ConditionalListener<E> implements Listener<E> {
+public class ConditionalListener<E> implements BatchListener<E>, DropMonitor {
 	private static final org.slf4j.Logger theLogger = org.slf4j.LoggerFactory.getLogger(ConditionalListener.class);
 	private Playable myPlayable;
 	private Listener<E> myListener;
+	private DropCounter<E> myDrops;
 
 	/**
 	 * Builds a ConditionalListener from a Playable and a Listener
@@ -40,6 +46,7 @@ public class ConditionalListener<E> implements Listener<E> {
 		}
 		myPlayable = p;
 		myListener = l;
+		myDrops = new DropCounter<E>(p, theLogger);
 	}
 
 	/**
@@ -49,12 +56,57 @@ public class ConditionalListener<E> implements Listener<E> {
 	 */
 	@Override
 	public void handleEvent(E event) {
-		if (myPlayable.getPlayState() == Playable.PlayState.RUNNING) {
+		Playable.PlayState state = myPlayable.getPlayState();
+		if (state == Playable.PlayState.RUNNING) {
 			myListener.handleEvent(event);
 		} else {
-			theLogger.info("PlayState is {} for Playable: {}, \nIgnoring event: {}",
-					myPlayable.getPlayState(),
-					myPlayable.toString(), event);
+			myDrops.drop(event, state);
 		}
 	}
+
+	/**
+	 * Processes a batch of events if and only if in RUNNING state.  The state
+	 * is checked once for the whole batch.
+	 *
+	 * @param events data to process
+	 */
+	@Override
+	public void handleEvents(List<E> events) {
+		Playable.PlayState state = myPlayable.getPlayState();
+		if (state == Playable.PlayState.RUNNING) {
+			DefaultBatchListener.deliver(myListener, events);
+		} else {
+			for (int i = 0, n = events.size(); i < n; i++) {
+				myDrops.drop(events.get(i), state);
+			}
+		}
+	}
+
+	/**
+	 * Gets the DropCounter for events received while not running
+	 *
+	 * @return the DropCounter
+	 */
+	public DropCounter<E> getDropCounter() {
+		return myDrops;
+	}
+
+	/**
+	 * Sets a Listener to receive events received while not running
+	 *
+	 * @param listener dead-letter Listener, or null to discard them
+	 */
+	public void setDeadLetterListener(Listener<E> listener) {
+		myDrops.setDeadLetterListener(listener);
+	}
+
+	@Override
+	public long getDroppedCount() {
+		return myDrops.getDroppedCount();
+	}
+
+	@Override
+	public long getDroppedCount(Playable.PlayState reason) {
+		return myDrops.getDroppedCount(reason);
+	}
 }
@@ -15,21 +15,26 @@
  */
 package org.jflux.api.core.playable;
 
+import java.util.List;
+import org.jflux.api.core.BatchNotifier;
 import org.jflux.api.core.Listener;
 import org.jflux.api.core.Notifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Notifier that only works if a Playable is running
+ * Notifier that only works if a Playable is running.  Events sent while the
+ * Playable is not running are dropped and counted, and may be sent to a
+ * dead-letter Listener.
  *
  * @param <E> input data type
  * @author Matthew Stevenson <www.jflux.org>
  */
-public class ConditionalNotifier<E> implements Notifier<E> {
+public class ConditionalNotifier<E> implements BatchNotifier<E>, DropMonitor {
 	private static final Logger theLogger = LoggerFactory.getLogger(ConditionalNotifier.class);
 	private Playable myPlayable;
 	private Notifier<E> myNotifier;
+	private DropCounter<E> myDrops;
 
 	/**
 	 * Builds a ConditionalNotifier from a Playable and a Notifier
@@ -43,6 +48,7 @@ public class ConditionalNotifier<E> implements Notifier<E> {
 		}
 		myPlayable = p;
 		myNotifier = n;
+		myDrops = new DropCounter<E>(p, theLogger);
 	}
 
 	/**
@@ -52,14 +58,64 @@ public class ConditionalNotifier<E> implements Notifier<E> {
 	 */
 	@Override
 	public void notifyListeners(E e) {
-		if (myPlayable.getPlayState() == Playable.PlayState.RUNNING) {
+		Playable.PlayState state = myPlayable.getPlayState();
+		if (state == Playable.PlayState.RUNNING) {
 			myNotifier.notifyListeners(e);
 		} else {
-			theLogger.info("PlayState is {} for Playable: {}, \nIgnoring event: {}",
-					myPlayable.getPlayState(), myPlayable.toString(), e);
+			myDrops.drop(e, state);
 		}
 	}
 
+	/**
+	 * Notifies Listeners of a batch if and only if in RUNNING state.  The
+	 * state is checked once for the whole batch.
+	 *
+	 * @param events event data to send
+	 */
+	@Override
+	public void notifyEvents(List<E> events) {
+		Playable.PlayState state = myPlayable.getPlayState();
+		if (state != Playable.PlayState.RUNNING) {
+			for (int i = 0, n = events.size(); i < n; i++) {
+				myDrops.drop(events.get(i), state);
+			}
+		} else if (myNotifier instanceof BatchNotifier) {
+			((BatchNotifier<E>) myNotifier).notifyEvents(events);
+		} else {
+			for (int i = 0, n = events.size(); i < n; i++) {
+				myNotifier.notifyListeners(events.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Gets the DropCounter for events sent while not running
+	 *
+	 * @return the DropCounter
+	 */
+	public DropCounter<E> getDropCounter() {
+		return myDrops;
+	}
+
+	/**
+	 * Sets a Listener to receive events sent while not running
+	 *
+	 * @param listener dead-letter Listener, or null to discard them
+	 */
+	public void setDeadLetterListener(Listener<E> listener) {
+		myDrops.setDeadLetterListener(listener);
+	}
+
+	@Override
+	public long getDroppedCount() {
+		return myDrops.getDroppedCount();
+	}
+
+	@Override
+	public long getDroppedCount(Playable.PlayState reason) {
+		return myDrops.getDroppedCount(reason);
+	}
+
 	/**
 	 * Adds a Listener
 	 *
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.playable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.playable.Playable.PlayState;
+import org.slf4j.Logger;
+
+/**
+ * Accounts for events dropped because a Playable was not RUNNING.
+ * <p>
+ * Drops are counted by the PlayState at the time of the drop.  Instead of
+ * logging each event, a summary of the drops is logged at most once per log
+ * interval, and events are never formatted.  Dropped events may also be sent
+ * to a dead-letter Listener.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <E> event type
+ */
+public class DropCounter<E> implements DropMonitor {
+    /**
+     * Default minimum time between log messages, in milliseconds
+     */
+    public final static long DEFAULT_LOG_INTERVAL = 10000L;
+    private final static PlayState[] theStates = PlayState.values();
+
+    private final Playable myOwner;
+    private final Logger myLogger;
+    private final AtomicLongArray myCounts;
+    private final AtomicLong myNextLogTime;
+    private volatile long myLogInterval;
+    private volatile long myLoggedCount;
+    private volatile Listener<E> myDeadLetterListener;
+
+    /**
+     * Builds a DropCounter
+     * @param owner Playable whose state causes the drops
+     * @param logger Logger for drop summaries
+     */
+    public DropCounter(Playable owner, Logger logger){
+        if(owner == null || logger == null){
+            throw new NullPointerException();
+        }
+        myOwner = owner;
+        myLogger = logger;
+        myCounts = new AtomicLongArray(theStates.length + 1);
+        myLogInterval = TimeUnit.MILLISECONDS.toNanos(DEFAULT_LOG_INTERVAL);
+        myNextLogTime = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Records a dropped event
+     * @param event the dropped event
+     * @param reason PlayState which caused the drop
+     */
+    public void drop(E event, PlayState reason){
+        myCounts.incrementAndGet(reason == null ? 0 : reason.ordinal() + 1);
+        Listener<E> deadLetter = myDeadLetterListener;
+        if(deadLetter != null){
+            deadLetter.handleEvent(event);
+        }
+        if(myLogger.isInfoEnabled()){
+            logSample(reason);
+        }
+    }
+
+    /**
+     * Get the total number of dropped events
+     * @return number of dropped events
+     */
+    @Override
+    public long getDroppedCount() {
+        long count = 0;
+        for(int i = 0; i < myCounts.length(); i++){
+            count += myCounts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of events dropped while in the given state
+     * @param reason PlayState at the time of the drop
+     * @return number of events dropped in that state
+     */
+    @Override
+    public long getDroppedCount(PlayState reason) {
+        return myCounts.get(reason == null ? 0 : reason.ordinal() + 1);
+    }
+
+    /**
+     * Sets a Listener to receive dropped events
+     * @param listener dead-letter Listener, or null to discard dropped events
+     */
+    public void setDeadLetterListener(Listener<E> listener){
+        myDeadLetterListener = listener;
+    }
+
+    /**
+     * Gets the Listener receiving dropped events
+     * @return dead-letter Listener, or null
+     */
+    public Listener<E> getDeadLetterListener(){
+        return myDeadLetterListener;
+    }
+
+    /**
+     * Sets the minimum time between log messages
+     * @param interval minimum time between messages, 0 to log every drop
+     * @param unit TimeUnit of the interval
+     */
+    public void setLogInterval(long interval, TimeUnit unit){
+        if(unit == null){
+            throw new NullPointerException();
+        }
+        myLogInterval = unit.toNanos(Math.max(0L, interval));
+    }
+
+    private void logSample(PlayState reason){
+        long now = System.nanoTime();
+        long next = myNextLogTime.get();
+        if(now - next < 0 
+                || !myNextLogTime.compareAndSet(next, now + myLogInterval)){
+            return;
+        }
+        long total = getDroppedCount();
+        long count = total - myLoggedCount;
+        myLoggedCount = total;
+        if(count > 0){
+            myLogger.info("Dropped {} events while {} for Playable: {} "
+                    + "({} total).", count, reason, myOwner, total);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.playable;
+
+import org.jflux.api.core.playable.Playable.PlayState;
+
+/**
+ * Statistics for events dropped because a Playable was not RUNNING
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public interface DropMonitor {
+
+    /**
+     * Get the total number of dropped events
+     * @return number of dropped events
+     */
+    public long getDroppedCount();
+
+    /**
+     * Get the number of events dropped while in the given state
+     * @param reason PlayState at the time of the drop
+     * @return number of events dropped in that state
+     */
+    public long getDroppedCount(PlayState reason);
+}
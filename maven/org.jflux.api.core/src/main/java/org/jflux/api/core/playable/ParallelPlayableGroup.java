@@ -0,0 +1,385 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.playable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.jflux.api.core.util.AsyncListener.DaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * PlayableGroup which changes the state of its children in parallel.
+ * <p>
+ * A child may depend on children added before it.  Starting and resuming
+ * run each child after all of its dependencies have finished; pausing and
+ * stopping run each child after all of its dependents have finished.
+ * Children with no ordering between them run concurrently, up to a bounded
+ * parallelism.  Each transition still returns only once every child is
+ * done, so the Playable contract is unchanged.
+ * <p>
+ * If any child fails to start, no further children are started and the
+ * children which did start are stopped again, in reverse order.  If a child
+ * fails to pause, resume or stop, or fails to stop during that rollback, only
+ * the children ordered after it by that transition are skipped; every other
+ * child is still transitioned.  The time taken by each child's most recent
+ * transition is recorded.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class ParallelPlayableGroup extends PlayableGroup {
+    private final static Logger theLogger =
+            LoggerFactory.getLogger(ParallelPlayableGroup.class);
+    private static ExecutorService theDefaultExecutor;
+
+    private final Executor myExecutor;
+    private final int myParallelism;
+    private final List<Playable> myChildren;
+    private final Map<Playable,List<Playable>> myDependencies;
+    private final Map<Playable,List<Playable>> myDependents;
+    private final Map<Playable,Long> myTransitionTimes;
+
+    /**
+     * Builds a ParallelPlayableGroup running up to one transition per
+     * processor on the default Executor
+     */
+    public ParallelPlayableGroup(){
+        this(getDefaultExecutor(),
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns the shared Executor used when none is given.  Child transitions
+     * may block, and a child may itself be a group waiting on its own
+     * children, so threads are created as needed rather than taken from a
+     * fixed pool.  Each group still limits its own concurrent transitions to
+     * its parallelism.
+     * @return the default Executor
+     */
+    public static synchronized ExecutorService getDefaultExecutor(){
+        if(theDefaultExecutor == null){
+            theDefaultExecutor = Executors.newCachedThreadPool(
+                    new DaemonThreadFactory("jflux-lifecycle-"));
+        }
+        return theDefaultExecutor;
+    }
+
+    /**
+     * Builds a ParallelPlayableGroup
+     * @param executor Executor used to run child transitions
+     * @param parallelism maximum number of concurrent child transitions
+     */
+    public ParallelPlayableGroup(Executor executor, int parallelism){
+        if(executor == null){
+            throw new NullPointerException();
+        }
+        if(parallelism < 1){
+            throw new IllegalArgumentException(
+                    "Parallelism must be positive: " + parallelism);
+        }
+        myExecutor = executor;
+        myParallelism = parallelism;
+        myChildren = new ArrayList<Playable>();
+        myDependencies = new IdentityHashMap<Playable, List<Playable>>();
+        myDependents = new IdentityHashMap<Playable, List<Playable>>();
+        myTransitionTimes = new ConcurrentHashMap<Playable, Long>();
+    }
+
+    /**
+     * Adds a child to the group
+     * @param child Playable to add
+     * @param dependencies children which must start before this one and
+     * stop after it.  They must already be in the group.
+     */
+    public synchronized void add(Playable child, Playable... dependencies){
+        if(child == null || dependencies == null){
+            throw new NullPointerException();
+        }
+        if(myDependencies.containsKey(child)){
+            throw new IllegalArgumentException(
+                    "Playable is already in the group: " + child);
+        }
+        List<Playable> deps = new ArrayList<Playable>(dependencies.length);
+        for(Playable dep : dependencies){
+            if(!myDependencies.containsKey(dep)){
+                throw new IllegalArgumentException(
+                        "Dependency is not in the group: " + dep);
+            }
+            if(!deps.contains(dep)){
+                deps.add(dep);
+            }
+        }
+        myChildren.add(child);
+        myDependencies.put(child, deps);
+        myDependents.put(child, new ArrayList<Playable>());
+        for(Playable dep : deps){
+            myDependents.get(dep).add(child);
+        }
+    }
+
+    /**
+     * Get the duration of a child's most recent transition
+     * @param child the child
+     * @param unit TimeUnit for the result
+     * @return duration of the last transition, or -1 if the child has not
+     * changed state
+     */
+    public long getTransitionTime(Playable child, TimeUnit unit){
+        Long nanos = myTransitionTimes.get(child);
+        return nanos == null ? -1L : unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the maximum number of concurrent child transitions
+     * @return the parallelism
+     */
+    public int getParallelism(){
+        return myParallelism;
+    }
+
+    /**
+     * Starts all children, dependencies first.  Rolls back on failure.
+     * @return success or failure
+     */
+    @Override
+    public synchronized boolean start() {
+        List<Playable> started = new ArrayList<Playable>();
+        if(transition(Transition.START, myChildren, started)){
+            setPlayState(PlayState.RUNNING);
+            return true;
+        }
+        theLogger.warn("Unable to start group, stopping {} started children.",
+                started.size());
+        transition(Transition.STOP, started, new ArrayList<Playable>());
+        setPlayState(PlayState.ERROR);
+        return false;
+    }
+
+    /**
+     * Pauses all children, dependents first
+     * @return success or failure
+     */
+    @Override
+    public synchronized boolean pause() {
+        return setState(transition(Transition.PAUSE, myChildren,
+                new ArrayList<Playable>()), PlayState.PAUSED);
+    }
+
+    /**
+     * Resumes all children, dependencies first
+     * @return success or failure
+     */
+    @Override
+    public synchronized boolean resume() {
+        return setState(transition(Transition.RESUME, myChildren,
+                new ArrayList<Playable>()), PlayState.RUNNING);
+    }
+
+    /**
+     * Stops all children, dependents first
+     * @return success or failure
+     */
+    @Override
+    public synchronized boolean stop() {
+        return setState(transition(Transition.STOP, myChildren,
+                new ArrayList<Playable>()), PlayState.ABORTED);
+    }
+
+    /**
+     * Get all children, in the order they were added
+     * @return collection of Playables
+     */
+    @Override
+    protected Iterable<Playable> getPlayables() {
+        return Collections.unmodifiableList(myChildren);
+    }
+
+    private boolean setState(boolean ret, PlayState state) {
+        setPlayState(ret ? state : PlayState.ERROR);
+        return ret;
+    }
+
+    /**
+     * Runs a transition on the target children in dependency order.  A
+     * child whose prerequisite failed is skipped.  After a failure, a
+     * fail-fast transition submits no more children and only waits for the
+     * ones already running.
+     * @param transition transition to run
+     * @param targets children to transition
+     * @param succeeded receives the children which succeeded
+     * @return true if every target succeeded
+     */
+    private boolean transition(Transition transition,
+            Collection<Playable> targets, List<Playable> succeeded){
+        Map<Playable,List<Playable>> before =
+                transition.isForward() ? myDependencies : myDependents;
+        Map<Playable,List<Playable>> after =
+                transition.isForward() ? myDependents : myDependencies;
+        Map<Playable,Integer> waiting = new IdentityHashMap<Playable,Integer>();
+        for(Playable p : targets){
+            waiting.put(p, 0);
+        }
+        Queue<Playable> ready = new ArrayDeque<Playable>();
+        for(Playable p : targets){
+            int count = 0;
+            for(Playable prereq : before.get(p)){
+                if(waiting.containsKey(prereq)){
+                    count++;
+                }
+            }
+            waiting.put(p, count);
+            if(count == 0){
+                ready.add(p);
+            }
+        }
+        BlockingQueue<Result> results = new LinkedBlockingQueue<Result>();
+        boolean success = true;
+        boolean interrupted = false;
+        int running = 0;
+        while(true){
+            while((success || !transition.isFailFast())
+                    && running < myParallelism && !ready.isEmpty()){
+                submit(new Task(transition, ready.poll(), results));
+                running++;
+            }
+            if(running == 0){
+                break;
+            }
+            Result result;
+            try{
+                result = results.take();
+            }catch(InterruptedException ex){
+                interrupted = true;
+                continue;
+            }
+            running--;
+            myTransitionTimes.put(result.myPlayable, result.myTime);
+            if(!result.mySuccess){
+                success = false;
+                continue;
+            }
+            succeeded.add(result.myPlayable);
+            for(Playable next : after.get(result.myPlayable)){
+                Integer count = waiting.get(next);
+                if(count == null){
+                    continue;
+                }
+                waiting.put(next, count - 1);
+                if(count == 1){
+                    ready.add(next);
+                }
+            }
+        }
+        if(interrupted){
+            Thread.currentThread().interrupt();
+        }
+        return success && succeeded.size() == targets.size();
+    }
+
+    private void submit(Task task){
+        try{
+            myExecutor.execute(task);
+        }catch(RejectedExecutionException ex){
+            try{
+                task.run();
+            }catch(Error err){
+                //Already logged and reported as a failure by the task.
+            }
+        }
+    }
+
+    static enum Transition{
+        START, PAUSE, RESUME, STOP;
+
+        boolean isForward(){
+            return this == START || this == RESUME;
+        }
+
+        boolean isFailFast(){
+            return this == START;
+        }
+
+        boolean apply(Playable p){
+            switch(this){
+                case START: return p.start();
+                case PAUSE: return p.pause();
+                case RESUME: return p.resume();
+                default: return p.stop();
+            }
+        }
+    }
+
+    static class Result{
+        final Playable myPlayable;
+        final boolean mySuccess;
+        final long myTime;
+
+        Result(Playable playable, boolean success, long time){
+            myPlayable = playable;
+            mySuccess = success;
+            myTime = time;
+        }
+    }
+
+    static class Task implements Runnable{
+        private final Transition myTransition;
+        private final Playable myPlayable;
+        private final BlockingQueue<Result> myResults;
+
+        Task(Transition transition,
+                Playable playable, BlockingQueue<Result> results){
+            myTransition = transition;
+            myPlayable = playable;
+            myResults = results;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            boolean success = false;
+            try{
+                success = myTransition.apply(myPlayable);
+            }catch(RuntimeException ex){
+                theLogger.warn("Error in {} of {}.",
+                        myTransition, myPlayable, ex);
+            }catch(Error err){
+                theLogger.error("Error in {} of {}.",
+                        myTransition, myPlayable, err);
+                throw err;
+            }finally{
+                long time = System.nanoTime() - start;
+                theLogger.debug("{} of {} took {}ms.", myTransition,
+                        myPlayable, TimeUnit.NANOSECONDS.toMillis(time));
+                //Always report, or the group would wait on this child forever.
+                myResults.add(new Result(myPlayable, success, time));
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.playable;
+
+import org.jflux.api.core.playable.Playable.PlayState;
+
+/**
+ * Event describing a Playable's change from one PlayState to another
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public final class PlayStateChange {
+    private final Playable mySource;
+    private final PlayState myPrevious;
+    private final PlayState myState;
+
+    /**
+     * Builds a PlayStateChange
+     * @param source Playable which changed state
+     * @param previous state before the change
+     * @param state state after the change
+     */
+    public PlayStateChange(
+            Playable source, PlayState previous, PlayState state){
+        if(source == null || state == null){
+            throw new NullPointerException();
+        }
+        mySource = source;
+        myPrevious = previous;
+        myState = state;
+    }
+
+    /**
+     * Gets the Playable which changed state
+     * @return the Playable
+     */
+    public Playable getSource(){
+        return mySource;
+    }
+
+    /**
+     * Gets the state before the change
+     * @return previous PlayState, may be null
+     */
+    public PlayState getPrevious(){
+        return myPrevious;
+    }
+
+    /**
+     * Gets the state after the change
+     * @return new PlayState
+     */
+    public PlayState getState(){
+        return myState;
+    }
+
+    @Override
+    public String toString() {
+        return mySource + ": " + myPrevious + " -> " + myState;
+    }
+}
@@ -15,12 +15,22 @@
  */
 package org.jflux.api.core.playable;
 
+import org.jflux.api.core.Listener;
+
 /**
- * Collection of Playable objects that can all be set at once
+ * Collection of Playable objects that can all be set at once.  The group's
+ * state may be read from any thread.
  * @author Matthew Stevenson <www.jflux.org>
  */
 public abstract class PlayableGroup implements Playable{
-    private PlayState myPlayState;
+    private final AtomicPlayState myPlayState;
+    
+    /**
+     * Creates a PlayableGroup with no state
+     */
+    protected PlayableGroup(){
+        myPlayState = new AtomicPlayState(this, null);
+    }
     
     /**
      * Get all Playables managed by this PlayableGroup
@@ -34,7 +44,7 @@ public abstract class PlayableGroup implements Playable{
      */
     @Override
     public PlayState getPlayState() {
-        return myPlayState;
+        return myPlayState.get();
     }
     
     /**
@@ -42,7 +52,23 @@ public abstract class PlayableGroup implements Playable{
      * @param state new PlayState
      */
     protected void setPlayState(PlayState state){
-        myPlayState = state;
+        myPlayState.set(state);
+    }
+    
+    /**
+     * Adds a Listener notified after each change of the group's state
+     * @param listener Listener to add
+     */
+    public void addPlayStateListener(Listener<PlayStateChange> listener) {
+        myPlayState.addListener(listener);
+    }
+    
+    /**
+     * Removes a Listener for changes of the group's state
+     * @param listener Listener to remove
+     */
+    public void removePlayStateListener(Listener<PlayStateChange> listener) {
+        myPlayState.removeListener(listener);
     }
 
     /**
@@ -18,6 +18,7 @@ package org.jflux.api.core.playable;
 import org.jflux.api.core.Listener;
 import org.jflux.api.core.Notifier;
 import org.jflux.api.core.util.DefaultNotifier;
+import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
@@ -29,15 +30,17 @@ import org.slf4j.LoggerFactory;
 public interface PlayableNotifier<T> extends Notifier<T>, Playable {
 
 	/**
-	 * Basic implementation of a PlayableNotifier
+	 * Basic implementation of a PlayableNotifier.  Events sent while not
+	 * running are dropped and counted.
 	 *
 	 * @param <T> input data type
 	 */
 	public static class DefaultPlayableNotifier<T> extends
-			BasicPlayable implements PlayableNotifier<T> {
-		private static final org.slf4j.Logger theLogger = LoggerFactory.getLogger(DefaultPlayableNotifier.class);
+			BasicPlayable implements PlayableNotifier<T>, DropMonitor {
+		private static final Logger theLogger = LoggerFactory.getLogger(DefaultPlayableNotifier.class);
 
 		private Notifier<T> myNotifier;
+		private DropCounter<T> myDrops;
 
 		/**
 		 * Builds a DefaultPlayableNotifier from a regular Notifier
@@ -49,6 +52,7 @@ public interface PlayableNotifier<T> extends Notifier<T>, Playable {
 				throw new NullPointerException();
 			}
 			myNotifier = notifier;
+			myDrops = new DropCounter<T>(this, theLogger);
 		}
 
 		/**
@@ -56,6 +60,7 @@ public interface PlayableNotifier<T> extends Notifier<T>, Playable {
 		 */
 		public DefaultPlayableNotifier() {
 			myNotifier = new DefaultNotifier<>();
+			myDrops = new DropCounter<T>(this, theLogger);
 		}
 
 		/**
@@ -94,13 +99,31 @@ public interface PlayableNotifier<T> extends Notifier<T>, Playable {
 		 */
 		@Override
 		public void notifyListeners(T e) {
-			if (getPlayState() == Playable.PlayState.RUNNING) {
+			Playable.PlayState state = getPlayState();
+			if (state == Playable.PlayState.RUNNING) {
 				myNotifier.notifyListeners(e);
 			} else {
-				theLogger.info("PlayState is: {}, ignoring event: {}",
-						getPlayState(), e);
+				myDrops.drop(e, state);
 			}
-			myNotifier.notifyListeners(e);
+		}
+
+		/**
+		 * Gets the DropCounter for events sent while not running
+		 *
+		 * @return the DropCounter
+		 */
+		public DropCounter<T> getDropCounter() {
+			return myDrops;
+		}
+
+		@Override
+		public long getDroppedCount() {
+			return myDrops.getDroppedCount();
+		}
+
+		@Override
+		public long getDroppedCount(Playable.PlayState reason) {
+			return myDrops.getDroppedCount(reason);
 		}
 	}
 }
@@ -0,0 +1,465 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.jflux.api.core.Listener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Listener which places events in a bounded ring buffer and delivers them to
+ * an inner Listener from an Executor.  The producer's thread only pays for the
+ * enqueue, so a slow Listener no longer stalls its Notifier.  Events are
+ * delivered in order, one at a time.
+ *
+ * An OverflowPolicy decides what happens when the buffer is full.  A Listener
+ * must not send events back into its own AsyncListener with the BLOCK policy,
+ * since the delivering thread would wait on itself.
+ *
+ * When a thread delivering for one AsyncListener finds a downstream BLOCK
+ * buffer full, it delivers the downstream events itself while no other thread
+ * is delivering them, instead of waiting for a drain task which may be queued
+ * behind it.  This lets chains of AsyncListeners share a fixed pool of threads
+ * without stalling.  A Listener may therefore be called from more than one
+ * thread, but never from two at once.
+ *
+ * If the Executor rejects delivery, the queued events are dropped and counted,
+ * and any producers blocked on a full buffer are released.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <E> event type
+ */
+public class AsyncListener<E> implements Listener<E>, QueueMonitor {
+    private final static Logger theLogger =
+            LoggerFactory.getLogger(AsyncListener.class);
+    /**
+     * Default buffer capacity
+     */
+    public final static int DEFAULT_CAPACITY = 1024;
+    private final static int MAX_BATCH = 256;
+    private final static Object theEmptyMarker = new Object();
+    private final static ThreadLocal<Boolean> theDrainingFlag =
+            new ThreadLocal<Boolean>();
+    private static ExecutorService theDefaultExecutor;
+    private final static AtomicInteger theWorkerCount = new AtomicInteger();
+
+    /**
+     * Behavior when an event arrives and the buffer is full
+     */
+    public static enum OverflowPolicy{
+
+        /**
+         * Block the producer until space is available
+         */
+        BLOCK,
+
+        /**
+         * Discard the oldest queued event to make room
+         */
+        DROP_OLDEST,
+
+        /**
+         * Discard the incoming event
+         */
+        DROP_NEWEST,
+
+        /**
+         * Replace the most recently queued event with the incoming event
+         */
+        COALESCE_LATEST
+    }
+
+    private final Listener<E> myListener;
+    private final Executor myExecutor;
+    private final OverflowPolicy myPolicy;
+    private final Object[] myBuffer;
+    private final ReentrantLock myLock;
+    private final Condition myNotFull;
+    private final ReentrantLock myDeliveryLock;
+    private final AtomicLong myDroppedCount;
+    private final AtomicLong myDeliveredCount;
+    private final AtomicLong myFailedCount;
+    private final Runnable myDrainTask;
+    private int myHead;
+    private int myCount;
+    private boolean myScheduledFlag;
+
+    /**
+     * Builds an AsyncListener with the default Executor, capacity and the
+     * BLOCK OverflowPolicy
+     * @param listener Listener to deliver events to
+     */
+    public AsyncListener(Listener<E> listener){
+        this(listener, getDefaultExecutor(),
+                DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Builds an AsyncListener
+     * @param listener Listener to deliver events to
+     * @param executor Executor used to deliver events
+     * @param capacity maximum number of queued events
+     * @param policy behavior when the buffer is full
+     */
+    public AsyncListener(Listener<E> listener, Executor executor,
+            int capacity, OverflowPolicy policy){
+        if(listener == null || executor == null || policy == null){
+            throw new NullPointerException();
+        }
+        if(capacity < 1){
+            throw new IllegalArgumentException(
+                    "Capacity must be positive: " + capacity);
+        }
+        myListener = listener;
+        myExecutor = executor;
+        myPolicy = policy;
+        myBuffer = new Object[capacity];
+        myLock = new ReentrantLock();
+        myNotFull = myLock.newCondition();
+        myDeliveryLock = new ReentrantLock();
+        myDroppedCount = new AtomicLong();
+        myDeliveredCount = new AtomicLong();
+        myFailedCount = new AtomicLong();
+        myDrainTask = new DrainTask();
+    }
+
+    /**
+     * Get the Listener events are delivered to
+     * @return the inner Listener
+     */
+    public Listener<E> getListener(){
+        return myListener;
+    }
+
+    /**
+     * Get the OverflowPolicy
+     * @return the OverflowPolicy
+     */
+    public OverflowPolicy getOverflowPolicy(){
+        return myPolicy;
+    }
+
+    /**
+     * Queues an event for delivery
+     * @param input event data
+     */
+    @Override
+    public void handleEvent(E input) {
+        boolean schedule = false;
+        myLock.lock();
+        try{
+            if(myCount == myBuffer.length && !makeRoom(input)){
+                return;
+            }
+            myBuffer[index(myCount)] = input;
+            myCount++;
+            if(!myScheduledFlag){
+                myScheduledFlag = true;
+                schedule = true;
+            }
+        }finally{
+            myLock.unlock();
+        }
+        if(schedule){
+            schedule();
+        }
+    }
+
+    /**
+     * Applies the OverflowPolicy to a full buffer.
+     * Must hold myLock.
+     * @return true if the input should be queued
+     */
+    private boolean makeRoom(E input){
+        switch(myPolicy){
+            case BLOCK:
+                try{
+                    while(myCount == myBuffer.length){
+                        //Checked while holding myLock, so a delivering 
+                        //thread cannot release without signalling us.
+                        if(isDraining() 
+                                && !myDeliveryLock.isHeldByCurrentThread()
+                                && myDeliveryLock.tryLock()){
+                            deliverNext();
+                        }else{
+                            myNotFull.await();
+                        }
+                    }
+                    return true;
+                }catch(InterruptedException ex){
+                    Thread.currentThread().interrupt();
+                    myDroppedCount.incrementAndGet();
+                    return false;
+                }
+            case DROP_OLDEST:
+                myBuffer[myHead] = null;
+                myHead = index(1);
+                myCount--;
+                myDroppedCount.incrementAndGet();
+                return true;
+            case COALESCE_LATEST:
+                myBuffer[index(myCount-1)] = input;
+                myDroppedCount.incrementAndGet();
+                return false;
+            default:
+                myDroppedCount.incrementAndGet();
+                return false;
+        }
+    }
+
+    private static boolean isDraining(){
+        return Boolean.TRUE.equals(theDrainingFlag.get());
+    }
+
+    /**
+     * Removes the oldest event and delivers it on this thread.
+     * Must hold myLock and myDeliveryLock, releases myDeliveryLock.
+     */
+    private void deliverNext(){
+        Object e = myBuffer[myHead];
+        myBuffer[myHead] = null;
+        myHead = index(1);
+        myCount--;
+        myLock.unlock();
+        try{
+            deliver(e);
+        }finally{
+            myDeliveryLock.unlock();
+            myLock.lock();
+            myNotFull.signalAll();
+        }
+    }
+
+    private void deliver(Object e){
+        boolean delivered = false;
+        try{
+            myListener.handleEvent((E)e);
+            delivered = true;
+        }catch(RuntimeException ex){
+            theLogger.warn("Error delivering event.", ex);
+        }finally{
+            if(delivered){
+                myDeliveredCount.incrementAndGet();
+            }else{
+                myFailedCount.incrementAndGet();
+            }
+        }
+    }
+
+    private int index(int offset){
+        int i = myHead + offset;
+        return i >= myBuffer.length ? i - myBuffer.length : i;
+    }
+
+    private void schedule(){
+        try{
+            myExecutor.execute(myDrainTask);
+        }catch(RejectedExecutionException ex){
+            theLogger.warn("Executor rejected event delivery, "
+                    + "dropping queued events.", ex);
+            myLock.lock();
+            try{
+                //Nothing will drain the buffer, so empty it to release 
+                //blocked producers.
+                for(int i = 0; i < myCount; i++){
+                    myBuffer[index(i)] = null;
+                }
+                myDroppedCount.addAndGet(myCount);
+                myHead = 0;
+                myCount = 0;
+                myScheduledFlag = false;
+                myNotFull.signalAll();
+            }finally{
+                myLock.unlock();
+            }
+        }
+    }
+
+    private Object poll(){
+        myLock.lock();
+        try{
+            if(myCount == 0){
+                myScheduledFlag = false;
+                return theEmptyMarker;
+            }
+            Object e = myBuffer[myHead];
+            myBuffer[myHead] = null;
+            myHead = index(1);
+            myCount--;
+            myNotFull.signal();
+            return e;
+        }finally{
+            myLock.unlock();
+        }
+    }
+
+    class DrainTask implements Runnable {
+        @Override
+        public void run() {
+            boolean empty = false;
+            Boolean draining = theDrainingFlag.get();
+            theDrainingFlag.set(Boolean.TRUE);
+            myDeliveryLock.lock();
+            try{
+                for(int i = 0; i < MAX_BATCH; i++){
+                    Object e = poll();
+                    if(e == theEmptyMarker){
+                        empty = true;
+                        return;
+                    }
+                    deliver(e);
+                }
+            }finally{
+                myDeliveryLock.unlock();
+                theDrainingFlag.set(draining);
+                releaseHelpers();
+                //Give other tasks a turn before continuing.  This also keeps
+                //draining if the Listener threw an Error.
+                if(!empty){
+                    schedule();
+                }
+            }
+        }
+    }
+
+    /**
+     * Wakes threads waiting to deliver in place of this drain task.
+     */
+    private void releaseHelpers(){
+        myLock.lock();
+        try{
+            if(myCount == myBuffer.length){
+                myNotFull.signalAll();
+            }
+        }finally{
+            myLock.unlock();
+        }
+    }
+
+    @Override
+    public int getQueueDepth() {
+        myLock.lock();
+        try{
+            return myCount;
+        }finally{
+            myLock.unlock();
+        }
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return myBuffer.length;
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return myDroppedCount.get();
+    }
+
+    @Override
+    public long getDeliveredCount() {
+        return myDeliveredCount.get();
+    }
+
+    /**
+     * Get the number of events whose delivery threw an exception.  These are
+     * not included in the delivered count.
+     * @return number of failed deliveries
+     */
+    public long getFailedCount() {
+        return myFailedCount.get();
+    }
+
+    /**
+     * Returns the shared Executor used when none is given.  It has one daemon
+     * thread per processor, at least two, shared by all AsyncListeners.  Each
+     * drain task delivers a bounded batch and then requeues itself, so busy
+     * Listeners take turns on the threads.  Listeners which block for long
+     * periods should be given their own Executor.
+     * @return the default Executor
+     */
+    public static synchronized ExecutorService getDefaultExecutor(){
+        if(theDefaultExecutor == null){
+            int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                    threads, threads, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(),
+                    new DaemonThreadFactory("jflux-async-"));
+            pool.allowCoreThreadTimeOut(true);
+            theDefaultExecutor = pool;
+        }
+        return theDefaultExecutor;
+    }
+
+    /**
+     * Creates an Executor with a single daemon thread, for AsyncListeners 
+     * which should have a worker of their own instead of sharing the default
+     * Executor.  The thread exits after a minute idle and is replaced when 
+     * needed.
+     * @param prefix prefix for the thread name
+     * @return new single thread Executor
+     */
+    public static ExecutorService newWorkerExecutor(String prefix){
+        if(prefix == null){
+            throw new NullPointerException();
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                1, 1, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new DaemonThreadFactory(
+                        prefix + theWorkerCount.incrementAndGet() + "-"));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * ThreadFactory creating named daemon threads
+     */
+    public static class DaemonThreadFactory implements ThreadFactory {
+        private final String myPrefix;
+        private final AtomicInteger myThreadCount;
+
+        /**
+         * Builds a DaemonThreadFactory
+         * @param prefix prefix for thread names
+         */
+        public DaemonThreadFactory(String prefix){
+            if(prefix == null){
+                throw new NullPointerException();
+            }
+            myPrefix = prefix;
+            myThreadCount = new AtomicInteger();
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, myPrefix + myThreadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.Notifier;
+import org.jflux.api.core.util.AsyncListener.OverflowPolicy;
+
+/**
+ * Notifier which gives each Listener its own bounded queue, delivered from an
+ * Executor.  A slow Listener only fills its own queue, leaving the producer
+ * and the other Listeners unaffected.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <E> event type
+ */
+public class AsyncNotifier<E> implements Notifier<E>, QueueMonitor {
+    private final ListenerArray<E> myQueues;
+    private final Map<Listener<E>,AsyncListener<E>> myQueueMap;
+    private final Executor myExecutor;
+    private final int myCapacity;
+    private final OverflowPolicy myPolicy;
+
+    /**
+     * Builds an AsyncNotifier with the default Executor, capacity and the
+     * BLOCK OverflowPolicy
+     */
+    public AsyncNotifier(){
+        this(AsyncListener.getDefaultExecutor(),
+                AsyncListener.DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Builds an AsyncNotifier
+     * @param executor Executor used to deliver events
+     * @param capacity maximum number of queued events per Listener
+     * @param policy behavior when a Listener's queue is full
+     */
+    public AsyncNotifier(
+            Executor executor, int capacity, OverflowPolicy policy){
+        if(executor == null || policy == null){
+            throw new NullPointerException();
+        }
+        if(capacity < 1){
+            throw new IllegalArgumentException(
+                    "Capacity must be positive: " + capacity);
+        }
+        myExecutor = executor;
+        myCapacity = capacity;
+        myPolicy = policy;
+        myQueues = new ListenerArray<E>();
+        myQueueMap = new HashMap<Listener<E>, AsyncListener<E>>();
+    }
+
+    /**
+     * Queues an event for every Listener
+     * @param e event to send
+     */
+    @Override
+    public void notifyListeners(E e) {
+        myQueues.notifyListeners(e);
+    }
+
+    /**
+     * Adds a Listener, giving it its own queue
+     * @param listener Listener to add
+     */
+    @Override
+    public synchronized void addListener(Listener<E> listener) {
+        if(listener == null){
+            throw new NullPointerException();
+        }
+        if(myQueueMap.containsKey(listener)){
+            return;
+        }
+        AsyncListener<E> queue = new AsyncListener<E>(
+                listener, myExecutor, myCapacity, myPolicy);
+        myQueueMap.put(listener, queue);
+        myQueues.addListener(queue);
+    }
+
+    /**
+     * Removes a Listener.  Events already queued for the Listener are still
+     * delivered.
+     * @param listener Listener to remove
+     */
+    @Override
+    public synchronized void removeListener(Listener<E> listener) {
+        if(listener == null){
+            throw new NullPointerException();
+        }
+        AsyncListener<E> queue = myQueueMap.remove(listener);
+        if(queue != null){
+            myQueues.removeListener(queue);
+        }
+    }
+
+    /**
+     * Get the queue statistics for a single Listener
+     * @param listener the Listener
+     * @return QueueMonitor for the Listener, or null if not present
+     */
+    public synchronized QueueMonitor getQueueMonitor(Listener<E> listener){
+        return myQueueMap.get(listener);
+    }
+
+    /**
+     * Get the deepest queue among all Listeners
+     * @return number of events queued for the slowest Listener
+     */
+    @Override
+    public synchronized int getQueueDepth() {
+        int depth = 0;
+        for(AsyncListener<E> queue : myQueueMap.values()){
+            depth = Math.max(depth, queue.getQueueDepth());
+        }
+        return depth;
+    }
+
+    /**
+     * Get the queue capacity of each Listener
+     * @return capacity per Listener
+     */
+    @Override
+    public int getQueueCapacity() {
+        return myCapacity;
+    }
+
+    /**
+     * Get the total number of events dropped across current Listeners
+     * @return number of dropped events
+     */
+    @Override
+    public synchronized long getDroppedCount() {
+        long count = 0;
+        for(AsyncListener<E> queue : myQueueMap.values()){
+            count += queue.getDroppedCount();
+        }
+        return count;
+    }
+
+    /**
+     * Get the total number of events delivered across current Listeners
+     * @return number of delivered events
+     */
+    @Override
+    public synchronized long getDeliveredCount() {
+        long count = 0;
+        for(AsyncListener<E> queue : myQueueMap.values()){
+            count += queue.getDeliveredCount();
+        }
+        return count;
+    }
+
+    /**
+     * Get the total number of failed deliveries across current Listeners
+     * @return number of events whose Listener threw an exception
+     */
+    public synchronized long getFailedCount() {
+        long count = 0;
+        for(AsyncListener<E> queue : myQueueMap.values()){
+            count += queue.getFailedCount();
+        }
+        return count;
+    }
+}
@@ -16,7 +16,9 @@
 package org.jflux.api.core.util;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.RandomAccess;
 import org.jflux.api.core.Adapter;
 
 /**
@@ -49,11 +51,30 @@ public class BatchAdapter<A,B> implements Adapter<Iterable<A>,List<B>> {
         if(a == null){
             throw new NullPointerException();
         }
-        List<B> list = new ArrayList<B>();
+        if(a instanceof List && a instanceof RandomAccess){
+            List<A> items = (List<A>)a;
+            int n = items.size();
+            List<B> list = new ArrayList<B>(n);
+            for(int i = 0; i < n; i++){
+                list.add(myAdapter.adapt(items.get(i)));
+            }
+            return list;
+        }
+        List<B> list = a instanceof Collection
+                ? new ArrayList<B>(((Collection)a).size())
+                : new ArrayList<B>();
         for(A item : a){
             B b = myAdapter.adapt(item);
             list.add(b);
         }
         return list;
-    }    
+    }
+    
+    /**
+     * Gets the Adapter applied to each item
+     * @return the item Adapter
+     */
+    public Adapter<A,B> getAdapter(){
+        return myAdapter;
+    }
 }
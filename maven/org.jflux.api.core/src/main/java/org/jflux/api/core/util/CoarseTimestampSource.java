@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clock which caches the time from another TimestampSource and refreshes it
+ * on a WheelTimer.  Reading it is a single volatile load, at the cost of
+ * being up to one resolution period behind.  The cached time never steps
+ * backwards.
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class CoarseTimestampSource extends TimestampSource {
+    /**
+     * Default refresh period in milliseconds
+     */
+    public final static long DEFAULT_RESOLUTION_MILLIS = 10L;
+
+    private final TimestampSource myClock;
+    private final ScheduledTask myTask;
+    private volatile long myTime;
+
+    /**
+     * Builds a CoarseTimestampSource caching the shared monotonic millisecond
+     * clock at the default resolution on the shared WheelTimer
+     */
+    public CoarseTimestampSource(){
+        this(TimestampSource.getMonotonicClock(), DEFAULT_RESOLUTION_MILLIS,
+                TimeUnit.MILLISECONDS, WheelTimer.getSharedTimer());
+    }
+
+    /**
+     * Builds a CoarseTimestampSource
+     * @param clock clock to cache
+     * @param resolution time between refreshes
+     * @param unit TimeUnit of the resolution
+     * @param timer WheelTimer used to refresh the time
+     */
+    public CoarseTimestampSource(TimestampSource clock,
+            long resolution, TimeUnit unit, WheelTimer timer){
+        if(clock == null || unit == null || timer == null){
+            throw new NullPointerException();
+        }
+        myClock = clock;
+        myTime = clock.getAsLong();
+        myTask = timer.scheduleAtFixedRate(
+                new Refresh(), resolution, resolution, unit);
+    }
+
+    /**
+     * Returns the cached time since the epoch
+     * @return cached time in this clock's TimeUnit
+     */
+    @Override
+    public long getAsLong() {
+        return myTime;
+    }
+
+    /**
+     * Returns the unit of the timestamps
+     * @return TimeUnit of the timestamps
+     */
+    @Override
+    public TimeUnit getTimeUnit() {
+        return myClock.getTimeUnit();
+    }
+
+    /**
+     * Returns the time between refreshes
+     * @param unit TimeUnit for the result
+     * @return the resolution
+     */
+    public long getResolution(TimeUnit unit){
+        return myTask.getPeriod(unit);
+    }
+
+    /**
+     * Stops refreshing the cached time
+     */
+    public void close(){
+        myTask.cancel();
+    }
+
+    class Refresh implements Runnable {
+        @Override
+        public void run() {
+            long time = myClock.getAsLong();
+            if(time > myTime){
+                myTime = time;
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import java.util.List;
+import org.jflux.api.core.BatchNotifier;
+import org.jflux.api.core.Listener;
+
+/**
+ * Notifier backed by a copy-on-write ListenerArray.  Events are dispatched
+ * without allocation, and Listeners can be added or removed from any thread
+ * while events are being sent.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <E> event type
+ */
+public class CopyOnWriteNotifier<E> implements BatchNotifier<E> {
+
+    /**
+     * Managed Listeners
+     */
+    protected final ListenerArray<E> myListeners;
+
+    /**
+     * Builds an empty CopyOnWriteNotifier
+     */
+    public CopyOnWriteNotifier(){
+        myListeners = new ListenerArray<E>();
+    }
+
+    /**
+     * Forwards event to all Listeners
+     * @param e event to forward
+     */
+    @Override
+    public void notifyListeners(E e){
+        myListeners.notifyListeners(e);
+    }
+
+    /**
+     * Forwards a batch of events to all Listeners
+     * @param events events to forward
+     */
+    @Override
+    public void notifyEvents(List<E> events){
+        myListeners.notifyEvents(events);
+    }
+
+    /**
+     * Adds a Listener to the managed group
+     * @param listener Listener to add
+     */
+    @Override
+    public void addListener(Listener<E> listener){
+        myListeners.addListener(listener);
+    }
+
+    /**
+     * Removes a Listener from the managed group
+     * @param listener Listener to remove
+     */
+    @Override
+    public void removeListener(Listener<E> listener){
+        myListeners.removeListener(listener);
+    }
+}
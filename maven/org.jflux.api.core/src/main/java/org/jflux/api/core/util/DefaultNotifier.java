@@ -15,8 +15,9 @@
  */
 package org.jflux.api.core.util;
 
+import org.jflux.api.core.BatchListener.DefaultBatchListener;
+import org.jflux.api.core.BatchNotifier;
 import org.jflux.api.core.Listener;
-import org.jflux.api.core.Notifier;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,7 +26,7 @@ import java.util.List;
  * @author Matthew Stevenson <www.jflux.org>
  * @param <E> event type
  */
-public class DefaultNotifier<E> implements Notifier<E> {
+public class DefaultNotifier<E> implements BatchNotifier<E> {
 
     /**
      * List of managed Listeners
@@ -50,6 +51,17 @@ public class DefaultNotifier<E> implements Notifier<E> {
         }
     }
     
+    /**
+     * Forwards a batch of events to all Listeners
+     * @param events events to forward
+     */
+    @Override
+    public void notifyEvents(List<E> events){
+        for(Listener<E> l : myListeners){
+            DefaultBatchListener.deliver(l, events);
+        }
+    }
+    
     /**
      * Adds a Listener to the managed group
      * @param listener Listener to add
@@ -15,20 +15,29 @@
  */
 package org.jflux.api.core.util;
 
-import org.jflux.api.core.Source;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Timestamp generator
+ * Timestamp generator reading System.currentTimeMillis()
  * @author Matthew Stevenson
  */
-public class DefaultTimestampSource implements Source<Long> {
+public class DefaultTimestampSource extends TimestampSource {
 
     /**
      * Dynamically generates the timestamp
-     * @return
+     * @return milliseconds since the epoch
      */
     @Override
-    public Long getValue() {
+    public long getAsLong() {
         return System.currentTimeMillis();
     }
+
+    /**
+     * Returns the unit of the timestamps
+     * @return TimeUnit.MILLISECONDS
+     */
+    @Override
+    public TimeUnit getTimeUnit() {
+        return TimeUnit.MILLISECONDS;
+    }
 }
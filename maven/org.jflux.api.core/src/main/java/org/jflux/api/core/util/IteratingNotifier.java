@@ -15,6 +15,7 @@
  */
 package org.jflux.api.core.util;
 
+import java.util.List;
 import org.jflux.api.core.Listener;
 
 /**
@@ -23,14 +24,19 @@ import org.jflux.api.core.Listener;
  * @param <T> event type
  */
 public class IteratingNotifier<T> extends 
-        DefaultNotifier<T> implements Listener<Iterable<T>>{
+        CopyOnWriteNotifier<T> implements Listener<Iterable<T>>{
 
     /**
-     * Receives a collection of events and notifies for each one
+     * Receives a collection of events and notifies for each one.  A List is
+     * passed whole to BatchListeners.
      * @param event collection of events
      */
     @Override
     public void handleEvent(Iterable<T> event) {
+        if(event instanceof List){
+            notifyEvents((List<T>)event);
+            return;
+        }
         for(T t : event){
             notifyListeners(t);
         }
@@ -41,7 +47,7 @@ public class IteratingNotifier<T> extends
      * @param <T> event type
      */
     public static class IteratingArrayNotifier<T> extends 
-            DefaultNotifier<T> implements Listener<T[]>{
+            CopyOnWriteNotifier<T> implements Listener<T[]>{
 
         /**
          * Receives an array of events and notifies for each one
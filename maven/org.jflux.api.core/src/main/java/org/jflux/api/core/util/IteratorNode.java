@@ -22,6 +22,7 @@ import org.jflux.api.core.node.ProcessorNode;
 import org.jflux.api.core.playable.BasicPlayable;
 import org.jflux.api.core.playable.ConditionalListener;
 import org.jflux.api.core.playable.ConditionalNotifier;
+import org.jflux.api.core.playable.DropMonitor;
 
 /**
  * ProcessorNode based around an IteratingNotifier
@@ -29,9 +30,9 @@ import org.jflux.api.core.playable.ConditionalNotifier;
  * @param <T> data type
  */
 public class IteratorNode<T> extends 
-        BasicPlayable implements ProcessorNode<List<T>, T> {
-    private Listener<List<T>> myListener;
-    private Notifier<T> myNotifier;
+        BasicPlayable implements ProcessorNode<List<T>, T>, DropMonitor {
+    private ConditionalListener<List<T>> myListener;
+    private ConditionalNotifier<T> myNotifier;
     
     /**
      * Builds an empty IteratorNode
@@ -60,12 +61,32 @@ public class IteratorNode<T> extends
         return myNotifier;
     }
     
+    /**
+     * Get the number of events dropped while not running
+     * @return number of dropped events
+     */
+    @Override
+    public long getDroppedCount() {
+        return myListener.getDroppedCount() + myNotifier.getDroppedCount();
+    }
+
+    /**
+     * Get the number of events dropped while in the given state
+     * @param reason PlayState at the time of the drop
+     * @return number of events dropped in that state
+     */
+    @Override
+    public long getDroppedCount(PlayState reason) {
+        return myListener.getDroppedCount(reason)
+                + myNotifier.getDroppedCount(reason);
+    }
+    
     /**
      * Notifier to process a List of events
      * @param <T> event type
      */
     public static class IteratingNotifier<T> extends 
-            DefaultNotifier<T> implements Listener<List<T>>{
+            CopyOnWriteNotifier<T> implements Listener<List<T>>{
 
         /**
          * Receives a List of events and notifies for each one
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.jflux.api.core.BatchListener.DefaultBatchListener;
+import org.jflux.api.core.Listener;
+
+/**
+ * Copy-on-write set of Listeners.  Adding or removing a Listener publishes a
+ * new array snapshot, so events are dispatched by index without allocating
+ * and without locking.  Listeners may be added or removed from any thread,
+ * including from within a dispatch.  A dispatch in progress continues with
+ * the snapshot it started with.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <E> event type
+ */
+public final class ListenerArray<E> {
+    private final static Listener[] theEmptyArray = new Listener[0];
+
+    private volatile Listener<E>[] myListeners;
+
+    /**
+     * Builds an empty ListenerArray
+     */
+    public ListenerArray(){
+        myListeners = theEmptyArray;
+    }
+
+    /**
+     * Forwards an event to every Listener in the current snapshot
+     * @param e event to forward
+     */
+    public void notifyListeners(E e){
+        Listener<E>[] listeners = myListeners;
+        for(int i = 0; i < listeners.length; i++){
+            listeners[i].handleEvent(e);
+        }
+    }
+
+    /**
+     * Forwards a batch of events to every Listener in the current snapshot,
+     * as a whole to BatchListeners and one at a time to other Listeners
+     * @param events events to forward
+     */
+    public void notifyEvents(List<E> events){
+        Listener<E>[] listeners = myListeners;
+        for(int i = 0; i < listeners.length; i++){
+            DefaultBatchListener.deliver(listeners[i], events);
+        }
+    }
+
+    /**
+     * Adds a Listener if it is not already present
+     * @param listener Listener to add
+     * @return true if the Listener was added
+     */
+    public synchronized boolean addListener(Listener<E> listener){
+        if(listener == null){
+            throw new NullPointerException();
+        }
+        Listener<E>[] old = myListeners;
+        if(indexOf(old, listener) >= 0){
+            return false;
+        }
+        Listener<E>[] listeners = Arrays.copyOf(old, old.length + 1);
+        listeners[old.length] = listener;
+        myListeners = listeners;
+        return true;
+    }
+
+    /**
+     * Removes a Listener
+     * @param listener Listener to remove
+     * @return true if the Listener was removed
+     */
+    public synchronized boolean removeListener(Listener<E> listener){
+        if(listener == null){
+            throw new NullPointerException();
+        }
+        Listener<E>[] old = myListeners;
+        int i = indexOf(old, listener);
+        if(i < 0){
+            return false;
+        }
+        if(old.length == 1){
+            myListeners = theEmptyArray;
+            return true;
+        }
+        Listener<E>[] listeners = new Listener[old.length - 1];
+        System.arraycopy(old, 0, listeners, 0, i);
+        System.arraycopy(old, i + 1, listeners, i, old.length - i - 1);
+        myListeners = listeners;
+        return true;
+    }
+
+    /**
+     * Removes all Listeners
+     */
+    public synchronized void clear(){
+        myListeners = theEmptyArray;
+    }
+
+    /**
+     * Checks if a Listener is present
+     * @param listener Listener to check
+     * @return true if the Listener is present
+     */
+    public boolean contains(Listener<E> listener){
+        return indexOf(myListeners, listener) >= 0;
+    }
+
+    /**
+     * Returns the number of Listeners in the current snapshot
+     * @return number of Listeners
+     */
+    public int size(){
+        return myListeners.length;
+    }
+
+    /**
+     * Returns an unmodifiable view of the current snapshot
+     * @return List of Listeners
+     */
+    public List<Listener<E>> getListeners(){
+        return Collections.unmodifiableList(Arrays.asList(myListeners));
+    }
+
+    private static int indexOf(Listener[] listeners, Listener listener){
+        for(int i = 0; i < listeners.length; i++){
+            if(listeners[i].equals(listener)){
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012 by The JFlux Project (www.jflux.org).
+ * Copyright 2014 The JFlux Project (www.jflux.org).
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -13,12 +13,18 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package org.jflux.api.data.blend;
+package org.jflux.api.core.util;
 
 /**
- *
+ * Source of primitive long values, for hot paths where boxing a Long for
+ * every value is too costly
  * @author Matthew Stevenson <www.jflux.org>
  */
-public class Blender {
-    
+public interface LongSource {
+
+    /**
+     * Returns a value
+     * @return the value
+     */
+    public long getAsLong();
 }
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jflux.api.core.BatchListener;
+import org.jflux.api.core.BatchListener.DefaultBatchListener;
+import org.jflux.api.core.Listener;
+
+/**
+ * Accumulates events into micro-batches and delivers each batch to a target
+ * Listener, as a whole if it is a BatchListener.  A batch is delivered when
+ * it reaches the maximum size, on the calling thread, or when the oldest
+ * event has waited for the maximum delay.  The WheelTimer only triggers the
+ * delayed flush; the batch is delivered on a separate Executor, so a slow
+ * target cannot hold up the other tasks on the timer.  Unless one is given,
+ * each MicroBatcher has its own flush thread, stopped by close().
+ *
+ * Events are delivered in the order received, and batches are never
+ * delivered concurrently.  This amortizes dispatch costs on bursty streams
+ * at the cost of up to one delay period of latency.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <T> event type
+ */
+public class MicroBatcher<T> implements BatchListener<T> {
+    /**
+     * Default maximum number of events in a batch
+     */
+    public final static int DEFAULT_MAX_BATCH_SIZE = 64;
+    /**
+     * Default maximum time in milliseconds an event waits before its batch
+     * is delivered
+     */
+    public final static long DEFAULT_MAX_DELAY_MILLIS = 5L;
+
+    private final Listener<T> myTarget;
+    private final int myMaxBatchSize;
+    private final ScheduledTask myTask;
+    private final Executor myExecutor;
+    private final ExecutorService myOwnedExecutor;
+    private final AtomicBoolean myFlushPendingFlag;
+    private final Runnable myFlushTask;
+    private final Object myDeliveryLock;
+    private List<T> myBatch;
+    private long myBatchCount;
+
+    /**
+     * Builds a MicroBatcher with the default batch size and delay, flushing
+     * on the shared WheelTimer
+     * @param target Listener to receive the batches
+     */
+    public MicroBatcher(Listener<T> target){
+        this(target, DEFAULT_MAX_BATCH_SIZE,
+                DEFAULT_MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Builds a MicroBatcher flushing on the shared WheelTimer
+     * @param target Listener to receive the batches
+     * @param maxBatchSize maximum number of events in a batch
+     * @param maxDelay maximum time an event waits before delivery, or 0 to
+     * only deliver full batches and explicit flushes
+     * @param unit TimeUnit of the delay
+     */
+    public MicroBatcher(Listener<T> target,
+            int maxBatchSize, long maxDelay, TimeUnit unit){
+        this(target, maxBatchSize, maxDelay, unit,
+                WheelTimer.getSharedTimer());
+    }
+
+    /**
+     * Builds a MicroBatcher delivering delayed batches on its own thread
+     * @param target Listener to receive the batches
+     * @param maxBatchSize maximum number of events in a batch
+     * @param maxDelay maximum time an event waits before delivery, or 0 to
+     * only deliver full batches and explicit flushes
+     * @param unit TimeUnit of the delay
+     * @param timer WheelTimer used to trigger flushes of partial batches
+     */
+    public MicroBatcher(Listener<T> target, int maxBatchSize,
+            long maxDelay, TimeUnit unit, WheelTimer timer){
+        this(target, maxBatchSize, maxDelay, unit, timer,
+                maxDelay <= 0 ? null 
+                        : AsyncListener.newWorkerExecutor("jflux-flush-"),
+                true);
+    }
+
+    /**
+     * Builds a MicroBatcher
+     * @param target Listener to receive the batches
+     * @param maxBatchSize maximum number of events in a batch
+     * @param maxDelay maximum time an event waits before delivery, or 0 to
+     * only deliver full batches and explicit flushes
+     * @param unit TimeUnit of the delay
+     * @param timer WheelTimer used to trigger flushes of partial batches
+     * @param executor Executor used to deliver partial batches.  If it
+     * rejects a flush, the flush is retried on the next timer tick.
+     */
+    public MicroBatcher(Listener<T> target, int maxBatchSize,
+            long maxDelay, TimeUnit unit, WheelTimer timer,
+            Executor executor){
+        this(target, maxBatchSize, maxDelay, unit, timer,
+                checkExecutor(executor), false);
+    }
+
+    private MicroBatcher(Listener<T> target, int maxBatchSize,
+            long maxDelay, TimeUnit unit, WheelTimer timer,
+            Executor executor, boolean owned){
+        if(target == null || unit == null || timer == null){
+            throw new NullPointerException();
+        }
+        if(maxBatchSize < 1){
+            throw new IllegalArgumentException(
+                    "Batch size must be positive: " + maxBatchSize);
+        }
+        myTarget = target;
+        myMaxBatchSize = maxBatchSize;
+        myExecutor = executor;
+        myOwnedExecutor = owned ? (ExecutorService)executor : null;
+        myFlushPendingFlag = new AtomicBoolean();
+        myFlushTask = new FlushTask();
+        myDeliveryLock = new Object();
+        myBatch = new ArrayList<T>(maxBatchSize);
+        myTask = maxDelay <= 0 ? null : timer.scheduleAtFixedRate(
+                new Flusher(), maxDelay, maxDelay, unit);
+    }
+
+    private static Executor checkExecutor(Executor executor){
+        if(executor == null){
+            throw new NullPointerException();
+        }
+        return executor;
+    }
+
+    /**
+     * Adds an event to the current batch, delivering the batch if it is full
+     * @param input event to add
+     */
+    @Override
+    public void handleEvent(T input) {
+        boolean full;
+        synchronized(this){
+            myBatch.add(input);
+            full = myBatch.size() >= myMaxBatchSize;
+        }
+        if(full){
+            drain(true);
+        }
+    }
+
+    /**
+     * Adds a batch of events, delivering every batch which fills
+     * @param events events to add
+     */
+    @Override
+    public void handleEvents(List<T> events) {
+        for(int i = 0, n = events.size(); i < n; i++){
+            handleEvent(events.get(i));
+        }
+    }
+
+    /**
+     * Delivers any waiting events immediately
+     */
+    public void flush(){
+        drain(false);
+    }
+
+    /**
+     * Stops the delay timer and delivers any waiting events.  Later events
+     * are only delivered in full batches or by flush().
+     */
+    public void close(){
+        if(myTask != null){
+            myTask.cancel();
+        }
+        flush();
+        if(myOwnedExecutor != null){
+            myOwnedExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Returns the number of events waiting in the current batch
+     * @return number of waiting events
+     */
+    public synchronized int getPendingCount(){
+        return myBatch.size();
+    }
+
+    /**
+     * Returns the number of batches delivered
+     * @return number of batches delivered
+     */
+    public long getBatchCount(){
+        synchronized(myDeliveryLock){
+            return myBatchCount;
+        }
+    }
+
+    private void drain(boolean onlyFull){
+        // The batch is taken while holding the delivery lock so batches are
+        // delivered in the order they were filled, but events can still be
+        // added to the next batch during a delivery.
+        synchronized(myDeliveryLock){
+            List<T> batch;
+            synchronized(this){
+                int size = myBatch.size();
+                if(size == 0 || (onlyFull && size < myMaxBatchSize)){
+                    return;
+                }
+                batch = myBatch;
+                myBatch = new ArrayList<T>(myMaxBatchSize);
+            }
+            myBatchCount++;
+            DefaultBatchListener.deliver(myTarget, batch);
+        }
+    }
+
+    class Flusher implements Runnable {
+        @Override
+        public void run() {
+            if(getPendingCount() == 0
+                    || !myFlushPendingFlag.compareAndSet(false, true)){
+                return;
+            }
+            try{
+                myExecutor.execute(myFlushTask);
+            }catch(RejectedExecutionException ex){
+                myFlushPendingFlag.set(false);
+            }
+        }
+    }
+
+    class FlushTask implements Runnable {
+        @Override
+        public void run() {
+            try{
+                flush();
+            }finally{
+                myFlushPendingFlag.set(false);
+            }
+        }
+    }
+}
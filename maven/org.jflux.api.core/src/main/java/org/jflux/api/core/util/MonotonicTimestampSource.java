@@ -0,0 +1,148 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monotonic clock calibrated to the epoch.  Reads System.nanoTime() plus an
+ * offset measured against System.currentTimeMillis() when the clock is
+ * created, so timestamps never step backwards and have nanosecond
+ * resolution.
+ *
+ * The calibration is taken on a millisecond edge of the system clock, so it
+ * is accurate to well under a millisecond.  The clock does not follow later
+ * adjustments to the system clock; getDrift() reports how far the two have
+ * diverged and recalibrate() moves the clock forward to catch up.  The clock
+ * is never moved back, so it is not suitable for timestamps which must
+ * match the system clock of another process.
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class MonotonicTimestampSource extends TimestampSource {
+    private final static long MAX_CALIBRATION_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final TimeUnit myUnit;
+    private final MonotonicTimestampSource myCalibration;
+    private volatile long myOffset;
+
+    /**
+     * Builds a MonotonicTimestampSource in milliseconds
+     */
+    public MonotonicTimestampSource(){
+        this(TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Builds a MonotonicTimestampSource
+     * @param unit TimeUnit of the timestamps
+     */
+    public MonotonicTimestampSource(TimeUnit unit){
+        if(unit == null){
+            throw new NullPointerException();
+        }
+        myUnit = unit;
+        myCalibration = null;
+        myOffset = calibrate();
+    }
+
+    /**
+     * Builds a MonotonicTimestampSource sharing the calibration of another,
+     * so both report the same instant in different units
+     * @param calibration clock to take the calibration from
+     * @param unit TimeUnit of the timestamps
+     */
+    public MonotonicTimestampSource(
+            MonotonicTimestampSource calibration, TimeUnit unit){
+        if(calibration == null || unit == null){
+            throw new NullPointerException();
+        }
+        myUnit = unit;
+        myCalibration = calibration;
+    }
+
+    /**
+     * Returns the current time since the epoch
+     * @return current time in this clock's TimeUnit
+     */
+    @Override
+    public long getAsLong() {
+        long nanos = System.nanoTime() + getOffset();
+        return myUnit == TimeUnit.NANOSECONDS
+                ? nanos : myUnit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the unit of the timestamps
+     * @return TimeUnit of the timestamps
+     */
+    @Override
+    public TimeUnit getTimeUnit() {
+        return myUnit;
+    }
+
+    /**
+     * Returns how far the system clock is ahead of this clock
+     * @param unit TimeUnit for the result
+     * @return system time minus this clock's time
+     */
+    public long getDrift(TimeUnit unit){
+        long wall = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        long nanos = System.nanoTime() + getOffset();
+        return unit.convert(wall - nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Measures a new offset from the system clock, and moves the clock
+     * forward if the system clock is ahead of it.  If the system clock is
+     * behind, the offset is kept so timestamps never step backwards, and
+     * getDrift() stays negative until the system clock catches up.  Clocks
+     * sharing this clock's calibration are recalibrated with it.
+     */
+    public void recalibrate(){
+        if(myCalibration != null){
+            myCalibration.recalibrate();
+            return;
+        }
+        long offset = calibrate();
+        synchronized(this){
+            if(offset > myOffset){
+                myOffset = offset;
+            }
+        }
+    }
+
+    private long getOffset(){
+        return myCalibration == null ? myOffset : myCalibration.myOffset;
+    }
+
+    /**
+     * Waits for the system clock to tick over to the next millisecond and
+     * returns the epoch time in nanoseconds minus System.nanoTime() at that
+     * edge.
+     */
+    private static long calibrate(){
+        long start = System.nanoTime();
+        long millis = System.currentTimeMillis();
+        long nanos;
+        long next;
+        do{
+            nanos = System.nanoTime();
+            next = System.currentTimeMillis();
+        }while(next == millis && nanos - start < MAX_CALIBRATION_NANOS);
+        return TimeUnit.MILLISECONDS.toNanos(next) - nanos;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import org.jflux.api.core.Notifier;
+import org.jflux.api.core.Source;
+
+/**
+ * Source of new Notifiers, using a selectable dispatch implementation
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <E> event type
+ */
+public class NotifierFactory<E> implements Source<Notifier<E>> {
+
+    /**
+     * Available Notifier implementations
+     */
+    public static enum DispatchMode{
+
+        /**
+         * DefaultNotifier, backed by an ArrayList
+         */
+        DEFAULT,
+
+        /**
+         * CopyOnWriteNotifier, allocation-free and safe to modify during
+         * dispatch
+         */
+        COPY_ON_WRITE,
+
+        /**
+         * AsyncNotifier with default settings, delivering to each Listener
+         * from its own bounded queue
+         */
+        ASYNC
+    }
+
+    private DispatchMode myMode;
+
+    /**
+     * Builds a NotifierFactory creating CopyOnWriteNotifiers
+     */
+    public NotifierFactory(){
+        this(DispatchMode.COPY_ON_WRITE);
+    }
+
+    /**
+     * Builds a NotifierFactory using the given DispatchMode
+     * @param mode Notifier implementation to create
+     */
+    public NotifierFactory(DispatchMode mode){
+        if(mode == null){
+            throw new NullPointerException();
+        }
+        myMode = mode;
+    }
+
+    /**
+     * Gets the DispatchMode used for new Notifiers
+     * @return the DispatchMode
+     */
+    public DispatchMode getDispatchMode(){
+        return myMode;
+    }
+
+    /**
+     * Creates a new Notifier
+     * @return new Notifier
+     */
+    @Override
+    public Notifier<E> getValue() {
+        return createNotifier(myMode);
+    }
+
+    /**
+     * Creates a new Notifier using the given DispatchMode
+     * @param <T> event type
+     * @param mode Notifier implementation to create
+     * @return new Notifier
+     */
+    public static <T> Notifier<T> createNotifier(DispatchMode mode){
+        if(mode == null){
+            throw new NullPointerException();
+        }
+        switch(mode){
+            case DEFAULT: return new DefaultNotifier<T>();
+            case COPY_ON_WRITE: return new CopyOnWriteNotifier<T>();
+            case ASYNC: return new AsyncNotifier<T>();
+            default: throw new IllegalArgumentException(
+                    "Unknown DispatchMode: " + mode);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jflux.api.core.Source;
+
+/**
+ * Bounded pool of reusable objects.  Objects are created from a Source when
+ * the pool is empty, and discarded when they are recycled into a full pool.
+ * The pool does not allocate when acquiring or recycling.
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <T> pooled type
+ */
+public class ObjectPool<T> {
+    /**
+     * Default maximum number of idle objects kept by the pool
+     */
+    public final static int DEFAULT_CAPACITY = 1024;
+
+    private final Source<T> myFactory;
+    private final ArrayBlockingQueue<T> myFree;
+    private final int myCapacity;
+    private final AtomicLong myCreatedCount;
+
+    /**
+     * Builds an ObjectPool with the default capacity
+     * @param factory Source of new objects
+     */
+    public ObjectPool(Source<T> factory){
+        this(factory, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Builds an ObjectPool
+     * @param factory Source of new objects
+     * @param capacity maximum number of idle objects to keep
+     */
+    public ObjectPool(Source<T> factory, int capacity){
+        if(factory == null){
+            throw new NullPointerException();
+        }
+        if(capacity < 1){
+            throw new IllegalArgumentException(
+                    "Capacity must be positive: " + capacity);
+        }
+        myFactory = factory;
+        myCapacity = capacity;
+        myFree = new ArrayBlockingQueue<T>(capacity);
+        myCreatedCount = new AtomicLong();
+    }
+
+    /**
+     * Takes an idle object from the pool, or creates a new one if the pool is
+     * empty
+     * @return an object which is not in use
+     */
+    public T acquire(){
+        T t = myFree.poll();
+        if(t == null){
+            myCreatedCount.incrementAndGet();
+            t = myFactory.getValue();
+        }
+        return t;
+    }
+
+    /**
+     * Returns an object to the pool.  The caller must not use the object
+     * afterwards.
+     * @param t object to return
+     * @return true if the object was kept, false if the pool was full
+     */
+    public boolean recycle(T t){
+        if(t == null){
+            throw new NullPointerException();
+        }
+        return myFree.offer(t);
+    }
+
+    /**
+     * Get the number of idle objects in the pool
+     * @return number of idle objects
+     */
+    public int getAvailableCount(){
+        return myFree.size();
+    }
+
+    /**
+     * Get the maximum number of idle objects kept by the pool
+     * @return pool capacity
+     */
+    public int getCapacity(){
+        return myCapacity;
+    }
+
+    /**
+     * Get the number of objects created because the pool was empty
+     * @return number of objects created
+     */
+    public long getCreatedCount(){
+        return myCreatedCount.get();
+    }
+}
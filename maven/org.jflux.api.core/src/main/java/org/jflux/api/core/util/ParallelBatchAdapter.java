@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.jflux.api.core.Adapter;
+
+/**
+ * BatchAdapter which splits large collections across a ForkJoinPool.  Inputs
+ * smaller than the threshold, or which are not Collections, are converted
+ * sequentially, as is everything when the pool has only one thread.  The
+ * output is an ArrayList in the same order as the input, on either path.
+ *
+ * The internal Adapter is called from several threads at once and must be
+ * thread-safe.  An exception thrown by the Adapter is rethrown from adapt.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <A> input data type
+ * @param <B> output data type
+ */
+public class ParallelBatchAdapter<A,B> extends BatchAdapter<A,B> {
+    /**
+     * Default minimum number of items to convert in parallel
+     */
+    public final static int DEFAULT_THRESHOLD = 2048;
+    private static ForkJoinPool theDefaultPool;
+
+    private final ForkJoinPool myPool;
+    private final int myThreshold;
+
+    /**
+     * Creates a ParallelBatchAdapter with the default threshold, using the
+     * default pool
+     * @param adapter thread-safe Adapter for each item
+     */
+    public ParallelBatchAdapter(Adapter<A,B> adapter){
+        this(adapter, DEFAULT_THRESHOLD, getDefaultPool());
+    }
+
+    /**
+     * Creates a ParallelBatchAdapter
+     * @param adapter thread-safe Adapter for each item
+     * @param threshold minimum number of items to convert in parallel
+     * @param pool ForkJoinPool to run on
+     */
+    public ParallelBatchAdapter(Adapter<A,B> adapter,
+            int threshold, ForkJoinPool pool){
+        super(adapter);
+        if(pool == null){
+            throw new NullPointerException();
+        }
+        if(threshold < 2){
+            throw new IllegalArgumentException(
+                    "Threshold must be at least 2: " + threshold);
+        }
+        myPool = pool;
+        myThreshold = threshold;
+    }
+
+    /**
+     * Returns the ForkJoinPool shared by parallel adapters, with one thread
+     * per processor
+     * @return the shared ForkJoinPool
+     */
+    public static synchronized ForkJoinPool getDefaultPool(){
+        if(theDefaultPool == null){
+            theDefaultPool = new ForkJoinPool();
+        }
+        return theDefaultPool;
+    }
+
+    /**
+     * Returns the minimum number of items converted in parallel
+     * @return the threshold
+     */
+    public int getThreshold(){
+        return myThreshold;
+    }
+
+    /**
+     * Processes a collection of items, in parallel if it is large enough
+     * @param a collection of items
+     * @return List of processed items, in input order
+     */
+    @Override
+    public List<B> adapt(Iterable<A> a) {
+        if(a == null){
+            throw new NullPointerException();
+        }
+        if(!(a instanceof Collection) || myPool.getParallelism() < 2
+                || ((Collection)a).size() < myThreshold){
+            return super.adapt(a);
+        }
+        Object[] in = a instanceof List && a instanceof RandomAccess
+                ? null : ((Collection)a).toArray();
+        List<A> items = in == null ? (List<A>)a : (List<A>)Arrays.asList(in);
+        Object[] out = new Object[items.size()];
+        int leaf = leafSize(out.length, myThreshold, myPool.getParallelism());
+        myPool.invoke(new AdaptTask<A,B>(getAdapter(), items, out, 
+                0, out.length, leaf));
+        return new ArrayList<B>((List<B>)Arrays.asList(out));
+    }
+
+    /**
+     * Picks a leaf size giving each worker a few tasks to balance load,
+     * without splitting below a useful size.
+     */
+    static int leafSize(int size, int threshold, int parallelism){
+        int leaf = size / (Math.max(1, parallelism) * 4);
+        return Math.max(leaf, Math.max(1, threshold / 8));
+    }
+
+    static class AdaptTask<A,B> extends RecursiveAction {
+        private final Adapter<A,B> myAdapter;
+        private final List<A> myItems;
+        private final Object[] myOutput;
+        private final int myStart;
+        private final int myEnd;
+        private final int myLeafSize;
+
+        AdaptTask(Adapter<A,B> adapter, List<A> items, Object[] output,
+                int start, int end, int leafSize){
+            myAdapter = adapter;
+            myItems = items;
+            myOutput = output;
+            myStart = start;
+            myEnd = end;
+            myLeafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if(myEnd - myStart <= myLeafSize){
+                for(int i = myStart; i < myEnd; i++){
+                    myOutput[i] = myAdapter.adapt(myItems.get(i));
+                }
+                return;
+            }
+            int mid = (myStart + myEnd) >>> 1;
+            invokeAll(
+                    new AdaptTask<A,B>(myAdapter, myItems, myOutput, 
+                            myStart, mid, myLeafSize),
+                    new AdaptTask<A,B>(myAdapter, myItems, myOutput, 
+                            mid, myEnd, myLeafSize));
+        }
+    }
+}
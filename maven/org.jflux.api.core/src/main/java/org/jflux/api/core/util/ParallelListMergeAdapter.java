@@ -0,0 +1,145 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ListMergeAdapter which copies the Lists into the output in parallel once
+ * the total size reaches a threshold.  Each List is copied to its own
+ * offset in a pre-sized output, so the order is the same as a sequential
+ * merge.  The input Lists must not be modified during the merge.  The
+ * output is an ArrayList on either path.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <T> list item type
+ */
+public class ParallelListMergeAdapter<T> extends ListMergeAdapter<T> {
+    /**
+     * Default minimum total number of items to merge in parallel
+     */
+    public final static int DEFAULT_THRESHOLD = 65536;
+
+    private final ForkJoinPool myPool;
+    private final int myThreshold;
+
+    /**
+     * Creates a ParallelListMergeAdapter with the default threshold, using
+     * the default pool
+     */
+    public ParallelListMergeAdapter(){
+        this(DEFAULT_THRESHOLD, ParallelBatchAdapter.getDefaultPool());
+    }
+
+    /**
+     * Creates a ParallelListMergeAdapter
+     * @param threshold minimum total number of items to merge in parallel
+     * @param pool ForkJoinPool to run on
+     */
+    public ParallelListMergeAdapter(int threshold, ForkJoinPool pool){
+        if(pool == null){
+            throw new NullPointerException();
+        }
+        if(threshold < 2){
+            throw new IllegalArgumentException(
+                    "Threshold must be at least 2: " + threshold);
+        }
+        myPool = pool;
+        myThreshold = threshold;
+    }
+
+    /**
+     * Returns the minimum total number of items merged in parallel
+     * @return the threshold
+     */
+    public int getThreshold(){
+        return myThreshold;
+    }
+
+    /**
+     * Flattens a List of Lists to a single List, in parallel if it is large
+     * enough
+     * @param a List of Lists
+     * @return List of all items, in order
+     */
+    @Override
+    public List<T> adapt(List<List<T>> a) {
+        int count = a.size();
+        int[] offsets = new int[count + 1];
+        for(int i = 0; i < count; i++){
+            offsets[i + 1] = offsets[i] + a.get(i).size();
+        }
+        int total = offsets[count];
+        if(total < myThreshold || count < 2 
+                || myPool.getParallelism() < 2){
+            return super.adapt(a);
+        }
+        Object[] out = new Object[total];
+        int leaf = ParallelBatchAdapter.leafSize(
+                total, myThreshold, myPool.getParallelism());
+        myPool.invoke(new MergeTask(a, offsets, out, 0, count, leaf));
+        return new ArrayList<T>((List<T>)Arrays.asList(out));
+    }
+
+    static class MergeTask extends RecursiveAction {
+        private final List<? extends List> myLists;
+        private final int[] myOffsets;
+        private final Object[] myOutput;
+        private final int myStart;
+        private final int myEnd;
+        private final int myLeafSize;
+
+        MergeTask(List<? extends List> lists, int[] offsets, Object[] output,
+                int start, int end, int leafSize){
+            myLists = lists;
+            myOffsets = offsets;
+            myOutput = output;
+            myStart = start;
+            myEnd = end;
+            myLeafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            int items = myOffsets[myEnd] - myOffsets[myStart];
+            if(myEnd - myStart == 1 || items <= myLeafSize){
+                for(int i = myStart; i < myEnd; i++){
+                    Object[] src = myLists.get(i).toArray();
+                    System.arraycopy(src, 0, 
+                            myOutput, myOffsets[i], src.length);
+                }
+                return;
+            }
+            // Split by item count rather than List count, so a few large
+            // Lists are spread as evenly as many small ones.
+            int target = myOffsets[myStart] + items / 2;
+            int mid = Arrays.binarySearch(myOffsets, myStart, myEnd, target);
+            if(mid < 0){
+                mid = -mid - 1;
+            }
+            mid = Math.max(myStart + 1, Math.min(myEnd - 1, mid));
+            invokeAll(
+                    new MergeTask(myLists, myOffsets, myOutput, 
+                            myStart, mid, myLeafSize),
+                    new MergeTask(myLists, myOffsets, myOutput, 
+                            mid, myEnd, myLeafSize));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+/**
+ * Statistics for a component which queues events between a producer and a
+ * consumer
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public interface QueueMonitor {
+
+    /**
+     * Get the number of events currently waiting to be delivered
+     * @return number of queued events
+     */
+    public int getQueueDepth();
+
+    /**
+     * Get the maximum number of events which can be queued
+     * @return queue capacity
+     */
+    public int getQueueCapacity();
+
+    /**
+     * Get the number of events discarded because the queue was full
+     * @return number of dropped events
+     */
+    public long getDroppedCount();
+
+    /**
+     * Get the number of events delivered to the consumer
+     * @return number of delivered events
+     */
+    public long getDeliveredCount();
+}
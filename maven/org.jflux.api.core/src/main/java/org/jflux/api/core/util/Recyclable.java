@@ -0,0 +1,30 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+/**
+ * An object which can be returned to a pool once it is no longer in use.
+ * An object must not be used in any way after it has been released.
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public interface Recyclable {
+
+    /**
+     * Returns this object to its pool
+     * @throws IllegalStateException if the object was already released
+     */
+    public void release();
+}
@@ -25,7 +25,7 @@ import org.jflux.api.core.Listener;
  * @author Matthew Stevenson <www.jflux.org>
  */
 
-public class Repeater<E> extends DefaultNotifier<E> implements Listener<E> {
+public class Repeater<E> extends CopyOnWriteNotifier<E> implements Listener<E> {
 
     /**
      * Forward an event to several listeners
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handle for a task scheduled on a WheelTimer.  Used to cancel the task and to
+ * read its timing statistics.
+ *
+ * Jitter is the time between when a run was due and when it started,
+ * including time spent waiting for a dispatch thread.  An overrun is a
+ * fixed-rate period which was skipped because the previous run had not
+ * finished by the time the next was due.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public final class ScheduledTask implements Runnable {
+    private final static Logger theLogger =
+            LoggerFactory.getLogger(ScheduledTask.class);
+
+    final static int WAITING = 0;
+    final static int RUNNING = 1;
+    final static int DONE = 2;
+    final static int CANCELLED = 3;
+
+    private final WheelTimer myTimer;
+    private final Runnable myRunnable;
+    private final long myPeriod;
+    private final AtomicInteger myState;
+
+    /**
+     * Due time in nanoseconds, relative to the start of the WheelTimer
+     */
+    long myDeadline;
+    /**
+     * Wheel revolutions remaining before the task is due.  Only used by the
+     * timer thread.
+     */
+    long myRounds;
+    WheelTimer.Bucket myBucket;
+    ScheduledTask myPrev;
+    ScheduledTask myNext;
+
+    private volatile long myRunCount;
+    private volatile long myOverrunCount;
+    private volatile long myFailureCount;
+    private volatile long myLastJitter;
+    private volatile long myMaxJitter;
+    private volatile long myTotalJitter;
+
+    ScheduledTask(WheelTimer timer,
+            Runnable runnable, long deadline, long period){
+        myTimer = timer;
+        myRunnable = runnable;
+        myDeadline = deadline;
+        myPeriod = period;
+        myState = new AtomicInteger(WAITING);
+    }
+
+    /**
+     * Runs the task on a dispatch thread, records its timing and
+     * reschedules it if it is periodic.  A run which throws, including an
+     * Error, is counted as a failure and the task is still rescheduled.  An
+     * Error is rethrown after it is logged.
+     */
+    @Override
+    public void run() {
+        long due = myDeadline;
+        long start = myTimer.elapsedNanos();
+        long jitter = Math.max(0L, start - due);
+        myLastJitter = jitter;
+        myTotalJitter += jitter;
+        if(jitter > myMaxJitter){
+            myMaxJitter = jitter;
+        }
+        boolean failed = true;
+        try{
+            myRunnable.run();
+            failed = false;
+        }catch(RuntimeException ex){
+            theLogger.warn("Scheduled task threw an exception.", ex);
+        }catch(Error err){
+            theLogger.error("Scheduled task threw an error.", err);
+            throw err;
+        }finally{
+            //Runs for Errors too, so a periodic task is not silently lost.
+            if(failed){
+                myFailureCount++;
+            }
+            finishRun(due);
+        }
+    }
+
+    private void finishRun(long due){
+        myRunCount++;
+        if(myPeriod <= 0){
+            myState.compareAndSet(RUNNING, DONE);
+            return;
+        }
+        // Next run is measured from when this one was due, not from when it
+        // finished, so scheduling and execution delays do not accumulate.
+        long next = due + myPeriod;
+        long now = myTimer.elapsedNanos();
+        if(next <= now){
+            long missed = (now - next) / myPeriod + 1;
+            myOverrunCount += missed;
+            next += missed * myPeriod;
+        }
+        myDeadline = next;
+        if(myState.compareAndSet(RUNNING, WAITING)){
+            myTimer.reschedule(this);
+        }
+    }
+
+    /**
+     * Stops the task from running again.  A run already in progress is
+     * allowed to finish.
+     * @return true if the task was cancelled, false if it had already
+     * finished or been cancelled
+     */
+    public boolean cancel(){
+        while(true){
+            int state = myState.get();
+            if(state == DONE || state == CANCELLED){
+                return false;
+            }
+            if(myState.compareAndSet(state, CANCELLED)){
+                if(state == WAITING){
+                    myTimer.cancelled(this);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the task has been cancelled.
+     * @return true if the task has been cancelled
+     */
+    public boolean isCancelled(){
+        return myState.get() == CANCELLED;
+    }
+
+    /**
+     * Returns true if the task will not run again, because it was cancelled
+     * or was a one-shot task which has run.
+     * @return true if the task will not run again
+     */
+    public boolean isDone(){
+        int state = myState.get();
+        return state == DONE || state == CANCELLED;
+    }
+
+    /**
+     * Returns true if the task is periodic.
+     * @return true if the task is periodic
+     */
+    public boolean isPeriodic(){
+        return myPeriod > 0;
+    }
+
+    /**
+     * Returns the period of the task.
+     * @param unit TimeUnit for the result
+     * @return the period, or 0 for a one-shot task
+     */
+    public long getPeriod(TimeUnit unit){
+        return unit.convert(Math.max(0L, myPeriod), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of completed runs.
+     * @return the number of completed runs
+     */
+    public long getRunCount(){
+        return myRunCount;
+    }
+
+    /**
+     * Returns the number of periods skipped because a run took longer than
+     * its period.
+     * @return number of skipped periods
+     */
+    public long getOverrunCount(){
+        return myOverrunCount;
+    }
+
+    /**
+     * Returns the number of runs which threw an exception.
+     * @return number of failed runs
+     */
+    public long getFailureCount(){
+        return myFailureCount;
+    }
+
+    /**
+     * Returns the start delay of the most recent run.
+     * @param unit TimeUnit for the result
+     * @return the most recent jitter
+     */
+    public long getLastJitter(TimeUnit unit){
+        return unit.convert(myLastJitter, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the largest start delay of any run.
+     * @param unit TimeUnit for the result
+     * @return the maximum jitter
+     */
+    public long getMaxJitter(TimeUnit unit){
+        return unit.convert(myMaxJitter, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the mean start delay over all runs.
+     * @param unit TimeUnit for the result
+     * @return the mean jitter, or 0 if the task has not run
+     */
+    public long getMeanJitter(TimeUnit unit){
+        long count = myRunCount;
+        if(count == 0){
+            return 0L;
+        }
+        return unit.convert(myTotalJitter / count, TimeUnit.NANOSECONDS);
+    }
+
+    boolean markRunning(){
+        return myState.compareAndSet(WAITING, RUNNING);
+    }
+
+    boolean isWaiting(){
+        return myState.get() == WAITING;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import java.util.concurrent.TimeUnit;
+import org.jflux.api.core.Source;
+
+/**
+ * Clock producing timestamps since the epoch, in a fixed TimeUnit.  Can be
+ * read as a primitive through LongSource or boxed through Source.
+ *
+ * Shared clocks:
+ * <ul>
+ * <li>getSystemClock(): System.currentTimeMillis(), may step backwards when
+ * the system clock is adjusted</li>
+ * <li>getMonotonicClock(), getMonotonicNanoClock(): System.nanoTime()
+ * calibrated to the epoch, never steps backwards</li>
+ * <li>getCoarseClock(): monotonic milliseconds cached by a timer, the
+ * cheapest to read</li>
+ * </ul>
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public abstract class TimestampSource implements Source<Long>, LongSource {
+
+    /**
+     * Returns the current time since the epoch
+     * @return current time in this clock's TimeUnit
+     */
+    @Override
+    public abstract long getAsLong();
+
+    /**
+     * Returns the unit of the timestamps
+     * @return TimeUnit of the timestamps
+     */
+    public abstract TimeUnit getTimeUnit();
+
+    /**
+     * Returns the current time since the epoch as a Long
+     * @return current time in this clock's TimeUnit
+     */
+    @Override
+    public Long getValue() {
+        return getAsLong();
+    }
+
+    /**
+     * Returns the current time since the epoch in the given unit
+     * @param unit TimeUnit for the result
+     * @return current time
+     */
+    public long getTime(TimeUnit unit){
+        return unit.convert(getAsLong(), getTimeUnit());
+    }
+
+    /**
+     * Returns a shared clock reading System.currentTimeMillis()
+     * @return system clock in milliseconds
+     */
+    public static TimestampSource getSystemClock(){
+        return SystemHolder.theClock;
+    }
+
+    /**
+     * Returns a shared monotonic clock in milliseconds since the epoch
+     * @return monotonic clock in milliseconds
+     */
+    public static MonotonicTimestampSource getMonotonicClock(){
+        return MonotonicHolder.theMillisClock;
+    }
+
+    /**
+     * Returns a shared monotonic clock in nanoseconds since the epoch
+     * @return monotonic clock in nanoseconds
+     */
+    public static MonotonicTimestampSource getMonotonicNanoClock(){
+        return MonotonicHolder.theNanosClock;
+    }
+
+    /**
+     * Returns a shared cached clock in milliseconds since the epoch, updated
+     * by the shared WheelTimer with CoarseTimestampSource's default
+     * resolution
+     * @return coarse clock in milliseconds
+     */
+    public static CoarseTimestampSource getCoarseClock(){
+        return CoarseHolder.theClock;
+    }
+
+    private static class SystemHolder {
+        private final static TimestampSource theClock =
+                new DefaultTimestampSource();
+    }
+
+    private static class MonotonicHolder {
+        private final static MonotonicTimestampSource theNanosClock =
+                new MonotonicTimestampSource(TimeUnit.NANOSECONDS);
+        private final static MonotonicTimestampSource theMillisClock =
+                new MonotonicTimestampSource(theNanosClock,
+                        TimeUnit.MILLISECONDS);
+    }
+
+    private static class CoarseHolder {
+        private final static CoarseTimestampSource theClock =
+                new CoarseTimestampSource();
+    }
+}
@@ -0,0 +1,401 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.jflux.api.core.util.AsyncListener.DaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed-wheel scheduler.  A single timer thread advances the wheel one tick
+ * at a time and hands due tasks to an Executor, so any number of periodic
+ * tasks share one timer thread and a fixed pool of dispatch threads.
+ *
+ * Tasks fire no earlier than their due time and typically within one tick of
+ * it.  Fixed-rate tasks are rescheduled from their previous due time, so
+ * delays do not accumulate as drift.  A periodic task never runs concurrently
+ * with itself; periods missed by a slow run are skipped and counted as
+ * overruns on the ScheduledTask.
+ *
+ * The timer thread sleeps while no tasks are scheduled.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class WheelTimer {
+    private final static Logger theLogger =
+            LoggerFactory.getLogger(WheelTimer.class);
+    /**
+     * Default tick length in nanoseconds
+     */
+    public final static long DEFAULT_TICK_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(1);
+    /**
+     * Default number of buckets in the wheel
+     */
+    public final static int DEFAULT_WHEEL_SIZE = 512;
+    private static WheelTimer theSharedTimer;
+
+    private final Bucket[] myWheel;
+    private final int myMask;
+    private final long myTickNanos;
+    private final long myStartTime;
+    private final Executor myExecutor;
+    private final ExecutorService myOwnedExecutor;
+    private final Queue<ScheduledTask> myAdded;
+    private final Queue<ScheduledTask> myCancelled;
+    private final AtomicInteger myPendingCount;
+    private final Thread myThread;
+    private volatile boolean myShutdown;
+    private volatile boolean myIdle;
+    private long myTick;
+
+    /**
+     * Builds a WheelTimer with the default tick and wheel size, dispatching
+     * on its own pool of one daemon thread per processor
+     */
+    public WheelTimer(){
+        this(DEFAULT_TICK_NANOS, TimeUnit.NANOSECONDS,
+                DEFAULT_WHEEL_SIZE, null);
+    }
+
+    /**
+     * Builds a WheelTimer
+     * @param tick length of one tick
+     * @param unit TimeUnit of the tick
+     * @param wheelSize number of buckets, rounded up to a power of two
+     * @param executor Executor used to run due tasks, or null to use a pool
+     * of one daemon thread per processor which is shut down with the timer
+     */
+    public WheelTimer(long tick, TimeUnit unit, int wheelSize, Executor executor){
+        if(unit == null){
+            throw new NullPointerException();
+        }
+        if(tick <= 0){
+            throw new IllegalArgumentException(
+                    "Tick must be positive: " + tick);
+        }
+        if(wheelSize < 1 || wheelSize > (1 << 30)){
+            throw new IllegalArgumentException(
+                    "Invalid wheel size: " + wheelSize);
+        }
+        int size = Integer.highestOneBit(wheelSize);
+        if(size < wheelSize){
+            size <<= 1;
+        }
+        myWheel = new Bucket[size];
+        for(int i = 0; i < size; i++){
+            myWheel[i] = new Bucket();
+        }
+        myMask = size - 1;
+        myTickNanos = unit.toNanos(tick);
+        if(executor == null){
+            myOwnedExecutor = Executors.newFixedThreadPool(
+                    Runtime.getRuntime().availableProcessors(),
+                    new DaemonThreadFactory("jflux-timer-worker-"));
+            myExecutor = myOwnedExecutor;
+        }else{
+            myOwnedExecutor = null;
+            myExecutor = executor;
+        }
+        myAdded = new ConcurrentLinkedQueue<ScheduledTask>();
+        myCancelled = new ConcurrentLinkedQueue<ScheduledTask>();
+        myPendingCount = new AtomicInteger();
+        myStartTime = System.nanoTime();
+        myThread = new DaemonThreadFactory("jflux-timer-").newThread(
+                new Worker());
+        myThread.start();
+    }
+
+    /**
+     * Returns the WheelTimer shared by the whole process.  It runs on daemon
+     * threads and is never shut down.
+     * @return the shared WheelTimer
+     */
+    public static synchronized WheelTimer getSharedTimer(){
+        if(theSharedTimer == null){
+            theSharedTimer = new WheelTimer();
+        }
+        return theSharedTimer;
+    }
+
+    /**
+     * Runs a task once after the given delay.
+     * @param task task to run
+     * @param delay delay before running
+     * @param unit TimeUnit of the delay
+     * @return handle for the task
+     */
+    public ScheduledTask schedule(Runnable task, long delay, TimeUnit unit){
+        if(task == null || unit == null){
+            throw new NullPointerException();
+        }
+        return add(task, unit.toNanos(Math.max(0L, delay)), 0L);
+    }
+
+    /**
+     * Runs a task repeatedly, starting after the initial delay and then once
+     * per period.  Each run is due at initialDelay + n * period, regardless
+     * of how late earlier runs started.
+     * @param task task to run
+     * @param initialDelay delay before the first run
+     * @param period time between runs
+     * @param unit TimeUnit of the delay and period
+     * @return handle for the task
+     */
+    public ScheduledTask scheduleAtFixedRate(Runnable task,
+            long initialDelay, long period, TimeUnit unit){
+        if(task == null || unit == null){
+            throw new NullPointerException();
+        }
+        if(period <= 0){
+            throw new IllegalArgumentException(
+                    "Period must be positive: " + period);
+        }
+        return add(task, unit.toNanos(Math.max(0L, initialDelay)),
+                unit.toNanos(period));
+    }
+
+    /**
+     * Returns the number of tasks waiting in the timer, not counting tasks
+     * which are currently running.
+     * @return number of waiting tasks
+     */
+    public int getPendingCount(){
+        return myPendingCount.get();
+    }
+
+    /**
+     * Returns the tick length.
+     * @param unit TimeUnit for the result
+     * @return the tick length
+     */
+    public long getTick(TimeUnit unit){
+        return unit.convert(myTickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops the timer thread and cancels all waiting tasks.  The dispatch pool
+     * is shut down if it was created by this timer.  The shared timer cannot
+     * be shut down.
+     */
+    public void shutdown(){
+        synchronized(WheelTimer.class){
+            if(this == theSharedTimer){
+                throw new IllegalStateException(
+                        "The shared WheelTimer cannot be shut down.");
+            }
+        }
+        myShutdown = true;
+        LockSupport.unpark(myThread);
+        if(myOwnedExecutor != null){
+            myOwnedExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Returns true if the timer has been shut down.
+     * @return true if the timer has been shut down
+     */
+    public boolean isShutdown(){
+        return myShutdown;
+    }
+
+    long elapsedNanos(){
+        return System.nanoTime() - myStartTime;
+    }
+
+    private ScheduledTask add(Runnable runnable, long delay, long period){
+        if(myShutdown){
+            throw new RejectedExecutionException("WheelTimer is shut down.");
+        }
+        ScheduledTask task = new ScheduledTask(
+                this, runnable, elapsedNanos() + delay, period);
+        reschedule(task);
+        return task;
+    }
+
+    void reschedule(ScheduledTask task){
+        if(myShutdown){
+            task.cancel();
+            return;
+        }
+        myPendingCount.incrementAndGet();
+        myAdded.add(task);
+        if(myIdle){
+            LockSupport.unpark(myThread);
+        }
+    }
+
+    void cancelled(ScheduledTask task){
+        myCancelled.add(task);
+    }
+
+    private void transferAdded(){
+        ScheduledTask task;
+        while((task = myAdded.poll()) != null){
+            if(!task.isWaiting()){
+                myPendingCount.decrementAndGet();
+                continue;
+            }
+            long due = task.myDeadline / myTickNanos;
+            task.myRounds = (due - myTick) / myWheel.length;
+            myWheel[(int)(Math.max(due, myTick) & myMask)].add(task);
+        }
+    }
+
+    private void removeCancelled(){
+        ScheduledTask task;
+        while((task = myCancelled.poll()) != null){
+            if(task.myBucket != null){
+                task.myBucket.remove(task);
+                myPendingCount.decrementAndGet();
+            }
+        }
+    }
+
+    private void expire(Bucket bucket){
+        ScheduledTask task = bucket.myHead;
+        while(task != null){
+            ScheduledTask next = task.myNext;
+            if(task.myRounds > 0){
+                task.myRounds--;
+            }else{
+                bucket.remove(task);
+                myPendingCount.decrementAndGet();
+                if(task.markRunning()){
+                    dispatch(task);
+                }
+            }
+            task = next;
+        }
+    }
+
+    private void dispatch(ScheduledTask task){
+        try{
+            myExecutor.execute(task);
+        }catch(RejectedExecutionException ex){
+            theLogger.warn("Unable to dispatch scheduled task, "
+                    + "running on timer thread.", ex);
+            try{
+                task.run();
+            }catch(Error err){
+                //Already logged and counted by the task.  The timer thread
+                //must survive to run the other tasks.
+            }
+        }
+    }
+
+    private void cancelAll(){
+        for(Bucket bucket : myWheel){
+            while(bucket.myHead != null){
+                ScheduledTask task = bucket.myHead;
+                bucket.remove(task);
+                task.cancel();
+            }
+        }
+        ScheduledTask task;
+        while((task = myAdded.poll()) != null){
+            task.cancel();
+        }
+        myCancelled.clear();
+        myPendingCount.set(0);
+    }
+
+    private void awaitTick(long deadline){
+        long wait;
+        while(!myShutdown && (wait = deadline - elapsedNanos()) > 0){
+            LockSupport.parkNanos(this, wait);
+        }
+    }
+
+    private void awaitTask(){
+        myIdle = true;
+        while(!myShutdown && myPendingCount.get() == 0){
+            LockSupport.park(this);
+        }
+        myIdle = false;
+        // Nothing is in the wheel, so skip the empty ticks while idle.
+        myTick = Math.max(myTick, elapsedNanos() / myTickNanos);
+    }
+
+    class Worker implements Runnable {
+        @Override
+        public void run() {
+            while(!myShutdown){
+                removeCancelled();
+                if(myPendingCount.get() == 0){
+                    awaitTask();
+                    continue;
+                }
+                awaitTick((myTick + 1) * myTickNanos);
+                if(myShutdown){
+                    break;
+                }
+                transferAdded();
+                removeCancelled();
+                expire(myWheel[(int)(myTick & myMask)]);
+                myTick++;
+            }
+            cancelAll();
+        }
+    }
+
+    /**
+     * Doubly-linked list of tasks in one slot of the wheel.  Only used by the
+     * timer thread.
+     */
+    static class Bucket {
+        private ScheduledTask myHead;
+        private ScheduledTask myTail;
+
+        void add(ScheduledTask task){
+            task.myBucket = this;
+            task.myPrev = myTail;
+            task.myNext = null;
+            if(myTail == null){
+                myHead = task;
+            }else{
+                myTail.myNext = task;
+            }
+            myTail = task;
+        }
+
+        void remove(ScheduledTask task){
+            if(task.myPrev == null){
+                myHead = task.myNext;
+            }else{
+                task.myPrev.myNext = task.myNext;
+            }
+            if(task.myNext == null){
+                myTail = task.myPrev;
+            }else{
+                task.myNext.myPrev = task.myPrev;
+            }
+            task.myBucket = null;
+            task.myPrev = null;
+            task.myNext = null;
+        }
+    }
+}
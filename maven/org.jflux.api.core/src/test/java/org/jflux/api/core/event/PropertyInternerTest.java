@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.event;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class PropertyInternerTest {
+    
+    @Test
+    public void testEqualMapsShared() {
+        System.out.println("intern: equal properties share one Map");
+        
+        PropertyInterner interner = new PropertyInterner();
+        assertNull(interner.intern(null));
+        
+        Map<String,String> a = new HashMap<String, String>();
+        a.put("k", "v");
+        Map<String,String> b = new TreeMap<String, String>(a);
+        Map<String,String> sharedA = interner.intern(a);
+        assertEquals(a, sharedA);
+        assertNotSame(a, sharedA);
+        assertSame(sharedA, interner.intern(b));
+        assertSame(sharedA, interner.intern(sharedA));
+        assertEquals(1, interner.size());
+        
+        Map<String,String> c = new HashMap<String, String>();
+        c.put("k", "w");
+        Map<String,String> sharedC = interner.intern(c);
+        assertEquals(c, sharedC);
+        assertSame(sharedA, interner.intern(a));
+        assertSame(sharedC, interner.intern(c));
+        assertEquals(2, interner.size());
+        
+        try{
+            sharedA.put("x", "y");
+            fail("shared Map is modifiable");
+        }catch(UnsupportedOperationException ex){}
+    }
+    
+    @Test
+    public void testReusedMapModified() {
+        System.out.println("intern: reused Map modified between calls");
+        
+        PropertyInterner interner = new PropertyInterner();
+        Map<String,String> props = new HashMap<String, String>();
+        props.put("k", "1");
+        Map<String,String> first = interner.intern(props);
+        assertEquals("1", first.get("k"));
+        
+        props.put("k", "2");
+        Map<String,String> second = interner.intern(props);
+        assertEquals("2", second.get("k"));
+        assertEquals("1", first.get("k"));
+        
+        props.put("k", "1");
+        assertSame(first, interner.intern(props));
+        props.clear();
+        assertTrue(interner.intern(props).isEmpty());
+    }
+    
+    @Test
+    public void testFull() {
+        System.out.println("intern: copies without sharing when full");
+        
+        PropertyInterner interner = new PropertyInterner(1);
+        Map<String,String> a = new HashMap<String, String>();
+        a.put("k", "a");
+        Map<String,String> b = new HashMap<String, String>();
+        b.put("k", "b");
+        Map<String,String> sharedA = interner.intern(a);
+        Map<String,String> copyB = interner.intern(b);
+        assertEquals(b, copyB);
+        assertEquals(1, interner.size());
+        assertSame(sharedA, interner.intern(a));
+        assertEquals(b, interner.intern(b));
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.jflux.api.core.Adapter;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.Source;
+import org.jflux.api.core.playable.Playable.PlayState;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class PartitionedProcessorNodeTest {
+    private final static int KEYS = 8;
+    private final static int EVENTS_PER_KEY = 50;
+    
+    @Test
+    public void testPerKeyOrdering() throws Exception {
+        System.out.println("handleEvent: order is kept within each key");
+        
+        final Random random = new Random(42);
+        PartitionedProcessorNode<Integer,Integer> node = 
+                new PartitionedProcessorNode<Integer, Integer>(
+                        new Source<ProcessorNode<Integer,Integer>>() {
+                            @Override
+                            public ProcessorNode<Integer, Integer> getValue() {
+                                return new DefaultProcessorNode<Integer, Integer>(
+                                        new JitterAdapter(random.nextLong()));
+                            }
+                        }, new KeyAdapter(), 4);
+        List<Integer> output = collect(node);
+        assertTrue(node.start());
+        
+        int total = KEYS * EVENTS_PER_KEY;
+        for(int i = 0; i < total; i++){
+            node.getListener().handleEvent(i);
+        }
+        waitForSize(output, total);
+        node.stop();
+        
+        assertEquals(total, output.size());
+        int[] last = new int[KEYS];
+        Arrays.fill(last, -1);
+        synchronized(output){
+            for(Integer i : output){
+                int key = i % KEYS;
+                assertTrue("out of order for key " + key, i > last[key]);
+                last[key] = i;
+            }
+        }
+        assertEquals(total, node.getDeliveredCount());
+        assertEquals(0, node.getDroppedCount());
+    }
+    
+    @Test
+    public void testInputDroppedUnlessRunning() throws Exception {
+        System.out.println("handleEvent: input dropped unless RUNNING");
+        
+        PartitionedProcessorNode<Integer,Integer> node = 
+                new PartitionedProcessorNode<Integer, Integer>(
+                        new Source<ProcessorNode<Integer,Integer>>() {
+                            @Override
+                            public ProcessorNode<Integer, Integer> getValue() {
+                                return new DefaultProcessorNode<Integer, Integer>(
+                                        new KeyAdapter());
+                            }
+                        }, new KeyAdapter(), 2);
+        List<Integer> output = collect(node);
+        
+        node.getListener().handleEvent(1);
+        assertEquals(1, node.getDroppedCount());
+        
+        assertTrue(node.start());
+        assertTrue(node.pause());
+        node.getListener().handleEvent(2);
+        node.getListener().handleEvent(3);
+        assertEquals(2, node.getDroppedCount(PlayState.PAUSED));
+        assertEquals(3, node.getDroppedCount());
+        assertEquals(0, node.getDeliveredCount());
+        
+        assertTrue(node.resume());
+        node.getListener().handleEvent(4);
+        waitForSize(output, 1);
+        node.stop();
+        assertEquals(Collections.singletonList(4 % KEYS), output);
+        assertEquals(1, node.getDeliveredCount());
+    }
+    
+    private static List<Integer> collect(ProcessorNode<?,Integer> node){
+        final List<Integer> output = 
+                Collections.synchronizedList(new ArrayList<Integer>());
+        node.getNotifier().addListener(new Listener<Integer>() {
+            @Override
+            public void handleEvent(Integer event) {
+                output.add(event);
+            }
+        });
+        return output;
+    }
+    
+    private static void waitForSize(List<?> list, int size) 
+            throws InterruptedException{
+        long end = System.currentTimeMillis() + 10000;
+        while(list.size() < size && System.currentTimeMillis() < end){
+            Thread.sleep(5);
+        }
+    }
+    
+    static class KeyAdapter implements Adapter<Integer,Integer>{
+        @Override
+        public Integer adapt(Integer a) {
+            return a % KEYS;
+        }
+    }
+    
+    static class JitterAdapter implements Adapter<Integer,Integer>{
+        private final Random myRandom;
+        
+        JitterAdapter(long seed){
+            myRandom = new Random(seed);
+        }
+        
+        @Override
+        public Integer adapt(Integer a) {
+            if(myRandom.nextInt(4) == 0){
+                try{
+                    Thread.sleep(myRandom.nextInt(2));
+                }catch(InterruptedException ex){
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return a;
+        }
+    }
+}
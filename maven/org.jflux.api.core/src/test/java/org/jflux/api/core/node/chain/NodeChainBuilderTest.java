@@ -0,0 +1,199 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.node.chain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.jflux.api.core.Adapter;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.node.AsyncProcessorNode;
+import org.jflux.api.core.node.PartitionedProcessorNode;
+import org.jflux.api.core.util.AsyncListener;
+import org.jflux.api.core.util.QueueMonitor;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class NodeChainBuilderTest {
+    
+    @Test
+    public void testStage() throws Exception {
+        System.out.println("stage: events cross the boundary in order");
+        
+        ProcessorChain<Integer,Integer> chain = 
+                NodeChainBuilder.build(new AddAdapter(1))
+                .stage()
+                .attach(new AddAdapter(10))
+                .getProcessorChain();
+        assertTrue(chain.getProcessorNodes().get(1) 
+                instanceof AsyncProcessorNode);
+        List<Integer> output = collect(chain);
+        assertTrue(chain.start());
+        
+        for(int i = 0; i < 100; i++){
+            chain.getListener().handleEvent(i);
+        }
+        waitForSize(output, 100);
+        chain.stop();
+        
+        assertEquals(100, output.size());
+        for(int i = 0; i < 100; i++){
+            assertEquals(Integer.valueOf(i + 11), output.get(i));
+        }
+        assertEquals(1, chain.getQueueMonitors().size());
+    }
+    
+    @Test
+    public void testManyStages() throws Exception {
+        System.out.println("stage: stages with a slow consumer keep moving");
+        
+        ProcessorChain<Integer,Integer> chain = 
+                NodeChainBuilder.build(new AddAdapter(0))
+                .stage()
+                .attach(new AddAdapter(0))
+                .stage()
+                .attach(new AddAdapter(0))
+                .stage()
+                .attach(new AddAdapter(0))
+                .getProcessorChain();
+        final List<Integer> output = 
+                Collections.synchronizedList(new ArrayList<Integer>());
+        final Set<String> threads = 
+                Collections.synchronizedSet(new HashSet<String>());
+        chain.getNotifier().addListener(new Listener<Integer>() {
+            @Override
+            public void handleEvent(Integer event) {
+                if(event % 64 == 0){
+                    try{
+                        Thread.sleep(1);
+                    }catch(InterruptedException ex){
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                threads.add(Thread.currentThread().getName());
+                output.add(event);
+            }
+        });
+        assertTrue(chain.start());
+        
+        //Enough to fill every stage's queue behind the slow consumer.
+        int count = 5 * AsyncListener.DEFAULT_CAPACITY;
+        for(int i = 0; i < count; i++){
+            chain.getListener().handleEvent(i);
+        }
+        waitForSize(output, count);
+        chain.stop();
+        
+        assertEquals(count, output.size());
+        for(int i = 0; i < count; i++){
+            assertEquals(Integer.valueOf(i), output.get(i));
+        }
+        assertEquals(3, chain.getQueueMonitors().size());
+        //A full stage may be drained by the stage in front of it.
+        synchronized(threads){
+            for(String name : threads){
+                assertTrue(name, name.startsWith("jflux-stage-"));
+            }
+        }
+    }
+    
+    @Test
+    public void testPartition() throws Exception {
+        System.out.println("partition: every event is processed once");
+        
+        ProcessorChain<Integer,Integer> chain = 
+                NodeChainBuilder.build(new AddAdapter(0))
+                .partition(new ModAdapter(5), 3, new AddAdapter(1000))
+                .getProcessorChain();
+        Object node = chain.getProcessorNodes().get(1);
+        assertTrue(node instanceof PartitionedProcessorNode);
+        assertEquals(3, ((PartitionedProcessorNode)node).getPartitionCount());
+        List<Integer> output = collect(chain);
+        assertTrue(chain.start());
+        
+        for(int i = 0; i < 200; i++){
+            chain.getListener().handleEvent(i);
+        }
+        waitForSize(output, 200);
+        chain.stop();
+        
+        List<Integer> sorted;
+        synchronized(output){
+            sorted = new ArrayList<Integer>(output);
+        }
+        Collections.sort(sorted);
+        assertEquals(200, sorted.size());
+        for(int i = 0; i < 200; i++){
+            assertEquals(Integer.valueOf(i + 1000), sorted.get(i));
+        }
+        QueueMonitor monitor = (QueueMonitor)node;
+        assertEquals(200, monitor.getDeliveredCount());
+        assertEquals(0, monitor.getDroppedCount());
+    }
+    
+    private static List<Integer> collect(ProcessorChain<?,Integer> chain){
+        final List<Integer> output = 
+                Collections.synchronizedList(new ArrayList<Integer>());
+        chain.getNotifier().addListener(new Listener<Integer>() {
+            @Override
+            public void handleEvent(Integer event) {
+                output.add(event);
+            }
+        });
+        return output;
+    }
+    
+    private static void waitForSize(List<?> list, int size) 
+            throws InterruptedException{
+        long end = System.currentTimeMillis() + 10000;
+        while(list.size() < size && System.currentTimeMillis() < end){
+            Thread.sleep(5);
+        }
+    }
+    
+    static class AddAdapter implements Adapter<Integer,Integer>{
+        private final int myAmount;
+        
+        AddAdapter(int amount){
+            myAmount = amount;
+        }
+        
+        @Override
+        public Integer adapt(Integer a) {
+            return a + myAmount;
+        }
+    }
+    
+    static class ModAdapter implements Adapter<Integer,Integer>{
+        private final int myModulus;
+        
+        ModAdapter(int modulus){
+            myModulus = modulus;
+        }
+        
+        @Override
+        public Integer adapt(Integer a) {
+            return a % myModulus;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.playable;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.playable.Playable.PlayState;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class BasicPlayableTest {
+    
+    @Test
+    public void testLegalTransitions() {
+        System.out.println("start/pause/resume/stop: legal source states");
+        
+        BasicPlayable p = new BasicPlayable();
+        assertFalse(p.pause());
+        assertFalse(p.resume());
+        assertEquals(PlayState.INITIALIZING, p.getPlayState());
+        
+        assertTrue(p.start());
+        assertTrue(p.pause());
+        assertFalse(p.start());
+        assertEquals(PlayState.PAUSED, p.getPlayState());
+        assertTrue(p.resume());
+        assertEquals(PlayState.RUNNING, p.getPlayState());
+        
+        assertTrue(p.complete());
+        assertFalse(p.stop());
+        assertFalse(p.pause());
+        assertFalse(p.resume());
+        assertEquals(PlayState.COMPLETED, p.getPlayState());
+        
+        assertTrue(p.start());
+        assertTrue(p.stop());
+        assertFalse(p.pause());
+        assertEquals(PlayState.ABORTED, p.getPlayState());
+        assertTrue(p.start());
+    }
+    
+    @Test
+    public void testSameState() {
+        System.out.println("start/pause/resume/stop: same state is a no-op");
+        
+        BasicPlayable p = new BasicPlayable();
+        final AtomicInteger changes = new AtomicInteger();
+        p.addPlayStateListener(new Listener<PlayStateChange>() {
+            @Override
+            public void handleEvent(PlayStateChange event) {
+                changes.incrementAndGet();
+            }
+        });
+        assertTrue(p.start());
+        assertTrue(p.start());
+        assertTrue(p.resume());
+        assertEquals(1, changes.get());
+        assertTrue(p.pause());
+        assertTrue(p.pause());
+        assertEquals(2, changes.get());
+        assertTrue(p.resume());
+        assertTrue(p.complete());
+        assertTrue(p.complete());
+        assertEquals(4, changes.get());
+        assertTrue(p.start());
+        assertTrue(p.stop());
+        assertTrue(p.stop());
+        assertEquals(6, changes.get());
+        assertEquals(PlayState.ABORTED, p.getPlayState());
+    }
+    
+    @Test
+    public void testGroupRepeat() {
+        System.out.println("PlayableGroup: repeating a transition succeeds");
+        
+        final BasicPlayable member = new BasicPlayable();
+        PlayableGroup group = new PlayableGroup(){
+            @Override
+            protected Iterable<Playable> getPlayables() {
+                return Collections.<Playable>singletonList(member);
+            }
+        };
+        assertTrue(member.start());
+        assertTrue(group.start());
+        assertTrue(group.resume());
+        assertEquals(PlayState.RUNNING, group.getPlayState());
+        assertTrue(group.pause());
+        assertTrue(group.pause());
+        assertEquals(PlayState.PAUSED, group.getPlayState());
+        assertEquals(PlayState.PAUSED, member.getPlayState());
+    }
+    
+    @Test
+    public void testConcurrentStart() throws Exception {
+        System.out.println("start: one change from several threads");
+        
+        final BasicPlayable p = new BasicPlayable();
+        final AtomicInteger changes = new AtomicInteger();
+        p.addPlayStateListener(new Listener<PlayStateChange>() {
+            @Override
+            public void handleEvent(PlayStateChange event) {
+                changes.incrementAndGet();
+            }
+        });
+        final AtomicInteger started = new AtomicInteger();
+        final CountDownLatch go = new CountDownLatch(1);
+        Thread[] threads = new Thread[4];
+        for(int i = 0; i < threads.length; i++){
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try{
+                        go.await();
+                    }catch(InterruptedException ex){
+                        return;
+                    }
+                    if(p.start()){
+                        started.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        go.countDown();
+        for(Thread t : threads){
+            t.join();
+        }
+        assertEquals(threads.length, started.get());
+        assertEquals(1, changes.get());
+        assertEquals(PlayState.RUNNING, p.getPlayState());
+    }
+}
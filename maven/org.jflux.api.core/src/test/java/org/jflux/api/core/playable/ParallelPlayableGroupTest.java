@@ -0,0 +1,205 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.playable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.jflux.api.core.playable.Playable.PlayState;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class ParallelPlayableGroupTest {
+    private final static Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+    
+    private List<String> myCalls;
+    
+    @Before
+    public void setUp() {
+        myCalls = Collections.synchronizedList(new ArrayList<String>());
+    }
+    
+    @Test
+    public void testStartFailureStopsSubmitting() {
+        System.out.println("start: no further children after a failure");
+        
+        ParallelPlayableGroup group = new ParallelPlayableGroup(DIRECT, 1);
+        Child a = new Child("a");
+        Child b = new Child("b");
+        Child c = new Child("c");
+        Child d = new Child("d");
+        c.myFailOn = "start";
+        group.add(a);
+        group.add(c);
+        group.add(b, a);
+        group.add(d);
+        
+        assertFalse(group.start());
+        assertEquals(PlayState.ERROR, group.getPlayState());
+        assertEquals(Arrays.asList("start a", "start c", "stop a"), myCalls);
+        assertEquals(PlayState.ABORTED, a.getPlayState());
+        assertEquals(PlayState.INITIALIZING, b.getPlayState());
+        assertEquals(PlayState.INITIALIZING, d.getPlayState());
+    }
+    
+    @Test
+    public void testStopFailureSkipsOnlyLaterChildren() {
+        System.out.println("stop: a failure only skips the children after it");
+        
+        ParallelPlayableGroup group = new ParallelPlayableGroup(DIRECT, 1);
+        Child a = new Child("a");
+        Child b = new Child("b");
+        Child c = new Child("c");
+        Child d = new Child("d");
+        group.add(a);
+        group.add(b, a);
+        group.add(c);
+        group.add(d, c);
+        assertTrue(group.start());
+        myCalls.clear();
+        
+        b.myFailOn = "stop";
+        assertFalse(group.stop());
+        assertEquals(PlayState.ERROR, group.getPlayState());
+        assertEquals(Arrays.asList("stop b", "stop d", "stop c"), myCalls);
+        assertEquals(PlayState.RUNNING, a.getPlayState());
+        assertEquals(PlayState.ABORTED, c.getPlayState());
+        assertEquals(PlayState.ABORTED, d.getPlayState());
+    }
+    
+    @Test
+    public void testPauseFailureSkipsOnlyLaterChildren() {
+        System.out.println("pause: a failure only skips the children after it");
+        
+        ParallelPlayableGroup group = new ParallelPlayableGroup(DIRECT, 1);
+        Child a = new Child("a");
+        Child b = new Child("b");
+        Child c = new Child("c");
+        group.add(a);
+        group.add(b, a);
+        group.add(c);
+        assertTrue(group.start());
+        myCalls.clear();
+        
+        b.myFailOn = "pause";
+        assertFalse(group.pause());
+        assertEquals(Arrays.asList("pause b", "pause c"), myCalls);
+        assertEquals(PlayState.RUNNING, a.getPlayState());
+        assertEquals(PlayState.PAUSED, c.getPlayState());
+    }
+    
+    @Test
+    public void testRollbackFailureSkipsOnlyLaterChildren() {
+        System.out.println("start: rollback continues past a failed stop");
+        
+        ParallelPlayableGroup group = new ParallelPlayableGroup(DIRECT, 1);
+        Child a = new Child("a");
+        Child b = new Child("b");
+        Child c = new Child("c");
+        Child f = new Child("f");
+        b.myFailOn = "stop";
+        f.myFailOn = "start";
+        group.add(a);
+        group.add(c);
+        group.add(b, a);
+        group.add(f, b);
+        
+        assertFalse(group.start());
+        assertEquals(Arrays.asList("start a", "start c", "start b", "start f", 
+                "stop c", "stop b"), myCalls);
+        assertEquals(PlayState.RUNNING, a.getPlayState());
+        assertEquals(PlayState.ABORTED, c.getPlayState());
+    }
+    
+    @Test
+    public void testErrorIsReported() throws Exception {
+        System.out.println("start: an Error in a child fails the group");
+        
+        final ParallelPlayableGroup group = new ParallelPlayableGroup(
+                ParallelPlayableGroup.getDefaultExecutor(), 2);
+        Child a = new Child("a");
+        Child b = new Child("b");
+        a.myFailOn = "start";
+        a.myThrowError = true;
+        group.add(a);
+        group.add(b);
+        
+        final boolean[] result = {true};
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                result[0] = group.start();
+            }
+        });
+        t.start();
+        t.join(5000);
+        assertFalse("group did not finish starting", t.isAlive());
+        assertFalse(result[0]);
+        assertEquals(PlayState.ERROR, group.getPlayState());
+    }
+    
+    class Child extends BasicPlayable{
+        private final String myName;
+        String myFailOn;
+        boolean myThrowError;
+        
+        Child(String name){
+            myName = name;
+        }
+        
+        private boolean call(String method){
+            myCalls.add(method + " " + myName);
+            if(!method.equals(myFailOn)){
+                return true;
+            }else if(myThrowError){
+                throw new AssertionError("test error in " + myName);
+            }
+            return false;
+        }
+        
+        @Override
+        public boolean start() {
+            return call("start") && super.start();
+        }
+        
+        @Override
+        public boolean pause() {
+            return call("pause") && super.pause();
+        }
+        
+        @Override
+        public boolean stop() {
+            return call("stop") && super.stop();
+        }
+        
+        @Override
+        public String toString() {
+            return myName;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.util.AsyncListener.DaemonThreadFactory;
+import org.jflux.api.core.util.AsyncListener.OverflowPolicy;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class AsyncListenerTest {
+    private ManualExecutor myExecutor;
+    private List<Integer> myEvents;
+    private Listener<Integer> myTarget;
+    
+    @Before
+    public void setUp() {
+        myExecutor = new ManualExecutor();
+        myEvents = Collections.synchronizedList(new ArrayList<Integer>());
+        myTarget = new Collector(myEvents);
+    }
+    
+    @Test
+    public void testBlock() throws Exception {
+        System.out.println("BLOCK: producer waits for room");
+        
+        final AsyncListener<Integer> listener = new AsyncListener<Integer>(
+                myTarget, myExecutor, 2, OverflowPolicy.BLOCK);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for(int i = 0; i < 3; i++){
+                    listener.handleEvent(i);
+                }
+            }
+        });
+        producer.start();
+        long end = System.currentTimeMillis() + 5000;
+        while(producer.getState() != Thread.State.WAITING 
+                && System.currentTimeMillis() < end){
+            Thread.sleep(1);
+        }
+        assertEquals(Thread.State.WAITING, producer.getState());
+        assertEquals(2, listener.getQueueDepth());
+        
+        myExecutor.runAll();
+        producer.join(5000);
+        myExecutor.runAll();
+        assertEquals(Arrays.asList(0, 1, 2), myEvents);
+        assertEquals(0, listener.getDroppedCount());
+        assertEquals(3, listener.getDeliveredCount());
+    }
+    
+    @Test
+    public void testDropOldest() {
+        System.out.println("DROP_OLDEST: oldest queued events discarded");
+        
+        AsyncListener<Integer> listener = new AsyncListener<Integer>(
+                myTarget, myExecutor, 3, OverflowPolicy.DROP_OLDEST);
+        send(listener, 5);
+        assertEquals(3, listener.getQueueDepth());
+        assertEquals(2, listener.getDroppedCount());
+        myExecutor.runAll();
+        assertEquals(Arrays.asList(2, 3, 4), myEvents);
+    }
+    
+    @Test
+    public void testDropNewest() {
+        System.out.println("DROP_NEWEST: incoming events discarded");
+        
+        AsyncListener<Integer> listener = new AsyncListener<Integer>(
+                myTarget, myExecutor, 3, OverflowPolicy.DROP_NEWEST);
+        send(listener, 5);
+        assertEquals(3, listener.getQueueDepth());
+        assertEquals(2, listener.getDroppedCount());
+        myExecutor.runAll();
+        assertEquals(Arrays.asList(0, 1, 2), myEvents);
+    }
+    
+    @Test
+    public void testCoalesceLatest() {
+        System.out.println("COALESCE_LATEST: newest queued event replaced");
+        
+        AsyncListener<Integer> listener = new AsyncListener<Integer>(
+                myTarget, myExecutor, 3, OverflowPolicy.COALESCE_LATEST);
+        send(listener, 5);
+        assertEquals(3, listener.getQueueDepth());
+        assertEquals(2, listener.getDroppedCount());
+        myExecutor.runAll();
+        assertEquals(Arrays.asList(0, 1, 4), myEvents);
+    }
+    
+    @Test
+    public void testFailedDelivery() {
+        System.out.println("handleEvent: failures not counted as delivered");
+        
+        AsyncListener<Integer> listener = new AsyncListener<Integer>(
+                new Listener<Integer>() {
+                    @Override
+                    public void handleEvent(Integer input) {
+                        if(input % 2 == 1){
+                            throw new IllegalStateException("odd");
+                        }
+                        myEvents.add(input);
+                    }
+                }, myExecutor, 8, OverflowPolicy.BLOCK);
+        send(listener, 4);
+        myExecutor.runAll();
+        assertEquals(Arrays.asList(0, 2), myEvents);
+        assertEquals(2, listener.getDeliveredCount());
+        assertEquals(2, listener.getFailedCount());
+        assertEquals(0, listener.getDroppedCount());
+    }
+    
+    @Test
+    public void testRejected() {
+        System.out.println("handleEvent: rejected delivery drops queue");
+        
+        AsyncListener<Integer> listener = new AsyncListener<Integer>(
+                myTarget, new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        throw new java.util.concurrent.RejectedExecutionException();
+                    }
+                }, 4, OverflowPolicy.BLOCK);
+        send(listener, 6);
+        assertEquals(0, listener.getQueueDepth());
+        assertEquals(6, listener.getDroppedCount());
+        assertTrue(myEvents.isEmpty());
+    }
+    
+    @Test
+    public void testMultiHopBlock() throws Exception {
+        System.out.println("BLOCK: chain longer than the pool keeps moving");
+        
+        ExecutorService pool = Executors.newFixedThreadPool(
+                2, new DaemonThreadFactory("async-test-"));
+        try{
+            Listener<Integer> slow = new Listener<Integer>() {
+                @Override
+                public void handleEvent(Integer input) {
+                    if(input % 16 == 0){
+                        try{
+                            Thread.sleep(1);
+                        }catch(InterruptedException ex){
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    myEvents.add(input);
+                }
+            };
+            Listener<Integer> chain = slow;
+            for(int i = 0; i < 4; i++){
+                chain = new AsyncListener<Integer>(
+                        chain, pool, 4, OverflowPolicy.BLOCK);
+            }
+            final Listener<Integer> head = chain;
+            //Send from a daemon thread so a stalled chain fails the test
+            //instead of hanging it.
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    send(head, 500);
+                }
+            });
+            producer.setDaemon(true);
+            producer.start();
+            long end = System.currentTimeMillis() + 10000;
+            while(myEvents.size() < 500 
+                    && System.currentTimeMillis() < end){
+                Thread.sleep(5);
+            }
+            assertEquals(500, myEvents.size());
+            for(int i = 0; i < 500; i++){
+                assertEquals(Integer.valueOf(i), myEvents.get(i));
+            }
+        }finally{
+            pool.shutdownNow();
+        }
+    }
+    
+    private static void send(Listener<Integer> listener, int count){
+        for(int i = 0; i < count; i++){
+            listener.handleEvent(i);
+        }
+    }
+    
+    static class Collector implements Listener<Integer> {
+        private final List<Integer> myEvents;
+
+        Collector(List<Integer> events){
+            myEvents = events;
+        }
+        
+        @Override
+        public void handleEvent(Integer input) {
+            myEvents.add(input);
+        }
+    }
+    
+    /**
+     * Executor which holds tasks until runAll() is called.
+     */
+    static class ManualExecutor implements Executor {
+        private final List<Runnable> myTasks = new ArrayList<Runnable>();
+
+        @Override
+        public synchronized void execute(Runnable command) {
+            myTasks.add(command);
+        }
+        
+        void runAll(){
+            while(true){
+                Runnable task;
+                synchronized(this){
+                    if(myTasks.isEmpty()){
+                        return;
+                    }
+                    task = myTasks.remove(0);
+                }
+                task.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.util.AsyncListener.DaemonThreadFactory;
+import org.jflux.api.core.util.AsyncListener.OverflowPolicy;
+import org.jflux.api.core.util.AsyncListenerTest.Collector;
+import org.jflux.api.core.util.AsyncListenerTest.ManualExecutor;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class AsyncNotifierTest {
+    
+    @Test
+    public void testQueuePerListener() {
+        System.out.println("notifyListeners: each Listener has its own queue");
+        
+        ManualExecutor executor = new ManualExecutor();
+        AsyncNotifier<Integer> notifier = new AsyncNotifier<Integer>(
+                executor, 2, OverflowPolicy.DROP_OLDEST);
+        List<Integer> first = new ArrayList<Integer>();
+        List<Integer> second = new ArrayList<Integer>();
+        Listener<Integer> firstListener = new Collector(first);
+        notifier.addListener(firstListener);
+        notifier.addListener(new Collector(second));
+        for(int i = 0; i < 5; i++){
+            notifier.notifyListeners(i);
+        }
+        assertEquals(2, notifier.getQueueDepth());
+        assertEquals(3, notifier.getQueueMonitor(firstListener).getDroppedCount());
+        assertEquals(6, notifier.getDroppedCount());
+        executor.runAll();
+        assertEquals(Arrays.asList(3, 4), first);
+        assertEquals(Arrays.asList(3, 4), second);
+        assertEquals(4, notifier.getDeliveredCount());
+        assertEquals(0, notifier.getFailedCount());
+    }
+    
+    @Test
+    public void testSlowListener() throws Exception {
+        System.out.println("notifyListeners: slow Listener does not stall others");
+        
+        ExecutorService pool = Executors.newFixedThreadPool(
+                2, new DaemonThreadFactory("notifier-test-"));
+        final CountDownLatch release = new CountDownLatch(1);
+        try{
+            AsyncNotifier<Integer> notifier = new AsyncNotifier<Integer>(
+                    pool, 4, OverflowPolicy.DROP_NEWEST);
+            Listener<Integer> stuck = new Listener<Integer>() {
+                @Override
+                public void handleEvent(Integer input) {
+                    try{
+                        release.await();
+                    }catch(InterruptedException ex){
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            List<Integer> events = 
+                    Collections.synchronizedList(new ArrayList<Integer>());
+            notifier.addListener(stuck);
+            notifier.addListener(new Collector(events));
+            for(int i = 0; i < 20; i++){
+                notifier.notifyListeners(i);
+                //Let the healthy Listener keep up.
+                long end = System.currentTimeMillis() + 5000;
+                while(events.size() <= i && System.currentTimeMillis() < end){
+                    Thread.sleep(1);
+                }
+            }
+            assertEquals(20, events.size());
+            assertTrue(notifier.getQueueMonitor(stuck).getDroppedCount() > 0);
+            assertEquals(notifier.getQueueMonitor(stuck).getDroppedCount(), 
+                    notifier.getDroppedCount());
+        }finally{
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.jflux.api.core.BatchListener;
+import org.jflux.api.core.util.AsyncListener.DaemonThreadFactory;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class MicroBatcherTest {
+    private WheelTimer myTimer;
+    private ExecutorService myExecutor;
+    private List<List<Integer>> myBatches;
+    private List<String> myThreads;
+    private BatchListener<Integer> myTarget;
+    
+    @Before
+    public void setUp() {
+        myTimer = new WheelTimer();
+        myExecutor = Executors.newSingleThreadExecutor(
+                new DaemonThreadFactory("batch-delivery-"));
+        myBatches = Collections.synchronizedList(new ArrayList<List<Integer>>());
+        myThreads = Collections.synchronizedList(new ArrayList<String>());
+        myTarget = new BatchListener<Integer>() {
+            @Override
+            public void handleEvents(List<Integer> events) {
+                myThreads.add(Thread.currentThread().getName());
+                myBatches.add(new ArrayList<Integer>(events));
+            }
+
+            @Override
+            public void handleEvent(Integer input) {
+                handleEvents(Collections.singletonList(input));
+            }
+        };
+    }
+    
+    @After
+    public void tearDown() {
+        myTimer.shutdown();
+        myExecutor.shutdownNow();
+    }
+    
+    @Test
+    public void testFullBatch() {
+        System.out.println("handleEvent: full batch sent on the caller");
+        
+        MicroBatcher<Integer> batcher = new MicroBatcher<Integer>(
+                myTarget, 3, 0, TimeUnit.MILLISECONDS, myTimer, myExecutor);
+        for(int i = 0; i < 7; i++){
+            batcher.handleEvent(i);
+        }
+        assertEquals(2, myBatches.size());
+        assertEquals(1, batcher.getPendingCount());
+        assertEquals(Thread.currentThread().getName(), myThreads.get(0));
+        batcher.close();
+        assertEquals(3, myBatches.size());
+        assertEquals(Collections.singletonList(6), myBatches.get(2));
+        assertEquals(3, batcher.getBatchCount());
+    }
+    
+    @Test
+    public void testDelayedBatchUsesExecutor() throws Exception {
+        System.out.println("handleEvent: delayed batch sent on the executor");
+        
+        MicroBatcher<Integer> batcher = new MicroBatcher<Integer>(
+                myTarget, 100, 5, TimeUnit.MILLISECONDS, myTimer, myExecutor);
+        batcher.handleEvent(1);
+        batcher.handleEvent(2);
+        long end = System.currentTimeMillis() + 5000;
+        while(myBatches.isEmpty() && System.currentTimeMillis() < end){
+            Thread.sleep(2);
+        }
+        assertEquals(1, myBatches.size());
+        assertEquals(2, myBatches.get(0).size());
+        assertTrue(myThreads.get(0),
+                myThreads.get(0).startsWith("batch-delivery-"));
+        batcher.close();
+    }
+    
+    @Test
+    public void testOwnFlushThread() throws Exception {
+        System.out.println("timer: default flushes run on the batcher's thread");
+        
+        MicroBatcher<Integer> batcher = new MicroBatcher<Integer>(
+                myTarget, 100, 5, TimeUnit.MILLISECONDS, myTimer);
+        batcher.handleEvent(1);
+        long end = System.currentTimeMillis() + 5000;
+        while(myBatches.isEmpty() && System.currentTimeMillis() < end){
+            Thread.sleep(2);
+        }
+        assertEquals(1, myBatches.size());
+        assertTrue(myThreads.get(0),
+                myThreads.get(0).startsWith("jflux-flush-"));
+        batcher.close();
+        batcher.handleEvent(2);
+        Thread.sleep(20);
+        assertEquals(1, batcher.getPendingCount());
+    }
+}
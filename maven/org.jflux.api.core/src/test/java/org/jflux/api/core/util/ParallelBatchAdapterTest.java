@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.jflux.api.core.Adapter;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class ParallelBatchAdapterTest {
+    private final static int THRESHOLD = 16;
+    private ForkJoinPool myPool;
+    private ParallelBatchAdapter<Integer,Integer> myAdapter;
+    
+    @Before
+    public void setUp() {
+        myPool = new ForkJoinPool(2);
+        myAdapter = new ParallelBatchAdapter<Integer,Integer>(
+                new Doubler(), THRESHOLD, myPool);
+    }
+    
+    @After
+    public void tearDown() {
+        myPool.shutdownNow();
+    }
+    
+    @Test
+    public void testOrder() {
+        System.out.println("adapt: parallel output keeps input order");
+        
+        List<Integer> out = myAdapter.adapt(range(1000));
+        assertEquals(1000, out.size());
+        for(int i = 0; i < 1000; i++){
+            assertEquals(Integer.valueOf(2 * i), out.get(i));
+        }
+    }
+    
+    @Test
+    public void testNotRandomAccess() {
+        System.out.println("adapt: LinkedList input is converted in order");
+        
+        List<Integer> out = myAdapter.adapt(
+                new LinkedList<Integer>(range(1000)));
+        assertEquals(1000, out.size());
+        for(int i = 0; i < 1000; i++){
+            assertEquals(Integer.valueOf(2 * i), out.get(i));
+        }
+    }
+    
+    @Test
+    public void testMutableOutput() {
+        System.out.println("adapt: output is mutable on both paths");
+        
+        List<Integer> small = myAdapter.adapt(range(THRESHOLD - 1));
+        List<Integer> large = myAdapter.adapt(range(THRESHOLD * 10));
+        assertEquals(ArrayList.class, small.getClass());
+        assertEquals(ArrayList.class, large.getClass());
+        large.add(-1);
+        large.remove(0);
+        assertEquals(THRESHOLD * 10, large.size());
+    }
+    
+    @Test
+    public void testException() {
+        System.out.println("adapt: Adapter exception is rethrown");
+        
+        ParallelBatchAdapter<Integer,Integer> adapter = 
+                new ParallelBatchAdapter<Integer,Integer>(
+                        new Adapter<Integer,Integer>() {
+                            @Override
+                            public Integer adapt(Integer a) {
+                                if(a == 500){
+                                    throw new IllegalStateException("bad");
+                                }
+                                return a;
+                            }
+                        }, THRESHOLD, myPool);
+        try{
+            adapter.adapt(range(1000));
+            fail("Expected IllegalStateException");
+        }catch(IllegalStateException ex){
+        }
+    }
+    
+    static List<Integer> range(int n){
+        List<Integer> list = new ArrayList<Integer>(n);
+        for(int i = 0; i < n; i++){
+            list.add(i);
+        }
+        return list;
+    }
+    
+    static class Doubler implements Adapter<Integer,Integer> {
+        @Override
+        public Integer adapt(Integer a) {
+            return 2 * a;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.core.util;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class ParallelListMergeAdapterTest {
+    private final static int THRESHOLD = 16;
+    private ForkJoinPool myPool;
+    private ParallelListMergeAdapter<Integer> myAdapter;
+    
+    @Before
+    public void setUp() {
+        myPool = new ForkJoinPool(2);
+        myAdapter = new ParallelListMergeAdapter<Integer>(THRESHOLD, myPool);
+    }
+    
+    @After
+    public void tearDown() {
+        myPool.shutdownNow();
+    }
+    
+    @Test
+    public void testOrder() {
+        System.out.println("adapt: parallel merge keeps list order");
+        
+        List<Integer> out = myAdapter.adapt(split(1000, false));
+        assertEquals(1000, out.size());
+        for(int i = 0; i < 1000; i++){
+            assertEquals(Integer.valueOf(i), out.get(i));
+        }
+    }
+    
+    @Test
+    public void testNotRandomAccess() {
+        System.out.println("adapt: LinkedList inputs are merged in order");
+        
+        List<Integer> out = myAdapter.adapt(split(1000, true));
+        assertEquals(1000, out.size());
+        for(int i = 0; i < 1000; i++){
+            assertEquals(Integer.valueOf(i), out.get(i));
+        }
+    }
+    
+    @Test
+    public void testMutableOutput() {
+        System.out.println("adapt: output is mutable on both paths");
+        
+        List<Integer> small = myAdapter.adapt(split(THRESHOLD - 1, false));
+        List<Integer> large = myAdapter.adapt(split(THRESHOLD * 10, false));
+        assertEquals(ArrayList.class, small.getClass());
+        assertEquals(ArrayList.class, large.getClass());
+        large.add(-1);
+        large.remove(0);
+        assertEquals(THRESHOLD * 10, large.size());
+    }
+    
+    @Test
+    public void testException() {
+        System.out.println("adapt: exception from an input List is rethrown");
+        
+        List<List<Integer>> lists = split(1000, false);
+        lists.set(3, new ArrayList<Integer>(lists.get(3)){
+            @Override
+            public Object[] toArray() {
+                throw new IllegalStateException("bad");
+            }
+        });
+        try{
+            myAdapter.adapt(lists);
+            fail("Expected IllegalStateException");
+        }catch(IllegalStateException ex){
+        }
+    }
+    
+    /**
+     * Splits 0..n-1 into Lists of varying sizes.
+     */
+    private static List<List<Integer>> split(int n, boolean linked){
+        List<List<Integer>> lists = new ArrayList<List<Integer>>();
+        int next = 0;
+        for(int size = 1; next < n; size = size % 37 + 1){
+            List<Integer> list = linked 
+                    ? new LinkedList<Integer>() : new ArrayList<Integer>();
+            for(int i = 0; i < size && next < n; i++){
+                list.add(next++);
+            }
+            lists.add(list);
+        }
+        return lists;
+    }
+}
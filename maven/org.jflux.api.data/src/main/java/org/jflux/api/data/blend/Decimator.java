@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.blend;
+
+import org.jflux.api.core.Adapter;
+
+/**
+ * Adapter which passes through every nth input and returns null for the 
+ * others.  Used with a DefaultProcessorNode, the dropped inputs are not sent.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <T> data type
+ */
+public class Decimator<T> implements Adapter<T, T> {
+    private final int myFactor;
+    private int myCount;
+
+    /**
+     * Builds a Decimator.
+     * @param factor keeps one input in this many, must be greater than 0
+     */
+    public Decimator(int factor){
+        if(factor <= 0){
+            throw new IllegalArgumentException(
+                    "Factor must be greater than 0.");
+        }
+        myFactor = factor;
+    }
+
+    /**
+     * Returns the number of inputs for each output.
+     * @return decimation factor
+     */
+    public int getFactor(){
+        return myFactor;
+    }
+
+    /**
+     * Returns the input if it is the first of a group of factor inputs.
+     * @param a input data
+     * @return the input, or null if it is dropped
+     */
+    @Override
+    public synchronized T adapt(T a) {
+        if(a == null){
+            return null;
+        }
+        int count = myCount;
+        myCount = count + 1 == myFactor ? 0 : count + 1;
+        return count == 0 ? a : null;
+    }
+}
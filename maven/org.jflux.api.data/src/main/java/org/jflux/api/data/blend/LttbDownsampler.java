@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.blend;
+
+import org.jflux.api.core.Adapter;
+
+/**
+ * Adapter which downsamples a stream of Samples using 
+ * Largest-Triangle-Three-Buckets, keeping the shape of the signal better than
+ * decimation.  Returns null for inputs which produce no output, so it can be
+ * used with a DefaultProcessorNode.
+ * 
+ * The stream is split into buckets of a fixed number of Samples.  From each
+ * bucket the Sample forming the largest triangle with the previously chosen 
+ * Sample and the average of the following bucket is chosen.  This works on a
+ * stream by delaying output by one bucket, holding at most two buckets of 
+ * Samples.  The first Sample is always passed through.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class LttbDownsampler implements Adapter<Sample, Sample> {
+    private final int myBucketSize;
+    private Sample myPrevious;
+    private Sample[] myBucket;
+    private Sample[] myNextBucket;
+    private int myNextCount;
+    private double myNextTimeSum;
+    private double myNextValueSum;
+    private boolean myBucketFull;
+
+    /**
+     * Builds an LttbDownsampler.
+     * @param bucketSize number of input Samples for each output Sample, must 
+     * be greater than 1
+     */
+    public LttbDownsampler(int bucketSize){
+        if(bucketSize <= 1){
+            throw new IllegalArgumentException(
+                    "Bucket size must be greater than 1.");
+        }
+        myBucketSize = bucketSize;
+        myBucket = new Sample[bucketSize];
+        myNextBucket = new Sample[bucketSize];
+    }
+
+    /**
+     * Returns the number of input Samples for each output Sample.
+     * @return bucket size
+     */
+    public int getBucketSize(){
+        return myBucketSize;
+    }
+
+    /**
+     * Adds a Sample, returning the Sample chosen from the previous bucket 
+     * once the following bucket is complete.
+     * @param a input Sample
+     * @return chosen Sample, or null
+     */
+    @Override
+    public synchronized Sample adapt(Sample a) {
+        if(a == null){
+            return null;
+        }
+        if(myPrevious == null){
+            myPrevious = a;
+            return a;
+        }
+        myNextBucket[myNextCount++] = a;
+        myNextTimeSum += a.getTimestamp();
+        myNextValueSum += a.getValue();
+        if(myNextCount < myBucketSize){
+            return null;
+        }
+        Sample chosen = null;
+        if(myBucketFull){
+            chosen = choose(myNextTimeSum / myBucketSize, 
+                    myNextValueSum / myBucketSize);
+            myPrevious = chosen;
+        }
+        Sample[] bucket = myBucket;
+        myBucket = myNextBucket;
+        myNextBucket = bucket;
+        myBucketFull = true;
+        myNextCount = 0;
+        myNextTimeSum = 0;
+        myNextValueSum = 0;
+        return chosen;
+    }
+
+    private Sample choose(double avgTime, double avgValue){
+        double ax = myPrevious.getTimestamp();
+        double ay = myPrevious.getValue();
+        double maxArea = -1;
+        Sample chosen = myBucket[0];
+        for(int i = 0; i < myBucketSize; i++){
+            Sample b = myBucket[i];
+            double area = Math.abs((ax - avgTime) * (b.getValue() - ay) 
+                    - (ax - b.getTimestamp()) * (avgValue - ay));
+            if(area > maxArea){
+                maxArea = area;
+                chosen = b;
+            }
+        }
+        return chosen;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.blend;
+
+import java.util.Arrays;
+
+/**
+ * Estimates a quantile of a stream in constant memory, using the P-squared
+ * algorithm of Jain and Chlamtac.  Exact for the first five values.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+final class P2Quantile {
+    private final double myQuantile;
+    private final double[] myHeights;
+    private final double[] myPositions;
+    private final double[] myDesired;
+    private final double[] myIncrements;
+    private int myCount;
+
+    /**
+     * Creates a new estimator.
+     * @param quantile quantile to estimate, from 0 to 1
+     */
+    P2Quantile(double quantile){
+        myQuantile = quantile;
+        myHeights = new double[5];
+        myPositions = new double[5];
+        myDesired = new double[5];
+        myIncrements = new double[]{
+            0, quantile / 2, quantile, (1 + quantile) / 2, 1};
+    }
+
+    void add(double x){
+        if(myCount < 5){
+            myHeights[myCount++] = x;
+            if(myCount == 5){
+                Arrays.sort(myHeights);
+                for(int i = 0; i < 5; i++){
+                    myPositions[i] = i + 1;
+                }
+                double p = myQuantile;
+                myDesired[0] = 1;
+                myDesired[1] = 1 + 2 * p;
+                myDesired[2] = 1 + 4 * p;
+                myDesired[3] = 3 + 2 * p;
+                myDesired[4] = 5;
+            }
+            return;
+        }
+        int k;
+        if(x < myHeights[0]){
+            myHeights[0] = x;
+            k = 0;
+        }else if(x >= myHeights[4]){
+            myHeights[4] = x;
+            k = 3;
+        }else{
+            k = 0;
+            while(x >= myHeights[k + 1]){
+                k++;
+            }
+        }
+        for(int i = k + 1; i < 5; i++){
+            myPositions[i]++;
+        }
+        for(int i = 0; i < 5; i++){
+            myDesired[i] += myIncrements[i];
+        }
+        for(int i = 1; i < 4; i++){
+            double d = myDesired[i] - myPositions[i];
+            if((d >= 1 && myPositions[i + 1] - myPositions[i] > 1)
+                    || (d <= -1 && myPositions[i - 1] - myPositions[i] < -1)){
+                int s = d > 0 ? 1 : -1;
+                double q = parabolic(i, s);
+                if(myHeights[i - 1] < q && q < myHeights[i + 1]){
+                    myHeights[i] = q;
+                }else{
+                    myHeights[i] = linear(i, s);
+                }
+                myPositions[i] += s;
+            }
+        }
+        myCount++;
+    }
+
+    private double parabolic(int i, int s){
+        double[] q = myHeights;
+        double[] n = myPositions;
+        return q[i] + s / (n[i + 1] - n[i - 1]) 
+                * ((n[i] - n[i - 1] + s) * (q[i + 1] - q[i]) / (n[i + 1] - n[i])
+                + (n[i + 1] - n[i] - s) * (q[i] - q[i - 1]) / (n[i] - n[i - 1]));
+    }
+
+    private double linear(int i, int s){
+        return myHeights[i] + s * (myHeights[i + s] - myHeights[i]) 
+                / (myPositions[i + s] - myPositions[i]);
+    }
+
+    double getValue(){
+        if(myCount == 0){
+            return Double.NaN;
+        }else if(myCount < 5){
+            double[] vals = Arrays.copyOf(myHeights, myCount);
+            Arrays.sort(vals);
+            return WindowState.interpolate(vals, myCount, myQuantile);
+        }else if(myCount == 5){
+            //The heights were sorted when the fifth value arrived.
+            return WindowState.interpolate(myHeights, 5, myQuantile);
+        }
+        return myHeights[2];
+    }
+
+    void clear(){
+        myCount = 0;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.blend;
+
+import org.jflux.api.core.Adapter;
+import org.jflux.api.core.Source;
+
+/**
+ * A single timestamped numeric value.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public final class Sample {
+    private final long myTimestamp;
+    private final double myValue;
+
+    /**
+     * Creates a new Sample.
+     * @param timestamp time of the sample, in milliseconds
+     * @param value value of the sample
+     */
+    public Sample(long timestamp, double value){
+        myTimestamp = timestamp;
+        myValue = value;
+    }
+
+    /**
+     * Returns the time of the sample.
+     * @return time of the sample, in milliseconds
+     */
+    public long getTimestamp(){
+        return myTimestamp;
+    }
+
+    /**
+     * Returns the value of the sample.
+     * @return value of the sample
+     */
+    public double getValue(){
+        return myValue;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if(!(obj instanceof Sample)){
+            return false;
+        }
+        Sample other = (Sample)obj;
+        return myTimestamp == other.myTimestamp
+                && Double.doubleToLongBits(myValue) 
+                        == Double.doubleToLongBits(other.myValue);
+    }
+
+    @Override
+    public int hashCode() {
+        long bits = Double.doubleToLongBits(myValue);
+        return 31 * (int)(myTimestamp ^ (myTimestamp >>> 32)) 
+                + (int)(bits ^ (bits >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "Sample{" + myTimestamp + ", " + myValue + "}";
+    }
+
+    /**
+     * Adapter which creates Samples from another type.
+     * @param <T> input type
+     */
+    public static class SampleAdapter<T> implements Adapter<T, Sample> {
+        private Adapter<T, ? extends Number> myValueAdapter;
+        private Adapter<T, Long> myTimestampAdapter;
+        private Source<Long> myTimestampSource;
+
+        /**
+         * Builds a SampleAdapter reading the timestamp from the input.
+         * @param valueAdapter returns the value of an input
+         * @param timestampAdapter returns the timestamp of an input
+         */
+        public SampleAdapter(Adapter<T, ? extends Number> valueAdapter,
+                Adapter<T, Long> timestampAdapter){
+            if(valueAdapter == null || timestampAdapter == null){
+                throw new NullPointerException();
+            }
+            myValueAdapter = valueAdapter;
+            myTimestampAdapter = timestampAdapter;
+        }
+
+        /**
+         * Builds a SampleAdapter timestamping inputs as they arrive.
+         * @param valueAdapter returns the value of an input
+         * @param timestampSource returns the current time
+         */
+        public SampleAdapter(Adapter<T, ? extends Number> valueAdapter,
+                Source<Long> timestampSource){
+            if(valueAdapter == null || timestampSource == null){
+                throw new NullPointerException();
+            }
+            myValueAdapter = valueAdapter;
+            myTimestampSource = timestampSource;
+        }
+
+        @Override
+        public Sample adapt(T a) {
+            if(a == null){
+                return null;
+            }
+            Number value = myValueAdapter.adapt(a);
+            Long time = myTimestampSource != null 
+                    ? myTimestampSource.getValue() 
+                    : myTimestampAdapter.adapt(a);
+            if(value == null || time == null){
+                return null;
+            }
+            return new Sample(time, value.doubleValue());
+        }
+    }
+}
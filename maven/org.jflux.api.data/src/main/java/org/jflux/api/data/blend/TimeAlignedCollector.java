@@ -0,0 +1,487 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.blend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.Notifier;
+import org.jflux.api.core.Source;
+import org.jflux.api.core.event.Event;
+import org.jflux.api.core.event.Header;
+import org.jflux.api.core.util.CopyOnWriteNotifier;
+import org.jflux.api.core.util.QueueMonitor;
+
+/**
+ * DataCollector which joins several timestamped streams of Events into 
+ * time-aligned tuples.
+ * 
+ * The first stream added is the reference stream.  Each reference Event is
+ * joined with the Event nearest to it in time from every other stream, within
+ * the tolerance.  A tuple is emitted once the watermark, the oldest of the
+ * newest timestamps of the other streams, has passed the reference time plus
+ * the tolerance, so no better match can still arrive.  A stream lagging the
+ * reference stream by more than the maximum delay no longer holds back the
+ * watermark.
+ * 
+ * Each stream must be in timestamp order.  An Event older than its stream's
+ * newest Event, or too old to join any future tuple, is late.  Late Events 
+ * are counted and sent to the late Listener, if one is set.  Each stream 
+ * buffers at most a fixed number of Events, dropping the oldest when full.
+ * 
+ * Events with equal timestamps are not late.  Each reference Event gives 
+ * its own tuple, in the order received, so reference Events with equal 
+ * timestamps may share the same matches.  When two Events of a stream are 
+ * equally near the reference time, the one received first is used.
+ * 
+ * Streams are fed from any number of threads, each stream locking only its 
+ * own buffer.  Tuples are joined and emitted by whichever thread advances the 
+ * watermark, without blocking the others.
+ * 
+ * Streams are pushed through the Listener returned by addStream, or pulled
+ * from Sources added with addSource each time getValue is called.  Tuples 
+ * hold one entry per stream, in the order the streams were added, and hold 
+ * null for a stream with no match.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <H> Header type
+ * @param <D> data type
+ */
+public class TimeAlignedCollector<H extends Header<?,Long>, D> implements 
+        DataCollector<Event<H,D>, List<Event<H,D>>>, QueueMonitor {
+    /**
+     * Default number of Events buffered per stream
+     */
+    public final static int DEFAULT_CAPACITY = 1024;
+
+    private final long myTolerance;
+    private final long myMaxDelay;
+    private final int myCapacity;
+    private final boolean myPartialFlag;
+    private volatile Stream[] myStreams;
+    private final Notifier<List<Event<H,D>>> myNotifier;
+    private volatile Listener<Event<H,D>> myLateListener;
+    private volatile List<Event<H,D>> myLatest;
+    private volatile long myLastReference;
+    private final AtomicInteger myJoinRequests;
+    private final AtomicLong myLateCount;
+    private final AtomicLong myEmittedCount;
+    private final AtomicLong myIncompleteCount;
+
+    /**
+     * Builds a TimeAlignedCollector with the default capacity, emitting 
+     * partial tuples and with no maximum delay.
+     * @param toleranceMillis largest time difference between joined Events
+     */
+    public TimeAlignedCollector(long toleranceMillis){
+        this(toleranceMillis, Long.MAX_VALUE, DEFAULT_CAPACITY, true);
+    }
+
+    /**
+     * Builds a TimeAlignedCollector.
+     * @param toleranceMillis largest time difference between joined Events
+     * @param maxDelayMillis largest lag of a stream behind the reference 
+     * stream which holds back the watermark
+     * @param capacity number of Events buffered per stream
+     * @param emitPartial if true, tuples missing a match are emitted with a
+     * null entry, otherwise they are discarded and counted
+     */
+    public TimeAlignedCollector(long toleranceMillis, long maxDelayMillis, 
+            int capacity, boolean emitPartial){
+        if(toleranceMillis < 0 || maxDelayMillis < 0){
+            throw new IllegalArgumentException(
+                    "Tolerance and maximum delay must not be negative.");
+        }else if(capacity <= 0){
+            throw new IllegalArgumentException(
+                    "Capacity must be greater than 0.");
+        }
+        myTolerance = toleranceMillis;
+        myMaxDelay = maxDelayMillis;
+        myCapacity = capacity;
+        myPartialFlag = emitPartial;
+        myStreams = new TimeAlignedCollector.Stream[0];
+        myNotifier = new CopyOnWriteNotifier<List<Event<H,D>>>();
+        myLastReference = Long.MIN_VALUE;
+        myJoinRequests = new AtomicInteger();
+        myLateCount = new AtomicLong();
+        myEmittedCount = new AtomicLong();
+        myIncompleteCount = new AtomicLong();
+    }
+
+    /**
+     * Adds a stream, returning the Listener used to push its Events.
+     * The first stream added is the reference stream.
+     * @return Listener for the new stream
+     */
+    public Listener<Event<H,D>> addStream(){
+        Stream stream = new Stream(null);
+        addStream(stream);
+        return stream;
+    }
+
+    /**
+     * Removes a stream added with addStream.
+     * @param stream Listener returned by addStream
+     */
+    public void removeStream(Listener<Event<H,D>> stream){
+        if(stream == null){
+            throw new NullPointerException();
+        }
+        synchronized(this){
+            Stream[] streams = myStreams;
+            for(int i = 0; i < streams.length; i++){
+                if(streams[i] == stream){
+                    removeStream(i);
+                    break;
+                }
+            }
+        }
+        requestJoin();
+    }
+
+    /**
+     * Adds a stream which is polled each time getValue is called.
+     * @param source Source of the stream's Events
+     */
+    @Override
+    public void addSource(Source<Event<H,D>> source) {
+        if(source == null){
+            throw new NullPointerException();
+        }
+        synchronized(this){
+            for(Stream s : myStreams){
+                if(s.mySource == source){
+                    return;
+                }
+            }
+            addStream(new Stream(source));
+        }
+    }
+
+    /**
+     * Removes a stream added with addSource.
+     * @param source Source of the stream's Events
+     */
+    @Override
+    public void removeSource(Source<Event<H,D>> source) {
+        if(source == null){
+            throw new NullPointerException();
+        }
+        synchronized(this){
+            Stream[] streams = myStreams;
+            for(int i = 0; i < streams.length; i++){
+                if(streams[i].mySource == source){
+                    removeStream(i);
+                    break;
+                }
+            }
+        }
+        requestJoin();
+    }
+
+    private synchronized void addStream(Stream stream){
+        Stream[] streams = Arrays.copyOf(myStreams, myStreams.length + 1);
+        streams[streams.length - 1] = stream;
+        myStreams = streams;
+    }
+
+    private void removeStream(int index){
+        Stream[] old = myStreams;
+        Stream[] streams = Arrays.copyOf(old, old.length - 1);
+        System.arraycopy(old, index + 1, streams, index, 
+                old.length - index - 1);
+        myStreams = streams;
+    }
+
+    /**
+     * Polls the Sources added with addSource, then returns the most recent 
+     * tuple.
+     * @return most recent tuple, or null if none has been emitted
+     */
+    @Override
+    public List<Event<H,D>> getValue() {
+        for(Stream s : myStreams){
+            if(s.mySource != null){
+                s.handleEvent(s.mySource.getValue());
+            }
+        }
+        return myLatest;
+    }
+
+    /**
+     * Returns the Notifier which sends each tuple as it is emitted.
+     * @return tuple Notifier
+     */
+    public Notifier<List<Event<H,D>>> getNotifier(){
+        return myNotifier;
+    }
+
+    /**
+     * Sets the Listener which receives late Events.
+     * @param listener Listener for late Events, or null to discard them
+     */
+    public void setLateListener(Listener<Event<H,D>> listener){
+        myLateListener = listener;
+    }
+
+    /**
+     * Returns the largest time difference between joined Events.
+     * @return tolerance in milliseconds
+     */
+    public long getTolerance(){
+        return myTolerance;
+    }
+
+    /**
+     * Returns the number of late Events.
+     * @return number of late Events
+     */
+    public long getLateCount(){
+        return myLateCount.get();
+    }
+
+    /**
+     * Returns the number of tuples discarded for missing a match.  Always 0
+     * when partial tuples are emitted.
+     * @return number of discarded tuples
+     */
+    public long getIncompleteCount(){
+        return myIncompleteCount.get();
+    }
+
+    /**
+     * Get the most Events buffered by any stream
+     * @return largest stream buffer size
+     */
+    @Override
+    public int getQueueDepth() {
+        int depth = 0;
+        for(Stream s : myStreams){
+            depth = Math.max(depth, s.getSize());
+        }
+        return depth;
+    }
+
+    /**
+     * Get the number of Events buffered per stream
+     * @return stream capacity
+     */
+    @Override
+    public int getQueueCapacity() {
+        return myCapacity;
+    }
+
+    /**
+     * Get the number of Events dropped from full stream buffers
+     * @return number of dropped Events
+     */
+    @Override
+    public long getDroppedCount() {
+        long count = 0;
+        for(Stream s : myStreams){
+            count += s.myDroppedCount.get();
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of tuples emitted
+     * @return number of emitted tuples
+     */
+    @Override
+    public long getDeliveredCount() {
+        return myEmittedCount.get();
+    }
+
+    private void late(Event<H,D> event){
+        myLateCount.incrementAndGet();
+        Listener<Event<H,D>> listener = myLateListener;
+        if(listener != null){
+            listener.handleEvent(event);
+        }
+    }
+
+    /**
+     * Joins ready tuples, unless another thread is already joining, in which
+     * case that thread joins again before returning.
+     */
+    private void requestJoin(){
+        if(myJoinRequests.getAndIncrement() != 0){
+            return;
+        }
+        int requests = 1;
+        do{
+            join();
+            requests = myJoinRequests.addAndGet(-requests);
+        }while(requests != 0);
+    }
+
+    private void join(){
+        while(true){
+            Stream[] streams = myStreams;
+            if(streams.length == 0){
+                return;
+            }
+            Stream ref = streams[0];
+            long time;
+            Event<H,D> refEvent;
+            synchronized(ref){
+                if(ref.myCount == 0){
+                    return;
+                }
+                time = ref.myTimes[ref.myHead];
+                refEvent = ref.get(ref.myHead);
+            }
+            if(time > Long.MAX_VALUE - myTolerance 
+                    || time + myTolerance > getWatermark(streams)){
+                return;
+            }
+            List<Event<H,D>> tuple = new ArrayList<Event<H,D>>(streams.length);
+            tuple.add(refEvent);
+            boolean complete = true;
+            for(int i = 1; i < streams.length; i++){
+                Event<H,D> match = streams[i].match(time, myTolerance);
+                complete &= match != null;
+                tuple.add(match);
+            }
+            synchronized(ref){
+                if(ref.myCount > 0 && ref.get(ref.myHead) == refEvent){
+                    ref.removeFirst();
+                }
+            }
+            myLastReference = time;
+            if(complete || myPartialFlag){
+                tuple = Collections.unmodifiableList(tuple);
+                myLatest = tuple;
+                myEmittedCount.incrementAndGet();
+                myNotifier.notifyListeners(tuple);
+            }else{
+                myIncompleteCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Returns the oldest of the newest timestamps of the streams joined to 
+     * the reference stream, ignoring lag beyond the maximum delay.
+     */
+    private long getWatermark(Stream[] streams){
+        long refMark = streams[0].myWatermark;
+        long floor = refMark < Long.MIN_VALUE + myMaxDelay 
+                ? Long.MIN_VALUE : refMark - myMaxDelay;
+        long mark = Long.MAX_VALUE;
+        for(int i = 1; i < streams.length; i++){
+            mark = Math.min(mark, Math.max(streams[i].myWatermark, floor));
+        }
+        return mark;
+    }
+
+    private final class Stream implements Listener<Event<H,D>> {
+        private final Source<Event<H,D>> mySource;
+        private final long[] myTimes;
+        private final Object[] myEvents;
+        private int myHead;
+        private int myCount;
+        private volatile long myWatermark;
+        private final AtomicLong myDroppedCount;
+
+        Stream(Source<Event<H,D>> source){
+            mySource = source;
+            myTimes = new long[myCapacity];
+            myEvents = new Object[myCapacity];
+            myWatermark = Long.MIN_VALUE;
+            myDroppedCount = new AtomicLong();
+        }
+
+        @Override
+        public void handleEvent(Event<H,D> event) {
+            if(event == null || event.getHeader() == null 
+                    || event.getHeader().getTimestamp() == null){
+                return;
+            }
+            long time = event.getHeader().getTimestamp();
+            boolean isRef = myStreams.length > 0 && myStreams[0] == this;
+            long last = myLastReference;
+            if(isRef ? time < last 
+                    : last != Long.MIN_VALUE && time < last - myTolerance){
+                late(event);
+                return;
+            }
+            if(!append(time, event)){
+                late(event);
+                return;
+            }
+            requestJoin();
+        }
+
+        private synchronized boolean append(long time, Event<H,D> event){
+            if(time < myWatermark){
+                return false;
+            }
+            if(myCount == myCapacity){
+                removeFirst();
+                myDroppedCount.incrementAndGet();
+            }
+            int i = (myHead + myCount) % myCapacity;
+            myTimes[i] = time;
+            myEvents[i] = event;
+            myCount++;
+            myWatermark = time;
+            return true;
+        }
+
+        Event<H,D> get(int index){
+            return (Event<H,D>)myEvents[index];
+        }
+
+        void removeFirst(){
+            myEvents[myHead] = null;
+            myHead = (myHead + 1) % myCapacity;
+            myCount--;
+        }
+
+        synchronized int getSize(){
+            return myCount;
+        }
+
+        /**
+         * Returns the Event nearest the given time within the tolerance, and
+         * removes Events too old to match any later time.
+         */
+        synchronized Event<H,D> match(long time, long tolerance){
+            while(myCount > 0 && myTimes[myHead] < time - tolerance){
+                removeFirst();
+            }
+            Event<H,D> best = null;
+            long bestDiff = Long.MAX_VALUE;
+            for(int n = 0; n < myCount; n++){
+                int i = (myHead + n) % myCapacity;
+                long diff = Math.abs(myTimes[i] - time);
+                if(diff > tolerance){
+                    break;
+                }else if(diff < bestDiff){
+                    best = get(i);
+                    bestDiff = diff;
+                }
+            }
+            return best;
+        }
+    }
+}
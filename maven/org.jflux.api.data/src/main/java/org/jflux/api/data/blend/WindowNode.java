@@ -0,0 +1,308 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.blend;
+
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.Notifier;
+import org.jflux.api.core.node.ProcessorNode;
+import org.jflux.api.core.playable.BasicPlayable;
+import org.jflux.api.core.playable.ConditionalListener;
+import org.jflux.api.core.playable.ConditionalNotifier;
+import org.jflux.api.core.util.CopyOnWriteNotifier;
+import org.jflux.api.data.blend.WindowSpec.WindowType;
+
+/**
+ * ProcessorNode which aggregates Samples over windows, emitting one Sample
+ * per window.
+ * 
+ * Aggregates are updated as each Sample arrives, and memory is bounded by the
+ * window.  Tumbling windows store no samples, and estimate percentiles.
+ * Sliding windows store the samples in the window, and give exact 
+ * percentiles.
+ * 
+ * Emitted Samples are timestamped with the end of the window for time 
+ * windows, and with the last Sample in the window for count windows.  Time 
+ * windows close when a Sample at or past the end of the window arrives, so
+ * Samples are expected in timestamp order.  Empty time windows are not 
+ * emitted.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class WindowNode extends 
+        BasicPlayable implements ProcessorNode<Sample, Sample> {
+
+    /**
+     * Aggregate computed over each window.
+     */
+    public static enum Aggregation{
+        /**
+         * Number of samples
+         */
+        COUNT,
+        /**
+         * Sum of the values
+         */
+        SUM,
+        /**
+         * Mean of the values
+         */
+        MEAN,
+        /**
+         * Smallest value
+         */
+        MIN,
+        /**
+         * Largest value
+         */
+        MAX,
+        /**
+         * Value at a percentile
+         */
+        PERCENTILE
+    }
+
+    private final WindowSpec myWindow;
+    private final Aggregation myAggregation;
+    private final WindowState myState;
+    private long myNextBoundary;
+    private boolean myBoundarySet;
+    private long mySinceEmit;
+    private Listener<Sample> myInputListener;
+    private Notifier<Sample> myOutputNotifier;
+
+    /**
+     * Builds a WindowNode.
+     * @param window windows to aggregate over
+     * @param aggregation aggregate to compute, not PERCENTILE
+     */
+    public WindowNode(WindowSpec window, Aggregation aggregation){
+        this(window, aggregation, Double.NaN);
+    }
+
+    /**
+     * Builds a WindowNode computing a percentile.
+     * @param window windows to aggregate over
+     * @param percentile percentile to compute, from 0 to 100
+     */
+    public WindowNode(WindowSpec window, double percentile){
+        this(window, Aggregation.PERCENTILE, percentile);
+    }
+
+    private WindowNode(
+            WindowSpec window, Aggregation aggregation, double percentile){
+        if(window == null || aggregation == null){
+            throw new NullPointerException();
+        }
+        double quantile = Double.NaN;
+        if(aggregation == Aggregation.PERCENTILE){
+            if(!(percentile >= 0 && percentile <= 100)){
+                throw new IllegalArgumentException(
+                        "Percentile must be from 0 to 100: " + percentile);
+            }
+            quantile = percentile / 100.0;
+        }
+        myWindow = window;
+        myAggregation = aggregation;
+        if(window.isTumbling()){
+            myState = new WindowState.Tumbling(quantile);
+        }else{
+            myState = new WindowState.Sliding(window.getMaxSamples(), quantile);
+        }
+        myInputListener = 
+                new ConditionalListener<Sample>(this, new WindowListener());
+        myOutputNotifier = new ConditionalNotifier<Sample>(
+                this, new CopyOnWriteNotifier<Sample>());
+    }
+
+    /**
+     * Creates a WindowNode emitting the sum of each window.
+     * @param window windows to aggregate over
+     * @return new WindowNode
+     */
+    public static WindowNode sum(WindowSpec window){
+        return new WindowNode(window, Aggregation.SUM);
+    }
+
+    /**
+     * Creates a WindowNode emitting the mean of each window.
+     * @param window windows to aggregate over
+     * @return new WindowNode
+     */
+    public static WindowNode mean(WindowSpec window){
+        return new WindowNode(window, Aggregation.MEAN);
+    }
+
+    /**
+     * Creates a WindowNode emitting the minimum of each window.
+     * @param window windows to aggregate over
+     * @return new WindowNode
+     */
+    public static WindowNode min(WindowSpec window){
+        return new WindowNode(window, Aggregation.MIN);
+    }
+
+    /**
+     * Creates a WindowNode emitting the maximum of each window.
+     * @param window windows to aggregate over
+     * @return new WindowNode
+     */
+    public static WindowNode max(WindowSpec window){
+        return new WindowNode(window, Aggregation.MAX);
+    }
+
+    /**
+     * Creates a WindowNode emitting a percentile of each window.
+     * @param window windows to aggregate over
+     * @param percentile percentile to compute, from 0 to 100
+     * @return new WindowNode
+     */
+    public static WindowNode percentile(WindowSpec window, double percentile){
+        return new WindowNode(window, percentile);
+    }
+
+    /**
+     * Returns the windows aggregated over.
+     * @return the WindowSpec
+     */
+    public WindowSpec getWindow(){
+        return myWindow;
+    }
+
+    /**
+     * Returns the aggregate computed.
+     * @return the Aggregation
+     */
+    public Aggregation getAggregation(){
+        return myAggregation;
+    }
+
+    /**
+     * Get the internal Listener for receiving
+     * @return the internal Listener
+     */
+    @Override
+    public Listener<Sample> getListener() {
+        return myInputListener;
+    }
+
+    /**
+     * Get the internal Notifier for sending
+     * @return the internal Notifier
+     */
+    @Override
+    public Notifier<Sample> getNotifier() {
+        return myOutputNotifier;
+    }
+
+    /**
+     * Emits the current, incomplete window, if it holds any samples, 
+     * timestamped with its last sample.  A tumbling window is emptied.
+     */
+    public synchronized void flush(){
+        if(myState.getCount() == 0){
+            return;
+        }
+        emit(myState.getLastTimestamp());
+        if(myWindow.isTumbling()){
+            myState.clear();
+        }
+        mySinceEmit = 0;
+    }
+
+    synchronized void addSample(long timestamp, double value){
+        if(myWindow.getType() == WindowType.COUNT){
+            addCountSample(timestamp, value);
+        }else{
+            addTimeSample(timestamp, value);
+        }
+    }
+
+    private void addCountSample(long timestamp, double value){
+        myState.add(timestamp, value);
+        mySinceEmit++;
+        if(myWindow.isTumbling()){
+            if(mySinceEmit == myWindow.getSize()){
+                emit(timestamp);
+                myState.clear();
+                mySinceEmit = 0;
+            }
+        }else if(((WindowState.Sliding)myState).isFull()
+                && mySinceEmit >= myWindow.getStep()){
+            emit(timestamp);
+            mySinceEmit = 0;
+        }
+    }
+
+    private void addTimeSample(long timestamp, double value){
+        long step = myWindow.getStep();
+        if(!myBoundarySet){
+            myNextBoundary = nextBoundary(timestamp, step);
+            myBoundarySet = true;
+        }
+        if(myWindow.isTumbling()){
+            if(timestamp >= myNextBoundary){
+                if(myState.getCount() > 0){
+                    emit(myNextBoundary);
+                    myState.clear();
+                }
+                myNextBoundary = nextBoundary(timestamp, step);
+            }
+        }else{
+            WindowState.Sliding state = (WindowState.Sliding)myState;
+            while(timestamp >= myNextBoundary){
+                state.removeBefore(myNextBoundary - myWindow.getSize());
+                if(state.getCount() == 0){
+                    myNextBoundary = nextBoundary(timestamp, step);
+                    break;
+                }
+                emit(myNextBoundary);
+                myNextBoundary += step;
+            }
+        }
+        myState.add(timestamp, value);
+    }
+
+    private static long nextBoundary(long timestamp, long step){
+        long floor = timestamp - (((timestamp % step) + step) % step);
+        return floor + step;
+    }
+
+    private void emit(long timestamp){
+        double value;
+        int count = myState.getCount();
+        switch(myAggregation){
+            case COUNT: value = count; break;
+            case SUM: value = myState.getSum(); break;
+            case MEAN: value = myState.getSum() / count; break;
+            case MIN: value = myState.getMin(); break;
+            case MAX: value = myState.getMax(); break;
+            case PERCENTILE: value = myState.getPercentile(); break;
+            default: throw new IllegalStateException(
+                    "Unknown Aggregation: " + myAggregation);
+        }
+        myOutputNotifier.notifyListeners(new Sample(timestamp, value));
+    }
+
+    class WindowListener implements Listener<Sample>{
+        @Override
+        public void handleEvent(Sample event) {
+            if(event == null){
+                return;
+            }
+            addSample(event.getTimestamp(), event.getValue());
+        }
+    }
+}
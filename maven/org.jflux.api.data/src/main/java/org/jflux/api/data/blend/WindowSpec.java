@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.blend;
+
+/**
+ * Describes the windows a WindowNode aggregates over.
+ * 
+ * Count windows hold a number of samples.  Time windows hold the samples 
+ * within a period of time, using sample timestamps, and are aligned to 
+ * multiples of the step.  Tumbling windows do not overlap.  Sliding windows 
+ * are emitted every step, and overlap when the step is smaller than the size.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public final class WindowSpec {
+    /**
+     * Default limit on the number of samples held by a sliding time window.
+     */
+    public final static int DEFAULT_MAX_SAMPLES = 65536;
+
+    /**
+     * How a window is measured.
+     */
+    public static enum WindowType{
+        /**
+         * Window size and step are numbers of samples
+         */
+        COUNT,
+        /**
+         * Window size and step are milliseconds
+         */
+        TIME
+    }
+
+    private final WindowType myType;
+    private final long mySize;
+    private final long myStep;
+    private final int myMaxSamples;
+
+    private WindowSpec(WindowType type, long size, long step, int maxSamples){
+        if(size <= 0 || step <= 0 || maxSamples <= 0){
+            throw new IllegalArgumentException(
+                    "Window size, step and max samples must be positive.");
+        }else if(type == WindowType.COUNT && size > Integer.MAX_VALUE){
+            throw new IllegalArgumentException(
+                    "Count window size must fit in an int.");
+        }
+        myType = type;
+        mySize = size;
+        myStep = step;
+        myMaxSamples = maxSamples;
+    }
+
+    /**
+     * Creates non-overlapping windows of a fixed number of samples.
+     * @param count number of samples in each window
+     * @return new WindowSpec
+     */
+    public static WindowSpec tumblingCount(int count){
+        return new WindowSpec(WindowType.COUNT, count, count, count);
+    }
+
+    /**
+     * Creates windows of the most recent samples, emitted every step samples
+     * once the window is full.
+     * @param count number of samples in each window
+     * @param step number of samples between windows
+     * @return new WindowSpec
+     */
+    public static WindowSpec slidingCount(int count, int step){
+        return new WindowSpec(WindowType.COUNT, count, step, count);
+    }
+
+    /**
+     * Creates non-overlapping windows of a fixed length of time.
+     * @param millis length of each window
+     * @return new WindowSpec
+     */
+    public static WindowSpec tumblingTime(long millis){
+        return new WindowSpec(WindowType.TIME, millis, millis, 1);
+    }
+
+    /**
+     * Creates windows of a fixed length of time, emitted every step.
+     * @param millis length of each window
+     * @param stepMillis time between windows
+     * @return new WindowSpec
+     */
+    public static WindowSpec slidingTime(long millis, long stepMillis){
+        return slidingTime(millis, stepMillis, DEFAULT_MAX_SAMPLES);
+    }
+
+    /**
+     * Creates windows of a fixed length of time, emitted every step.
+     * If more than maxSamples arrive within a window, the oldest are dropped.
+     * @param millis length of each window
+     * @param stepMillis time between windows
+     * @param maxSamples most samples held at once
+     * @return new WindowSpec
+     */
+    public static WindowSpec slidingTime(
+            long millis, long stepMillis, int maxSamples){
+        return new WindowSpec(WindowType.TIME, millis, stepMillis, maxSamples);
+    }
+
+    /**
+     * Returns how the window is measured.
+     * @return WindowType of the window
+     */
+    public WindowType getType(){
+        return myType;
+    }
+
+    /**
+     * Returns the size of the window, in samples or milliseconds.
+     * @return size of the window
+     */
+    public long getSize(){
+        return mySize;
+    }
+
+    /**
+     * Returns the distance between windows, in samples or milliseconds.
+     * @return step between windows
+     */
+    public long getStep(){
+        return myStep;
+    }
+
+    /**
+     * Returns the most samples held at once by a sliding window.
+     * @return sample limit for sliding windows
+     */
+    public int getMaxSamples(){
+        return myMaxSamples;
+    }
+
+    /**
+     * Returns true if each sample belongs to exactly one window.
+     * Tumbling windows are aggregated without storing samples.
+     * @return true if the window size equals the step
+     */
+    public boolean isTumbling(){
+        return mySize == myStep;
+    }
+
+    @Override
+    public String toString() {
+        return "WindowSpec{" + myType + ", size=" + mySize 
+                + ", step=" + myStep + "}";
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.blend;
+
+import java.util.Arrays;
+
+/**
+ * Running aggregates over the samples in a window.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+abstract class WindowState {
+
+    abstract void add(long timestamp, double value);
+
+    abstract int getCount();
+
+    abstract double getSum();
+
+    abstract double getMin();
+
+    abstract double getMax();
+
+    abstract double getPercentile();
+
+    abstract long getLastTimestamp();
+
+    abstract void clear();
+
+    /**
+     * Returns the quantile of sorted values, interpolating between the 
+     * closest ranks.
+     */
+    static double interpolate(double[] sorted, int count, double quantile){
+        if(count == 0){
+            return Double.NaN;
+        }
+        double pos = quantile * (count - 1);
+        int lo = (int)Math.floor(pos);
+        int hi = Math.min(lo + 1, count - 1);
+        return sorted[lo] + (pos - lo) * (sorted[hi] - sorted[lo]);
+    }
+
+    /**
+     * Aggregates a tumbling window without storing samples.  Percentiles are
+     * estimated.
+     */
+    final static class Tumbling extends WindowState {
+        private final P2Quantile myQuantile;
+        private int myCount;
+        private double mySum;
+        private double myMin;
+        private double myMax;
+        private long myLastTimestamp;
+
+        Tumbling(double quantile){
+            myQuantile = Double.isNaN(quantile) ? null : new P2Quantile(quantile);
+        }
+
+        @Override
+        void add(long timestamp, double value){
+            if(myCount == 0 || value < myMin){
+                myMin = value;
+            }
+            if(myCount == 0 || value > myMax){
+                myMax = value;
+            }
+            myCount++;
+            mySum += value;
+            myLastTimestamp = timestamp;
+            if(myQuantile != null){
+                myQuantile.add(value);
+            }
+        }
+
+        @Override
+        int getCount(){
+            return myCount;
+        }
+
+        @Override
+        double getSum(){
+            return mySum;
+        }
+
+        @Override
+        double getMin(){
+            return myMin;
+        }
+
+        @Override
+        double getMax(){
+            return myMax;
+        }
+
+        @Override
+        double getPercentile(){
+            return myQuantile == null ? Double.NaN : myQuantile.getValue();
+        }
+
+        @Override
+        long getLastTimestamp(){
+            return myLastTimestamp;
+        }
+
+        @Override
+        void clear(){
+            myCount = 0;
+            mySum = 0;
+            if(myQuantile != null){
+                myQuantile.clear();
+            }
+        }
+    }
+
+    /**
+     * Holds the samples of a sliding window in a ring, keeping the sum, min 
+     * and max up to date as samples enter and leave.  Percentiles are exact, 
+     * using a sorted copy of the values maintained by insertion.
+     */
+    final static class Sliding extends WindowState {
+        private final static int RESYNC_LAPS = 16;
+
+        private final int myCapacity;
+        private final long[] myTimestamps;
+        private final double[] myValues;
+        private final double[] mySorted;
+        private final double myQuantile;
+        private int myHead;
+        private int myCount;
+        private long myFirstSequence;
+        private long myNextSequence;
+        private double mySum;
+        private int myRemovals;
+
+        private final long[] myMinSequences;
+        private final double[] myMinValues;
+        private int myMinHead;
+        private int myMinCount;
+        private final long[] myMaxSequences;
+        private final double[] myMaxValues;
+        private int myMaxHead;
+        private int myMaxCount;
+
+        Sliding(int capacity, double quantile){
+            myCapacity = capacity;
+            myTimestamps = new long[capacity];
+            myValues = new double[capacity];
+            myQuantile = quantile;
+            mySorted = Double.isNaN(quantile) ? null : new double[capacity];
+            myMinSequences = new long[capacity];
+            myMinValues = new double[capacity];
+            myMaxSequences = new long[capacity];
+            myMaxValues = new double[capacity];
+        }
+
+        boolean isFull(){
+            return myCount == myCapacity;
+        }
+
+        @Override
+        void add(long timestamp, double value){
+            if(myCount == myCapacity){
+                removeOldest();
+            }
+            int i = (myHead + myCount) % myCapacity;
+            myTimestamps[i] = timestamp;
+            myValues[i] = value;
+            myCount++;
+            mySum += value;
+            long seq = myNextSequence++;
+
+            while(myMinCount > 0 && myMinValues[
+                    (myMinHead + myMinCount - 1) % myCapacity] >= value){
+                myMinCount--;
+            }
+            int m = (myMinHead + myMinCount++) % myCapacity;
+            myMinValues[m] = value;
+            myMinSequences[m] = seq;
+
+            while(myMaxCount > 0 && myMaxValues[
+                    (myMaxHead + myMaxCount - 1) % myCapacity] <= value){
+                myMaxCount--;
+            }
+            m = (myMaxHead + myMaxCount++) % myCapacity;
+            myMaxValues[m] = value;
+            myMaxSequences[m] = seq;
+
+            if(mySorted != null){
+                int pos = Arrays.binarySearch(mySorted, 0, myCount - 1, value);
+                if(pos < 0){
+                    pos = -pos - 1;
+                }
+                System.arraycopy(mySorted, pos, mySorted, pos + 1, 
+                        myCount - 1 - pos);
+                mySorted[pos] = value;
+            }
+        }
+
+        /**
+         * Removes samples with timestamps before the given time.
+         */
+        void removeBefore(long timestamp){
+            while(myCount > 0 && myTimestamps[myHead] < timestamp){
+                removeOldest();
+            }
+        }
+
+        private void removeOldest(){
+            double value = myValues[myHead];
+            myHead = (myHead + 1) % myCapacity;
+            myCount--;
+            mySum -= value;
+            long seq = myFirstSequence++;
+            if(myMinCount > 0 && myMinSequences[myMinHead] == seq){
+                myMinHead = (myMinHead + 1) % myCapacity;
+                myMinCount--;
+            }
+            if(myMaxCount > 0 && myMaxSequences[myMaxHead] == seq){
+                myMaxHead = (myMaxHead + 1) % myCapacity;
+                myMaxCount--;
+            }
+            if(mySorted != null){
+                int pos = Arrays.binarySearch(mySorted, 0, myCount + 1, value);
+                System.arraycopy(mySorted, pos + 1, mySorted, pos, 
+                        myCount - pos);
+            }
+            if(++myRemovals == RESYNC_LAPS * myCapacity){
+                myRemovals = 0;
+                resync();
+            }
+        }
+
+        private void resync(){
+            double sum = 0;
+            for(int i = 0; i < myCount; i++){
+                sum += myValues[(myHead + i) % myCapacity];
+            }
+            mySum = sum;
+        }
+
+        @Override
+        int getCount(){
+            return myCount;
+        }
+
+        @Override
+        double getSum(){
+            return mySum;
+        }
+
+        @Override
+        double getMin(){
+            return myMinValues[myMinHead];
+        }
+
+        @Override
+        double getMax(){
+            return myMaxValues[myMaxHead];
+        }
+
+        @Override
+        double getPercentile(){
+            if(mySorted == null){
+                return Double.NaN;
+            }
+            return interpolate(mySorted, myCount, myQuantile);
+        }
+
+        @Override
+        long getLastTimestamp(){
+            return myTimestamps[(myHead + myCount - 1) % myCapacity];
+        }
+
+        @Override
+        void clear(){
+            myFirstSequence = myNextSequence;
+            myHead = 0;
+            myCount = 0;
+            mySum = 0;
+            myRemovals = 0;
+            myMinCount = 0;
+            myMaxCount = 0;
+        }
+    }
+}
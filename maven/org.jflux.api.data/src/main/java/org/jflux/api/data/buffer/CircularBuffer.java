@@ -117,7 +117,7 @@ public class CircularBuffer<V> implements Buffer<Integer, V>{
                     + "Buffer capacity is " + myCapacity + ".  "
                     + "Number of elements is " + getSize() + ".");
         }
-        int index = (myHeadIndex-n)%myCapacity;
+        int index = (myHeadIndex-n+myCapacity)%myCapacity;
         return myElements.get(index);
     }
     /**
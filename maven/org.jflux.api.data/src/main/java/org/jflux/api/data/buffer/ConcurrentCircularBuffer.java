@@ -0,0 +1,291 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.buffer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.jflux.api.core.Adapter;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.Source;
+
+/**
+ * Thread-safe circular buffer with a fixed size.
+ * Any number of threads may add values while other threads read.
+ *
+ * Each added value is given a sequence number from a single counter and is
+ * stored in a power-of-two array slot along with that sequence number.
+ * Writers never lock and never wait for readers.  Readers check the sequence
+ * number of each slot, so a value overwritten or still being written is never
+ * returned in place of another.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <V> value type
+ */
+public class ConcurrentCircularBuffer<V> implements Buffer<Integer, V>{
+    private final AtomicReferenceArray<Entry<V>> myEntries;
+    private final int myMask;
+    private final int myCapacity;
+    private final AtomicLong myNextSequence;
+    private final AtomicLong myTailSequence;
+
+    private Source<V> myHeadSource;
+    private Source<V> myTailSource;
+    private Source<List<V>> myValuesSource;
+    private Adapter<Integer,V> myIndexAdapter;
+    private Listener<V> myAdder;
+
+    /**
+     * Creates a new ConcurrentCircularBuffer with the given capacity.
+     * @param capacity capacity of the buffer, must be greater than 0
+     * @throws IllegalArgumentException if capacity is not greater than 0
+     */
+    public ConcurrentCircularBuffer(int capacity){
+        if(capacity <= 0){
+            throw new IllegalArgumentException(
+                    "Capacity must be greater than 0.");
+        }else if(capacity > (1 << 30)){
+            throw new IllegalArgumentException(
+                    "Capacity must not be greater than 2^30.");
+        }
+        myCapacity = capacity;
+        int length = Integer.highestOneBit(capacity);
+        if(length < capacity){
+            length <<= 1;
+        }
+        myEntries = new AtomicReferenceArray<Entry<V>>(length);
+        myMask = length - 1;
+        myNextSequence = new AtomicLong();
+        myTailSequence = new AtomicLong();
+        myHeadSource = new Source<V>() {
+            @Override
+            public V getValue() {
+                return getHeadValue();
+            }
+        };
+        myTailSource = new Source<V>() {
+            @Override
+            public V getValue() {
+                return getTailValue();
+            }
+        };
+        myIndexAdapter = new Adapter<Integer, V>() {
+            @Override
+            public V adapt(Integer a) {
+                return get(a);
+            }
+        };
+        myValuesSource = new Source<List<V>>() {
+            @Override
+            public List<V> getValue() {
+                return drainValueList();
+            }
+        };
+        myAdder = new Listener<V>() {
+            @Override
+            public void handleEvent(V input) {
+                add(input);
+            }
+        };
+    }
+
+    /**
+    * Adds the value to the buffer.
+    * If the buffer is at its capacity, the oldest element is removed.
+    * Never blocks, and is safe to call from multiple threads.
+    * @param value data to add to the buffer
+    */
+    public void add(V value){
+        long seq = myNextSequence.getAndIncrement();
+        int index = (int)(seq & myMask);
+        Entry<V> entry = new Entry<V>(seq, value);
+        Entry<V> cur = myEntries.get(index);
+        // Only retries when a writer a full lap behind lands in between,
+        // and stops as soon as a newer value is in the slot.
+        while(cur == null || cur.mySequence < seq){
+            if(myEntries.compareAndSet(index, cur, entry)){
+                return;
+            }
+            cur = myEntries.get(index);
+        }
+    }
+
+    /**
+    * Returns the nth item from the head of the buffer.
+    * n=0 returns the head element, n=1 returns head-1,
+    * n=size()-1 returns the tail.
+    * @param n item index relative to the head
+    * @return nth item from the head of the buffer
+    * @throws IllegalArgumentException if n less than 0 or n is greater than or
+    * equal to the number of elements.
+    */
+    public V get(Integer n){
+        while(true){
+            long next = myNextSequence.get();
+            int size = getSize(next);
+            if(n < 0 || n >= size){
+                throw new IllegalArgumentException(
+                        "Index: " + n + " out of bounds.  "
+                        + "Buffer capacity is " + myCapacity + ".  "
+                        + "Number of elements is " + size + ".");
+            }
+            long seq = next - 1 - n;
+            Entry<V> e = myEntries.get((int)(seq & myMask));
+            if(e != null && e.mySequence == seq){
+                return e.myValue;
+            }
+            // The value is still being written, or was overwritten since
+            // the head was read.  Re-read the head and try again.
+            Thread.yield();
+        }
+    }
+
+    /**
+    * Returns the head element of the buffer.
+    * The head element is the most recently added element.
+    * @return head element of the buffer, returns null if the buffer is empty
+    */
+    public V getHeadValue(){
+        try{
+            return getSize() == 0 ? null : get(0);
+        }catch(IllegalArgumentException ex){
+            return null;
+        }
+    }
+
+    /**
+    * Returns the tail element of the buffer.
+    * The tail element is the earliest added element.
+    * @return tail element of the buffer, returns null if the buffer is empty
+    */
+    public V getTailValue(){
+        while(true){
+            long next = myNextSequence.get();
+            int size = getSize(next);
+            if(size == 0){
+                return null;
+            }
+            long seq = next - size;
+            Entry<V> e = myEntries.get((int)(seq & myMask));
+            if(e != null && e.mySequence == seq){
+                return e.myValue;
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the buffer, from tail to head.
+     * Writers are not blocked while the snapshot is taken.  Values which are
+     * overwritten or still being written while the snapshot is taken are
+     * left out, so the list may hold fewer than getSize() values.
+     * @return copy of the values in the buffer
+     */
+    public List<V> getValueList(){
+        return snapshot(myNextSequence.get());
+    }
+
+    /**
+     * Returns a snapshot of the buffer and removes the values in it.
+     * Values added after the snapshot was taken are kept.
+     * @return copy of the values removed from the buffer
+     */
+    public List<V> drainValueList(){
+        long next = myNextSequence.get();
+        List<V> vals = snapshot(next);
+        long tail = myTailSequence.get();
+        while(tail < next && !myTailSequence.compareAndSet(tail, next)){
+            tail = myTailSequence.get();
+        }
+        return vals;
+    }
+
+    private List<V> snapshot(long next){
+        int size = getSize(next);
+        if(size == 0){
+            return Collections.EMPTY_LIST;
+        }
+        List<V> vals = new ArrayList<V>(size);
+        for(long seq = next - size; seq < next; seq++){
+            Entry<V> e = myEntries.get((int)(seq & myMask));
+            if(e != null && e.mySequence == seq){
+                vals.add(e.myValue);
+            }
+        }
+        return vals;
+    }
+
+    /**
+     * Returns the number of elements in the buffer.
+     * @return number of elements in the buffer
+     */
+    public int getSize(){
+        return getSize(myNextSequence.get());
+    }
+
+    private int getSize(long next){
+        long count = next - myTailSequence.get();
+        if(count <= 0){
+            return 0;
+        }
+        return (int)Math.min(count, myCapacity);
+    }
+
+    /**
+     * Returns the maximum number of elements in the buffer.
+     * @return capacity of the buffer
+     */
+    public int getCapacity(){
+        return myCapacity;
+    }
+
+    @Override
+    public Source<V> getHead() {
+        return myHeadSource;
+    }
+
+    @Override
+    public Source<V> getTail() {
+        return myTailSource;
+    }
+
+    @Override
+    public Adapter<Integer, V> getIndex() {
+        return myIndexAdapter;
+    }
+
+    @Override
+    public Source<List<V>> getValues() {
+        return myValuesSource;
+    }
+
+    @Override
+    public Listener<V> addValue() {
+        return myAdder;
+    }
+
+    private final static class Entry<V>{
+        private final long mySequence;
+        private final V myValue;
+
+        Entry(long sequence, V value){
+            mySequence = sequence;
+            myValue = value;
+        }
+    }
+}
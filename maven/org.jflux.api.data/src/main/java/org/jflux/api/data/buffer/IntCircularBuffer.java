@@ -0,0 +1,413 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.buffer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.jflux.api.core.Adapter;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.Source;
+
+/**
+ * Caches int samples in a circular buffer with a fixed size, without boxing.
+ * Keeps the min, max, mean and variance of the samples in the buffer up to
+ * date as values are added, at amortized constant cost per add.
+ *
+ * Not thread-safe.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class IntCircularBuffer implements Buffer<Integer, Integer>{
+    /**
+     * Number of times the buffer is overwritten between exact recalculations
+     * of the mean and variance, to keep rounding errors from accumulating.
+     */
+    private final static int RESYNC_LAPS = 16;
+
+    private final int[] myValues;
+    private final int myCapacity;
+    private int myNextIndex;
+    private int mySize;
+    private long myCount;
+    private int myLaps;
+
+    private double myMean;
+    private double myM2;
+
+    private final int[] myMinValues;
+    private final long[] myMinSequences;
+    private int myMinHead;
+    private int myMinSize;
+    private final int[] myMaxValues;
+    private final long[] myMaxSequences;
+    private int myMaxHead;
+    private int myMaxSize;
+
+    private Source<Integer> myHeadSource;
+    private Source<Integer> myTailSource;
+    private Source<List<Integer>> myValuesSource;
+    private Adapter<Integer,Integer> myIndexAdapter;
+    private Listener<Integer> myAdder;
+
+    /**
+     * Creates a new IntCircularBuffer with the given capacity.
+     * @param capacity capacity of the buffer, must be greater than 0
+     * @throws IllegalArgumentException if capacity is not greater than 0
+     */
+    public IntCircularBuffer(int capacity){
+        if(capacity <= 0){
+            throw new IllegalArgumentException(
+                    "Capacity must be greater than 0.");
+        }
+        myCapacity = capacity;
+        myValues = new int[capacity];
+        myMinValues = new int[capacity];
+        myMinSequences = new long[capacity];
+        myMaxValues = new int[capacity];
+        myMaxSequences = new long[capacity];
+        myHeadSource = new Source<Integer>() {
+            @Override
+            public Integer getValue() {
+                return mySize == 0 ? null : getHeadValue();
+            }
+        };
+        myTailSource = new Source<Integer>() {
+            @Override
+            public Integer getValue() {
+                return mySize == 0 ? null : getTailValue();
+            }
+        };
+        myIndexAdapter = new Adapter<Integer, Integer>() {
+            @Override
+            public Integer adapt(Integer a) {
+                return get(a);
+            }
+        };
+        myValuesSource = new Source<List<Integer>>() {
+            @Override
+            public List<Integer> getValue() {
+                List<Integer> vals = getValueList();
+                clear();
+                return vals;
+            }
+        };
+        myAdder = new Listener<Integer>() {
+            @Override
+            public void handleEvent(Integer input) {
+                if(input != null){
+                    add(input);
+                }
+            }
+        };
+    }
+
+    /**
+    * Adds the value to the buffer.
+    * If the buffer is at its capacity, the oldest element is removed.
+    * @param value data to add to the buffer
+    */
+    public void add(int value){
+        long seq = myCount++;
+        if(mySize < myCapacity){
+            mySize++;
+            double delta = value - myMean;
+            myMean += delta / mySize;
+            myM2 += delta * (value - myMean);
+        }else{
+            int old = myValues[myNextIndex];
+            double delta = (double)value - old;
+            double oldMean = myMean;
+            myMean += delta / mySize;
+            myM2 += delta * (value - myMean + old - oldMean);
+        }
+        myValues[myNextIndex] = value;
+        myNextIndex++;
+        if(myNextIndex == myCapacity){
+            myNextIndex = 0;
+            if(++myLaps == RESYNC_LAPS){
+                myLaps = 0;
+                resync();
+            }
+        }
+        addMin(seq, value);
+        addMax(seq, value);
+    }
+
+    private void addMin(long seq, int value){
+        if(myMinSize > 0 && myMinSequences[myMinHead] <= seq - myCapacity){
+            myMinHead = (myMinHead + 1) % myCapacity;
+            myMinSize--;
+        }
+        while(myMinSize > 0 && 
+                myMinValues[(myMinHead + myMinSize - 1) % myCapacity] >= value){
+            myMinSize--;
+        }
+        int i = (myMinHead + myMinSize) % myCapacity;
+        myMinValues[i] = value;
+        myMinSequences[i] = seq;
+        myMinSize++;
+    }
+
+    private void addMax(long seq, int value){
+        if(myMaxSize > 0 && myMaxSequences[myMaxHead] <= seq - myCapacity){
+            myMaxHead = (myMaxHead + 1) % myCapacity;
+            myMaxSize--;
+        }
+        while(myMaxSize > 0 && 
+                myMaxValues[(myMaxHead + myMaxSize - 1) % myCapacity] <= value){
+            myMaxSize--;
+        }
+        int i = (myMaxHead + myMaxSize) % myCapacity;
+        myMaxValues[i] = value;
+        myMaxSequences[i] = seq;
+        myMaxSize++;
+    }
+
+    /**
+     * Recalculates the mean and variance from the buffered values.
+     */
+    private void resync(){
+        double mean = 0;
+        double m2 = 0;
+        for(int i = 0; i < mySize; i++){
+            double delta = myValues[i] - mean;
+            mean += delta / (i + 1);
+            m2 += delta * (myValues[i] - mean);
+        }
+        myMean = mean;
+        myM2 = m2;
+    }
+
+    /**
+     * Empties the buffer.
+     */
+    public void clear(){
+        myNextIndex = 0;
+        mySize = 0;
+        myLaps = 0;
+        myMean = 0;
+        myM2 = 0;
+        myMinHead = 0;
+        myMinSize = 0;
+        myMaxHead = 0;
+        myMaxSize = 0;
+    }
+
+    /**
+    * Returns the nth item from the head of the buffer.
+    * n=0 returns the head element, n=1 returns head-1,
+    * n=size()-1 returns the tail.
+    * @param n item index relative to the head
+    * @return nth item from the head of the buffer
+    * @throws IllegalArgumentException if n less than 0 or n is greater than or
+    * equal to the number of elements.
+    */
+    public int get(int n){
+        if(n < 0 || n >= mySize){
+            throw new IllegalArgumentException(
+                    "Index: " + n + " out of bounds.  "
+                    + "Buffer capacity is " + myCapacity + ".  "
+                    + "Number of elements is " + mySize + ".");
+        }
+        int index = myNextIndex - 1 - n;
+        if(index < 0){
+            index += myCapacity;
+        }
+        return myValues[index];
+    }
+
+    /**
+    * Returns the head element of the buffer.
+    * The head element is the most recently added element.
+    * @return head element of the buffer
+    * @throws IllegalStateException if the buffer is empty
+    */
+    public int getHeadValue(){
+        checkNotEmpty();
+        return get(0);
+    }
+
+    /**
+    * Returns the tail element of the buffer.
+    * The tail element is the earliest added element.
+    * @return tail element of the buffer
+    * @throws IllegalStateException if the buffer is empty
+    */
+    public int getTailValue(){
+        checkNotEmpty();
+        return get(mySize - 1);
+    }
+
+    /**
+     * Returns the smallest value in the buffer.
+     * @return smallest value in the buffer
+     * @throws IllegalStateException if the buffer is empty
+     */
+    public int getMin(){
+        checkNotEmpty();
+        return myMinValues[myMinHead];
+    }
+
+    /**
+     * Returns the largest value in the buffer.
+     * @return largest value in the buffer
+     * @throws IllegalStateException if the buffer is empty
+     */
+    public int getMax(){
+        checkNotEmpty();
+        return myMaxValues[myMaxHead];
+    }
+
+    /**
+     * Returns the mean of the values in the buffer.
+     * @return mean of the values, NaN if the buffer is empty
+     */
+    public double getMean(){
+        return mySize == 0 ? Double.NaN : myMean;
+    }
+
+    /**
+     * Returns the population variance of the values in the buffer.
+     * @return variance of the values, NaN if the buffer is empty
+     */
+    public double getVariance(){
+        if(mySize == 0){
+            return Double.NaN;
+        }
+        return Math.max(0.0, myM2 / mySize);
+    }
+
+    /**
+     * Returns the population standard deviation of the values in the buffer.
+     * @return standard deviation of the values, NaN if the buffer is empty
+     */
+    public double getStandardDeviation(){
+        return Math.sqrt(getVariance());
+    }
+
+    private void checkNotEmpty(){
+        if(mySize == 0){
+            throw new IllegalStateException("Buffer is empty.");
+        }
+    }
+
+    /**
+     * Copies the values in the buffer, from tail to head, into the given 
+     * array.
+     * @param dest array to copy into
+     * @return number of values copied
+     * @throws IllegalArgumentException if dest is smaller than the buffer
+     */
+    public int copyTo(int[] dest){
+        return copyTo(dest, 0);
+    }
+
+    /**
+     * Copies the values in the buffer, from tail to head, into the given 
+     * array.
+     * @param dest array to copy into
+     * @param offset position in dest of the first value
+     * @return number of values copied
+     * @throws IllegalArgumentException if the values do not fit in dest
+     */
+    public int copyTo(int[] dest, int offset){
+        if(dest == null){
+            throw new NullPointerException();
+        }else if(offset < 0 || dest.length - offset < mySize){
+            throw new IllegalArgumentException(
+                    "Cannot copy " + mySize + " values to an array of length " 
+                    + dest.length + " at offset " + offset + ".");
+        }
+        int tail = myNextIndex - mySize;
+        if(tail >= 0){
+            System.arraycopy(myValues, tail, dest, offset, mySize);
+        }else{
+            tail += myCapacity;
+            int first = myCapacity - tail;
+            System.arraycopy(myValues, tail, dest, offset, first);
+            System.arraycopy(myValues, 0, dest, offset + first, myNextIndex);
+        }
+        return mySize;
+    }
+
+    /**
+     * Returns a new array of the values in the buffer, from tail to head.
+     * @return array of the values in the buffer
+     */
+    public int[] toArray(){
+        int[] vals = new int[mySize];
+        copyTo(vals, 0);
+        return vals;
+    }
+
+    /**
+     * Returns a list of the values in the buffer, from tail to head.
+     * Each value is boxed; prefer copyTo to avoid allocating.
+     * @return list of the values in the buffer
+     */
+    public List<Integer> getValueList(){
+        if(mySize == 0){
+            return Collections.<Integer>emptyList();
+        }
+        List<Integer> vals = new ArrayList<Integer>(mySize);
+        for(int n = mySize - 1; n >= 0; n--){
+            vals.add(get(n));
+        }
+        return vals;
+    }
+
+    /**
+     * Returns the number of elements in the buffer.
+     * @return number of elements in the buffer
+     */
+    public int getSize(){
+        return mySize;
+    }
+
+    /**
+     * Returns the maximum number of elements in the buffer.
+     * @return capacity of the buffer
+     */
+    public int getCapacity(){
+        return myCapacity;
+    }
+
+    @Override
+    public Source<Integer> getHead() {
+        return myHeadSource;
+    }
+
+    @Override
+    public Source<Integer> getTail() {
+        return myTailSource;
+    }
+
+    @Override
+    public Adapter<Integer, Integer> getIndex() {
+        return myIndexAdapter;
+    }
+
+    @Override
+    public Source<List<Integer>> getValues() {
+        return myValuesSource;
+    }
+
+    @Override
+    public Listener<Integer> addValue() {
+        return myAdder;
+    }
+}
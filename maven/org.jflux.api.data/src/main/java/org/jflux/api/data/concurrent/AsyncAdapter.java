@@ -15,94 +15,94 @@
  */
 package org.jflux.api.data.concurrent;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import org.jflux.api.core.Adapter;
 import org.jflux.api.core.playable.PlayableNotifier;
-import org.jflux.api.core.playable.PlayableNotifier.DefaultPlayableNotifier;
 
 /**
+ * Adapter which runs another Adapter asynchronously.  Each call returns an
+ * AsyncResult which runs the Adapter on the Executor once started, and sends
+ * the output to its Listeners.
+ * 
+ * By default the Adapter runs on the shared, bounded pool from 
+ * AsyncExecutors, instead of on a new Thread per call.
  *
  * @author Matthew Stevenson
+ * @param <A> input type
+ * @param <B> output type
  */
 public class AsyncAdapter<A,B> implements Adapter<A,PlayableNotifier<B>>{
-    private Adapter<A,B> myAdapter;
+    private final Adapter<A,B> myAdapter;
+    private final Executor myExecutor;
+    private final long myTimeout;
+    private final TimeUnit myTimeoutUnit;
 
+    /**
+     * Builds an AsyncAdapter using the default Executor and no timeout.
+     * @param adapter Adapter to run
+     */
     public AsyncAdapter(Adapter<A,B> adapter){
-        if(adapter == null){
-            throw new NullPointerException();
-        }
+        this(adapter, AsyncExecutors.getDefaultExecutor());
     }
-    
-    @Override
-    public PlayableNotifier<B> adapt(A a) {
-        return new FutureAdapt<A, B>(a, myAdapter);
+
+    /**
+     * Builds an AsyncAdapter with no timeout.
+     * @param adapter Adapter to run
+     * @param executor Executor to run the Adapter on
+     */
+    public AsyncAdapter(Adapter<A,B> adapter, Executor executor){
+        this(adapter, executor, 0, TimeUnit.MILLISECONDS);
     }
-    
-    private class FutureAdapt<A,B> extends 
-            DefaultPlayableNotifier<B> implements PlayableNotifier<B> {
-        private final A myInput;
-        private final Adapter<A,B> myAdapter;
-        private final Thread myThread;
-        
-        //TODO: Replace Thread with ScheduledFuture
-        public FutureAdapt(A input, Adapter<A, B> adapter) {
-            myInput = input;
-            myAdapter = adapter;
-            myThread = new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    B b = myAdapter.adapt(myInput);
-                    notifyListeners(b);
-                    complete();
-                }
-            });
-        }
-        
-        @Override
-        public boolean start() {
-            if(Thread.State.NEW != myThread.getState() || !super.start()){
-                return false;
-            }
-            myThread.start();
-            return true;
-        }
 
-        @Override
-        public boolean pause() {
-            if(PlayState.PAUSED == getPlayState()){
-                return true;
-            }else if(PlayState.RUNNING != getPlayState()){
-                return false;
-            }else if(!super.pause()){
-                return false;
-            }
-            myThread.setPriority(Thread.MIN_PRIORITY);
-            return true;
+    /**
+     * Builds an AsyncAdapter.
+     * @param adapter Adapter to run
+     * @param executor Executor to run the Adapter on
+     * @param timeout time allowed for each call after starting, 0 for no 
+     * limit
+     * @param unit unit of the timeout
+     */
+    public AsyncAdapter(Adapter<A,B> adapter, 
+            Executor executor, long timeout, TimeUnit unit){
+        if(adapter == null || executor == null || unit == null){
+            throw new NullPointerException();
+        }else if(timeout < 0){
+            throw new IllegalArgumentException(
+                    "Timeout must not be negative: " + timeout);
         }
+        myAdapter = adapter;
+        myExecutor = executor;
+        myTimeout = timeout;
+        myTimeoutUnit = unit;
+    }
 
-        @Override
-        public boolean resume() {
-            if(PlayState.PAUSED != getPlayState() || !super.pause()){
-                return false;
+    /**
+     * Returns an AsyncResult which runs the Adapter on the input when 
+     * started.
+     * @param a input data
+     * @return AsyncResult for the output
+     */
+    @Override
+    public AsyncResult<B> adapt(final A a) {
+        return new AsyncResult<B>(new Callable<B>() {
+            @Override
+            public B call() throws Exception {
+                return myAdapter.adapt(a);
             }
-            myThread.setPriority(Thread.NORM_PRIORITY);
-            return true;
-        }
+        }, myExecutor, myTimeout, myTimeoutUnit);
+    }
 
-        @Override
-        public boolean stop() {
-            if(Thread.State.TERMINATED == myThread.getState()){
-                return true;
-            }else if(!super.stop()){
-                return false;
-            }
-            myThread.interrupt();
-            return true;
-        }
-        
-        @Override
-        protected boolean complete() {
-            return super.complete();
-        }
-        
+    /**
+     * Runs the Adapter on the input, starting the AsyncResult immediately.
+     * Listeners added to the result afterwards still receive the output.
+     * @param a input data
+     * @return started AsyncResult for the output
+     */
+    public AsyncResult<B> submit(A a){
+        AsyncResult<B> result = adapt(a);
+        result.start();
+        return result;
     }
 }
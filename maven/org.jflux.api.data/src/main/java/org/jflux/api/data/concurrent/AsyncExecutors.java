@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.jflux.api.core.util.AsyncListener.DaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shared Executors for asynchronous Adapters.
+ * 
+ * The shared pool has a fixed number of daemon threads and a bounded queue.
+ * When the queue is full, the submitting thread runs the task itself, which
+ * slows producers down instead of creating threads or dropping work.
+ * 
+ * On runtimes with virtual threads, they can be used instead by setting the
+ * system property org.jflux.async.virtualThreads to true.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public final class AsyncExecutors {
+    private final static Logger theLogger = 
+            LoggerFactory.getLogger(AsyncExecutors.class);
+    /**
+     * System property which selects virtual threads for the default Executor
+     */
+    public final static String VIRTUAL_THREADS_PROPERTY = 
+            "org.jflux.async.virtualThreads";
+    /**
+     * Number of tasks queued by the shared pool before callers run tasks
+     */
+    public final static int SHARED_QUEUE_CAPACITY = 1024;
+
+    private static ExecutorService theSharedExecutor;
+    private static ExecutorService theVirtualExecutor;
+    private static boolean theVirtualChecked;
+    private static ScheduledExecutorService theTimer;
+
+    private AsyncExecutors(){}
+
+    /**
+     * Returns the virtual thread Executor if it is selected by the system 
+     * property and supported, otherwise the shared pool.
+     * @return default Executor for asynchronous Adapters
+     */
+    public static Executor getDefaultExecutor(){
+        if(Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY)){
+            Executor exec = getVirtualThreadExecutor();
+            if(exec != null){
+                return exec;
+            }
+        }
+        return getSharedExecutor();
+    }
+
+    /**
+     * Returns the shared, bounded thread pool.  It has one daemon thread per 
+     * processor, and the caller runs tasks once its queue is full.
+     * @return shared thread pool
+     */
+    public static synchronized ExecutorService getSharedExecutor(){
+        if(theSharedExecutor == null){
+            int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                    threads, threads, 60L, TimeUnit.SECONDS, 
+                    new ArrayBlockingQueue<Runnable>(SHARED_QUEUE_CAPACITY),
+                    new DaemonThreadFactory("jflux-adapter-"),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            pool.allowCoreThreadTimeOut(true);
+            theSharedExecutor = pool;
+        }
+        return theSharedExecutor;
+    }
+
+    /**
+     * Returns an Executor starting a virtual thread for each task, or null if
+     * the runtime does not support virtual threads.
+     * @return virtual thread Executor, or null
+     */
+    public static synchronized ExecutorService getVirtualThreadExecutor(){
+        if(!theVirtualChecked){
+            theVirtualChecked = true;
+            try{
+                Method m = Executors.class.getMethod(
+                        "newVirtualThreadPerTaskExecutor");
+                theVirtualExecutor = (ExecutorService)m.invoke(null);
+            }catch(NoSuchMethodException ex){
+                theLogger.debug("Virtual threads are not supported.");
+            }catch(Exception ex){
+                theLogger.warn("Unable to create virtual thread Executor.", ex);
+            }
+        }
+        return theVirtualExecutor;
+    }
+
+    /**
+     * Returns true if the runtime supports virtual threads.
+     * @return true if virtual threads are supported
+     */
+    public static boolean isVirtualThreadSupported(){
+        return getVirtualThreadExecutor() != null;
+    }
+
+    /**
+     * Returns the single daemon thread used to schedule timeouts.
+     */
+    static synchronized ScheduledExecutorService getTimer(){
+        if(theTimer == null){
+            ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(
+                    1, new DaemonThreadFactory("jflux-adapter-timer-"));
+            timer.setRemoveOnCancelPolicy(true);
+            theTimer = timer;
+        }
+        return theTimer;
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.playable.BasicPlayable;
+import org.jflux.api.core.playable.PlayableNotifier;
+import org.jflux.api.core.util.ListenerArray;
+
+/**
+ * PlayableNotifier for the result of a task run on an Executor.
+ * 
+ * The task is submitted when the AsyncResult is started.  When it finishes,
+ * the result is sent to the Listeners and the AsyncResult is COMPLETED.  A 
+ * Listener added after completion is sent the result immediately.  Results 
+ * finishing while PAUSED are held until resumed.
+ * 
+ * Stopping cancels the task, interrupting it if it is running, and leaves 
+ * the AsyncResult ABORTED.  A task which throws, or does not finish within 
+ * the timeout, leaves the AsyncResult in ERROR.  No result is sent in either 
+ * case.  Once get() returns or throws, the play state reflects the outcome.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <T> result type
+ */
+public class AsyncResult<T> extends BasicPlayable implements PlayableNotifier<T> {
+    private final Executor myExecutor;
+    private final long myTimeoutNanos;
+    private final FutureTask<T> myTask;
+    private final ListenerArray<T> myListeners;
+    private ScheduledFuture<?> myTimeout;
+    private boolean myDeliveredFlag;
+    private boolean myTimedOutFlag;
+    private Throwable myError;
+
+    /**
+     * Builds an AsyncResult.
+     * @param task task to run
+     * @param executor Executor to run the task on
+     * @param timeout time allowed for the task after starting, 0 for no limit
+     * @param unit unit of the timeout
+     */
+    public AsyncResult(Callable<T> task, 
+            Executor executor, long timeout, TimeUnit unit){
+        if(task == null || executor == null || unit == null){
+            throw new NullPointerException();
+        }else if(timeout < 0){
+            throw new IllegalArgumentException(
+                    "Timeout must not be negative: " + timeout);
+        }
+        myExecutor = executor;
+        myTimeoutNanos = unit.toNanos(timeout);
+        myListeners = new ListenerArray<T>();
+        myTask = new FutureTask<T>(task){
+            @Override
+            protected void done() {
+                finished();
+            }
+        };
+    }
+
+    /**
+     * Submits the task to the Executor.
+     * @return true if the task was submitted
+     */
+    @Override
+    public boolean start() {
+        synchronized(this){
+            if(getPlayState() != PlayState.INITIALIZING || !super.start()){
+                return false;
+            }
+        }
+        try{
+            myExecutor.execute(myTask);
+        }catch(RejectedExecutionException ex){
+            synchronized(this){
+                myError = ex;
+                setError();
+            }
+            return false;
+        }
+        if(myTimeoutNanos > 0){
+            ScheduledFuture<?> timeout = AsyncExecutors.getTimer().schedule(
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            timedOut();
+                        }
+                    }, myTimeoutNanos, TimeUnit.NANOSECONDS);
+            synchronized(this){
+                myTimeout = timeout;
+                if(myTask.isDone()){
+                    timeout.cancel(false);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Holds the result, if it finishes, until resumed.
+     * @return true if paused
+     */
+    @Override
+    public synchronized boolean pause() {
+        if(getPlayState() == PlayState.PAUSED){
+            return true;
+        }else if(getPlayState() != PlayState.RUNNING){
+            return false;
+        }
+        return super.pause();
+    }
+
+    /**
+     * Resumes, sending the result if it finished while paused.
+     * @return true if resumed
+     */
+    @Override
+    public boolean resume() {
+        synchronized(this){
+            if(getPlayState() != PlayState.PAUSED || !super.resume()){
+                return false;
+            }
+        }
+        finished();
+        return true;
+    }
+
+    /**
+     * Cancels the task.
+     * @return true if the task is cancelled or already finished
+     */
+    @Override
+    public synchronized boolean stop() {
+        PlayState state = getPlayState();
+        if(state == PlayState.COMPLETED || state == PlayState.ABORTED 
+                || state == PlayState.ERROR){
+            return true;
+        }
+        super.stop();
+        myTask.cancel(true);
+        cancelTimeout();
+        return true;
+    }
+
+    /**
+     * Cancels the task.  Same as stop().
+     * @return true if the task is cancelled or already finished
+     */
+    public boolean cancel(){
+        return stop();
+    }
+
+    /**
+     * Returns true if the task has finished, failed or been cancelled.
+     * @return true if the task is done
+     */
+    public boolean isDone(){
+        return myTask.isDone();
+    }
+
+    /**
+     * Waits for the task to finish and returns its result.
+     * @return result of the task
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ExecutionException if the task threw an exception or timed out
+     * @throws CancellationException if the task was cancelled
+     */
+    public T get() throws InterruptedException, ExecutionException {
+        try{
+            return myTask.get();
+        }catch(CancellationException ex){
+            throw checkTimedOut(ex);
+        }finally{
+            //FutureTask wakes waiters before done(), settle the state first.
+            finished();
+        }
+    }
+
+    /**
+     * Waits for the task to finish and returns its result.
+     * @param timeout longest time to wait
+     * @param unit unit of the timeout
+     * @return result of the task
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ExecutionException if the task threw an exception or timed out
+     * @throws TimeoutException if the wait timed out
+     * @throws CancellationException if the task was cancelled
+     */
+    public T get(long timeout, TimeUnit unit) throws 
+            InterruptedException, ExecutionException, TimeoutException {
+        try{
+            return myTask.get(timeout, unit);
+        }catch(CancellationException ex){
+            throw checkTimedOut(ex);
+        }finally{
+            //FutureTask wakes waiters before done(), settle the state first.
+            finished();
+        }
+    }
+
+    private synchronized CancellationException checkTimedOut(
+            CancellationException ex) throws ExecutionException{
+        if(myTimedOutFlag){
+            throw new ExecutionException(myError);
+        }
+        return ex;
+    }
+
+    /**
+     * Returns the exception thrown by the task, or the TimeoutException if it
+     * timed out.
+     * @return cause of the ERROR state, or null
+     */
+    public synchronized Throwable getError(){
+        return myError;
+    }
+
+    /**
+     * Sends the event to the Listeners if RUNNING.
+     * @param e event to send
+     */
+    @Override
+    public void notifyListeners(T e) {
+        if(getPlayState() == PlayState.RUNNING){
+            myListeners.notifyListeners(e);
+        }
+    }
+
+    /**
+     * Adds a Listener.  If the result has already been sent, it is sent to 
+     * the Listener immediately.
+     * @param listener Listener to add
+     */
+    @Override
+    public void addListener(Listener<T> listener) {
+        if(listener == null){
+            throw new NullPointerException();
+        }
+        synchronized(this){
+            if(!myDeliveredFlag){
+                myListeners.addListener(listener);
+                return;
+            }
+        }
+        T result = getDoneResult();
+        if(result != null){
+            listener.handleEvent(result);
+        }
+    }
+
+    /**
+     * Removes a Listener.
+     * @param listener Listener to remove
+     */
+    @Override
+    public void removeListener(Listener<T> listener) {
+        if(listener == null){
+            throw new NullPointerException();
+        }
+        myListeners.removeListener(listener);
+    }
+
+    private void timedOut(){
+        synchronized(this){
+            PlayState state = getPlayState();
+            if(myTask.isDone() || (state != PlayState.RUNNING 
+                    && state != PlayState.PAUSED)){
+                return;
+            }
+            myTimedOutFlag = true;
+            myError = new TimeoutException("Task did not finish within " 
+                    + TimeUnit.NANOSECONDS.toMillis(myTimeoutNanos) + "ms.");
+            setError();
+        }
+        myTask.cancel(true);
+    }
+
+    private void finished(){
+        T result;
+        synchronized(this){
+            if(!myTask.isDone() || myTask.isCancelled() || myDeliveredFlag){
+                return;
+            }
+            cancelTimeout();
+            try{
+                result = myTask.get();
+            }catch(ExecutionException ex){
+                myError = ex.getCause();
+                setError();
+                return;
+            }catch(InterruptedException ex){
+                return;
+            }
+            if(getPlayState() != PlayState.RUNNING){
+                return;
+            }
+            myDeliveredFlag = true;
+            complete();
+        }
+        if(result != null){
+            myListeners.notifyListeners(result);
+        }
+    }
+
+    private T getDoneResult(){
+        try{
+            return myTask.get();
+        }catch(Exception ex){
+            return null;
+        }
+    }
+
+    private void cancelTimeout(){
+        if(myTimeout != null){
+            myTimeout.cancel(false);
+        }
+    }
+
+    private void setError(){
+        myDeliveredFlag = true;
+        setPlayState(PlayState.ERROR);
+    }
+}
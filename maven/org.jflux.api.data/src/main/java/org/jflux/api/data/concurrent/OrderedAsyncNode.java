@@ -0,0 +1,229 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.concurrent;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jflux.api.core.Adapter;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.Notifier;
+import org.jflux.api.core.node.ProcessorNode;
+import org.jflux.api.core.playable.BasicPlayable;
+import org.jflux.api.core.playable.ConditionalListener;
+import org.jflux.api.core.playable.ConditionalNotifier;
+import org.jflux.api.core.util.CopyOnWriteNotifier;
+import org.jflux.api.core.util.QueueMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ProcessorNode which runs its Adapter on several inputs at once on an 
+ * Executor, and sends the outputs in the order the inputs arrived.
+ * 
+ * At most a fixed number of inputs are in flight.  Once that many are 
+ * waiting to run or waiting for an earlier output, the upstream Notifier 
+ * blocks.  Null outputs and Adapters which throw are skipped without 
+ * holding back later outputs.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ * @param <In> input information type
+ * @param <Out> output information type
+ */
+public class OrderedAsyncNode<In, Out> extends 
+        BasicPlayable implements ProcessorNode<In, Out>, QueueMonitor {
+    private final static Logger theLogger = 
+            LoggerFactory.getLogger(OrderedAsyncNode.class);
+    /**
+     * Default number of inputs in flight
+     */
+    public final static int DEFAULT_MAX_IN_FLIGHT = 256;
+
+    private final Adapter<In, Out> myProcessor;
+    private final Executor myExecutor;
+    private final int myCapacity;
+    private final Semaphore myPermits;
+    private final Object[] myResults;
+    private final boolean[] myDoneFlags;
+    private long myNextSequence;
+    private long myNextOutput;
+    private final AtomicLong myDeliveredCount;
+    private final AtomicLong myFailedCount;
+    private Listener<In> myInputListener;
+    private Notifier<Out> myOutputNotifier;
+
+    /**
+     * Builds an OrderedAsyncNode using the default Executor.
+     * @param proc Adapter to run
+     */
+    public OrderedAsyncNode(Adapter<In,Out> proc){
+        this(proc, AsyncExecutors.getDefaultExecutor(), DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Builds an OrderedAsyncNode.
+     * @param proc Adapter to run
+     * @param executor Executor to run the Adapter on
+     * @param maxInFlight most inputs queued or running at once
+     */
+    public OrderedAsyncNode(
+            Adapter<In,Out> proc, Executor executor, int maxInFlight){
+        if(proc == null || executor == null){
+            throw new NullPointerException();
+        }else if(maxInFlight <= 0){
+            throw new IllegalArgumentException(
+                    "Max in flight must be greater than 0.");
+        }
+        myProcessor = proc;
+        myExecutor = executor;
+        myCapacity = maxInFlight;
+        myPermits = new Semaphore(maxInFlight);
+        myResults = new Object[maxInFlight];
+        myDoneFlags = new boolean[maxInFlight];
+        myDeliveredCount = new AtomicLong();
+        myFailedCount = new AtomicLong();
+        myInputListener = 
+                new ConditionalListener<In>(this, new OrderedInputListener());
+        myOutputNotifier = new ConditionalNotifier<Out>(
+                this, new CopyOnWriteNotifier<Out>());
+    }
+
+    /**
+     * Get the internal Listener for receiving
+     * @return the internal Listener
+     */
+    @Override
+    public Listener<In> getListener() {
+        return myInputListener;
+    }
+
+    /**
+     * Get the internal Notifier for sending
+     * @return the internal Notifier
+     */
+    @Override
+    public Notifier<Out> getNotifier() {
+        return myOutputNotifier;
+    }
+
+    /**
+     * Get the number of inputs queued, running or waiting to be sent
+     * @return number of inputs in flight
+     */
+    @Override
+    public int getQueueDepth() {
+        return myCapacity - myPermits.availablePermits();
+    }
+
+    /**
+     * Get the most inputs in flight at once
+     * @return capacity
+     */
+    @Override
+    public int getQueueCapacity() {
+        return myCapacity;
+    }
+
+    /**
+     * Get the number of inputs whose Adapter threw an exception
+     * @return number of failed inputs
+     */
+    @Override
+    public long getDroppedCount() {
+        return myFailedCount.get();
+    }
+
+    /**
+     * Get the number of outputs sent
+     * @return number of outputs
+     */
+    @Override
+    public long getDeliveredCount() {
+        return myDeliveredCount.get();
+    }
+
+    private void submit(final In input) throws InterruptedException{
+        myPermits.acquire();
+        final long seq;
+        synchronized(this){
+            seq = myNextSequence++;
+        }
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                Out out = null;
+                try{
+                    out = myProcessor.adapt(input);
+                }catch(RuntimeException ex){
+                    myFailedCount.incrementAndGet();
+                    theLogger.warn("Error adapting input: {}", input, ex);
+                }
+                finished(seq, out);
+            }
+        };
+        try{
+            myExecutor.execute(task);
+        }catch(RejectedExecutionException ex){
+            myFailedCount.incrementAndGet();
+            theLogger.warn("Executor rejected input: {}", input, ex);
+            finished(seq, null);
+        }
+    }
+
+    /**
+     * Records an output and sends all outputs which are next in order.  The
+     * lock is held while sending so outputs are never reordered.
+     */
+    private synchronized void finished(long seq, Out out){
+        int i = (int)(seq % myCapacity);
+        myResults[i] = out;
+        myDoneFlags[i] = true;
+        int released = 0;
+        while(true){
+            int next = (int)(myNextOutput % myCapacity);
+            if(!myDoneFlags[next]){
+                break;
+            }
+            Out result = (Out)myResults[next];
+            myResults[next] = null;
+            myDoneFlags[next] = false;
+            myNextOutput++;
+            released++;
+            if(result != null){
+                myDeliveredCount.incrementAndGet();
+                myOutputNotifier.notifyListeners(result);
+            }
+        }
+        if(released > 0){
+            myPermits.release(released);
+        }
+    }
+
+    class OrderedInputListener implements Listener<In>{
+        @Override
+        public void handleEvent(In event) {
+            if(event == null){
+                return;
+            }
+            try{
+                submit(event);
+            }catch(InterruptedException ex){
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -16,9 +16,14 @@
 package org.jflux.api.data.routing;
 
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import org.jflux.api.core.Adapter;
 import org.jflux.api.core.Listener;
-import org.jflux.api.core.util.MapAdapter;
 import org.slf4j.LoggerFactory;
 
 /**
@@ -27,38 +32,371 @@ import org.slf4j.LoggerFactory;
 public interface Router<T> extends Listener<T> {
 	static final org.slf4j.Logger theLogger = LoggerFactory.getLogger(Router.class);
 
+	/**
+	 * Extracts a small non-negative index from a value, without boxing.
+	 *
+	 * @param <T> value type
+	 */
+	public static interface IndexAdapter<T> {
+		/**
+		 * Returns the index for a value.
+		 *
+		 * @param value the value
+		 * @return the index, or a negative number if the value has none
+		 */
+		public int getIndex(T value);
+	}
+
+	/**
+	 * Router which sends each event to the Listeners registered for the
+	 * event's key.
+	 * <p>
+	 * Routes are kept in an immutable table which is replaced whenever a
+	 * route changes, so routing takes no locks and routes may be changed
+	 * from any thread while events are flowing.  Events with no route are
+	 * counted as misses and sent to the default route, or dropped if there
+	 * is none.
+	 * <p>
+	 * Routers built with forEnumKeys or forIntKeys look routes up in an
+	 * array by index instead of hashing the key.
+	 *
+	 * @param <K> route key type
+	 * @param <T> event type
+	 */
 	public static class DefaultRouter<K, T> implements Router<T> {
-		private Adapter<T, K> myKeyAdapter;
-		private MapAdapter<K, Listener<T>> myRouteMap;
+		private final Adapter<T, K> myKeyAdapter;
+		private final IndexAdapter<T> myEventIndex;
+		private final IndexAdapter<K> myKeyIndex;
+		private final AtomicLong myMissCount;
+		private volatile Table<K, T> myTable;
+		private volatile Listener<T> myDefaultRoute;
 
 		public DefaultRouter(Adapter<T, K> keyAdapter) {
+			this(keyAdapter, null, null, 0);
+		}
+
+		/**
+		 * Builds a DefaultRouter which looks up routes by index.
+		 *
+		 * @param keyAdapter extracts the key of an event
+		 * @param eventIndex extracts the index of an event's key
+		 * @param keyIndex converts a key to its index
+		 * @param size number of indexes, all keys must have an index below
+		 * this
+		 */
+		protected DefaultRouter(Adapter<T, K> keyAdapter,
+				IndexAdapter<T> eventIndex, IndexAdapter<K> keyIndex, int size) {
 			if (keyAdapter == null) {
 				throw new NullPointerException();
 			}
-			myRouteMap = new MapAdapter<>();
+			if ((eventIndex == null) != (keyIndex == null)) {
+				throw new NullPointerException();
+			}
+			if (size < 0) {
+				throw new IllegalArgumentException(
+						"Size must not be negative: " + size);
+			}
 			myKeyAdapter = keyAdapter;
+			myEventIndex = eventIndex;
+			myKeyIndex = keyIndex;
+			myMissCount = new AtomicLong();
+			myTable = new Table<>(
+					new HashMap<K, Route<T>>(),
+					eventIndex == null ? null : new Route[size]);
+		}
+
+		/**
+		 * Builds a DefaultRouter for enum keys, which finds routes by the
+		 * key's ordinal.
+		 *
+		 * @param <E> enum key type
+		 * @param <T> event type
+		 * @param keyAdapter extracts the key of an event
+		 * @param keyClass enum class of the keys
+		 * @return new DefaultRouter
+		 */
+		public static <E extends Enum<E>, T> DefaultRouter<E, T> forEnumKeys(
+				final Adapter<T, E> keyAdapter, Class<E> keyClass) {
+			if (keyAdapter == null || keyClass == null) {
+				throw new NullPointerException();
+			}
+			IndexAdapter<T> eventIndex = new IndexAdapter<T>() {
+				@Override
+				public int getIndex(T value) {
+					E key = keyAdapter.adapt(value);
+					return key == null ? -1 : key.ordinal();
+				}
+			};
+			IndexAdapter<E> keyIndex = new IndexAdapter<E>() {
+				@Override
+				public int getIndex(E value) {
+					return value == null ? -1 : value.ordinal();
+				}
+			};
+			return new DefaultRouter<>(keyAdapter, eventIndex, keyIndex,
+					keyClass.getEnumConstants().length);
+		}
+
+		/**
+		 * Builds a DefaultRouter for integer keys from 0 to keyCount-1, which
+		 * finds routes in an array.
+		 *
+		 * @param <T> event type
+		 * @param keyAdapter extracts the key of an event
+		 * @param keyCount number of possible keys
+		 * @return new DefaultRouter
+		 */
+		public static <T> DefaultRouter<Integer, T> forIntKeys(
+				final IndexAdapter<T> keyAdapter, int keyCount) {
+			if (keyAdapter == null) {
+				throw new NullPointerException();
+			}
+			Adapter<T, Integer> boxedAdapter = new Adapter<T, Integer>() {
+				@Override
+				public Integer adapt(T a) {
+					return keyAdapter.getIndex(a);
+				}
+			};
+			IndexAdapter<Integer> keyIndex = new IndexAdapter<Integer>() {
+				@Override
+				public int getIndex(Integer value) {
+					return value == null ? -1 : value;
+				}
+			};
+			return new DefaultRouter<>(
+					boxedAdapter, keyAdapter, keyIndex, keyCount);
 		}
 
 		@Override
 		public void handleEvent(T event) {
-			//theLogger.log(Level.INFO, "Routing item: {}", event);
-			K key = myKeyAdapter.adapt(event);
-			Listener<T> route = myRouteMap.adapt(key);
-			route.handleEvent(event);
+			Table<K, T> table = myTable;
+			Route<T> route;
+			if (myEventIndex != null) {
+				int i = myEventIndex.getIndex(event);
+				Route<T>[] routes = table.myRoutes;
+				route = i >= 0 && i < routes.length ? routes[i] : null;
+			} else {
+				route = table.myRouteMap.get(myKeyAdapter.adapt(event));
+			}
+			if (route != null) {
+				route.handleEvent(event);
+				return;
+			}
+			myMissCount.incrementAndGet();
+			Listener<T> deadLetter = myDefaultRoute;
+			if (deadLetter != null) {
+				deadLetter.handleEvent(event);
+			}
+		}
+
+		/**
+		 * Sets the route for a key, replacing any existing Listeners for the
+		 * key.
+		 *
+		 * @param key route key
+		 * @param route Listener to receive events with the key
+		 */
+		public synchronized void addRoute(K key, Listener<T> route) {
+			if (route == null) {
+				throw new NullPointerException();
+			}
+			Route<T> old = myTable.myRouteMap.get(key);
+			theLogger.debug("{} router path for key: {}",
+					old == null ? "Adding" : "Replacing", key);
+			putRoute(key, new Route<>(new Listener[]{route},
+					old == null ? new AtomicLong() : old.myHitCount));
 		}
 
-		public void addRoute(K key, Listener<T> route) {
-			if (myRouteMap.getMap().containsKey(key)) {
-				theLogger.info("Replacing existing route for key: {}", key);
+		/**
+		 * Adds a Listener to the route for a key.  Events with the key are
+		 * sent to every Listener on the route, in the order they were added.
+		 *
+		 * @param key route key
+		 * @param route Listener to add to the route
+		 * @return true if the Listener was added, false if it was already on
+		 * the route
+		 */
+		public synchronized boolean addRouteListener(K key, Listener<T> route) {
+			if (route == null) {
+				throw new NullPointerException();
+			}
+			Route<T> old = myTable.myRouteMap.get(key);
+			if (old == null) {
+				addRoute(key, route);
+				return true;
+			}
+			if (old.indexOf(route) >= 0) {
+				return false;
+			}
+			Listener<T>[] listeners =
+					Arrays.copyOf(old.myListeners, old.myListeners.length + 1);
+			listeners[old.myListeners.length] = route;
+			theLogger.debug("Adding router listener for key: {}", key);
+			putRoute(key, new Route<>(listeners, old.myHitCount));
+			return true;
+		}
+
+		/**
+		 * Removes all Listeners for a key.
+		 *
+		 * @param key route key
+		 */
+		public synchronized void removeRoute(K key) {
+			if (!myTable.myRouteMap.containsKey(key)) {
+				return;
+			}
+			theLogger.debug("Removing router path for key: {}", key);
+			putRoute(key, null);
+		}
+
+		/**
+		 * Removes a single Listener from the route for a key.  The route is
+		 * removed when its last Listener is removed.
+		 *
+		 * @param key route key
+		 * @param route Listener to remove
+		 * @return true if the Listener was removed
+		 */
+		public synchronized boolean removeRouteListener(
+				K key, Listener<T> route) {
+			if (route == null) {
+				throw new NullPointerException();
+			}
+			Route<T> old = myTable.myRouteMap.get(key);
+			int i = old == null ? -1 : old.indexOf(route);
+			if (i < 0) {
+				return false;
+			}
+			int len = old.myListeners.length;
+			if (len == 1) {
+				removeRoute(key);
+				return true;
+			}
+			Listener<T>[] listeners = new Listener[len - 1];
+			System.arraycopy(old.myListeners, 0, listeners, 0, i);
+			System.arraycopy(
+					old.myListeners, i + 1, listeners, i, len - i - 1);
+			theLogger.debug("Removing router listener for key: {}", key);
+			putRoute(key, new Route<>(listeners, old.myHitCount));
+			return true;
+		}
+
+		/**
+		 * Sets the Listener for events which match no route.
+		 *
+		 * @param route dead-letter Listener, or null to drop unmatched events
+		 */
+		public void setDefaultRoute(Listener<T> route) {
+			myDefaultRoute = route;
+		}
+
+		/**
+		 * Returns the Listener for events which match no route.
+		 *
+		 * @return dead-letter Listener, or null if unmatched events are
+		 * dropped
+		 */
+		public Listener<T> getDefaultRoute() {
+			return myDefaultRoute;
+		}
+
+		/**
+		 * Returns the keys which currently have a route.
+		 *
+		 * @return unmodifiable Set of route keys
+		 */
+		public Set<K> getRouteKeys() {
+			return Collections.unmodifiableSet(myTable.myRouteMap.keySet());
+		}
+
+		/**
+		 * Returns the number of events sent to the route for a key.  The
+		 * count is kept while Listeners are added to or replaced on the
+		 * route, and reset when the route is removed.
+		 *
+		 * @param key route key
+		 * @return number of routed events, or 0 if there is no route
+		 */
+		public long getHitCount(K key) {
+			Route<T> route = myTable.myRouteMap.get(key);
+			return route == null ? 0L : route.myHitCount.get();
+		}
+
+		/**
+		 * Returns the number of events which matched no route.
+		 *
+		 * @return number of unmatched events
+		 */
+		public long getMissCount() {
+			return myMissCount.get();
+		}
+
+		private void putRoute(K key, Route<T> route) {
+			Table<K, T> old = myTable;
+			int index = -1;
+			if (myKeyIndex != null) {
+				index = myKeyIndex.getIndex(key);
+				if (index < 0 || index >= old.myRoutes.length) {
+					throw new IllegalArgumentException(
+							"Route key out of range: " + key);
+				}
+			}
+			Map<K, Route<T>> map = new HashMap<>(old.myRouteMap);
+			if (route == null) {
+				map.remove(key);
 			} else {
-				theLogger.info("Adding router path for key: {}", key);
+				map.put(key, route);
 			}
-			myRouteMap.getMap().put(key, route);
+			Route<T>[] routes = old.myRoutes;
+			if (index >= 0) {
+				routes = Arrays.copyOf(routes, routes.length);
+				routes[index] = route;
+			}
+			myTable = new Table<>(map, routes);
 		}
 
-		public void removeRoute(K key) {
-			theLogger.info("Removing router path for key: {}", key);
-			myRouteMap.getMap().remove(key);
+		/**
+		 * Immutable snapshot of a DefaultRouter's routes.
+		 */
+		private static final class Table<K, T> {
+			final Map<K, Route<T>> myRouteMap;
+			final Route<T>[] myRoutes;
+
+			Table(Map<K, Route<T>> routeMap, Route<T>[] routes) {
+				myRouteMap = routeMap;
+				myRoutes = routes;
+			}
+		}
+
+		/**
+		 * Immutable set of Listeners for one key, and its hit counter.
+		 */
+		private static final class Route<T> implements Listener<T> {
+			final Listener<T>[] myListeners;
+			final AtomicLong myHitCount;
+
+			Route(Listener<T>[] listeners, AtomicLong hitCount) {
+				myListeners = listeners;
+				myHitCount = hitCount;
+			}
+
+			@Override
+			public void handleEvent(T event) {
+				myHitCount.incrementAndGet();
+				Listener<T>[] listeners = myListeners;
+				for (int i = 0; i < listeners.length; i++) {
+					listeners[i].handleEvent(event);
+				}
+			}
+
+			int indexOf(Listener<T> listener) {
+				for (int i = 0; i < myListeners.length; i++) {
+					if (myListeners[i].equals(listener)) {
+						return i;
+					}
+				}
+				return -1;
+			}
 		}
 	}
 }
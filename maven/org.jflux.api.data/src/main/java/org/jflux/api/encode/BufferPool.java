@@ -0,0 +1,283 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.encode;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import org.jflux.api.core.Source;
+import org.jflux.api.core.util.ObjectPool;
+
+/**
+ * Pool of byte arrays, ByteBuffers and PooledOutputStreams, grouped into
+ * power-of-two size classes.  Requests are rounded up to the next size class
+ * and served from that class's pool, so a steady stream of similar sized
+ * messages does not allocate once the pool is warm.
+ *
+ * Anything acquired from the pool should be released back to it once it is
+ * no longer used, and must not be used afterwards.  Requests larger than the
+ * maximum size are allocated normally and are dropped when released.
+ * Releasing is optional; an unreleased buffer is simply garbage collected.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class BufferPool {
+    /**
+     * Size of the smallest size class
+     */
+    public final static int MIN_SIZE = 256;
+    /**
+     * Default size of the largest size class
+     */
+    public final static int DEFAULT_MAX_SIZE = 1 << 20;
+    /**
+     * Default number of idle buffers kept in each size class
+     */
+    public final static int DEFAULT_CAPACITY = 64;
+    /**
+     * Initial buffer size of a PooledOutputStream
+     */
+    public final static int DEFAULT_STREAM_SIZE = 1024;
+    private final static int MIN_SHIFT = 8;
+    private static BufferPool theDefaultPool;
+
+    private final int myMaxSize;
+    private final ObjectPool<byte[]>[] myArrays;
+    private final ObjectPool<ByteBuffer>[] myHeapBuffers;
+    private final ObjectPool<ByteBuffer>[] myDirectBuffers;
+    private final ObjectPool<PooledOutputStream> myStreams;
+
+    /**
+     * Returns the BufferPool shared by the whole process.
+     * @return the shared BufferPool
+     */
+    public static synchronized BufferPool getDefault(){
+        if(theDefaultPool == null){
+            theDefaultPool = new BufferPool();
+        }
+        return theDefaultPool;
+    }
+
+    /**
+     * Builds a BufferPool with the default maximum size and capacity
+     */
+    public BufferPool(){
+        this(DEFAULT_MAX_SIZE, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Builds a BufferPool
+     * @param maxSize size of the largest size class, rounded up to a power of
+     * two
+     * @param capacity number of idle buffers kept in each size class
+     */
+    @SuppressWarnings("unchecked")
+    public BufferPool(int maxSize, int capacity){
+        if(maxSize < MIN_SIZE || maxSize > (1 << 30)){
+            throw new IllegalArgumentException(
+                    "Invalid max size: " + maxSize);
+        }
+        if(capacity < 1){
+            throw new IllegalArgumentException(
+                    "Capacity must be positive: " + capacity);
+        }
+        int classes = sizeClass(maxSize) + 1;
+        myMaxSize = classSize(classes - 1);
+        myArrays = new ObjectPool[classes];
+        myHeapBuffers = new ObjectPool[classes];
+        myDirectBuffers = new ObjectPool[classes];
+        for(int i = 0; i < classes; i++){
+            int size = classSize(i);
+            myArrays[i] = new ObjectPool<byte[]>(
+                    new ArraySource(size), capacity);
+            myHeapBuffers[i] = new ObjectPool<ByteBuffer>(
+                    new BufferSource(size, false), capacity);
+            myDirectBuffers[i] = new ObjectPool<ByteBuffer>(
+                    new BufferSource(size, true), capacity);
+        }
+        myStreams = new ObjectPool<PooledOutputStream>(
+                new StreamSource(), capacity);
+    }
+
+    /**
+     * Returns the size of the largest size class.
+     * @return largest pooled buffer size
+     */
+    public int getMaxSize(){
+        return myMaxSize;
+    }
+
+    /**
+     * Takes a byte array of at least the given length from the pool.
+     * @param minSize minimum length of the array
+     * @return an array of at least minSize bytes, with undefined contents
+     */
+    public byte[] acquireArray(int minSize){
+        if(minSize < 0){
+            throw new IllegalArgumentException(
+                    "Size must not be negative: " + minSize);
+        }
+        if(minSize > myMaxSize){
+            return new byte[minSize];
+        }
+        return myArrays[sizeClass(minSize)].acquire();
+    }
+
+    /**
+     * Returns a byte array to the pool.
+     * @param array array to return
+     * @return true if the array was kept, false if it was not from a size
+     * class or the pool was full
+     */
+    public boolean releaseArray(byte[] array){
+        if(array == null){
+            throw new NullPointerException();
+        }
+        int c = exactClass(array.length);
+        return c >= 0 && myArrays[c].recycle(array);
+    }
+
+    /**
+     * Takes a cleared ByteBuffer with at least the given capacity from the
+     * pool.
+     * @param minSize minimum capacity of the buffer
+     * @param direct true for a direct buffer, false for a heap buffer
+     * @return a cleared buffer of at least minSize bytes, with undefined
+     * contents
+     */
+    public ByteBuffer acquireBuffer(int minSize, boolean direct){
+        if(minSize < 0){
+            throw new IllegalArgumentException(
+                    "Size must not be negative: " + minSize);
+        }
+        if(minSize > myMaxSize){
+            return direct ? ByteBuffer.allocateDirect(minSize) 
+                    : ByteBuffer.allocate(minSize);
+        }
+        ObjectPool<ByteBuffer>[] pools = direct ? 
+                myDirectBuffers : myHeapBuffers;
+        ByteBuffer buf = pools[sizeClass(minSize)].acquire();
+        buf.clear();
+        return buf;
+    }
+
+    /**
+     * Returns a ByteBuffer to the pool.
+     * @param buffer buffer to return
+     * @return true if the buffer was kept, false if it was not from a size
+     * class or the pool was full
+     */
+    public boolean releaseBuffer(ByteBuffer buffer){
+        if(buffer == null){
+            throw new NullPointerException();
+        }
+        if(buffer.isReadOnly() 
+                || (buffer.hasArray() && buffer.arrayOffset() != 0)){
+            return false;
+        }
+        int c = exactClass(buffer.capacity());
+        if(c < 0){
+            return false;
+        }
+        buffer.clear();
+        ObjectPool<ByteBuffer>[] pools = buffer.isDirect() ? 
+                myDirectBuffers : myHeapBuffers;
+        return pools[c].recycle(buffer);
+    }
+
+    /**
+     * Takes an empty PooledOutputStream from the pool.  The stream returns
+     * itself to the pool when it is released.
+     * @return an empty PooledOutputStream
+     */
+    public PooledOutputStream getOutputStream(){
+        PooledOutputStream out = myStreams.acquire();
+        out.acquired();
+        return out;
+    }
+
+    /**
+     * Returns a Source of PooledOutputStreams from this pool, for use with
+     * EncodeRequest.factory.
+     * @return Source of PooledOutputStreams
+     */
+    public Source<ByteArrayOutputStream> getOutputStreamSource(){
+        return new Source<ByteArrayOutputStream>() {
+            @Override
+            public ByteArrayOutputStream getValue() {
+                return getOutputStream();
+            }
+        };
+    }
+
+    void recycle(PooledOutputStream out){
+        myStreams.recycle(out);
+    }
+
+    static int sizeClass(int size){
+        if(size <= MIN_SIZE){
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+
+    static int classSize(int sizeClass){
+        return MIN_SIZE << sizeClass;
+    }
+
+    private int exactClass(int size){
+        if(size < MIN_SIZE || size > myMaxSize || Integer.bitCount(size) != 1){
+            return -1;
+        }
+        return sizeClass(size);
+    }
+
+    private static class ArraySource implements Source<byte[]> {
+        private final int mySize;
+
+        ArraySource(int size){
+            mySize = size;
+        }
+
+        @Override
+        public byte[] getValue() {
+            return new byte[mySize];
+        }
+    }
+
+    private static class BufferSource implements Source<ByteBuffer> {
+        private final int mySize;
+        private final boolean myDirectFlag;
+
+        BufferSource(int size, boolean direct){
+            mySize = size;
+            myDirectFlag = direct;
+        }
+
+        @Override
+        public ByteBuffer getValue() {
+            return myDirectFlag ? ByteBuffer.allocateDirect(mySize) 
+                    : ByteBuffer.allocate(mySize);
+        }
+    }
+
+    private class StreamSource implements Source<PooledOutputStream> {
+        @Override
+        public PooledOutputStream getValue() {
+            return new PooledOutputStream(
+                    BufferPool.this, DEFAULT_STREAM_SIZE);
+        }
+    }
+}
@@ -21,6 +21,9 @@ import java.nio.ByteBuffer;
 import org.jflux.api.core.Adapter;
 
 /**
+ * Adapters between byte streams and buffers.  PooledOutputStreams and
+ * array-backed ByteBuffers are converted without copying, so the result
+ * shares the source's bytes and is only valid while the source is.
  *
  * @author Matthew Stevenson
  */
@@ -44,18 +47,30 @@ public class BytesUtils {
     public static class OutputStreamToBuffer implements 
             Adapter<ByteArrayOutputStream,ByteBuffer> {
         @Override public ByteBuffer adapt(ByteArrayOutputStream a) {
+            if(a instanceof PooledOutputStream){
+                return ((PooledOutputStream)a).toByteBuffer();
+            }
             return ByteBuffer.wrap(a.toByteArray());
         }        
     }
     public static class BufferToInputStream implements 
             Adapter<ByteBuffer,ByteArrayInputStream> {
         @Override public ByteArrayInputStream adapt(ByteBuffer a) {
-            return new ByteArrayInputStream(a.array());
+            if(a.hasArray()){
+                return new ByteArrayInputStream(a.array(), 
+                        a.arrayOffset() + a.position(), a.remaining());
+            }
+            byte[] bytes = new byte[a.remaining()];
+            a.duplicate().get(bytes);
+            return new ByteArrayInputStream(bytes);
         }
     }
     public static class OutputStreamToInputStream implements 
             Adapter<ByteArrayOutputStream,ByteArrayInputStream> {
         @Override public ByteArrayInputStream adapt(ByteArrayOutputStream a) {
+            if(a instanceof PooledOutputStream){
+                return ((PooledOutputStream)a).toInputStream();
+            }
             return new ByteArrayInputStream(a.toByteArray());
         }
     }
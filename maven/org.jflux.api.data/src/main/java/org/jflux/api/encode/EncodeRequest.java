@@ -15,6 +15,7 @@
  */
 package org.jflux.api.encode;
 
+import java.io.ByteArrayOutputStream;
 import org.jflux.api.core.Adapter;
 import org.jflux.api.core.Source;
 
@@ -35,6 +36,22 @@ public class EncodeRequest<In,Out> {
             Class<I> clazz, Source<O> reusableOutputSource){
         return new EncodeRequestFactory<I, O>(reusableOutputSource);
     }
+    
+    /**
+     * Creates EncodeRequests writing to PooledOutputStreams from the given 
+     * pool.  The final consumer of each stream should release it.
+     * @param <I> type of value to encode
+     * @param pool BufferPool supplying the streams
+     * @return Adapter creating EncodeRequests with pooled streams
+     */
+    public static <I> Adapter<I,EncodeRequest<I,ByteArrayOutputStream>>
+            pooledFactory(BufferPool pool){
+        if(pool == null){
+            throw new NullPointerException();
+        }
+        return new EncodeRequestFactory<I, ByteArrayOutputStream>(
+                pool.getOutputStreamSource());
+    }
 
     public EncodeRequest(In value, Out reusableOutput){
         myValue = value;
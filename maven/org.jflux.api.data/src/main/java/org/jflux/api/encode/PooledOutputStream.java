@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.encode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jflux.api.core.util.Recyclable;
+
+/**
+ * ByteArrayOutputStream whose buffers come from a BufferPool.  The stream
+ * keeps its buffer between uses, and grows by swapping it for a larger
+ * pooled buffer.  Releasing the stream resets it and returns it to its pool.
+ *
+ * toByteBuffer and toInputStream share the stream's buffer instead of
+ * copying it.  Their results are only valid until the stream is written to
+ * again or released.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class PooledOutputStream extends ByteArrayOutputStream 
+        implements Recyclable {
+    private final BufferPool myPool;
+    private final int myInitialSize;
+    private final AtomicBoolean myReleased;
+
+    PooledOutputStream(BufferPool pool, int initialSize){
+        super(0);
+        myPool = pool;
+        myInitialSize = initialSize;
+        myReleased = new AtomicBoolean();
+        buf = pool.acquireArray(initialSize);
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        ensureCapacity(count + 1);
+        buf[count++] = (byte)b;
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        if(off < 0 || len < 0 || len > b.length - off){
+            throw new IndexOutOfBoundsException();
+        }
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    private void ensureCapacity(int minCapacity){
+        if(minCapacity < 0){
+            throw new OutOfMemoryError();
+        }
+        if(minCapacity <= buf.length){
+            return;
+        }
+        int size = Math.max(minCapacity, buf.length << 1);
+        if(size < 0){
+            size = minCapacity;
+        }
+        byte[] next = myPool.acquireArray(size);
+        System.arraycopy(buf, 0, next, 0, count);
+        myPool.releaseArray(buf);
+        buf = next;
+    }
+
+    /**
+     * Returns a ByteBuffer over the bytes written, without copying them.
+     * @return ByteBuffer sharing this stream's buffer
+     */
+    public synchronized ByteBuffer toByteBuffer(){
+        return ByteBuffer.wrap(buf, 0, count);
+    }
+
+    /**
+     * Returns an InputStream over the bytes written, without copying them.
+     * @return ByteArrayInputStream sharing this stream's buffer
+     */
+    public synchronized ByteArrayInputStream toInputStream(){
+        return new ByteArrayInputStream(buf, 0, count);
+    }
+
+    /**
+     * Resets the stream and returns it to its pool.  A buffer which grew
+     * beyond the pool's maximum size is dropped.
+     * @throws IllegalStateException if the stream was already released
+     */
+    @Override
+    public void release() {
+        if(!myReleased.compareAndSet(false, true)){
+            throw new IllegalStateException("Stream already released.");
+        }
+        synchronized(this){
+            reset();
+            if(buf.length > myPool.getMaxSize()){
+                buf = myPool.acquireArray(myInitialSize);
+            }
+        }
+        myPool.recycle(this);
+    }
+
+    void acquired(){
+        myReleased.set(false);
+    }
+}
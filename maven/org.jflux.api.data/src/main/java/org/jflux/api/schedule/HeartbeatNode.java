@@ -18,16 +18,22 @@ package org.jflux.api.schedule;
 import org.jflux.api.core.Notifier;
 import org.jflux.api.core.Source;
 import org.jflux.api.core.node.DefaultProducerNode;
+import org.jflux.api.core.playable.Playable.PlayState;
 import org.jflux.api.core.util.DefaultNotifier;
+import org.jflux.api.core.util.LongSource;
+import org.jflux.api.core.util.ScheduledTask;
+import org.jflux.api.core.util.TimestampSource;
+import org.jflux.api.core.util.WheelTimer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * ProducerNode which sends a value from a Source at a fixed rate.  Runs on a
+ * WheelTimer, by default the shared one, so heartbeats do not need a thread
+ * each.
+ *
  * @author Matthew Stevenson <www.jflux.org>
  */
 public class HeartbeatNode<T> extends
@@ -35,22 +41,54 @@ public class HeartbeatNode<T> extends
 	private static final Logger theLogger = LoggerFactory.getLogger(HeartbeatNode.class);
 
 	private Source<T> myFactory;
-	private ScheduledExecutorService myExecutor;
+	private WheelTimer myTimer;
 	private long myInitialDelay;
 	private long myPeriod;
 	private TimeUnit myTimeUnit;
-	private ScheduledFuture<?> myFuture;
+	private ScheduledTask myTask;
+	private volatile LongSource myClock;
+	private volatile long myLastBeatTime;
 
 	public HeartbeatNode(Source<T> factory,
 						 long initialDelay, long period, TimeUnit timeUnit) {
+		this(factory, initialDelay, period, timeUnit,
+				WheelTimer.getSharedTimer());
+	}
+
+	public HeartbeatNode(Source<T> factory, long initialDelay,
+						 long period, TimeUnit timeUnit, WheelTimer timer) {
 		super(new DefaultNotifier<T>());
-		if (factory == null || timeUnit == null) {
+		if (factory == null || timeUnit == null || timer == null) {
 			throw new NullPointerException();
 		}
+		myTimer = timer;
 		myInitialDelay = initialDelay;
 		myPeriod = period;
 		myTimeUnit = timeUnit;
 		myFactory = factory;
+		myClock = TimestampSource.getMonotonicClock();
+	}
+
+	/**
+	 * Sets the clock used to stamp each beat.
+	 *
+	 * @param clock the clock
+	 */
+	public void setClock(LongSource clock) {
+		if (clock == null) {
+			throw new NullPointerException();
+		}
+		myClock = clock;
+	}
+
+	/**
+	 * Returns the clock time of the most recent beat, by default in
+	 * milliseconds since the epoch from the shared monotonic clock.
+	 *
+	 * @return time of the most recent beat, or 0 if it has not beaten
+	 */
+	public long getLastBeatTime() {
+		return myLastBeatTime;
 	}
 
 	public synchronized void setPeriod(long period) {
@@ -61,52 +99,72 @@ public class HeartbeatNode<T> extends
 		long delay = myInitialDelay;
 		myInitialDelay = 0L;
 		pause();
-		start();
+		resume();
 		myInitialDelay = delay;
 	}
 
+	/**
+	 * Returns the handle of the running schedule, for reading its jitter
+	 * and overrun statistics.
+	 *
+	 * @return the current ScheduledTask, or null if not running
+	 */
+	public synchronized ScheduledTask getScheduledTask() {
+		return myTask;
+	}
+
 	@Override
-	public boolean start() {
-		if (myFuture != null) {
-			if (myFuture.isDone()) {
-				myFuture = null;
-			} else {
-				return true;
-			}
+	public synchronized boolean start() {
+		boolean running = getPlayState() == PlayState.RUNNING;
+		if (!super.start()) {
+			return false;
 		}
-		if (myExecutor == null) {
-			myExecutor = new ScheduledThreadPoolExecutor(1);
+		if (!running) {
+			schedule();
 		}
-		myFuture = myExecutor.scheduleAtFixedRate(
-				new MessagePump(), myInitialDelay, myPeriod, myTimeUnit);
-		return super.start();
+		return true;
 	}
 
 	@Override
-	public boolean pause() {
-		if (myFuture != null) {
-			myFuture.cancel(false);
-			myFuture = null;
+	public synchronized boolean pause() {
+		if (!super.pause()) {
+			return false;
 		}
-		return super.pause();
+		cancel();
+		return true;
 	}
 
 	@Override
-	public boolean resume() {
-		return start();
+	public synchronized boolean resume() {
+		boolean running = getPlayState() == PlayState.RUNNING;
+		if (!super.resume()) {
+			return false;
+		}
+		if (!running) {
+			schedule();
+		}
+		return true;
 	}
 
 	@Override
-	public boolean stop() {
-		if (myFuture != null) {
-			myFuture.cancel(false);
-			myFuture = null;
-			myExecutor.shutdown();
-			myExecutor = null;
-		}
+	public synchronized boolean stop() {
+		cancel();
 		return super.stop();
 	}
 
+	private void schedule() {
+		cancel();
+		myTask = myTimer.scheduleAtFixedRate(
+				new MessagePump(), myInitialDelay, myPeriod, myTimeUnit);
+	}
+
+	private void cancel() {
+		if (myTask != null) {
+			myTask.cancel();
+			myTask = null;
+		}
+	}
+
 	class MessagePump implements Runnable {
 
 		@Override
@@ -114,6 +172,7 @@ public class HeartbeatNode<T> extends
 			if (myFactory == null || getPlayState() != PlayState.RUNNING) {
 				return;
 			}
+			myLastBeatTime = myClock.getAsLong();
 			T t = myFactory.getValue();
 			Notifier<T> n = getNotifier();
 			if (n == null || t == null) {
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.blend;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class LttbDownsamplerTest {
+
+    @Test
+    public void testKeepsSpike() {
+        System.out.println("LTTB: keeps a spike");
+        
+        LttbDownsampler lttb = new LttbDownsampler(10);
+        List<Sample> out = new ArrayList<Sample>();
+        for(int i = 0; i < 100; i++){
+            Sample s = lttb.adapt(new Sample(i, i == 57 ? 100 : 0));
+            if(s != null){
+                out.add(s);
+            }
+        }
+        // the first sample, then one for each of the 9 buckets which has a
+        // complete bucket after it
+        assertEquals(9, out.size());
+        assertEquals(new Sample(0, 0), out.get(0));
+        assertTrue(out.contains(new Sample(57, 100)));
+    }
+
+    @Test
+    public void testDecimator() {
+        System.out.println("Decimator: keeps every third input");
+        
+        Decimator<Integer> dec = new Decimator<Integer>(3);
+        List<Integer> out = new ArrayList<Integer>();
+        for(int i = 0; i < 10; i++){
+            Integer v = dec.adapt(i);
+            if(v != null){
+                out.add(v);
+            }
+        }
+        assertEquals(4, out.size());
+        assertEquals(Integer.valueOf(9), out.get(3));
+    }
+}
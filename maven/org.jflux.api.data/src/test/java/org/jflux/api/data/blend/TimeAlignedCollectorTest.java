@@ -0,0 +1,252 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.blend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.event.BasicEvent;
+import org.jflux.api.core.event.BasicHeader;
+import org.jflux.api.core.event.Event;
+import org.jflux.api.core.event.Header;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class TimeAlignedCollectorTest {
+    
+    private List<List<Event<Header<String,Long>,Integer>>> myTuples;
+    private List<Event<Header<String,Long>,Integer>> myLate;
+    
+    @Before
+    public void setUp() {
+        myTuples = Collections.synchronizedList(
+                new ArrayList<List<Event<Header<String,Long>,Integer>>>());
+        myLate = new ArrayList<Event<Header<String,Long>,Integer>>();
+    }
+    
+    private TimeAlignedCollector<Header<String,Long>,Integer> 
+            build(TimeAlignedCollector<Header<String,Long>,Integer> c){
+        c.getNotifier().addListener(
+                new Listener<List<Event<Header<String,Long>,Integer>>>() {
+            @Override
+            public void handleEvent(
+                    List<Event<Header<String,Long>,Integer>> input) {
+                myTuples.add(input);
+            }
+        });
+        c.setLateListener(new Listener<Event<Header<String,Long>,Integer>>() {
+            @Override
+            public void handleEvent(Event<Header<String,Long>,Integer> input) {
+                myLate.add(input);
+            }
+        });
+        return c;
+    }
+    
+    private static Event<Header<String,Long>,Integer> event(long time, int val){
+        return new BasicEvent<Header<String,Long>,Integer>(
+                new BasicHeader<String,Long>("test", time, "test", null), val);
+    }
+    
+    private static int data(List<Event<Header<String,Long>,Integer>> tuple, 
+            int i){
+        Event<Header<String,Long>,Integer> e = tuple.get(i);
+        return e == null ? -1 : e.getData();
+    }
+
+    @Test
+    public void testAlignsNearest() {
+        System.out.println("aligns nearest events");
+        
+        TimeAlignedCollector<Header<String,Long>,Integer> c = build(
+                new TimeAlignedCollector<Header<String,Long>,Integer>(5));
+        Listener<Event<Header<String,Long>,Integer>> ref = c.addStream();
+        Listener<Event<Header<String,Long>,Integer>> a = c.addStream();
+        Listener<Event<Header<String,Long>,Integer>> b = c.addStream();
+        
+        ref.handleEvent(event(100, 1));
+        a.handleEvent(event(97, 10));
+        a.handleEvent(event(102, 11));
+        assertTrue(myTuples.isEmpty());
+        b.handleEvent(event(120, 20));
+        // a has not passed 105 yet
+        assertTrue(myTuples.isEmpty());
+        a.handleEvent(event(106, 12));
+        
+        assertEquals(1, myTuples.size());
+        assertEquals(1, data(myTuples.get(0), 0));
+        assertEquals(11, data(myTuples.get(0), 1));
+        assertEquals(-1, data(myTuples.get(0), 2));
+        assertEquals(myTuples.get(0), c.getValue());
+    }
+
+    @Test
+    public void testDropsIncomplete() {
+        System.out.println("drops incomplete tuples");
+        
+        TimeAlignedCollector<Header<String,Long>,Integer> c = build(
+                new TimeAlignedCollector<Header<String,Long>,Integer>(
+                        5, Long.MAX_VALUE, 16, false));
+        Listener<Event<Header<String,Long>,Integer>> ref = c.addStream();
+        Listener<Event<Header<String,Long>,Integer>> a = c.addStream();
+        
+        ref.handleEvent(event(100, 1));
+        ref.handleEvent(event(200, 2));
+        a.handleEvent(event(201, 10));
+        a.handleEvent(event(300, 11));
+        
+        assertEquals(1, myTuples.size());
+        assertEquals(2, data(myTuples.get(0), 0));
+        assertEquals(10, data(myTuples.get(0), 1));
+        assertEquals(1, c.getIncompleteCount());
+    }
+
+    @Test
+    public void testLateEvents() {
+        System.out.println("late events");
+        
+        TimeAlignedCollector<Header<String,Long>,Integer> c = build(
+                new TimeAlignedCollector<Header<String,Long>,Integer>(5));
+        Listener<Event<Header<String,Long>,Integer>> ref = c.addStream();
+        Listener<Event<Header<String,Long>,Integer>> a = c.addStream();
+        
+        ref.handleEvent(event(100, 1));
+        a.handleEvent(event(110, 10));
+        assertEquals(1, myTuples.size());
+        
+        ref.handleEvent(event(90, 2));
+        a.handleEvent(event(50, 11));
+        a.handleEvent(event(105, 12));
+        assertEquals(3, c.getLateCount());
+        assertEquals(3, myLate.size());
+    }
+
+    @Test
+    public void testEqualTimestamps() {
+        System.out.println("equal reference timestamps are not late");
+        
+        TimeAlignedCollector<Header<String,Long>,Integer> c = build(
+                new TimeAlignedCollector<Header<String,Long>,Integer>(5));
+        Listener<Event<Header<String,Long>,Integer>> ref = c.addStream();
+        Listener<Event<Header<String,Long>,Integer>> a = c.addStream();
+        
+        ref.handleEvent(event(100, 1));
+        a.handleEvent(event(102, 10));
+        a.handleEvent(event(110, 11));
+        assertEquals(1, myTuples.size());
+        // Same time as the last emitted reference Event
+        ref.handleEvent(event(100, 2));
+        assertEquals(2, myTuples.size());
+        assertEquals(2, data(myTuples.get(1), 0));
+        assertEquals(10, data(myTuples.get(1), 1));
+        
+        ref.handleEvent(event(200, 3));
+        ref.handleEvent(event(200, 4));
+        a.handleEvent(event(198, 20));
+        a.handleEvent(event(202, 21));
+        a.handleEvent(event(210, 22));
+        assertEquals(4, myTuples.size());
+        assertEquals(3, data(myTuples.get(2), 0));
+        assertEquals(4, data(myTuples.get(3), 0));
+        // Equally near, the first received wins
+        assertEquals(20, data(myTuples.get(2), 1));
+        assertEquals(20, data(myTuples.get(3), 1));
+        assertEquals(0, c.getLateCount());
+    }
+
+    @Test
+    public void testMaxDelay() {
+        System.out.println("lagging stream does not hold back watermark");
+        
+        TimeAlignedCollector<Header<String,Long>,Integer> c = build(
+                new TimeAlignedCollector<Header<String,Long>,Integer>(
+                        5, 50, 16, true));
+        Listener<Event<Header<String,Long>,Integer>> ref = c.addStream();
+        c.addStream();
+        
+        ref.handleEvent(event(100, 1));
+        assertTrue(myTuples.isEmpty());
+        ref.handleEvent(event(160, 2));
+        assertEquals(1, myTuples.size());
+        assertEquals(-1, data(myTuples.get(0), 1));
+    }
+
+    @Test
+    public void testBoundedBuffers() {
+        System.out.println("bounded buffers");
+        
+        TimeAlignedCollector<Header<String,Long>,Integer> c = build(
+                new TimeAlignedCollector<Header<String,Long>,Integer>(
+                        5, Long.MAX_VALUE, 4, true));
+        Listener<Event<Header<String,Long>,Integer>> ref = c.addStream();
+        c.addStream();
+        for(int i = 0; i < 10; i++){
+            ref.handleEvent(event(i * 10, i));
+        }
+        assertEquals(4, c.getQueueDepth());
+        assertEquals(6, c.getDroppedCount());
+    }
+
+    /**
+     * Eight streams fed from their own threads, each with an event every
+     * millisecond.  Every reference event with a full window after it must
+     * be joined with all eight matches.
+     */
+    @Test
+    public void testConcurrentStreams() throws Exception {
+        System.out.println("concurrent streams");
+        
+        final int streams = 8;
+        final int count = 20000;
+        final TimeAlignedCollector<Header<String,Long>,Integer> c = build(
+                new TimeAlignedCollector<Header<String,Long>,Integer>(
+                        0, Long.MAX_VALUE, count, true));
+        final CountDownLatch done = new CountDownLatch(streams);
+        List<Listener<Event<Header<String,Long>,Integer>>> inputs = 
+                new ArrayList<Listener<Event<Header<String,Long>,Integer>>>();
+        for(int s = 0; s < streams; s++){
+            inputs.add(c.addStream());
+        }
+        for(final Listener<Event<Header<String,Long>,Integer>> in : inputs){
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for(int i = 0; i < count; i++){
+                        in.handleEvent(event(i, i));
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        
+        assertEquals(count, myTuples.size());
+        for(int i = 0; i < count; i++){
+            List<Event<Header<String,Long>,Integer>> tuple = myTuples.get(i);
+            for(int s = 0; s < streams; s++){
+                assertEquals(i, data(tuple, s));
+            }
+        }
+        assertEquals(0, c.getLateCount());
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.blend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.jflux.api.core.Listener;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class WindowNodeTest {
+    private final static double EPSILON = 1e-9;
+    
+    private List<Sample> myOutput;
+    
+    @Before
+    public void setUp() {
+        myOutput = new ArrayList<Sample>();
+    }
+    
+    private WindowNode start(WindowNode node){
+        node.getNotifier().addListener(new Listener<Sample>() {
+            @Override
+            public void handleEvent(Sample input) {
+                myOutput.add(input);
+            }
+        });
+        node.start();
+        return node;
+    }
+    
+    private void send(WindowNode node, long time, double value){
+        node.getListener().handleEvent(new Sample(time, value));
+    }
+
+    @Test
+    public void testTumblingCountSum() {
+        System.out.println("tumbling count: sum");
+        
+        WindowNode node = start(WindowNode.sum(WindowSpec.tumblingCount(3)));
+        for(int i = 1; i <= 7; i++){
+            send(node, i, i);
+        }
+        assertEquals(Arrays.asList(new Sample(3, 6), new Sample(6, 15)), 
+                myOutput);
+        
+        node.flush();
+        assertEquals(new Sample(7, 7), myOutput.get(2));
+    }
+
+    @Test
+    public void testSlidingCountMax() {
+        System.out.println("sliding count: max");
+        
+        WindowNode node = start(WindowNode.max(WindowSpec.slidingCount(3, 1)));
+        double[] vals = {5, 1, 2, 0, 4, 3};
+        for(int i = 0; i < vals.length; i++){
+            send(node, i, vals[i]);
+        }
+        assertEquals(4, myOutput.size());
+        assertEquals(5, myOutput.get(0).getValue(), EPSILON);
+        assertEquals(2, myOutput.get(1).getValue(), EPSILON);
+        assertEquals(4, myOutput.get(2).getValue(), EPSILON);
+        assertEquals(4, myOutput.get(3).getValue(), EPSILON);
+    }
+
+    @Test
+    public void testTumblingTimeMean() {
+        System.out.println("tumbling time: mean");
+        
+        WindowNode node = start(WindowNode.mean(WindowSpec.tumblingTime(100)));
+        send(node, 1010, 1);
+        send(node, 1050, 3);
+        send(node, 1099, 5);
+        send(node, 1100, 10);
+        send(node, 1420, 20);
+        assertEquals(Arrays.asList(new Sample(1100, 3), new Sample(1200, 10)), 
+                myOutput);
+    }
+
+    @Test
+    public void testSlidingTimeMin() {
+        System.out.println("sliding time: min");
+        
+        WindowNode node = start(WindowNode.min(WindowSpec.slidingTime(200, 100)));
+        send(node, 0, 5);
+        send(node, 50, 3);
+        send(node, 150, 4);
+        send(node, 250, 6);
+        send(node, 310, 7);
+        // windows [-100,100), [0,200), [100,300)
+        assertEquals(Arrays.asList(new Sample(100, 3), new Sample(200, 3), 
+                new Sample(300, 4)), myOutput);
+    }
+
+    @Test
+    public void testSlidingPercentileExact() {
+        System.out.println("sliding count: percentile");
+        
+        WindowNode node = start(
+                WindowNode.percentile(WindowSpec.slidingCount(5, 1), 50));
+        double[] vals = {9, 1, 8, 2, 7, 3};
+        for(int i = 0; i < vals.length; i++){
+            send(node, i, vals[i]);
+        }
+        assertEquals(2, myOutput.size());
+        assertEquals(7, myOutput.get(0).getValue(), EPSILON);
+        assertEquals(3, myOutput.get(1).getValue(), EPSILON);
+    }
+
+    @Test
+    public void testTumblingPercentileEstimate() {
+        System.out.println("tumbling count: percentile estimate");
+        
+        WindowNode node = start(
+                WindowNode.percentile(WindowSpec.tumblingCount(10000), 90));
+        Random random = new Random(3);
+        for(int i = 0; i < 10000; i++){
+            send(node, i, random.nextDouble());
+        }
+        assertEquals(1, myOutput.size());
+        assertEquals(0.9, myOutput.get(0).getValue(), 0.02);
+    }
+
+    /**
+     * The estimate is exact up to and including the fifth value, so a high 
+     * percentile of five values must not fall back to the median marker.
+     */
+    @Test
+    public void testTumblingPercentileFiveValues() {
+        System.out.println("tumbling count: percentile of five values");
+        
+        WindowNode node = start(
+                WindowNode.percentile(WindowSpec.tumblingCount(5), 99));
+        double[] vals = {5, 3, 1, 4, 2, 50, 10, 40, 20, 30};
+        for(int i = 0; i < vals.length; i++){
+            send(node, i, vals[i]);
+        }
+        assertEquals(2, myOutput.size());
+        assertEquals(4.96, myOutput.get(0).getValue(), EPSILON);
+        assertEquals(49.6, myOutput.get(1).getValue(), EPSILON);
+    }
+
+    @Test
+    public void testStoppedNodeIgnoresInput() {
+        System.out.println("stopped node ignores input");
+        
+        WindowNode node = start(WindowNode.sum(WindowSpec.tumblingCount(1)));
+        node.stop();
+        send(node, 0, 1);
+        assertTrue(myOutput.isEmpty());
+    }
+}
@@ -115,6 +115,21 @@ public class CircularBufferTest {
         assertEquals(expResult, result);
     }
     
+    /**
+     * Test of get method, of class CircularBuffer, reading back across the
+     * wrap point of the underlying array.
+     */
+    @Test
+    public void testGetWrapped() {
+        System.out.println("get: wrapped buffer");
+        
+        fullInstance.add(512);
+        
+        assertEquals(Integer.valueOf(512), fullInstance.get(0));
+        assertEquals(Integer.valueOf(256), fullInstance.get(1));
+        assertEquals(Integer.valueOf(128), fullInstance.get(2));
+    }
+    
     /**
      * Test of get method, of class CircularBuffer.
      */
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.buffer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class ConcurrentCircularBufferTest {
+    
+    private ConcurrentCircularBuffer<Integer> emptyInstance;
+    private ConcurrentCircularBuffer<Integer> partialInstance;
+    private ConcurrentCircularBuffer<Integer> overFullInstance;
+    
+    @Before
+    public void setUp() {
+        emptyInstance = new ConcurrentCircularBuffer<Integer>(32);
+        
+        partialInstance = new ConcurrentCircularBuffer<Integer>(32);
+        partialInstance.add(64);
+        partialInstance.add(128);
+        partialInstance.add(256);
+        
+        overFullInstance = new ConcurrentCircularBuffer<Integer>(3);
+        overFullInstance.add(64);
+        overFullInstance.add(128);
+        overFullInstance.add(256);
+        overFullInstance.add(512);
+        overFullInstance.add(1024);
+        overFullInstance.add(2048);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testGetEmpty() {
+        System.out.println("get: empty buffer");
+        
+        emptyInstance.get(0);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testGetNegative() {
+        System.out.println("get: negative index");
+        
+        partialInstance.get(-1);
+    }
+    
+    @Test
+    public void testGetPartial() {
+        System.out.println("get: partial buffer");
+        
+        assertEquals(Integer.valueOf(256), partialInstance.get(0));
+        assertEquals(Integer.valueOf(128), partialInstance.get(1));
+        assertEquals(Integer.valueOf(64), partialInstance.get(2));
+    }
+    
+    @Test
+    public void testGetOverFull() {
+        System.out.println("get: overfull buffer");
+        
+        assertEquals(3, overFullInstance.getSize());
+        assertEquals(Integer.valueOf(2048), overFullInstance.get(0));
+        assertEquals(Integer.valueOf(1024), overFullInstance.get(1));
+        assertEquals(Integer.valueOf(512), overFullInstance.get(2));
+    }
+    
+    @Test
+    public void testHeadAndTail() {
+        System.out.println("getHeadValue/getTailValue");
+        
+        assertNull(emptyInstance.getHeadValue());
+        assertNull(emptyInstance.getTailValue());
+        assertEquals(Integer.valueOf(256), partialInstance.getHead().getValue());
+        assertEquals(Integer.valueOf(64), partialInstance.getTail().getValue());
+        assertEquals(Integer.valueOf(2048), overFullInstance.getHeadValue());
+        assertEquals(Integer.valueOf(512), overFullInstance.getTailValue());
+    }
+
+    @Test
+    public void testGetValueList() {
+        System.out.println("getValueList");
+        
+        assertEquals(Collections.EMPTY_LIST, emptyInstance.getValueList());
+        assertEquals(Arrays.asList(64, 128, 256), 
+                partialInstance.getValueList());
+        assertEquals(Arrays.asList(512, 1024, 2048), 
+                overFullInstance.getValueList());
+        assertEquals(3, overFullInstance.getSize());
+    }
+
+    @Test
+    public void testGetValuesDrains() {
+        System.out.println("getValues: drains the buffer");
+        
+        assertEquals(Arrays.asList(512, 1024, 2048), 
+                overFullInstance.getValues().getValue());
+        assertEquals(0, overFullInstance.getSize());
+        assertNull(overFullInstance.getHeadValue());
+        
+        overFullInstance.addValue().handleEvent(4096);
+        assertEquals(1, overFullInstance.getSize());
+        assertEquals(Integer.valueOf(4096), overFullInstance.get(0));
+    }
+    
+    /**
+     * Several producers add while a reader takes snapshots.  Every snapshot
+     * must be in order for each producer, and the final buffer must hold
+     * the newest values.
+     */
+    @Test
+    public void testConcurrentAdd() throws Exception {
+        System.out.println("add: concurrent producers");
+        
+        final int producers = 4;
+        final int count = 100000;
+        final ConcurrentCircularBuffer<Integer> buffer = 
+                new ConcurrentCircularBuffer<Integer>(100);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(producers);
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        for(int p = 0; p < producers; p++){
+            final int id = p;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try{
+                        start.await();
+                        for(int i = 0; i < count; i++){
+                            buffer.add(i * producers + id);
+                        }
+                    }catch(InterruptedException ex){
+                        failure.set(ex.toString());
+                    }finally{
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        while(done.getCount() > 0){
+            List<Integer> snapshot = buffer.getValueList();
+            assertTrue(snapshot.size() <= 100);
+            int[] last = new int[producers];
+            Arrays.fill(last, -1);
+            for(Integer v : snapshot){
+                int id = v % producers;
+                assertTrue(v > last[id]);
+                last[id] = v;
+            }
+        }
+        done.await();
+        assertNull(failure.get());
+        assertEquals(100, buffer.getSize());
+        assertEquals(100, buffer.getValueList().size());
+    }
+}
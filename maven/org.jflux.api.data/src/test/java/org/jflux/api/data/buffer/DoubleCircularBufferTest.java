@@ -0,0 +1,156 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.buffer;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class DoubleCircularBufferTest {
+    private final static double EPSILON = 1e-9;
+    
+    private DoubleCircularBuffer emptyInstance;
+    private DoubleCircularBuffer overFullInstance;
+    
+    @Before
+    public void setUp() {
+        emptyInstance = new DoubleCircularBuffer(8);
+        
+        overFullInstance = new DoubleCircularBuffer(3);
+        overFullInstance.add(1.0);
+        overFullInstance.add(2.0);
+        overFullInstance.add(4.0);
+        overFullInstance.add(8.0);
+        overFullInstance.add(16.0);
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testGetHeadValueEmpty() {
+        System.out.println("getHeadValue: empty buffer");
+        
+        emptyInstance.getHeadValue();
+    }
+
+    @Test
+    public void testEmpty() {
+        System.out.println("empty buffer");
+        
+        assertEquals(0, emptyInstance.getSize());
+        assertNull(emptyInstance.getHead().getValue());
+        assertNull(emptyInstance.getTail().getValue());
+        assertTrue(Double.isNaN(emptyInstance.getMean()));
+        assertTrue(Double.isNaN(emptyInstance.getVariance()));
+        assertEquals(0, emptyInstance.toArray().length);
+    }
+
+    @Test
+    public void testGetOverFull() {
+        System.out.println("get: overfull buffer");
+        
+        assertEquals(3, overFullInstance.getSize());
+        assertEquals(16.0, overFullInstance.get(0), EPSILON);
+        assertEquals(8.0, overFullInstance.get(1), EPSILON);
+        assertEquals(4.0, overFullInstance.get(2), EPSILON);
+        assertEquals(16.0, overFullInstance.getHeadValue(), EPSILON);
+        assertEquals(4.0, overFullInstance.getTailValue(), EPSILON);
+        assertEquals(Double.valueOf(8.0), overFullInstance.getIndex().adapt(1));
+    }
+
+    @Test
+    public void testCopyTo() {
+        System.out.println("copyTo: overfull buffer");
+        
+        double[] dest = new double[5];
+        assertEquals(3, overFullInstance.copyTo(dest, 1));
+        assertArrayEquals(new double[]{0, 4, 8, 16, 0}, dest, EPSILON);
+        assertEquals(Arrays.asList(4.0, 8.0, 16.0), 
+                overFullInstance.getValueList());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testCopyToTooSmall() {
+        System.out.println("copyTo: array too small");
+        
+        overFullInstance.copyTo(new double[2]);
+    }
+
+    @Test
+    public void testAggregates() {
+        System.out.println("aggregates: overfull buffer");
+        
+        assertEquals(4.0, overFullInstance.getMin(), EPSILON);
+        assertEquals(16.0, overFullInstance.getMax(), EPSILON);
+        assertEquals(28.0 / 3, overFullInstance.getMean(), EPSILON);
+        double m = 28.0 / 3;
+        double var = ((4-m)*(4-m) + (8-m)*(8-m) + (16-m)*(16-m)) / 3;
+        assertEquals(var, overFullInstance.getVariance(), EPSILON);
+    }
+
+    @Test
+    public void testGetValuesClears() {
+        System.out.println("getValues: clears the buffer");
+        
+        assertEquals(Arrays.asList(4.0, 8.0, 16.0), 
+                overFullInstance.getValues().getValue());
+        assertEquals(0, overFullInstance.getSize());
+        
+        overFullInstance.addValue().handleEvent(-1.0);
+        assertEquals(-1.0, overFullInstance.getMin(), EPSILON);
+        assertEquals(-1.0, overFullInstance.getMax(), EPSILON);
+        assertEquals(-1.0, overFullInstance.getMean(), EPSILON);
+        assertEquals(0.0, overFullInstance.getVariance(), EPSILON);
+    }
+
+    /**
+     * Compares the running aggregates to values computed directly from the
+     * buffer contents over many laps of the buffer.
+     */
+    @Test
+    public void testAggregatesMatchWindow() {
+        System.out.println("aggregates: random samples");
+        
+        Random random = new Random(42);
+        DoubleCircularBuffer buffer = new DoubleCircularBuffer(17);
+        double[] window = new double[17];
+        for(int i = 0; i < 2000; i++){
+            buffer.add(1000.0 + random.nextGaussian() * 5.0);
+            int size = buffer.copyTo(window);
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            double sum = 0;
+            for(int j = 0; j < size; j++){
+                min = Math.min(min, window[j]);
+                max = Math.max(max, window[j]);
+                sum += window[j];
+            }
+            double mean = sum / size;
+            double sq = 0;
+            for(int j = 0; j < size; j++){
+                sq += (window[j] - mean) * (window[j] - mean);
+            }
+            assertEquals(min, buffer.getMin(), 0.0);
+            assertEquals(max, buffer.getMax(), 0.0);
+            assertEquals(mean, buffer.getMean(), 1e-6);
+            assertEquals(sq / size, buffer.getVariance(), 1e-6);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.buffer;
+
+import java.util.Random;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class IntCircularBufferTest {
+    
+    @Test
+    public void testWrapAndCopy() {
+        System.out.println("copyTo: wrapped buffer");
+        
+        IntCircularBuffer buffer = new IntCircularBuffer(4);
+        for(int i = 1; i <= 6; i++){
+            buffer.add(i);
+        }
+        assertArrayEquals(new int[]{3, 4, 5, 6}, buffer.toArray());
+        assertEquals(6, buffer.get(0));
+        assertEquals(3, buffer.get(3));
+        assertEquals(Integer.valueOf(6), buffer.getHead().getValue());
+        assertEquals(Integer.valueOf(3), buffer.getTail().getValue());
+    }
+
+    /**
+     * Checks the running min and max against the buffer contents for a 
+     * sequence with long runs in both directions.
+     */
+    @Test
+    public void testMinMaxMatchWindow() {
+        System.out.println("getMin/getMax: random samples");
+        
+        Random random = new Random(7);
+        IntCircularBuffer buffer = new IntCircularBuffer(10);
+        int value = 0;
+        for(int i = 0; i < 5000; i++){
+            value += random.nextInt(7) - 3;
+            buffer.add(value);
+            int[] window = buffer.toArray();
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            long sum = 0;
+            for(int v : window){
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+                sum += v;
+            }
+            assertEquals(min, buffer.getMin());
+            assertEquals(max, buffer.getMax());
+            assertEquals((double)sum / window.length, buffer.getMean(), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.buffer;
+
+import java.util.Random;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class LongCircularBufferTest {
+    
+    @Test
+    public void testWrapAndCopy() {
+        System.out.println("copyTo: wrapped buffer");
+        
+        LongCircularBuffer buffer = new LongCircularBuffer(4);
+        assertTrue(buffer.getValueList().isEmpty());
+        long base = 1L << 40;
+        for(int i = 1; i <= 6; i++){
+            buffer.add(base + i);
+        }
+        assertArrayEquals(new long[]{base + 3, base + 4, base + 5, base + 6}, 
+                buffer.toArray());
+        assertEquals(base + 6, buffer.get(0));
+        assertEquals(base + 3, buffer.get(3));
+        assertEquals(Long.valueOf(base + 6), buffer.getHead().getValue());
+        assertEquals(Long.valueOf(base + 3), buffer.getTail().getValue());
+        
+        long[] dest = new long[6];
+        assertEquals(4, buffer.copyTo(dest, 2));
+        assertEquals(base + 3, dest[2]);
+        assertEquals(base + 6, dest[5]);
+    }
+
+    /**
+     * Checks the running min, max, mean and variance against the buffer 
+     * contents for values far outside the int range, where the difference 
+     * between an added and an evicted value overflows a long.
+     */
+    @Test
+    public void testStatsMatchWindow() {
+        System.out.println("getMin/getMax/getMean: extreme samples");
+        
+        Random random = new Random(11);
+        LongCircularBuffer buffer = new LongCircularBuffer(8);
+        for(int i = 0; i < 2000; i++){
+            long value = random.nextBoolean() 
+                    ? Long.MAX_VALUE - random.nextInt(1000)
+                    : Long.MIN_VALUE + random.nextInt(1000);
+            buffer.add(value);
+            long[] window = buffer.toArray();
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            double sum = 0;
+            for(long v : window){
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+                sum += v;
+            }
+            double mean = sum / window.length;
+            double var = 0;
+            for(long v : window){
+                var += ((double)v - mean) * ((double)v - mean);
+            }
+            var /= window.length;
+            assertEquals(min, buffer.getMin());
+            assertEquals(max, buffer.getMax());
+            assertEquals(mean, buffer.getMean(), 1e-6 * Long.MAX_VALUE);
+            assertEquals(Math.sqrt(var), buffer.getStandardDeviation(), 
+                    1e-6 * Long.MAX_VALUE);
+        }
+    }
+}
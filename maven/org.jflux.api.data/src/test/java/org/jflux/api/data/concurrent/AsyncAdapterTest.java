@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jflux.api.core.Adapter;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.playable.Playable.PlayState;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class AsyncAdapterTest {
+    
+    private static class Doubler implements Adapter<Integer,Integer> {
+        @Override
+        public Integer adapt(Integer a) {
+            return a * 2;
+        }
+    }
+    
+    private static class Sleeper implements Adapter<Integer,Integer> {
+        @Override
+        public Integer adapt(Integer a) {
+            try{
+                Thread.sleep(a);
+            }catch(InterruptedException ex){
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            return a;
+        }
+    }
+
+    @Test
+    public void testAdaptNotifiesWhenStarted() throws Exception {
+        System.out.println("adapt: notifies when started");
+        
+        AsyncAdapter<Integer,Integer> adapter = 
+                new AsyncAdapter<Integer,Integer>(new Doubler());
+        AsyncResult<Integer> result = adapter.adapt(21);
+        final AtomicReference<Integer> out = new AtomicReference<Integer>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        result.addListener(new Listener<Integer>() {
+            @Override
+            public void handleEvent(Integer input) {
+                out.set(input);
+                latch.countDown();
+            }
+        });
+        assertEquals(PlayState.INITIALIZING, result.getPlayState());
+        assertTrue(result.start());
+        assertFalse(result.start());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(42), out.get());
+        assertEquals(Integer.valueOf(42), result.get());
+        assertEquals(PlayState.COMPLETED, result.getPlayState());
+    }
+
+    @Test
+    public void testLateListener() throws Exception {
+        System.out.println("submit: listener added after completion");
+        
+        AsyncResult<Integer> result = new AsyncAdapter<Integer,Integer>(
+                new Doubler()).submit(4);
+        result.get(5, TimeUnit.SECONDS);
+        final AtomicReference<Integer> out = new AtomicReference<Integer>();
+        result.addListener(new Listener<Integer>() {
+            @Override
+            public void handleEvent(Integer input) {
+                out.set(input);
+            }
+        });
+        assertEquals(Integer.valueOf(8), out.get());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        System.out.println("stop: cancels a running task");
+        
+        AsyncResult<Integer> result = new AsyncAdapter<Integer,Integer>(
+                new Sleeper()).submit(10000);
+        assertTrue(result.stop());
+        assertEquals(PlayState.ABORTED, result.getPlayState());
+        assertTrue(result.isDone());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        System.out.println("timeout: task in ERROR");
+        
+        AsyncAdapter<Integer,Integer> adapter = 
+                new AsyncAdapter<Integer,Integer>(new Sleeper(), 
+                        AsyncExecutors.getSharedExecutor(), 
+                        50, TimeUnit.MILLISECONDS);
+        AsyncResult<Integer> result = adapter.submit(10000);
+        try{
+            result.get(5, TimeUnit.SECONDS);
+            fail("Expected timeout");
+        }catch(ExecutionException ex){
+            assertTrue(ex.getCause() instanceof TimeoutException);
+        }
+        assertEquals(PlayState.ERROR, result.getPlayState());
+        assertTrue(result.getError() instanceof TimeoutException);
+    }
+
+    @Test
+    public void testException() throws Exception {
+        System.out.println("adapt: exception puts task in ERROR");
+        
+        AsyncResult<Integer> result = new AsyncAdapter<Integer,Integer>(
+                new Doubler()).submit(null);
+        try{
+            result.get(5, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        }catch(ExecutionException ex){
+            assertTrue(ex.getCause() instanceof NullPointerException);
+        }
+        assertEquals(PlayState.ERROR, result.getPlayState());
+    }
+}
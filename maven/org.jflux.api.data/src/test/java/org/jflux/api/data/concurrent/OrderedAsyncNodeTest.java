@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.jflux.api.core.Adapter;
+import org.jflux.api.core.Listener;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class OrderedAsyncNodeTest {
+    
+    private ExecutorService myExecutor;
+    
+    @Before
+    public void setUp() {
+        myExecutor = Executors.newFixedThreadPool(8);
+    }
+    
+    @After
+    public void tearDown() {
+        myExecutor.shutdownNow();
+    }
+
+    /**
+     * Inputs take random times to process, but the outputs must come out in
+     * input order, with odd inputs filtered out.
+     */
+    @Test
+    public void testPreservesOrder() throws Exception {
+        System.out.println("preserves input order");
+        
+        final Random random = new Random(11);
+        OrderedAsyncNode<Integer,Integer> node = 
+                new OrderedAsyncNode<Integer,Integer>(
+                        new Adapter<Integer, Integer>() {
+            @Override
+            public Integer adapt(Integer a) {
+                int sleep;
+                synchronized(random){
+                    sleep = random.nextInt(3);
+                }
+                try{
+                    Thread.sleep(sleep);
+                }catch(InterruptedException ex){
+                }
+                return a % 2 == 0 ? a : null;
+            }
+        }, myExecutor, 16);
+        final List<Integer> out = 
+                Collections.synchronizedList(new ArrayList<Integer>());
+        node.getNotifier().addListener(new Listener<Integer>() {
+            @Override
+            public void handleEvent(Integer input) {
+                out.add(input);
+            }
+        });
+        node.start();
+        for(int i = 0; i < 500; i++){
+            node.getListener().handleEvent(i);
+        }
+        long end = System.currentTimeMillis() + 10000;
+        while(node.getQueueDepth() > 0 && System.currentTimeMillis() < end){
+            Thread.sleep(10);
+        }
+        assertEquals(250, out.size());
+        for(int i = 0; i < 250; i++){
+            assertEquals(Integer.valueOf(i * 2), out.get(i));
+        }
+        assertEquals(250, node.getDeliveredCount());
+        assertEquals(0, node.getQueueDepth());
+    }
+}
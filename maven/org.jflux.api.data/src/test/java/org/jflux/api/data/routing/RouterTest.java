@@ -0,0 +1,234 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.data.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jflux.api.core.Adapter;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.util.EmptyAdapter;
+import org.jflux.api.data.routing.Router.DefaultRouter;
+import org.jflux.api.data.routing.Router.IndexAdapter;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class RouterTest {
+    
+    private static enum Color { RED, GREEN, BLUE }
+    
+    private static class Collector<T> implements Listener<T> {
+        final List<T> myEvents = new ArrayList<T>();
+        
+        @Override
+        public synchronized void handleEvent(T input) {
+            myEvents.add(input);
+        }
+    }
+
+    @Test
+    public void testRoute() {
+        System.out.println("handleEvent: routes by key");
+        
+        DefaultRouter<Integer,Integer> router = 
+                new DefaultRouter<Integer,Integer>(
+                        new EmptyAdapter<Integer,Integer>());
+        Collector<Integer> one = new Collector<Integer>();
+        Collector<Integer> two = new Collector<Integer>();
+        router.addRoute(1, one);
+        router.addRoute(2, two);
+        router.handleEvent(1);
+        router.handleEvent(2);
+        router.handleEvent(2);
+        assertEquals(1, one.myEvents.size());
+        assertEquals(2, two.myEvents.size());
+        assertEquals(1, router.getHitCount(1));
+        assertEquals(2, router.getHitCount(2));
+        assertEquals(0, router.getMissCount());
+        
+        Collector<Integer> replacement = new Collector<Integer>();
+        router.addRoute(2, replacement);
+        router.handleEvent(2);
+        assertEquals(2, two.myEvents.size());
+        assertEquals(1, replacement.myEvents.size());
+        assertEquals(3, router.getHitCount(2));
+        
+        router.removeRoute(2);
+        assertEquals(0, router.getHitCount(2));
+        assertFalse(router.getRouteKeys().contains(2));
+    }
+
+    @Test
+    public void testMiss() {
+        System.out.println("handleEvent: unmatched events go to default route");
+        
+        DefaultRouter<Integer,Integer> router = 
+                new DefaultRouter<Integer,Integer>(
+                        new EmptyAdapter<Integer,Integer>());
+        router.handleEvent(5);
+        assertEquals(1, router.getMissCount());
+        
+        Collector<Integer> deadLetter = new Collector<Integer>();
+        router.setDefaultRoute(deadLetter);
+        assertSame(deadLetter, router.getDefaultRoute());
+        router.handleEvent(6);
+        router.handleEvent(null);
+        assertEquals(3, router.getMissCount());
+        assertEquals(2, deadLetter.myEvents.size());
+        assertEquals(Integer.valueOf(6), deadLetter.myEvents.get(0));
+    }
+
+    @Test
+    public void testMulticast() {
+        System.out.println("addRouteListener: sends to every Listener");
+        
+        DefaultRouter<Integer,Integer> router = 
+                new DefaultRouter<Integer,Integer>(
+                        new EmptyAdapter<Integer,Integer>());
+        Collector<Integer> a = new Collector<Integer>();
+        Collector<Integer> b = new Collector<Integer>();
+        assertTrue(router.addRouteListener(1, a));
+        assertTrue(router.addRouteListener(1, b));
+        assertFalse(router.addRouteListener(1, b));
+        router.handleEvent(1);
+        assertEquals(1, a.myEvents.size());
+        assertEquals(1, b.myEvents.size());
+        assertEquals(1, router.getHitCount(1));
+        
+        assertTrue(router.removeRouteListener(1, a));
+        assertFalse(router.removeRouteListener(1, a));
+        router.handleEvent(1);
+        assertEquals(1, a.myEvents.size());
+        assertEquals(2, b.myEvents.size());
+        
+        assertTrue(router.removeRouteListener(1, b));
+        router.handleEvent(1);
+        assertEquals(1, router.getMissCount());
+    }
+
+    @Test
+    public void testEnumKeys() {
+        System.out.println("forEnumKeys: routes by ordinal");
+        
+        DefaultRouter<Color,Color> router = DefaultRouter.forEnumKeys(
+                new EmptyAdapter<Color,Color>(), Color.class);
+        Collector<Color> green = new Collector<Color>();
+        Collector<Color> deadLetter = new Collector<Color>();
+        router.addRoute(Color.GREEN, green);
+        router.setDefaultRoute(deadLetter);
+        router.handleEvent(Color.GREEN);
+        router.handleEvent(Color.RED);
+        router.handleEvent(null);
+        assertEquals(1, green.myEvents.size());
+        assertEquals(2, deadLetter.myEvents.size());
+        assertEquals(1, router.getHitCount(Color.GREEN));
+        assertEquals(2, router.getMissCount());
+        
+        router.removeRoute(Color.GREEN);
+        router.handleEvent(Color.GREEN);
+        assertEquals(1, green.myEvents.size());
+    }
+
+    @Test
+    public void testIntKeys() {
+        System.out.println("forIntKeys: routes by index");
+        
+        DefaultRouter<Integer,String> router = DefaultRouter.forIntKeys(
+                new IndexAdapter<String>() {
+                    @Override
+                    public int getIndex(String value) {
+                        return value.length();
+                    }
+                }, 4);
+        Collector<String> three = new Collector<String>();
+        router.addRoute(3, three);
+        router.handleEvent("abc");
+        router.handleEvent("abcdefg");
+        router.handleEvent("");
+        assertEquals(1, three.myEvents.size());
+        assertEquals(2, router.getMissCount());
+        try{
+            router.addRoute(4, three);
+            fail();
+        }catch(IllegalArgumentException ex){
+        }
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        System.out.println("handleEvent: routes change while events flow");
+        
+        final DefaultRouter<Integer,Integer> router = 
+                new DefaultRouter<Integer,Integer>(
+                        new Adapter<Integer,Integer>() {
+                            @Override
+                            public Integer adapt(Integer a) {
+                                return a % 8;
+                            }
+                        });
+        final AtomicLong received = new AtomicLong();
+        final Listener<Integer> counter = new Listener<Integer>() {
+            @Override
+            public void handleEvent(Integer input) {
+                received.incrementAndGet();
+            }
+        };
+        router.setDefaultRoute(counter);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final int threads = 4;
+        final int events = 100000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for(int t = 0; t < threads; t++){
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for(int i = 0; i < events; i++){
+                        router.handleEvent(i);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        Thread updater = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int i = 0;
+                while(running.get()){
+                    router.addRoute(i % 8, counter);
+                    router.removeRoute((i + 3) % 8);
+                    i++;
+                }
+            }
+        });
+        updater.start();
+        done.await();
+        running.set(false);
+        updater.join();
+        assertEquals(threads * events, received.get());
+        long hits = router.getMissCount();
+        for(Integer key : router.getRouteKeys()){
+            hits += router.getHitCount(key);
+        }
+        assertTrue(hits <= threads * events);
+    }
+}
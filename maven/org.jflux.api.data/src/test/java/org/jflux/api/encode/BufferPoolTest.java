@@ -0,0 +1,172 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.encode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class BufferPoolTest {
+
+    @Test
+    public void testArraysRoundUpToSizeClass() {
+        System.out.println("acquireArray: rounds up to size class");
+        BufferPool pool = new BufferPool(4096, 4);
+        assertEquals(256, pool.acquireArray(0).length);
+        assertEquals(256, pool.acquireArray(256).length);
+        assertEquals(512, pool.acquireArray(257).length);
+        assertEquals(4096, pool.acquireArray(4096).length);
+        assertEquals(5000, pool.acquireArray(5000).length);
+    }
+
+    @Test
+    public void testReleasedArrayIsReused() {
+        System.out.println("releaseArray: released array is reused");
+        BufferPool pool = new BufferPool(4096, 4);
+        byte[] a = pool.acquireArray(1000);
+        assertTrue(pool.releaseArray(a));
+        assertSame(a, pool.acquireArray(600));
+        assertNotSame(a, pool.acquireArray(600));
+    }
+
+    @Test
+    public void testForeignArraysAreDropped() {
+        System.out.println("releaseArray: drops arrays outside size classes");
+        BufferPool pool = new BufferPool(4096, 4);
+        assertFalse(pool.releaseArray(new byte[1000]));
+        assertFalse(pool.releaseArray(new byte[128]));
+        assertFalse(pool.releaseArray(new byte[8192]));
+        assertTrue(pool.releaseArray(new byte[2048]));
+    }
+
+    @Test
+    public void testReleaseIsBoundedByCapacity() {
+        System.out.println("releaseArray: bounded by capacity");
+        BufferPool pool = new BufferPool(4096, 2);
+        assertTrue(pool.releaseArray(new byte[256]));
+        assertTrue(pool.releaseArray(new byte[256]));
+        assertFalse(pool.releaseArray(new byte[256]));
+    }
+
+    @Test
+    public void testBuffersAreClearedAndReused() {
+        System.out.println("acquireBuffer: cleared and reused");
+        BufferPool pool = new BufferPool(4096, 4);
+        ByteBuffer heap = pool.acquireBuffer(300, false);
+        assertFalse(heap.isDirect());
+        assertEquals(512, heap.capacity());
+        heap.putInt(42).flip();
+        assertTrue(pool.releaseBuffer(heap));
+        ByteBuffer again = pool.acquireBuffer(400, false);
+        assertSame(heap, again);
+        assertEquals(0, again.position());
+        assertEquals(512, again.limit());
+
+        ByteBuffer direct = pool.acquireBuffer(300, true);
+        assertTrue(direct.isDirect());
+        assertTrue(pool.releaseBuffer(direct));
+        assertNotSame(direct, pool.acquireBuffer(300, false));
+        assertSame(direct, pool.acquireBuffer(300, true));
+    }
+
+    @Test
+    public void testSlicesAreNotPooled() {
+        System.out.println("releaseBuffer: drops slices and read-only views");
+        BufferPool pool = new BufferPool(4096, 4);
+        ByteBuffer buf = ByteBuffer.allocate(1024);
+        buf.position(512);
+        assertFalse(pool.releaseBuffer(buf.slice()));
+        assertFalse(pool.releaseBuffer(buf.asReadOnlyBuffer()));
+        assertTrue(pool.releaseBuffer(buf));
+    }
+
+    @Test
+    public void testOutputStreamGrowsAndIsReused() {
+        System.out.println("getOutputStream: grows and is reused");
+        BufferPool pool = new BufferPool(4096, 4);
+        PooledOutputStream out = pool.getOutputStream();
+        byte[] data = new byte[3000];
+        for(int i = 0; i < data.length; i++){
+            data[i] = (byte)i;
+        }
+        out.write(data, 0, 1000);
+        out.write(data, 1000, 2000);
+        assertArrayEquals(data, out.toByteArray());
+        out.release();
+        PooledOutputStream again = pool.getOutputStream();
+        assertSame(out, again);
+        assertEquals(0, again.size());
+    }
+
+    @Test
+    public void testOversizedStreamBufferIsDropped() {
+        System.out.println("release: drops buffers over the max size");
+        BufferPool pool = new BufferPool(1024, 4);
+        PooledOutputStream out = pool.getOutputStream();
+        out.write(new byte[5000], 0, 5000);
+        out.release();
+        PooledOutputStream again = pool.getOutputStream();
+        assertSame(out, again);
+        again.write(1);
+        assertEquals(1, again.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDoubleReleaseThrows() {
+        System.out.println("release: twice throws");
+        PooledOutputStream out = new BufferPool().getOutputStream();
+        out.release();
+        out.release();
+    }
+
+    @Test
+    public void testBytesUtilsSharePooledBuffer() throws Exception {
+        System.out.println("BytesUtils: pooled streams are not copied");
+        PooledOutputStream out = new BufferPool().getOutputStream();
+        out.write(new byte[]{1, 2, 3}, 0, 3);
+        ByteBuffer buf = BytesUtils.outputStreamToBuffer().adapt(out);
+        assertEquals(3, buf.remaining());
+        ByteArrayInputStream in = 
+                BytesUtils.outputStreamToInputStream().adapt(out);
+        assertEquals(3, in.available());
+        out.write(4);
+        assertEquals(4, out.toByteBuffer().remaining());
+        buf.get();
+        in = BytesUtils.bufferToInputStream().adapt(buf);
+        assertEquals(2, in.read());
+        assertEquals(3, in.read());
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void testPooledFactoryUsesPool() {
+        System.out.println("EncodeRequest.pooledFactory: uses pooled streams");
+        BufferPool pool = new BufferPool();
+        EncodeRequest<String,ByteArrayOutputStream> req = 
+                EncodeRequest.<String>pooledFactory(pool).adapt("a");
+        assertEquals("a", req.getValue());
+        assertTrue(req.getStream() instanceof PooledOutputStream);
+        ((PooledOutputStream)req.getStream()).release();
+        assertSame(req.getStream(), pool.getOutputStream());
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.api.schedule;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jflux.api.core.Listener;
+import org.jflux.api.core.Source;
+import org.jflux.api.core.util.ScheduledTask;
+import org.jflux.api.core.util.WheelTimer;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class HeartbeatNodeTest {
+    private WheelTimer myTimer;
+    
+    private static class Counter implements Source<Integer> {
+        private final AtomicInteger myCount = new AtomicInteger();
+        private final long mySleep;
+        
+        Counter(long sleep){
+            mySleep = sleep;
+        }
+        
+        @Override
+        public Integer getValue() {
+            if(mySleep > 0){
+                try{
+                    Thread.sleep(mySleep);
+                }catch(InterruptedException ex){
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return myCount.incrementAndGet();
+        }
+    }
+    
+    @Before
+    public void setUp() {
+        myTimer = new WheelTimer(1, TimeUnit.MILLISECONDS, 64, null);
+    }
+    
+    @After
+    public void tearDown() {
+        myTimer.shutdown();
+    }
+
+    @Test
+    public void testHeartbeat() throws Exception {
+        System.out.println("heartbeat: sends at a fixed rate");
+        
+        HeartbeatNode<Integer> node = new HeartbeatNode<Integer>(
+                new Counter(0), 0, 5, TimeUnit.MILLISECONDS, myTimer);
+        final CountDownLatch latch = new CountDownLatch(20);
+        node.getNotifier().addListener(new Listener<Integer>() {
+            @Override
+            public void handleEvent(Integer input) {
+                latch.countDown();
+            }
+        });
+        long start = System.nanoTime();
+        assertTrue(node.start());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        ScheduledTask task = node.getScheduledTask();
+        assertNotNull(task);
+        assertTrue(task.isPeriodic());
+        assertEquals(5, task.getPeriod(TimeUnit.MILLISECONDS));
+        assertTrue(task.getRunCount() >= 19);
+        assertTrue(elapsed >= 95);
+        
+        node.stop();
+        assertNull(node.getScheduledTask());
+        assertTrue(task.isCancelled());
+        long runs = task.getRunCount();
+        Thread.sleep(30);
+        assertTrue(task.getRunCount() <= runs + 1);
+        assertEquals(0, myTimer.getPendingCount());
+    }
+
+    @Test
+    public void testNoDrift() throws Exception {
+        System.out.println("heartbeat: fixed rate does not drift");
+        
+        ScheduledTask task = myTimer.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try{
+                    Thread.sleep(2);
+                }catch(InterruptedException ex){
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+        Thread.sleep(505);
+        task.cancel();
+        long runs = task.getRunCount();
+        long overruns = task.getOverrunCount();
+        // Every elapsed period is either run or skipped as an overrun, so a
+        // stall on a busy machine cannot hide drift.  Rescheduling from the
+        // finish time would lose ~2ms per period.
+        long periods = runs + overruns;
+        assertTrue("periods=" + periods, periods >= 49 && periods <= 52);
+        assertTrue(task.getMaxJitter(TimeUnit.MILLISECONDS) < 100);
+    }
+
+    @Test
+    public void testOverrun() throws Exception {
+        System.out.println("heartbeat: slow runs skip periods");
+        
+        HeartbeatNode<Integer> node = new HeartbeatNode<Integer>(
+                new Counter(25), 0, 10, TimeUnit.MILLISECONDS, myTimer);
+        node.start();
+        Thread.sleep(200);
+        ScheduledTask task = node.getScheduledTask();
+        node.stop();
+        assertTrue(task.getRunCount() <= 9);
+        assertTrue(task.getOverrunCount() >= 2 * (task.getRunCount() - 1));
+    }
+
+    @Test
+    public void testSetPeriod() throws Exception {
+        System.out.println("setPeriod: restarts with the new period");
+        
+        HeartbeatNode<Integer> node = new HeartbeatNode<Integer>(
+                new Counter(0), 1000, 1000, TimeUnit.MILLISECONDS, myTimer);
+        node.start();
+        ScheduledTask first = node.getScheduledTask();
+        node.setPeriod(5);
+        ScheduledTask second = node.getScheduledTask();
+        assertTrue(first.isCancelled());
+        assertNotSame(first, second);
+        assertEquals(5, second.getPeriod(TimeUnit.MILLISECONDS));
+        Thread.sleep(50);
+        assertTrue(second.getRunCount() > 0);
+        node.stop();
+    }
+
+    @Test
+    public void testRepeatStart() throws Exception {
+        System.out.println("start/resume: repeated calls keep the schedule");
+        
+        HeartbeatNode<Integer> node = new HeartbeatNode<Integer>(
+                new Counter(0), 1000, 1000, TimeUnit.MILLISECONDS, myTimer);
+        assertTrue(node.start());
+        ScheduledTask first = node.getScheduledTask();
+        assertTrue(node.start());
+        assertTrue(node.resume());
+        assertSame(first, node.getScheduledTask());
+        assertFalse(first.isCancelled());
+        node.stop();
+        assertTrue(first.isCancelled());
+    }
+    
+    private static Set<Thread> timerThreads(){
+        Set<Thread> threads = new HashSet<Thread>();
+        for(Thread t : Thread.getAllStackTraces().keySet()){
+            if(t.getName().startsWith("jflux-timer-")){
+                threads.add(t);
+            }
+        }
+        return threads;
+    }
+
+    @Test
+    public void testThreadCount() throws Exception {
+        System.out.println("heartbeat: nodes share the timer threads");
+        
+        Set<Thread> before = timerThreads();
+        List<HeartbeatNode<Integer>> nodes = 
+                new ArrayList<HeartbeatNode<Integer>>();
+        final AtomicInteger received = new AtomicInteger();
+        Listener<Integer> listener = new Listener<Integer>() {
+            @Override
+            public void handleEvent(Integer input) {
+                received.incrementAndGet();
+            }
+        };
+        for(int i = 0; i < 200; i++){
+            HeartbeatNode<Integer> node = new HeartbeatNode<Integer>(
+                    new Counter(0), i % 10, 10, TimeUnit.MILLISECONDS, myTimer);
+            node.getNotifier().addListener(listener);
+            node.start();
+            nodes.add(node);
+        }
+        Thread.sleep(100);
+        Set<Thread> threads = timerThreads();
+        threads.removeAll(before);
+        for(HeartbeatNode<Integer> node : nodes){
+            node.stop();
+        }
+        assertTrue("threads=" + threads, 
+                threads.size() <= Runtime.getRuntime().availableProcessors());
+        assertTrue(received.get() >= 200 * 5);
+    }
+
+    @Test
+    public void testOneShot() throws Exception {
+        System.out.println("schedule: runs a task once");
+        
+        final CountDownLatch latch = new CountDownLatch(1);
+        ScheduledTask task = myTimer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 20, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(15));
+        Thread.sleep(10);
+        assertTrue(task.isDone());
+        assertFalse(task.isCancelled());
+        assertFalse(task.cancel());
+        assertEquals(1, task.getRunCount());
+    }
+}
@@ -16,17 +16,22 @@
 package org.jflux.api.messaging.rk;
 
 import org.jflux.api.core.Adapter;
+import org.jflux.api.core.BatchListener;
 import org.jflux.api.core.Listener;
+import org.jflux.api.core.util.ListenerArray;
+import org.jflux.api.core.util.MicroBatcher;
 import org.jflux.api.messaging.rk.RecordAsyncReceiver.RecordHandler;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Default MessageAsyncReceiver implementation.
  * Uses a RecordAdapterHandler as a RecordHandler to passes Records to an
  * Adapter for deserialization.
+ * Messages may be collected into micro-batches with setBatching, which are
+ * passed whole to BatchListeners.
  *
  * @param <Msg> type of Message received
  * @param <Rec> type of underlying Record received
@@ -38,13 +43,45 @@ public class DefaultMessageAsyncReceiver<Msg, Rec>
 	private RecordAsyncReceiver<Rec> myRecordService;
 	private Adapter<Rec, Msg> myAdapter;
 	private RecordAdapterHandler myRecordHandler;
-	private List<Listener<Msg>> myListeners;
+	private ListenerArray<Msg> myListeners;
+	private volatile MicroBatcher<Msg> myBatcher;
 
 	/**
 	 * Creates an empty DefaultMessageAsyncReceiver.
 	 */
 	public DefaultMessageAsyncReceiver() {
-		myListeners = new ArrayList<>();
+		myListeners = new ListenerArray<>();
+	}
+
+	/**
+	 * Collects received Messages into batches before notifying Listeners.
+	 * A batch is sent when it is full or its oldest Message has waited for
+	 * the maximum delay.
+	 *
+	 * @param maxBatchSize maximum number of Messages in a batch
+	 * @param maxDelay     maximum time a Message waits before being sent
+	 * @param unit         TimeUnit of the delay
+	 */
+	public synchronized void setBatching(
+			int maxBatchSize, long maxDelay, TimeUnit unit) {
+		MicroBatcher<Msg> old = myBatcher;
+		myBatcher = new MicroBatcher<>(
+				new MessageDispatcher(), maxBatchSize, maxDelay, unit);
+		if (old != null) {
+			old.close();
+		}
+	}
+
+	/**
+	 * Stops batching, sending any waiting Messages.  Later Messages are sent
+	 * to Listeners as they are received.
+	 */
+	public synchronized void disableBatching() {
+		MicroBatcher<Msg> old = myBatcher;
+		myBatcher = null;
+		if (old != null) {
+			old.close();
+		}
 	}
 
 	/**
@@ -92,6 +129,7 @@ public class DefaultMessageAsyncReceiver<Msg, Rec>
 			return;
 		}
 		myRecordService.pause();
+		flushBatch();
 	}
 
 	@Override
@@ -113,15 +151,29 @@ public class DefaultMessageAsyncReceiver<Msg, Rec>
 			return;
 		}
 		myRecordService.stop();
+		flushBatch();
+	}
+
+	private void flushBatch() {
+		MicroBatcher<Msg> batcher = myBatcher;
+		if (batcher != null) {
+			batcher.flush();
+		}
 	}
 
 	/**
 	 * Notifies listeners of a Message
 	 */
 	protected void fireMessageEvent(Msg message) {
-		for (Listener<Msg> listener : myListeners) {
-			listener.handleEvent(message);
-		}
+		myListeners.notifyListeners(message);
+	}
+
+	/**
+	 * Notifies listeners of a batch of Messages, passing the whole batch to
+	 * BatchListeners
+	 */
+	protected void fireMessageEvents(List<Msg> messages) {
+		myListeners.notifyEvents(messages);
 	}
 
 	@Override
@@ -129,9 +181,7 @@ public class DefaultMessageAsyncReceiver<Msg, Rec>
 		if (listener == null) {
 			return;
 		}
-		if (!myListeners.contains(listener)) {
-			myListeners.add(listener);
-		}
+		myListeners.addListener(listener);
 	}
 
 	@Override
@@ -139,7 +189,7 @@ public class DefaultMessageAsyncReceiver<Msg, Rec>
 		if (listener == null) {
 			return;
 		}
-		myListeners.remove(listener);
+		myListeners.removeListener(listener);
 	}
 
 	@Override
@@ -165,7 +215,24 @@ public class DefaultMessageAsyncReceiver<Msg, Rec>
 						record.toString());
 				return;
 			}
-			fireMessageEvent(message);
+			MicroBatcher<Msg> batcher = myBatcher;
+			if (batcher != null) {
+				batcher.handleEvent(message);
+			} else {
+				fireMessageEvent(message);
+			}
+		}
+	}
+
+	class MessageDispatcher implements BatchListener<Msg> {
+		@Override
+		public void handleEvent(Msg input) {
+			fireMessageEvent(input);
+		}
+
+		@Override
+		public void handleEvents(List<Msg> events) {
+			fireMessageEvents(events);
 		}
 	}
 }
@@ -16,37 +16,59 @@
 package org.jflux.api.messaging.rk;
 
 import org.jflux.api.core.Adapter;
+import org.jflux.api.core.BatchListener;
 import org.jflux.api.core.Listener;
+import org.jflux.api.core.util.ListenerArray;
+import org.jflux.api.core.util.MicroBatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Default MessageSender implementation.
  * Uses an Adapter to serialize a Message to a Record.  The Record is sent with
  * a RecordSender.
+ * Messages given to handleEvent may be collected into micro-batches with
+ * setBatching.  Each batch is sent together and passed whole to
+ * BatchListeners.  Stopping the sender sends any waiting Messages and
+ * closes the batcher; starting it again resumes batching with the same
+ * settings.
+ * Timed batches are sent from the batcher's thread.  Records are only sent
+ * while holding mySendLock, so a RecordSender is never used by two threads
+ * at once.
  *
  * @param <Msg> type of Message capable of sending
  * @param <Rec> type of Record which is sent
  * @author Matthew Stevenson <www.robokind.org>
  */
-public class DefaultMessageSender<Msg, Rec> implements MessageSender<Msg> {
+public class DefaultMessageSender<Msg, Rec>
+		implements MessageSender<Msg>, BatchListener<Msg> {
 	private static final Logger theLogger = LoggerFactory.getLogger(DefaultMessageSender.class);
-	private List<Listener<Msg>> myListeners;
+	private ListenerArray<Msg> myListeners;
 	private Adapter<Msg, Rec> myAdapter;
 	/**
 	 * RecordSender used to send Records.  This is set using the
 	 * setRecordSender method.
 	 */
 	protected RecordSender<Rec> myRecordSender;
+	/**
+	 * Lock held while sending Records.  Subclasses which send Records
+	 * themselves must hold it.
+	 */
+	protected final Object mySendLock = new Object();
+	private volatile MicroBatcher<Msg> myBatcher;
+	private int myMaxBatchSize;
+	private long myMaxDelay;
+	private TimeUnit myDelayUnit;
 
 	/**
 	 * Creates an empty DefaultMessageSender.
 	 */
 	public DefaultMessageSender() {
-		myListeners = new ArrayList<>();
+		myListeners = new ListenerArray<>();
 	}
 
 	/**
@@ -67,12 +89,80 @@ public class DefaultMessageSender<Msg, Rec> implements MessageSender<Msg> {
 		myAdapter = adapter;
 	}
 
+	/**
+	 * Collects Messages given to handleEvent into batches before sending.
+	 * A batch is sent when it is full or its oldest Message has waited for
+	 * the maximum delay.  notifyListeners still sends immediately.
+	 *
+	 * @param maxBatchSize maximum number of Messages in a batch
+	 * @param maxDelay     maximum time a Message waits before being sent
+	 * @param unit         TimeUnit of the delay
+	 */
+	public synchronized void setBatching(
+			int maxBatchSize, long maxDelay, TimeUnit unit) {
+		if (unit == null) {
+			throw new NullPointerException();
+		}
+		MicroBatcher<Msg> old = myBatcher;
+		myBatcher = new MicroBatcher<>(
+				new BatchSender(), maxBatchSize, maxDelay, unit);
+		myMaxBatchSize = maxBatchSize;
+		myMaxDelay = maxDelay;
+		myDelayUnit = unit;
+		if (old != null) {
+			old.close();
+		}
+	}
+
+	/**
+	 * Stops batching, sending any waiting Messages.
+	 */
+	public synchronized void disableBatching() {
+		myDelayUnit = null;
+		closeBatcher();
+	}
+
+	/**
+	 * Creates the batcher again if batching is enabled and it was closed by
+	 * closeBatcher.
+	 */
+	protected synchronized void openBatcher() {
+		if (myDelayUnit != null && myBatcher == null) {
+			myBatcher = new MicroBatcher<>(new BatchSender(),
+					myMaxBatchSize, myMaxDelay, myDelayUnit);
+		}
+	}
+
+	/**
+	 * Sends any waiting Messages and closes the batcher, stopping its
+	 * timer.  Batching stays enabled and resumes with openBatcher.
+	 */
+	protected synchronized void closeBatcher() {
+		MicroBatcher<Msg> old = myBatcher;
+		myBatcher = null;
+		if (old != null) {
+			old.close();
+		}
+	}
+
+	/**
+	 * Sends any Messages waiting in the current batch.
+	 */
+	public void flush() {
+		MicroBatcher<Msg> batcher = myBatcher;
+		if (batcher != null) {
+			batcher.flush();
+		}
+	}
+
 	@Override
 	public void start() throws Exception {
+		openBatcher();
 	}
 
 	@Override
 	public void stop() {
+		closeBatcher();
 	}
 
 	@Override
@@ -83,10 +173,62 @@ public class DefaultMessageSender<Msg, Rec> implements MessageSender<Msg> {
 					"Adapter returned null Record, unable to send message.");
 			return;
 		}
-		myRecordSender.sendRecord(record);
+		synchronized (mySendLock) {
+			sendRecord(record);
+		}
 		fireMessageEvent(message);
 	}
 
+	/**
+	 * Sends a batch of Messages, then notifies Listeners of the Messages
+	 * which were sent as a single batch.  If sending a Message throws, the
+	 * Messages already sent are still passed to Listeners before the
+	 * exception is rethrown, and the rest of the batch is not sent.
+	 * Other Messages are not sent in the middle of the batch.
+	 *
+	 * @param messages Messages to send
+	 */
+	public void sendMessages(List<Msg> messages) {
+		List<Msg> sent = new ArrayList<>(messages.size());
+		try {
+			synchronized (mySendLock) {
+				for (int i = 0, n = messages.size(); i < n; i++) {
+					Msg message = messages.get(i);
+					Rec record = getRecord(message);
+					if (record == null) {
+						theLogger.warn(
+								"Adapter returned null Record, unable to send message.");
+						continue;
+					}
+					sendRecord(record);
+					sent.add(message);
+				}
+			}
+		} catch (RuntimeException ex) {
+			theLogger.warn("Error sending batch, sent {} of {} messages.",
+					sent.size(), messages.size());
+			notifySent(sent);
+			throw ex;
+		}
+		notifySent(sent);
+	}
+
+	private void notifySent(List<Msg> sent) {
+		if (!sent.isEmpty()) {
+			myListeners.notifyEvents(sent);
+		}
+	}
+
+	/**
+	 * Sends a Record using the RecordSender.  Called while holding
+	 * mySendLock.
+	 *
+	 * @param record Record to send
+	 */
+	protected void sendRecord(Rec record) {
+		myRecordSender.sendRecord(record);
+	}
+
 	/**
 	 * Adapts a Message to a Record using an Adapter
 	 *
@@ -113,9 +255,7 @@ public class DefaultMessageSender<Msg, Rec> implements MessageSender<Msg> {
 	 * @param message Message being sent
 	 */
 	protected void fireMessageEvent(Msg message) {
-		for (Listener<Msg> listener : myListeners) {
-			listener.handleEvent(message);
-		}
+		myListeners.notifyListeners(message);
 	}
 
 	@Override
@@ -123,9 +263,7 @@ public class DefaultMessageSender<Msg, Rec> implements MessageSender<Msg> {
 		if (listener == null) {
 			return;
 		}
-		if (!myListeners.contains(listener)) {
-			myListeners.add(listener);
-		}
+		myListeners.addListener(listener);
 	}
 
 	@Override
@@ -133,12 +271,45 @@ public class DefaultMessageSender<Msg, Rec> implements MessageSender<Msg> {
 		if (listener == null) {
 			return;
 		}
-		myListeners.remove(listener);
+		myListeners.removeListener(listener);
 	}
 
 	@Override
 	public void handleEvent(Msg event) {
-		notifyListeners(event);
+		MicroBatcher<Msg> batcher = myBatcher;
+		if (batcher != null) {
+			batcher.handleEvent(event);
+		} else {
+			notifyListeners(event);
+		}
+	}
+
+	/**
+	 * Sends a batch of Messages, or adds them to the current batch if
+	 * batching is enabled.
+	 *
+	 * @param events Messages to send
+	 */
+	@Override
+	public void handleEvents(List<Msg> events) {
+		MicroBatcher<Msg> batcher = myBatcher;
+		if (batcher != null) {
+			batcher.handleEvents(events);
+		} else {
+			sendMessages(events);
+		}
+	}
+
+	class BatchSender implements BatchListener<Msg> {
+		@Override
+		public void handleEvent(Msg input) {
+			notifyListeners(input);
+		}
+
+		@Override
+		public void handleEvents(List<Msg> events) {
+			sendMessages(events);
+		}
 	}
 
 }
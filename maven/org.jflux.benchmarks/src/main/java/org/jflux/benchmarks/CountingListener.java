@@ -0,0 +1,40 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.benchmarks;
+
+import org.jflux.api.core.Listener;
+
+/**
+ * Listener which folds every event into a running total, so the work done
+ * by a benchmark cannot be optimized away.
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class CountingListener implements Listener<Integer> {
+    private long myTotal;
+
+    @Override
+    public void handleEvent(Integer input) {
+        myTotal += input == null ? 0 : input;
+    }
+
+    /**
+     * Get the sum of all received events
+     * @return running total
+     */
+    public long getTotal(){
+        return myTotal;
+    }
+}
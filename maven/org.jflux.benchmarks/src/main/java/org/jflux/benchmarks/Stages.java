@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.benchmarks;
+
+import org.jflux.api.core.Adapter;
+
+/**
+ * Small, distinct Adapter implementations used to build chains of varying
+ * depth.  Each stage is its own class so that long chains present the JIT
+ * with the same megamorphic call sites seen in real decode paths.  Results
+ * stay within the Integer cache to keep boxing out of the measurements.
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public final class Stages {
+    private final static Adapter[] theStages = {
+        new Stage0(), new Stage1(), new Stage2(), new Stage3(), new Stage4()
+    };
+
+    private Stages(){}
+
+    /**
+     * Get the Adapter for a position in a chain.  Positions cycle through
+     * the available stage classes.
+     * @param index position in the chain
+     * @return Adapter for the position
+     */
+    public static Adapter<Integer,Integer> stage(int index){
+        return theStages[index % theStages.length];
+    }
+
+    static class Stage0 implements Adapter<Integer,Integer> {
+        @Override public Integer adapt(Integer a) {
+            return (a + 1) & 0x7F;
+        }
+    }
+
+    static class Stage1 implements Adapter<Integer,Integer> {
+        @Override public Integer adapt(Integer a) {
+            return (a * 3) & 0x7F;
+        }
+    }
+
+    static class Stage2 implements Adapter<Integer,Integer> {
+        @Override public Integer adapt(Integer a) {
+            return (a ^ 0x55) & 0x7F;
+        }
+    }
+
+    static class Stage3 implements Adapter<Integer,Integer> {
+        @Override public Integer adapt(Integer a) {
+            return (a + 17) & 0x7F;
+        }
+    }
+
+    static class Stage4 implements Adapter<Integer,Integer> {
+        @Override public Integer adapt(Integer a) {
+            return (a >> 1) | (a & 1) << 6;
+        }
+    }
+}
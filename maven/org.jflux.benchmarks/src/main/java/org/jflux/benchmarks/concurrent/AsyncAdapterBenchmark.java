@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.benchmarks.concurrent;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jflux.api.core.Adapter;
+import org.jflux.api.data.concurrent.AsyncAdapter;
+import org.jflux.api.data.concurrent.AsyncExecutors;
+import org.jflux.benchmarks.Stages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the round trip of one asynchronous adapt call, comparing a new 
+ * Thread per call, as AsyncAdapter used to do, with the shared pool and 
+ * virtual threads.
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AsyncAdapterBenchmark {
+    /**
+     * Executor for AsyncAdapter.  Falls back to the shared pool when virtual
+     * threads are not supported.
+     */
+    @Param({"shared", "virtual"})
+    public String executor;
+
+    private Adapter<Integer,Integer> myStage;
+    private AsyncAdapter<Integer,Integer> myAdapter;
+    private Integer myInput;
+
+    @Setup
+    public void setup(){
+        myStage = Stages.stage(0);
+        Executor exec = AsyncExecutors.getSharedExecutor();
+        if("virtual".equals(executor) 
+                && AsyncExecutors.isVirtualThreadSupported()){
+            exec = AsyncExecutors.getVirtualThreadExecutor();
+        }
+        myAdapter = new AsyncAdapter<Integer,Integer>(myStage, exec);
+        myInput = 7;
+    }
+
+    @Benchmark
+    public Integer threadPerCall() throws Exception {
+        final AtomicReference<Integer> out = new AtomicReference<Integer>();
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                out.set(myStage.adapt(myInput));
+            }
+        });
+        t.start();
+        t.join();
+        return out.get();
+    }
+
+    @Benchmark
+    public Integer asyncAdapter() throws Exception {
+        return myAdapter.submit(myInput).get();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.benchmarks.core;
+
+import java.util.concurrent.TimeUnit;
+import org.jflux.api.core.Adapter;
+import org.jflux.api.core.chain.AdapterChain;
+import org.jflux.api.core.chain.AdapterChain.AdapterChainBuilder;
+import org.jflux.api.core.chain.NotifierChain;
+import org.jflux.api.core.chain.NotifierChain.NotifierChainBuilder;
+import org.jflux.api.core.util.CopyOnWriteNotifier;
+import org.jflux.benchmarks.CountingListener;
+import org.jflux.benchmarks.Stages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of AdapterChain and NotifierChain depth, comparing the
+ * list walk with the fused AdapterChain.compile() form.  Inputs cycle through
+ * a small array so the JIT cannot hoist a fused chain out of the loop as a
+ * constant.
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AdapterChainBenchmark {
+    @Param({"2", "5", "10"})
+    public int depth;
+
+    private Adapter<Integer,Integer> myWalkedChain;
+    private Adapter<Integer,Integer> myCompiledChain;
+    private CopyOnWriteNotifier<Integer> mySource;
+    private CountingListener myListener;
+    private Integer[] myInputs;
+    private int myIndex;
+
+    @Setup
+    public void setup(){
+        AdapterChainBuilder<Integer,Integer> builder =
+                new AdapterChainBuilder<Integer,Integer>();
+        NotifierChainBuilder<Integer,Integer> notifierBuilder =
+                new NotifierChainBuilder<Integer,Integer>();
+        for(int i = 0; i < depth; i++){
+            builder.attach(Stages.stage(i));
+            notifierBuilder.attach(Stages.stage(i));
+        }
+        myWalkedChain = builder.done();
+        myCompiledChain = ((AdapterChain<Integer,Integer>)myWalkedChain).compile();
+        
+        mySource = new CopyOnWriteNotifier<Integer>();
+        myListener = new CountingListener();
+        NotifierChain<Integer,Integer> notifierChain = 
+                notifierBuilder.setNotifier(mySource).done();
+        notifierChain.addListener(myListener);
+        myInputs = new Integer[128];
+        for(int i = 0; i < myInputs.length; i++){
+            myInputs[i] = i;
+        }
+    }
+
+    private Integer nextInput(){
+        return myInputs[myIndex++ & 0x7F];
+    }
+
+    @Benchmark
+    public Integer walkedAdapterChain(){
+        return myWalkedChain.adapt(nextInput());
+    }
+
+    @Benchmark
+    public Integer compiledAdapterChain(){
+        return myCompiledChain.adapt(nextInput());
+    }
+
+    @Benchmark
+    public void notifierChain(){
+        mySource.notifyListeners(nextInput());
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.benchmarks.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.jflux.api.core.Adapter;
+import org.jflux.api.core.util.BatchAdapter;
+import org.jflux.api.core.util.ListMergeAdapter;
+import org.jflux.api.core.util.ParallelBatchAdapter;
+import org.jflux.api.core.util.ParallelListMergeAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares sequential and fork/join batch conversion and list merging over a
+ * range of sizes, to find the size where the parallel versions start to pay
+ * off.  The parallel adapters are built with the minimum threshold and their
+ * own pool of at least two threads, so they always split, even on a machine
+ * whose default pool would run sequentially; the crossover is the smallest
+ * size where they beat the sequential time, and should be used to choose the
+ * thresholds.  Results are only meaningful with at least as many cores as
+ * pool threads.
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchAdapterBenchmark {
+    @Param({"64", "512", "2048", "8192", "65536"})
+    public int size;
+
+    /**
+     * Iterations of busy work per item, standing in for cheap field copies
+     * and costly record decoding
+     */
+    @Param({"1", "100"})
+    public int work;
+
+    /**
+     * Threads in the pool used by the parallel adapters
+     */
+    @Param({"2", "4"})
+    public int parallelism;
+
+    private ForkJoinPool myPool;
+    private List<Integer> myItems;
+    private List<List<Integer>> myLists;
+    private BatchAdapter<Integer,Integer> mySequential;
+    private BatchAdapter<Integer,Integer> myParallel;
+    private ListMergeAdapter<Integer> mySequentialMerge;
+    private ListMergeAdapter<Integer> myParallelMerge;
+
+    @Setup
+    public void setup(){
+        myItems = new ArrayList<Integer>(size);
+        for(int i = 0; i < size; i++){
+            myItems.add(i);
+        }
+        myLists = new ArrayList<List<Integer>>();
+        for(int i = 0; i < size; i += 64){
+            myLists.add(myItems.subList(i, Math.min(size, i + 64)));
+        }
+        Adapter<Integer,Integer> adapter = new Work(work);
+        myPool = new ForkJoinPool(parallelism);
+        mySequential = new BatchAdapter<Integer,Integer>(adapter);
+        myParallel = new ParallelBatchAdapter<Integer,Integer>(
+                adapter, 2, myPool);
+        mySequentialMerge = new ListMergeAdapter<Integer>();
+        myParallelMerge = new ParallelListMergeAdapter<Integer>(2, myPool);
+    }
+
+    @TearDown
+    public void tearDown(){
+        myPool.shutdown();
+    }
+
+    @Benchmark
+    public List<Integer> adaptSequential(){
+        return mySequential.adapt(myItems);
+    }
+
+    @Benchmark
+    public List<Integer> adaptParallel(){
+        return myParallel.adapt(myItems);
+    }
+
+    @Benchmark
+    public List<Integer> mergeSequential(){
+        return mySequentialMerge.adapt(myLists);
+    }
+
+    @Benchmark
+    public List<Integer> mergeParallel(){
+        return myParallelMerge.adapt(myLists);
+    }
+
+    static class Work implements Adapter<Integer,Integer> {
+        private final int myIterations;
+
+        Work(int iterations){
+            myIterations = iterations;
+        }
+
+        @Override
+        public Integer adapt(Integer a) {
+            int x = a | 1;
+            for(int i = 0; i < myIterations; i++){
+                x ^= x << 13;
+                x ^= x >>> 17;
+                x ^= x << 5;
+            }
+            return x;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.benchmarks.core;
+
+import java.util.concurrent.TimeUnit;
+import org.jflux.api.core.config.DefaultConfiguration;
+import org.jflux.api.core.config.FrozenConfig;
+import org.jflux.api.core.config.FrozenConfig.Handle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading a configuration property by String key from a
+ * DefaultConfiguration and a FrozenConfig, and through a resolved Handle.
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConfigBenchmark {
+    @Param({"8", "64"})
+    public int propertyCount;
+
+    private DefaultConfiguration<String> myConfig;
+    private FrozenConfig<String> myFrozenConfig;
+    private Handle<Integer> myHandle;
+    private String myKey;
+
+    @Setup
+    public void setup(){
+        myConfig = new DefaultConfiguration<String>();
+        for(int i = 0; i < propertyCount; i++){
+            myConfig.addProperty(Integer.class, "property_" + i, i);
+        }
+        myFrozenConfig = myConfig.freeze();
+        myKey = new String("property_" + (propertyCount / 2));
+        myHandle = myFrozenConfig.getHandle(Integer.class, myKey);
+    }
+
+    @Benchmark
+    public Integer defaultConfig(){
+        return myConfig.getPropertyValue(Integer.class, myKey);
+    }
+
+    @Benchmark
+    public Integer frozenConfig(){
+        return myFrozenConfig.getPropertyValue(Integer.class, myKey);
+    }
+
+    @Benchmark
+    public Integer frozenConfigHandle(){
+        return myHandle.getValue();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.benchmarks.core;
+
+import java.util.concurrent.TimeUnit;
+import org.jflux.api.core.Notifier;
+import org.jflux.api.core.node.DefaultProducerNode;
+import org.jflux.api.core.node.chain.NodeChain;
+import org.jflux.api.core.node.chain.NodeChainBuilder;
+import org.jflux.api.core.util.CopyOnWriteNotifier;
+import org.jflux.benchmarks.CountingListener;
+import org.jflux.benchmarks.Stages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency from a NodeChain's producer to its consumer.
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NodeChainBenchmark {
+    @Param({"1", "4", "10"})
+    public int processorCount;
+
+    private NodeChain myChain;
+    private Notifier<Integer> myProducerNotifier;
+    private CountingListener myConsumer;
+    private Integer myInput;
+
+    @Setup
+    public void setup(){
+        DefaultProducerNode<Integer> producer = 
+                new DefaultProducerNode<Integer>(
+                        new CopyOnWriteNotifier<Integer>());
+        NodeChainBuilder<Integer,Integer> builder =
+                NodeChainBuilder.build(producer);
+        for(int i = 0; i < processorCount; i++){
+            builder = builder.attach(Stages.stage(i));
+        }
+        myConsumer = new CountingListener();
+        myChain = builder.attach(myConsumer);
+        myChain.start();
+        myProducerNotifier = producer.getNotifier();
+        myInput = 7;
+    }
+
+    @TearDown
+    public void tearDown(){
+        myChain.stop();
+    }
+
+    @Benchmark
+    public void producerToConsumer(){
+        myProducerNotifier.notifyListeners(myInput);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.benchmarks.core;
+
+import java.util.concurrent.TimeUnit;
+import org.jflux.api.core.Notifier;
+import org.jflux.api.core.util.NotifierFactory;
+import org.jflux.api.core.util.NotifierFactory.DispatchMode;
+import org.jflux.benchmarks.CountingListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures fan-out cost of sending one event to many Listeners.
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NotifierBenchmark {
+    @Param({"1", "8", "64"})
+    public int listenerCount;
+
+    @Param({"DEFAULT", "COPY_ON_WRITE"})
+    public DispatchMode dispatchMode;
+
+    private Notifier<Integer> myNotifier;
+    private CountingListener[] myListeners;
+    private Integer myEvent;
+
+    @Setup
+    public void setup(){
+        myNotifier = NotifierFactory.createNotifier(dispatchMode);
+        myListeners = new CountingListener[listenerCount];
+        for(int i = 0; i < listenerCount; i++){
+            myListeners[i] = new CountingListener();
+            myNotifier.addListener(myListeners[i]);
+        }
+        myEvent = 42;
+    }
+
+    @Benchmark
+    public void notifyListeners(){
+        myNotifier.notifyListeners(myEvent);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.benchmarks.data;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jflux.api.data.buffer.CircularBuffer;
+import org.jflux.api.data.buffer.ConcurrentCircularBuffer;
+import org.jflux.api.data.buffer.IntCircularBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures CircularBuffer, ConcurrentCircularBuffer and IntCircularBuffer add,
+ * indexed get and snapshot copies.
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CircularBufferBenchmark {
+    @Param({"16", "1024"})
+    public int capacity;
+
+    private CircularBuffer<Integer> myBuffer;
+    private ConcurrentCircularBuffer<Integer> myConcurrentBuffer;
+    private IntCircularBuffer myIntBuffer;
+    private int[] myCopy;
+    private Integer myValue;
+    private int myIndex;
+
+    /**
+     * Fills the buffers exactly to capacity.
+     */
+    @Setup
+    public void setup(){
+        myBuffer = new CircularBuffer<Integer>(capacity);
+        myConcurrentBuffer = new ConcurrentCircularBuffer<Integer>(capacity);
+        myIntBuffer = new IntCircularBuffer(capacity);
+        myCopy = new int[capacity];
+        for(int i = 0; i < capacity; i++){
+            myBuffer.add(i & 0x7F);
+            myConcurrentBuffer.add(i & 0x7F);
+            myIntBuffer.add(i & 0x7F);
+        }
+        myValue = 42;
+        myIndex = capacity / 2;
+    }
+
+    @Benchmark
+    public void add(){
+        myBuffer.add(myValue);
+    }
+
+    @Benchmark
+    public Integer get(){
+        return myBuffer.get(myIndex);
+    }
+
+    @Benchmark
+    public List<Integer> getValueList(){
+        return myBuffer.getValueList();
+    }
+
+    @Benchmark
+    public void concurrentAdd(){
+        myConcurrentBuffer.add(myValue);
+    }
+
+    @Benchmark
+    public Integer concurrentGet(){
+        return myConcurrentBuffer.get(myIndex);
+    }
+
+    @Benchmark
+    public List<Integer> concurrentGetValueList(){
+        return myConcurrentBuffer.getValueList();
+    }
+
+    @Benchmark
+    public double primitiveAdd(){
+        myIntBuffer.add(myIndex);
+        return myIntBuffer.getMean();
+    }
+
+    @Benchmark
+    public int primitiveGet(){
+        return myIntBuffer.get(myIndex);
+    }
+
+    @Benchmark
+    public int[] primitiveCopyTo(){
+        myIntBuffer.copyTo(myCopy);
+        return myCopy;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.benchmarks.data;
+
+import java.util.concurrent.TimeUnit;
+import org.jflux.api.core.util.EmptyAdapter;
+import org.jflux.api.data.routing.Router.DefaultRouter;
+import org.jflux.api.data.routing.Router.IndexAdapter;
+import org.jflux.benchmarks.CountingListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures routing an event to one of many routes by key, with hashed and
+ * array-indexed route lookup.
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RouterBenchmark {
+    @Param({"4", "64"})
+    public int routeCount;
+
+    private DefaultRouter<Integer,Integer> myRouter;
+    private DefaultRouter<Integer,Integer> myIndexedRouter;
+    private Integer[] myEvents;
+    private int myNext;
+
+    @Setup
+    public void setup(){
+        myRouter = new DefaultRouter<Integer,Integer>(
+                new EmptyAdapter<Integer,Integer>());
+        myIndexedRouter = DefaultRouter.forIntKeys(
+                new IndexAdapter<Integer>() {
+                    @Override
+                    public int getIndex(Integer value) {
+                        return value;
+                    }
+                }, routeCount);
+        myEvents = new Integer[routeCount];
+        for(int i = 0; i < routeCount; i++){
+            myRouter.addRoute(i, new CountingListener());
+            myIndexedRouter.addRoute(i, new CountingListener());
+            myEvents[i] = i;
+        }
+        myNext = 0;
+    }
+
+    @Benchmark
+    public void handleEvent(){
+        myRouter.handleEvent(myEvents[myNext]);
+        myNext = (myNext + 1) % routeCount;
+    }
+
+    @Benchmark
+    public void handleEventIndexed(){
+        myIndexedRouter.handleEvent(myEvents[myNext]);
+        myNext = (myNext + 1) % routeCount;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.benchmarks.encode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.jflux.api.core.Adapter;
+import org.jflux.api.core.Source;
+import org.jflux.api.core.util.ObjectPool;
+import org.jflux.api.encode.EncodeRequest;
+import org.jflux.avrogen.EventRecord;
+import org.jflux.avrogen.HeaderRecord;
+import org.jflux.impl.encode.avro.AvroDecoder;
+import org.jflux.impl.encode.avro.AvroEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures Avro encoding and decoding of EventRecords through the AvroEncoder
+ * and AvroDecoder Adapters.
+ *
+ * decodeReuse and decodePooled overwrite an existing record instead of
+ * allocating one.  Run with -prof gc to compare allocation per message:
+ *     java -jar target/benchmarks.jar AvroBenchmark -prof gc
+ *
+ * EventRecord is generated with straight-line encode/decode methods, which
+ * the Adapters call directly.  encodeDatumWriter and decodeDatumReader
+ * measure the same records through Avro's SpecificDatumWriter and
+ * SpecificDatumReader for comparison.
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AvroBenchmark {
+    @Param({"16", "1024"})
+    public int payloadSize;
+
+    private Adapter<EncodeRequest<EventRecord,ByteArrayOutputStream>,
+            ByteArrayOutputStream> myEncoder;
+    private AvroDecoder<ByteArrayInputStream,EventRecord> myDecoder;
+    private AvroDecoder<ByteArrayInputStream,EventRecord> myPooledDecoder;
+    private ObjectPool<EventRecord> myRecordPool;
+    private EventRecord myReuse;
+    private EventRecord myRecord;
+    private ByteArrayOutputStream myStream;
+    private byte[] myEncoded;
+    private DatumWriter<EventRecord> myDatumWriter;
+    private DatumReader<EventRecord> myDatumReader;
+    private BinaryEncoder myBinaryEncoder;
+    private BinaryDecoder myBinaryDecoder;
+
+    @Setup
+    public void setup(){
+        myEncoder = AvroEncoder.buildSpecificBinaryEncoder(EventRecord.class);
+        myDecoder = AvroDecoder.buildByteStreamDecoder(EventRecord.class);
+        myPooledDecoder =
+                AvroDecoder.buildByteStreamDecoder(EventRecord.class);
+        myRecordPool = new ObjectPool<EventRecord>(new Source<EventRecord>() {
+            @Override
+            public EventRecord getValue() {
+                return new EventRecord();
+            }
+        }, 16);
+        myPooledDecoder.setRecordPool(myRecordPool);
+
+        Map<String,String> props = new HashMap<String, String>();
+        props.put("benchmark", "avro");
+        HeaderRecord header = HeaderRecord.newBuilder()
+                .setSourceReference("benchmark.source")
+                .setEventType("benchmark.event")
+                .setTimestamp(System.currentTimeMillis())
+                .setHeaderProperties(props)
+                .build();
+        byte[] data = new byte[payloadSize];
+        for(int i = 0; i < data.length; i++){
+            data[i] = (byte)i;
+        }
+        myRecord = EventRecord.newBuilder()
+                .setHeader(header)
+                .setData(ByteBuffer.wrap(data))
+                .build();
+
+        myStream = new ByteArrayOutputStream(payloadSize + 128);
+        myEncoded = encode().toByteArray();
+        myReuse = decode();
+
+        myDatumWriter = new SpecificDatumWriter<EventRecord>(EventRecord.class);
+        myDatumReader = new SpecificDatumReader<EventRecord>(EventRecord.class);
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream encode(){
+        myStream.reset();
+        myRecord.getData().rewind();
+        return myEncoder.adapt(new EncodeRequest<EventRecord,
+                ByteArrayOutputStream>(myRecord, myStream));
+    }
+
+    @Benchmark
+    public EventRecord decode(){
+        return myDecoder.adapt(new ByteArrayInputStream(myEncoded));
+    }
+
+    @Benchmark
+    public EventRecord decodeReuse(){
+        return myDecoder.adapt(new ByteArrayInputStream(myEncoded), myReuse);
+    }
+
+    @Benchmark
+    public EventRecord decodePooled(){
+        EventRecord record =
+                myPooledDecoder.adapt(new ByteArrayInputStream(myEncoded));
+        myRecordPool.recycle(record);
+        return record;
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream encodeDatumWriter() throws IOException{
+        myStream.reset();
+        myRecord.getData().rewind();
+        myBinaryEncoder =
+                EncoderFactory.get().binaryEncoder(myStream, myBinaryEncoder);
+        myDatumWriter.write(myRecord, myBinaryEncoder);
+        myBinaryEncoder.flush();
+        return myStream;
+    }
+
+    @Benchmark
+    public EventRecord decodeDatumReader() throws IOException{
+        myBinaryDecoder = DecoderFactory.get().binaryDecoder(
+                myEncoded, myBinaryDecoder);
+        return myDatumReader.read(myReuse, myBinaryDecoder);
+    }
+
+    @Benchmark
+    public EventRecord roundTrip(){
+        ByteArrayOutputStream out = encode();
+        return myDecoder.adapt(new ByteArrayInputStream(
+                out.toByteArray()));
+    }
+}
@@ -18,6 +18,7 @@ package org.jflux.impl.encode.avro;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
@@ -25,16 +26,31 @@ import org.apache.avro.specific.SpecificData;
 import org.apache.avro.specific.SpecificDatumReader;
 import org.apache.avro.specific.SpecificRecordBase;
 import org.jflux.api.core.Adapter;
+import org.jflux.api.core.util.ObjectPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Constructor;
 
 /**
  * Decodes Avro messages into record objects.
  *
+ * Binary decoders and their read buffers are kept per thread and reused, so
+ * one AvroDecoder may be shared by any number of receiver threads without
+ * allocating a new BinaryDecoder for each message.
+ *
+ * Records are newly allocated by default.  A record to decode into can be
+ * passed to adapt(S, T), or a pool can be set with setRecordPool.  Avro
+ * reuses the nested records, collections and buffers of a reused record, so
+ * the caller must be finished with the previous contents before it is reused.
+ *
+ * Binary data for an EncodableRecord class, written with the class's own
+ * schema, is read with the record's generated decode method instead of the
+ * resolving DatumReader.
+ *
  * @param <S> the type of message stream to decode
  * @param <T> the type of record to decode to
  * @author Matthew Stevenson <www.jflux.org>
@@ -46,6 +62,10 @@ public class AvroDecoder<S extends InputStream, T extends IndexedRecord>
 	private DecoderFactory myDecoderFactory;
 	private boolean myJsonFlag;
 	private Schema mySchema;
+	private final ThreadLocal<BinaryDecoder> myBinaryDecoders =
+			new ThreadLocal<>();
+	private volatile ObjectPool<T> myRecordPool;
+	private Constructor<T> myRecordConstructor;
 
 	/**
 	 * Builds a decoder to convert from a ByteArrayInputStream to a SpecificRecordBase.
@@ -128,6 +148,34 @@ public class AvroDecoder<S extends InputStream, T extends IndexedRecord>
 		myDecoderFactory = DecoderFactory.get();
 		myJsonFlag = json;
 		mySchema = schema;
+		if (!json && EncodableRecords.isEncodable(clazz, schema)) {
+			try {
+				myRecordConstructor = clazz.getConstructor();
+			} catch (NoSuchMethodException ex) {
+				myRecordConstructor = null;
+			}
+		}
+	}
+
+	/**
+	 * Sets a pool of records to decode into.  Each call to adapt(S) acquires a
+	 * record from the pool and overwrites it.  The receiver of the record is
+	 * responsible for recycling it to the pool once it is no longer used.
+	 *
+	 * @param pool pool of records to decode into, or null to allocate a new
+	 *             record for each message
+	 */
+	public void setRecordPool(ObjectPool<T> pool) {
+		myRecordPool = pool;
+	}
+
+	/**
+	 * Returns the pool of records decoded into by adapt(S).
+	 *
+	 * @return the record pool, or null if new records are allocated
+	 */
+	public ObjectPool<T> getRecordPool() {
+		return myRecordPool;
 	}
 
 	private SpecificDatumReader<T> buildSpecificReader(
@@ -147,6 +195,29 @@ public class AvroDecoder<S extends InputStream, T extends IndexedRecord>
 
 	@Override
 	public T adapt(S a) {
+		if (a == null) {
+			return null;
+		}
+		ObjectPool<T> pool = myRecordPool;
+		if (pool == null) {
+			return adapt(a, null);
+		}
+		T reuse = pool.acquire();
+		T record = adapt(a, reuse);
+		if (record == null) {
+			pool.recycle(reuse);
+		}
+		return record;
+	}
+
+	/**
+	 * Decodes a record from the stream into an existing record.
+	 *
+	 * @param a     stream to decode
+	 * @param reuse record to overwrite, or null to allocate a new record
+	 * @return the decoded record, or null if the stream could not be decoded
+	 */
+	public T adapt(S a, T reuse) {
 		if (a == null) {
 			return null;
 		}
@@ -155,12 +226,28 @@ public class AvroDecoder<S extends InputStream, T extends IndexedRecord>
 			if (myJsonFlag) {
 				decoder = myDecoderFactory.jsonDecoder(mySchema, a);
 			} else {
-				decoder = myDecoderFactory.binaryDecoder(a, null);
+				BinaryDecoder cached = myBinaryDecoders.get();
+				BinaryDecoder binary =
+						myDecoderFactory.binaryDecoder(a, cached);
+				if (binary != cached) {
+					myBinaryDecoders.set(binary);
+				}
+				decoder = binary;
+			}
+			Constructor<T> constructor = myRecordConstructor;
+			if (constructor != null) {
+				T record = reuse != null ? reuse : constructor.newInstance();
+				((EncodableRecord) record).decode(decoder);
+				return record;
 			}
-			return myReader.read(null, decoder);
+			return myReader.read(reuse, decoder);
 		} catch (IOException ex) {
+			myBinaryDecoders.remove();
 			theLogger.warn("There was an error decoding the stream.", ex);
 			return null;
+		} catch (ReflectiveOperationException ex) {
+			theLogger.warn("Unable to create a record to decode into.", ex);
+			return null;
 		}
 	}
 }
@@ -18,6 +18,7 @@ package org.jflux.impl.encode.avro;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.Encoder;
 import org.apache.avro.io.EncoderFactory;
@@ -34,6 +35,13 @@ import java.io.OutputStream;
 /**
  * Encodes record objects into Avro data
  *
+ * Binary encoders and their write buffers are kept per thread and reused, so
+ * one AvroEncoder may be shared by any number of sender threads without
+ * allocating a new BinaryEncoder for each message.
+ *
+ * Binary records of an EncodableRecord class are written with the record's
+ * generated encode method instead of the DatumWriter.
+ *
  * @param <T> the type of record object to encode from
  * @param <S> the type of message stream to encode to
  * @author Matthew Stevenson <www.jflux.org>
@@ -41,10 +49,13 @@ import java.io.OutputStream;
 public class AvroEncoder<T extends IndexedRecord, S extends OutputStream>
 		implements Adapter<EncodeRequest<T, S>, S> {
 	private static final Logger theLogger = LoggerFactory.getLogger(AvroEncoder.class);
-	private DatumWriter<T> myWriter;
+	private volatile DatumWriter<T> myWriter;
 	private EncoderFactory myEncoderFactory;
 	private boolean myJsonFlag;
-	private Schema mySchema;
+	private volatile Schema mySchema;
+	private volatile boolean myDirectFlag;
+	private final ThreadLocal<BinaryEncoder> myBinaryEncoders =
+			new ThreadLocal<>();
 
 	/**
 	 * Builds an encoder to convert from a SpecificRecordBase.
@@ -116,13 +127,15 @@ public class AvroEncoder<T extends IndexedRecord, S extends OutputStream>
 			throw new NullPointerException();
 		}
 		myEncoderFactory = EncoderFactory.get();
+		myJsonFlag = json;
+		mySchema = schema;
 		if (clazz != null && SpecificRecordBase.class.isAssignableFrom(clazz)) {
 			myWriter = new SpecificDatumWriter<>(clazz);
+			myDirectFlag = !json && EncodableRecords.isEncodable(clazz, null);
 		} else {
 			myWriter = new GenericDatumWriter<>(schema);
+			myDirectFlag = !json && EncodableRecords.isEncodable(clazz, schema);
 		}
-		myJsonFlag = json;
-		mySchema = schema;
 	}
 
 	/**
@@ -151,31 +164,51 @@ public class AvroEncoder<T extends IndexedRecord, S extends OutputStream>
 	public void setType(Class<T> clazz, Schema schema) {
 		if ((clazz == null && schema == null) || (myJsonFlag && schema == null)) {
 			myWriter = null;
+			myDirectFlag = false;
 			return;
 		}
 		mySchema = schema;
 		if (clazz != null && SpecificRecordBase.class.isAssignableFrom(clazz)) {
 			myWriter = new SpecificDatumWriter<>(clazz);
+			myDirectFlag = !myJsonFlag && EncodableRecords.isEncodable(clazz, null);
 		} else {
 			myWriter = new GenericDatumWriter<>(mySchema);
+			myDirectFlag = !myJsonFlag && EncodableRecords.isEncodable(clazz, schema);
 		}
 	}
 
 	@Override
 	public S adapt(EncodeRequest<T, S> a) {
+		DatumWriter<T> writer = myWriter;
 		if (a == null || a.getValue() == null ||
-				a.getStream() == null || myWriter == null) {
+				a.getStream() == null || writer == null) {
 			return null;
 		}
 		try {
 			S out = a.getStream();
-			Encoder e = (myJsonFlag ?
-					myEncoderFactory.jsonEncoder(mySchema, out) :
-					myEncoderFactory.binaryEncoder(out, null));
-			myWriter.write(a.getValue(), e);
+			Encoder e;
+			if (myJsonFlag) {
+				e = myEncoderFactory.jsonEncoder(mySchema, out);
+			} else {
+				BinaryEncoder cached = myBinaryEncoders.get();
+				BinaryEncoder binary =
+						myEncoderFactory.binaryEncoder(out, cached);
+				if (binary != cached) {
+					myBinaryEncoders.set(binary);
+				}
+				e = binary;
+			}
+			if (myDirectFlag) {
+				((EncodableRecord) a.getValue()).encode(e);
+			} else {
+				writer.write(a.getValue(), e);
+			}
 			e.flush();
 			return out;
 		} catch (IOException ex) {
+			// A failed write can leave unflushed bytes in the encoder, which
+			// must not be written to the next stream.
+			myBinaryEncoders.remove();
 			theLogger.warn("Error writing Avro record to OutputStream.", ex);
 			return null;
 		}
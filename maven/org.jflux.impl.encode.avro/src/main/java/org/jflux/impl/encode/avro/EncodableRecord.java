@@ -0,0 +1,54 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.impl.encode.avro;
+
+import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+
+import java.io.IOException;
+
+/**
+ * Record which serializes itself with straight-line code generated from its
+ * schema, instead of through a DatumWriter or DatumReader.  Records generated
+ * with the org.jflux.resource.avrogen.templates templates implement this.
+ *
+ * The generated code only handles the record's own schema, so it is used for
+ * binary data whose writer and reader schemas are both the record schema.
+ * Other data must still go through a resolving DatumReader.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public interface EncodableRecord extends IndexedRecord {
+
+	/**
+	 * Writes this record with its schema.
+	 *
+	 * @param out Encoder to write to
+	 * @throws IOException if the record cannot be written
+	 */
+	public void encode(Encoder out) throws IOException;
+
+	/**
+	 * Replaces the fields of this record with a record read from the Decoder.
+	 * Nested records, collections and buffers are reused where possible.
+	 *
+	 * @param in Decoder to read from, positioned at data written with this
+	 *           record's schema
+	 * @throws IOException if the record cannot be read
+	 */
+	public void decode(Decoder in) throws IOException;
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.impl.encode.avro;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.specific.SpecificData;
+
+/**
+ * Utility methods for choosing between the generated encode/decode methods of
+ * an EncodableRecord and a DatumWriter/DatumReader.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public final class EncodableRecords {
+	private static final ClassValue<Schema> theSchemas =
+			new ClassValue<Schema>() {
+				@Override
+				protected Schema computeValue(Class<?> type) {
+					if (!EncodableRecord.class.isAssignableFrom(type)) {
+						return null;
+					}
+					try {
+						return SpecificData.get().getSchema(type);
+					} catch (AvroRuntimeException ex) {
+						return null;
+					}
+				}
+			};
+
+	private EncodableRecords() {
+	}
+
+	/**
+	 * Returns the schema of an EncodableRecord class.  The result is cached
+	 * with the class.
+	 *
+	 * @param clazz the record class
+	 * @return the schema the class's encode/decode methods were generated
+	 * from, or null if the class is not an EncodableRecord
+	 */
+	public static Schema getSchema(Class<?> clazz) {
+		if (clazz == null) {
+			throw new NullPointerException();
+		}
+		return theSchemas.get(clazz);
+	}
+
+	/**
+	 * Checks if records of a class can be encoded and decoded with their
+	 * generated methods when the given schema is used for both writing and
+	 * reading.
+	 *
+	 * @param clazz  the record class, may be null
+	 * @param schema the schema used for the data, or null to use the class's
+	 *               own schema
+	 * @return true if the class is an EncodableRecord with the given schema
+	 */
+	public static boolean isEncodable(Class<?> clazz, Schema schema) {
+		if (clazz == null) {
+			return false;
+		}
+		Schema classSchema = theSchemas.get(clazz);
+		return classSchema != null && (schema == null
+				|| schema == classSchema || schema.equals(classSchema));
+	}
+
+	/**
+	 * Checks if a record can be encoded with its generated methods as data
+	 * with the given schema.
+	 *
+	 * @param record the record, may be null
+	 * @param schema the schema used for the data, or null to use the record's
+	 *               own schema
+	 * @return true if the record is an EncodableRecord with the given schema
+	 */
+	public static boolean isEncodable(IndexedRecord record, Schema schema) {
+		if (!(record instanceof EncodableRecord)) {
+			return false;
+		}
+		Schema recordSchema = record.getSchema();
+		return schema == null || schema == recordSchema
+				|| schema.equals(recordSchema);
+	}
+}
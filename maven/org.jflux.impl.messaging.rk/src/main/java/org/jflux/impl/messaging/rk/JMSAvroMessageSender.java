@@ -76,18 +76,22 @@ public class JMSAvroMessageSender<Msg, Rec extends IndexedRecord> extends
 		JMSAvroRecordSender<Rec> recordSender =
 				new JMSAvroRecordSender<>(myBytesSender);
 		setRecordSender(recordSender);
+		openBatcher();
 	}
 
 	/**
-	 * Closes the JMSRecordReceiver.
+	 * Sends any batched Messages, then closes the JMSRecordReceiver.
 	 */
 	@Override
 	public void stop() {
+		closeBatcher();
 		if (myRecordSender == null ||
 				!(myRecordSender instanceof JMSAvroRecordSender)) {
 			return;
 		}
-		myBytesSender.closeProducer();
+		synchronized (mySendLock) {
+			myBytesSender.closeProducer();
+		}
 	}
 
 	public void setDefaultContentType(String contentType) {
@@ -103,6 +107,23 @@ public class JMSAvroMessageSender<Msg, Rec extends IndexedRecord> extends
 		}
 	}
 
+	/**
+	 * Sends a Record with the default content type, if one is set.  Used when
+	 * sending batches.
+	 *
+	 * @param record Record to send
+	 */
+	@Override
+	protected void sendRecord(Rec record) {
+		if (myDefaultContentType != null
+				&& myRecordSender instanceof JMSAvroRecordSender) {
+			((JMSAvroRecordSender) myRecordSender).sendRecord(
+					record, myDefaultContentType);
+		} else {
+			super.sendRecord(record);
+		}
+	}
+
 	/**
 	 * Adapts the given Message to an Avro Record and sends it via JMS with the
 	 * given JMS header content type.
@@ -117,11 +138,13 @@ public class JMSAvroMessageSender<Msg, Rec extends IndexedRecord> extends
 					"Adapter returned null Record, unable to send message.");
 			return;
 		}
-		if (myRecordSender instanceof JMSAvroRecordSender) {
-			((JMSAvroRecordSender) myRecordSender).sendRecord(
-					record, contentType);
-		} else {
-			myRecordSender.sendRecord(record);
+		synchronized (mySendLock) {
+			if (myRecordSender instanceof JMSAvroRecordSender) {
+				((JMSAvroRecordSender) myRecordSender).sendRecord(
+						record, contentType);
+			} else {
+				myRecordSender.sendRecord(record);
+			}
 		}
 	}
 }
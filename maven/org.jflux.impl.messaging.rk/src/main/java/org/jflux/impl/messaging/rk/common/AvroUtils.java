@@ -24,29 +24,36 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import org.apache.avro.Schema;
-import org.apache.avro.generic.GenericDatumReader;
-import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.Encoder;
 import org.apache.avro.io.EncoderFactory;
-import org.apache.avro.specific.SpecificData;
-import org.apache.avro.specific.SpecificDatumReader;
-import org.apache.avro.specific.SpecificDatumWriter;
-import org.apache.avro.specific.SpecificRecordBase;
+import org.jflux.impl.encode.avro.EncodableRecord;
+import org.jflux.impl.encode.avro.EncodableRecords;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Reads and writes Avro records.  Binary data for EncodableRecords, using the
+ * record's own schema, is read and written with the record's generated
+ * methods instead of a DatumReader or DatumWriter.
  *
  * @author Matthew Stevenson <www.robokind.org>
  */
 public class AvroUtils {
     private final static Logger theLogger = 
             LoggerFactory.getLogger(AvroUtils.class);
+    private final static ThreadLocal<BinaryEncoder> theBinaryEncoders =
+            new ThreadLocal<BinaryEncoder>();
+    private final static ThreadLocal<BinaryDecoder> theStreamDecoders =
+            new ThreadLocal<BinaryDecoder>();
+    private final static ThreadLocal<BinaryDecoder> theArrayDecoders =
+            new ThreadLocal<BinaryDecoder>();
     
     public static <T extends IndexedRecord> T readFromStream(
             Class<T> c, T reuse, Schema schema, InputStream in, boolean json)
@@ -57,34 +64,67 @@ public class AvroUtils {
             Class<T> c, T reuse, Schema schema, InputStream in, boolean json, ClassLoader classLoader)
             throws IOException{
         DecoderFactory dFact = DecoderFactory.get();
-        DatumReader<T> r = null;
-        if((c != null && SpecificRecordBase.class.isAssignableFrom(c))
-                || (classLoader != null && schema != null)){
-            r = buildSpecificReader(c, schema, classLoader);
-        }
-        if(r == null && schema != null){
-            r = new GenericDatumReader<T>(schema);
+        Decoder wrapped;
+        if(json){
+            wrapped = dFact.jsonDecoder(schema, in);
+        }else{
+            BinaryDecoder b = dFact.binaryDecoder(in, theStreamDecoders.get());
+            theStreamDecoders.set(b);
+            if(EncodableRecords.isEncodable(c, schema)){
+                return decodeRecord(c, reuse, b);
+            }
+            wrapped = b;
         }
-        Decoder wrapped = (json ? 
-                dFact.jsonDecoder(schema, in) :
-                dFact.binaryDecoder(in, null));
+        DatumReader<T> r = DatumCache.getDefault().getReader(
+                c, schema, schema, classLoader);
         //Decoder d = dFact.validatingDecoder(schema, wrapped);
         return r.read(reuse, wrapped);
     }
     
-    private static <T> SpecificDatumReader<T> buildSpecificReader(
-            Class<T> clazz, Schema schema, ClassLoader classLoader){
-        if(classLoader == null){
-            classLoader = clazz.getClassLoader();
+    /**
+     * Reads a binary encoded record directly from a byte array, without
+     * wrapping the array in a stream or copying it into a read buffer.  The
+     * record does not reference the array, so the array can be reused once
+     * this returns.
+     * @param <T> record type
+     * @param c record class
+     * @param reuse record to overwrite, or null to allocate a new record
+     * @param schema record schema
+     * @param data array holding the encoded record
+     * @param offset index of the first byte of the record
+     * @param length number of bytes in the record
+     * @param classLoader ClassLoader for the record class, or null to use the 
+     * ClassLoader of the record class
+     * @return the decoded record
+     * @throws IOException if the record cannot be decoded
+     */
+    public static <T extends IndexedRecord> T readFromBytes(
+            Class<T> c, T reuse, Schema schema, 
+            byte[] data, int offset, int length, ClassLoader classLoader)
+            throws IOException{
+        BinaryDecoder d = DecoderFactory.get().binaryDecoder(
+                data, offset, length, theArrayDecoders.get());
+        theArrayDecoders.set(d);
+        if(EncodableRecords.isEncodable(c, schema)){
+            return decodeRecord(c, reuse, d);
         }
-        SpecificData data = new SpecificData(classLoader);
-        if(schema == null){
-            schema = data.getSchema(clazz);
-            if(schema == null){
-                return null;
+        DatumReader<T> r = DatumCache.getDefault().getReader(
+                c, schema, schema, classLoader);
+        return r.read(reuse, d);
+    }
+    
+    private static <T extends IndexedRecord> T decodeRecord(
+            Class<T> c, T reuse, Decoder d) throws IOException{
+        T record = reuse;
+        if(record == null){
+            try{
+                record = c.newInstance();
+            }catch(ReflectiveOperationException ex){
+                throw new IOException("Unable to create record: " + c, ex);
             }
         }
-        return new SpecificDatumReader<T>(schema, schema, data);
+        ((EncodableRecord)record).decode(d);
+        return record;
     }
     
     public static <T extends IndexedRecord> boolean writeToStream(
@@ -95,18 +135,31 @@ public class AvroUtils {
             throw new NullPointerException(
                     "Unable to write null record to Stream");
         }
-        DatumWriter<T> w;
-        if(t instanceof SpecificRecordBase){
-            w = new SpecificDatumWriter<T>(schema);
+        boolean direct = !json && EncodableRecords.isEncodable(t, schema);
+        DatumWriter<T> w = direct ? null :
+                DatumCache.getDefault().<T>getWriter(t.getClass(), schema);
+        EncoderFactory eFact = EncoderFactory.get();
+        Encoder e;
+        if(json){
+            e = eFact.jsonEncoder(schema, out);
         }else{
-            w = new GenericDatumWriter<T>(schema);
+            BinaryEncoder b = 
+                    eFact.binaryEncoder(out, theBinaryEncoders.get());
+            theBinaryEncoders.set(b);
+            e = b;
+        }
+        try{
+            if(direct){
+                ((EncodableRecord)t).encode(e);
+            }else{
+                w.write(t, e);
+            }
+            e.flush();
+        }catch(IOException ex){
+            //Unflushed bytes must not be written to the next stream.
+            theBinaryEncoders.remove();
+            throw ex;
         }
-        EncoderFactory eFact = EncoderFactory.get();
-        Encoder e = (json ? 
-                eFact.jsonEncoder(schema, out) : 
-                eFact.binaryEncoder(out, null));
-        w.write(t, e);
-        e.flush();
         return true;
     }
     
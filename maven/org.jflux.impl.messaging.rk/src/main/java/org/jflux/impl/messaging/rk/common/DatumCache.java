@@ -0,0 +1,298 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.impl.messaging.rk.common;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecordBase;
+
+/**
+ * Cache of resolved DatumReaders and DatumWriters, keyed by record class,
+ * writer schema, reader schema and ClassLoader.  Building a reader resolves
+ * the schemas and reflects on the record class, so sharing readers and
+ * writers means this happens once per type instead of once per message.
+ * Avro readers and writers are safe to share between threads.
+ *
+ * Cached entries hold their record classes and ClassLoaders.  Entries for a
+ * ClassLoader should be evicted when it is unloaded, such as when the bundle
+ * providing the record classes is unresolved.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class DatumCache {
+    /**
+     * Default maximum number of readers and of writers kept
+     */
+    public final static int DEFAULT_MAX_SIZE = 1024;
+    private final static DatumCache theDefaultCache = new DatumCache();
+
+    private final ConcurrentMap<Key,DatumReader<?>> myReaders;
+    private final ConcurrentMap<Key,DatumWriter<?>> myWriters;
+    private final int myMaxSize;
+
+    /**
+     * Returns the DatumCache used by AvroUtils.
+     * @return the shared DatumCache
+     */
+    public static DatumCache getDefault(){
+        return theDefaultCache;
+    }
+
+    /**
+     * Builds a DatumCache with the default maximum size
+     */
+    public DatumCache(){
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Builds a DatumCache
+     * @param maxSize maximum number of readers and of writers to keep.
+     * Readers and writers built after the cache is full are not cached.
+     */
+    public DatumCache(int maxSize){
+        if(maxSize < 0){
+            throw new IllegalArgumentException(
+                    "Max size must not be negative: " + maxSize);
+        }
+        myMaxSize = maxSize;
+        myReaders = new ConcurrentHashMap<Key,DatumReader<?>>();
+        myWriters = new ConcurrentHashMap<Key,DatumWriter<?>>();
+    }
+
+    /**
+     * Returns a reader for the given type.  A SpecificDatumReader is used if
+     * the class is a SpecificRecordBase or if a ClassLoader and reader schema
+     * are given, otherwise a GenericDatumReader is used.
+     * @param <T> record type
+     * @param c record class, may be null if a reader schema is given
+     * @param writerSchema schema the data was written with, or null to use
+     * the reader schema
+     * @param readerSchema schema to read as, or null to use the schema of a
+     * SpecificRecordBase class
+     * @param classLoader ClassLoader for specific record classes, or null to
+     * use the ClassLoader of the record class
+     * @return a shared reader, or null if no schema is available
+     */
+    @SuppressWarnings("unchecked")
+    public <T> DatumReader<T> getReader(Class<T> c,
+            Schema writerSchema, Schema readerSchema, ClassLoader classLoader){
+        Key key = new Key(c, writerSchema, readerSchema, classLoader);
+        DatumReader<T> reader = (DatumReader<T>)myReaders.get(key);
+        if(reader != null){
+            return reader;
+        }
+        reader = buildReader(c, writerSchema, readerSchema, classLoader);
+        if(reader == null || myReaders.size() >= myMaxSize){
+            return reader;
+        }
+        DatumReader<T> prev = 
+                (DatumReader<T>)myReaders.putIfAbsent(key, reader);
+        return prev == null ? reader : prev;
+    }
+
+    /**
+     * Returns a writer for records of the given class.  A SpecificDatumWriter
+     * is used for SpecificRecordBase classes, otherwise a GenericDatumWriter
+     * is used.
+     * @param <T> record type
+     * @param c class of the records being written
+     * @param schema schema to write with
+     * @return a shared writer
+     */
+    @SuppressWarnings("unchecked")
+    public <T> DatumWriter<T> getWriter(Class<?> c, Schema schema){
+        if(c == null || schema == null){
+            throw new NullPointerException();
+        }
+        boolean specific = SpecificRecordBase.class.isAssignableFrom(c);
+        Key key = new Key(specific ? c : null, schema, schema, null);
+        DatumWriter<T> writer = (DatumWriter<T>)myWriters.get(key);
+        if(writer != null){
+            return writer;
+        }
+        if(specific){
+            writer = new SpecificDatumWriter<T>(schema);
+        }else{
+            writer = new GenericDatumWriter<T>(schema);
+        }
+        if(myWriters.size() >= myMaxSize){
+            return writer;
+        }
+        DatumWriter<T> prev = 
+                (DatumWriter<T>)myWriters.putIfAbsent(key, writer);
+        return prev == null ? writer : prev;
+    }
+
+    /**
+     * Removes all readers and writers for record classes from the given
+     * ClassLoader, or which were built with it.
+     * @param classLoader ClassLoader being unloaded
+     * @return number of readers and writers removed
+     */
+    public int evict(ClassLoader classLoader){
+        if(classLoader == null){
+            throw new NullPointerException();
+        }
+        return evict(myReaders.keySet(), classLoader) 
+                + evict(myWriters.keySet(), classLoader);
+    }
+
+    private static int evict(Set<Key> keys, ClassLoader classLoader){
+        int count = 0;
+        Iterator<Key> it = keys.iterator();
+        while(it.hasNext()){
+            if(it.next().myClassLoader == classLoader){
+                it.remove();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the ClassLoaders of all cached readers and writers.
+     * @return ClassLoaders with cached entries
+     */
+    public Set<ClassLoader> getClassLoaders(){
+        Set<ClassLoader> loaders = new HashSet<ClassLoader>();
+        for(Key key : myReaders.keySet()){
+            if(key.myClassLoader != null){
+                loaders.add(key.myClassLoader);
+            }
+        }
+        for(Key key : myWriters.keySet()){
+            if(key.myClassLoader != null){
+                loaders.add(key.myClassLoader);
+            }
+        }
+        return loaders;
+    }
+
+    /**
+     * Removes all cached readers and writers.
+     */
+    public void clear(){
+        myReaders.clear();
+        myWriters.clear();
+    }
+
+    /**
+     * Get the number of cached readers
+     * @return number of cached readers
+     */
+    public int getReaderCount(){
+        return myReaders.size();
+    }
+
+    /**
+     * Get the number of cached writers
+     * @return number of cached writers
+     */
+    public int getWriterCount(){
+        return myWriters.size();
+    }
+
+    private static <T> DatumReader<T> buildReader(Class<T> c, 
+            Schema writerSchema, Schema readerSchema, ClassLoader classLoader){
+        if((c != null && SpecificRecordBase.class.isAssignableFrom(c))
+                || (classLoader != null && readerSchema != null)){
+            if(classLoader == null){
+                classLoader = c.getClassLoader();
+            }
+            SpecificData data = new SpecificData(classLoader);
+            Schema schema = readerSchema;
+            if(schema == null){
+                schema = data.getSchema(c);
+            }
+            if(schema != null){
+                return new SpecificDatumReader<T>(
+                        writerSchema == null ? schema : writerSchema, 
+                        schema, data);
+            }
+        }
+        if(readerSchema == null){
+            return null;
+        }
+        return new GenericDatumReader<T>(
+                writerSchema == null ? readerSchema : writerSchema, 
+                readerSchema);
+    }
+
+    private static class Key {
+        private final Class<?> myClass;
+        private final Schema myWriterSchema;
+        private final Schema myReaderSchema;
+        private final ClassLoader myClassLoader;
+        private final int myHash;
+
+        Key(Class<?> c, Schema writerSchema, 
+                Schema readerSchema, ClassLoader classLoader){
+            if(classLoader == null && c != null){
+                classLoader = c.getClassLoader();
+            }
+            myClass = c;
+            myWriterSchema = writerSchema;
+            myReaderSchema = readerSchema;
+            myClassLoader = classLoader;
+            int hash = hash(c);
+            hash = 31*hash + hash(writerSchema);
+            hash = 31*hash + hash(readerSchema);
+            hash = 31*hash + hash(classLoader);
+            myHash = hash;
+        }
+
+        @Override
+        public int hashCode(){
+            return myHash;
+        }
+
+        @Override
+        public boolean equals(Object obj){
+            if(this == obj){
+                return true;
+            }
+            if(!(obj instanceof Key)){
+                return false;
+            }
+            Key k = (Key)obj;
+            return myHash == k.myHash
+                    && myClass == k.myClass
+                    && myClassLoader == k.myClassLoader
+                    && equal(myWriterSchema, k.myWriterSchema)
+                    && equal(myReaderSchema, k.myReaderSchema);
+        }
+
+        private static int hash(Object o){
+            return o == null ? 0 : o.hashCode();
+        }
+
+        private static boolean equal(Schema a, Schema b){
+            return a == b || (a != null && a.equals(b));
+        }
+    }
+}
@@ -16,21 +16,34 @@
 
 package org.jflux.impl.messaging.rk.common;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.IndexedRecord;
+import org.jflux.impl.transport.jms.BytesMessageOutputStream;
 
 /**
  * QpidUtils contains static methods for using Avro SpecificRecords with 
  * Qpid BytesMessages.
  * 
+ * Records are encoded directly into the message body, and message bodies are
+ * read into a buffer kept by each thread and decoded from there, so packing
+ * and unpacking do not allocate or copy a byte array per message.
+ * 
  * @author Matthew Stevenson <www.robokind.org>
  */
 public class QpidUtils {
+    /**
+     * Largest message body whose read buffer is kept for reuse.  Larger
+     * bodies are read into a new array.
+     */
+    public final static int MAX_REUSED_BUFFER_SIZE = 1024*1024;
+    private final static int MIN_BUFFER_SIZE = 1024;
+    private final static ThreadLocal<byte[]> theReadBuffers = 
+            new ThreadLocal<byte[]>();
+    
     /**
      * Writes an Avro SpecificRecordBase to
      * @param <T>
@@ -42,11 +55,18 @@ public class QpidUtils {
     public static <T extends IndexedRecord> void packAvroMessage(
             T t, BytesMessage message) 
             throws IOException, JMSException{
-        if(message == null){
+        if(message == null || t == null){
             throw new NullPointerException();
         }
-        byte[] bytes = packAvroBytes(t);
-        message.writeBytes(bytes);
+        try{
+            AvroUtils.writeToStream(t, t.getSchema(), 
+                    new BytesMessageOutputStream(message), false);
+        }catch(IOException ex){
+            if(ex.getCause() instanceof JMSException){
+                throw (JMSException)ex.getCause();
+            }
+            throw ex;
+        }
     }
     
     public static <T extends IndexedRecord> byte[] packAvroBytes(
@@ -63,31 +83,34 @@ public class QpidUtils {
             Class<T> c, T reuse, Schema schema, BytesMessage message) 
             throws JMSException, Exception{
         long len = message.getBodyLength();
-        byte[] data = new byte[(int)len];
-        int read = message.readBytes(data);
+        byte[] data = readBuffer(len);
+        int read = message.readBytes(data, (int)len);
         if(read != len){
             String error = String.format(
                     "Could not read entire Avro message.  "
                     + "Expected %d bytes, found %d bytes.", len, read);
             throw new Exception(error);
         }
-        ByteArrayInputStream in = new ByteArrayInputStream(data);
-        return AvroUtils.readFromStream(c, reuse, schema, in, false);
+        return AvroUtils.readFromBytes(c, reuse, schema, data, 0, read, null);
     }
     
     public static <T extends IndexedRecord> T unpackAvroMessage(
             Class<T> c, Schema schema, BytesMessage message) 
             throws JMSException, Exception{
-        long len = message.getBodyLength();
-        byte[] data = new byte[(int)len];
-        int read = message.readBytes(data);
-        if(read != len){
-            String error = String.format(
-                    "Could not read entire Avro message.  "
-                    + "Expected %d bytes, found %d bytes.", len, read);
-            throw new Exception(error);
+        return unpackAvroMessage(c, null, schema, message);
+    }
+    
+    private static byte[] readBuffer(long len){
+        if(len > MAX_REUSED_BUFFER_SIZE){
+            return new byte[(int)len];
+        }
+        byte[] buf = theReadBuffers.get();
+        if(buf == null || buf.length < len){
+            int size = Math.max(MIN_BUFFER_SIZE, 
+                    Integer.highestOneBit((int)Math.max(len - 1, 1)) << 1);
+            buf = new byte[Math.min(size, MAX_REUSED_BUFFER_SIZE)];
+            theReadBuffers.set(buf);
         }
-        ByteArrayInputStream in = new ByteArrayInputStream(data);
-        return AvroUtils.readFromStream(c, null, schema, in, false);
+        return buf;
     }
 }
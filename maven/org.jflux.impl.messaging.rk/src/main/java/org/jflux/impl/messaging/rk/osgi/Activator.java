@@ -35,9 +35,13 @@ import org.osgi.framework.BundleContext;
  * @author Matthew Stevenson
  */
 public class Activator implements BundleActivator {
+    private DatumCacheEvictor myEvictor;
     
     @Override
     public void start(BundleContext context) throws Exception {
+        myEvictor = new DatumCacheEvictor();
+        context.addBundleListener(myEvictor);
+        
         RKMessagingConfigUtils.registerAvroSerializationConfig(
                 ServiceCommand.class, 
                 ServiceCommandRecord.class, 
@@ -63,6 +67,9 @@ public class Activator implements BundleActivator {
     
     @Override
     public void stop(BundleContext context) throws Exception {
-        //TODO add deactivation code here
+        if(myEvictor != null){
+            context.removeBundleListener(myEvictor);
+            myEvictor = null;
+        }
     }
 }
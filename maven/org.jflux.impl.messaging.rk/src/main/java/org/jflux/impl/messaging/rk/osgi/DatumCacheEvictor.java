@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.impl.messaging.rk.osgi;
+
+import org.jflux.impl.messaging.rk.common.DatumCache;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleReference;
+import org.osgi.framework.SynchronousBundleListener;
+
+/**
+ * Evicts cached Avro readers and writers for the classes of a bundle when the
+ * bundle is unresolved, so the cache does not keep its ClassLoader alive.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class DatumCacheEvictor implements SynchronousBundleListener {
+    private final DatumCache myCache;
+
+    /**
+     * Builds a DatumCacheEvictor for the default DatumCache
+     */
+    public DatumCacheEvictor(){
+        this(DatumCache.getDefault());
+    }
+
+    /**
+     * Builds a DatumCacheEvictor
+     * @param cache DatumCache to evict from
+     */
+    public DatumCacheEvictor(DatumCache cache){
+        if(cache == null){
+            throw new NullPointerException();
+        }
+        myCache = cache;
+    }
+
+    @Override
+    public void bundleChanged(BundleEvent event) {
+        int type = event.getType();
+        if(type != BundleEvent.UNRESOLVED && type != BundleEvent.UNINSTALLED){
+            return;
+        }
+        long id = event.getBundle().getBundleId();
+        for(ClassLoader loader : myCache.getClassLoaders()){
+            if(loader instanceof BundleReference 
+                    && ((BundleReference)loader).getBundle().getBundleId() == id){
+                myCache.evict(loader);
+            }
+        }
+    }
+}
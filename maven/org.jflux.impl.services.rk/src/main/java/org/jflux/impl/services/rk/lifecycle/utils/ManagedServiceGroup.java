@@ -17,16 +17,33 @@ package org.jflux.impl.services.rk.lifecycle.utils;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.jflux.api.core.playable.BasicPlayable;
+import org.jflux.api.core.playable.ParallelPlayableGroup;
+import org.jflux.impl.services.rk.lifecycle.DependencyDescriptor;
 import org.jflux.impl.services.rk.lifecycle.ManagedService;
 import org.jflux.impl.services.rk.lifecycle.ServiceLifecycleProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
+ * Creates and starts a ManagedService for each of a list of lifecycles.
+ * Services are created and started in parallel.  A lifecycle which depends
+ * on a service class provided by another lifecycle in the group is started
+ * after it, and stopped before it.  If any service fails to start, the
+ * services already started are stopped and unregistered.
  *
  * @author Matthew Stevenson <www.robokind.org>
  */
 public class ManagedServiceGroup {
+    private final static Logger theLogger =
+            LoggerFactory.getLogger(ManagedServiceGroup.class);
     
     public final static String PROP_GROUP_ID = "serviceGroupId";
     
@@ -35,6 +52,9 @@ public class ManagedServiceGroup {
     private List<ManagedService> myServices;
     private String myGroupId;
     private boolean myStartFlag;
+    private int myParallelism;
+    private ParallelPlayableGroup myGroup;
+    private Map<ServiceLifecycleProvider,ServiceNode> myNodes;
     
     protected Properties myServiceProperties;
     
@@ -42,51 +62,203 @@ public class ManagedServiceGroup {
             ManagedServiceFactory factory,
             List<ServiceLifecycleProvider> lifecycles, 
             String groupId, Properties registrationProperties){
+        this(factory, lifecycles, groupId, registrationProperties,
+                Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * Creates a ManagedServiceGroup.
+     * @param factory creates the ManagedServices
+     * @param lifecycles lifecycles of the services in the group
+     * @param groupId id added to each service's registration properties
+     * @param registrationProperties registration properties for each
+     * service, may be null
+     * @param parallelism maximum number of services started at once
+     */
+    public ManagedServiceGroup(
+            ManagedServiceFactory factory,
+            List<ServiceLifecycleProvider> lifecycles, 
+            String groupId, Properties registrationProperties,
+            int parallelism){
         if(factory == null || lifecycles == null || groupId == null){
             throw new NullPointerException();
         }
+        if(parallelism < 1){
+            throw new IllegalArgumentException(
+                    "Parallelism must be positive: " + parallelism);
+        }
         myFactory = factory;
         myLifecycles = lifecycles;
         myServiceProperties = registrationProperties;
         myGroupId = groupId;
         myStartFlag = false;
+        myParallelism = parallelism;
+        myServices = Collections.emptyList();
         if(myServiceProperties == null){
             myServiceProperties = new Properties();
         }
         myServiceProperties.put(PROP_GROUP_ID, myGroupId);
     }
     
+    /**
+     * Creates and starts the services.
+     * @throws IllegalStateException if a service could not be started, after
+     * stopping the services which were started
+     */
     public synchronized void start(){
         if(myStartFlag){
             return;
         }
-        if(myServices == null){
-            myServices = new ArrayList<ManagedService>(myLifecycles.size()); 
+        buildGroup();
+        if(!myGroup.start()){
+            myServices = Collections.emptyList();
+            throw new IllegalStateException(
+                    "Unable to start service group: " + myGroupId);
         }
+        List<ManagedService> services = 
+                new ArrayList<ManagedService>(myLifecycles.size());
         for(ServiceLifecycleProvider lifecycle : myLifecycles){
-            Properties props = new Properties();
-            props.putAll(myServiceProperties);
-            ManagedService service = myFactory.createService(lifecycle, props);
+            ManagedService service = myNodes.get(lifecycle).myService;
             if(service != null){
-                myServices.add(service);
-                service.start();
+                services.add(service);
             }
         }
+        myServices = services;
         myStartFlag = true;
     }
     
     public synchronized void stop(){
-        if(!myStartFlag || myServices == null || myServices.isEmpty()){
+        if(!myStartFlag || myServices.isEmpty()){
             return;
         }
-        for(ManagedService service : myServices){
-            service.stop();
-            service.unregister();
-        }
+        myGroup.stop();
         myStartFlag = false;
     }
     
-    public List<ManagedService> getServices() {
+    public synchronized List<ManagedService> getServices() {
         return Collections.unmodifiableList(myServices);
     }
+    
+    /**
+     * Returns how long the most recent start or stop of a lifecycle's
+     * service took.
+     * @param lifecycle lifecycle in the group
+     * @param unit TimeUnit for the result
+     * @return duration of the last transition, or -1 if the service has not
+     * been started
+     */
+    public synchronized long getTransitionTime(
+            ServiceLifecycleProvider lifecycle, TimeUnit unit){
+        ServiceNode node = myNodes == null ? null : myNodes.get(lifecycle);
+        return node == null ? -1L : myGroup.getTransitionTime(node, unit);
+    }
+    
+    private void buildGroup(){
+        myGroup = new ParallelPlayableGroup(
+                ParallelPlayableGroup.getDefaultExecutor(), myParallelism);
+        myNodes = new IdentityHashMap<ServiceLifecycleProvider, ServiceNode>();
+        List<ServiceLifecycleProvider> remaining = 
+                new ArrayList<ServiceLifecycleProvider>(myLifecycles);
+        while(!remaining.isEmpty()){
+            ServiceLifecycleProvider next = null;
+            for(ServiceLifecycleProvider lifecycle : remaining){
+                if(getProviders(lifecycle, remaining).isEmpty()){
+                    next = lifecycle;
+                    break;
+                }
+            }
+            if(next == null){
+                next = remaining.get(0);
+                theLogger.warn("Circular dependency in service group {}, "
+                        + "starting {} first.", myGroupId, next);
+            }
+            remaining.remove(next);
+            List<ServiceNode> deps = new ArrayList<ServiceNode>();
+            for(ServiceLifecycleProvider provider : 
+                    getProviders(next, myLifecycles)){
+                ServiceNode node = myNodes.get(provider);
+                if(node != null){
+                    deps.add(node);
+                }
+            }
+            ServiceNode node = new ServiceNode(next);
+            myNodes.put(next, node);
+            myGroup.add(node, deps.toArray(new ServiceNode[deps.size()]));
+        }
+    }
+    
+    private static List<ServiceLifecycleProvider> getProviders(
+            ServiceLifecycleProvider lifecycle, 
+            List<ServiceLifecycleProvider> candidates){
+        List<DependencyDescriptor> descriptors = 
+                lifecycle.getDependencyDescriptors();
+        if(descriptors == null || descriptors.isEmpty()){
+            return Collections.emptyList();
+        }
+        Set<String> required = new HashSet<String>();
+        for(DependencyDescriptor desc : descriptors){
+            if(desc.getServiceClass() != null){
+                required.add(desc.getServiceClass().getName());
+            }
+        }
+        List<ServiceLifecycleProvider> providers = 
+                new ArrayList<ServiceLifecycleProvider>();
+        for(ServiceLifecycleProvider candidate : candidates){
+            if(candidate == lifecycle){
+                continue;
+            }
+            String[] names = candidate.getServiceClassNames();
+            if(names == null){
+                continue;
+            }
+            for(String name : names){
+                if(required.contains(name)){
+                    providers.add(candidate);
+                    break;
+                }
+            }
+        }
+        return providers;
+    }
+    
+    class ServiceNode extends BasicPlayable {
+        private final ServiceLifecycleProvider myLifecycle;
+        private ManagedService myService;
+        
+        ServiceNode(ServiceLifecycleProvider lifecycle){
+            myLifecycle = lifecycle;
+        }
+        
+        @Override
+        public boolean start() {
+            Properties props = new Properties();
+            props.putAll(myServiceProperties);
+            myService = myFactory.createService(myLifecycle, props);
+            if(myService == null){
+                return super.start();
+            }
+            try{
+                myService.start();
+            }catch(RuntimeException ex){
+                myService.unregister();
+                myService = null;
+                throw ex;
+            }
+            return super.start();
+        }
+        
+        @Override
+        public boolean stop() {
+            if(myService != null){
+                myService.stop();
+                myService.unregister();
+            }
+            return super.stop();
+        }
+        
+        @Override
+        public String toString() {
+            return String.valueOf(myLifecycle);
+        }
+    }
 }
@@ -27,6 +27,7 @@ import org.jflux.api.core.Source;
 import org.jflux.api.core.node.chain.ConsumerChain;
 import org.jflux.api.core.node.chain.NodeChainBuilder;
 import org.jflux.api.core.node.chain.ProducerChain;
+import org.jflux.api.encode.BufferPool;
 import org.jflux.api.encode.EncodeRequest;
 import org.jflux.api.encode.EncodeRequest.InnerAdapter;
 import org.jflux.impl.encode.avro.AvroDecoder;
@@ -130,7 +131,7 @@ public class JMSAvroUtils {
             Adapter<R,E> recordAdapter, Session session, Destination dest) 
             throws JMSException {
         return NodeChainBuilder.build(new JMSMessageReceiver(session, dest))
-                .attach(new MessageUnpacker())
+                .attach(new MessageUnpacker(true))
                 .attach(AvroDecoder.buildBinaryDecoder(recordClass, schema))
                 .attach(recordAdapter)
                 .getProducerChain();
@@ -152,7 +153,7 @@ public class JMSAvroUtils {
             Session session, Destination dest) 
             throws JMSException {
         return NodeChainBuilder.build(new JMSMessageReceiver(session, dest))
-                .attach(new MessageUnpacker())
+                .attach(new MessageUnpacker(true))
                 .attach(AvroDecoder.buildBinaryDecoder(recordClass, schema))
                 .getProducerChain();
     }
@@ -177,6 +178,20 @@ public class JMSAvroUtils {
         return EncodeRequest.factory(new ByteOutputStreamFactory());
     }
     
+    /**
+     * Adapter to build a byte stream request using pooled streams.  The
+     * MessagePacker in a sender chain releases each stream once it has been
+     * copied into a message.
+     * @param <T> the class of the object to convert into a byte stream
+     * @param pool the BufferPool supplying the streams
+     * @return an encode request
+     */
+    public static <T> Adapter<T,EncodeRequest<
+            T,ByteArrayOutputStream>> pooledByteStreamRequestFactory(
+            BufferPool pool){
+        return EncodeRequest.pooledFactory(pool);
+    }
+    
     /**
      * Class to build a byte stream.
      */
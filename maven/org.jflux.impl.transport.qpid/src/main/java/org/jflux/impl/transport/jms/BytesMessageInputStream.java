@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.impl.transport.jms;
+
+import java.io.IOException;
+import java.io.InputStream;
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+
+/**
+ * InputStream which reads directly from the body of a BytesMessage, so
+ * decoders can read a message without first copying its body into a new
+ * byte array.  Reads into the start of a buffer go straight to the message;
+ * reads at an offset go through a small scratch buffer owned by the stream.
+ * JMSExceptions are thrown as IOExceptions with the JMSException as the cause.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class BytesMessageInputStream extends InputStream {
+    private final static int SCRATCH_SIZE = 4096;
+
+    private final BytesMessage myMessage;
+    private long myRemaining;
+    private byte[] myScratch;
+
+    /**
+     * Builds an InputStream reading the unread body of the given message.
+     * @param message message to read, must be in read-only mode
+     * @throws JMSException if the body length cannot be read
+     */
+    public BytesMessageInputStream(BytesMessage message) throws JMSException{
+        if(message == null){
+            throw new NullPointerException();
+        }
+        myMessage = message;
+        myRemaining = message.getBodyLength();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if(myRemaining <= 0){
+            return -1;
+        }
+        try{
+            int b = myMessage.readUnsignedByte();
+            myRemaining--;
+            return b;
+        }catch(JMSException ex){
+            throw new IOException(ex);
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if(off < 0 || len < 0 || len > b.length - off){
+            throw new IndexOutOfBoundsException();
+        }
+        if(len == 0){
+            return 0;
+        }
+        if(myRemaining <= 0){
+            return -1;
+        }
+        int n = (int)Math.min(len, myRemaining);
+        int count;
+        try{
+            if(off == 0){
+                count = myMessage.readBytes(b, n);
+            }else{
+                n = Math.min(n, SCRATCH_SIZE);
+                if(myScratch == null){
+                    myScratch = new byte[SCRATCH_SIZE];
+                }
+                count = myMessage.readBytes(myScratch, n);
+                if(count > 0){
+                    System.arraycopy(myScratch, 0, b, off, count);
+                }
+            }
+        }catch(JMSException ex){
+            throw new IOException(ex);
+        }
+        if(count < 0){
+            myRemaining = 0;
+            return -1;
+        }
+        myRemaining -= count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        if(myScratch == null && n > 0){
+            myScratch = new byte[SCRATCH_SIZE];
+        }
+        while(skipped < n){
+            int len = (int)Math.min(n - skipped, SCRATCH_SIZE);
+            int count = read(myScratch, 0, len);
+            if(count < 0){
+                break;
+            }
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int)Math.min(myRemaining, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014 The JFlux Project (www.jflux.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jflux.impl.transport.jms;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+
+/**
+ * OutputStream which writes directly into the body of a BytesMessage, so
+ * encoders can serialize into a message without an intermediate byte array.
+ * JMSExceptions are thrown as IOExceptions with the JMSException as the cause.
+ *
+ * @author Matthew Stevenson <www.jflux.org>
+ */
+public class BytesMessageOutputStream extends OutputStream {
+    private final BytesMessage myMessage;
+    private long myCount;
+
+    /**
+     * Builds an OutputStream writing to the given message.
+     * @param message message to write to, must be in write-only mode
+     */
+    public BytesMessageOutputStream(BytesMessage message){
+        if(message == null){
+            throw new NullPointerException();
+        }
+        myMessage = message;
+    }
+
+    /**
+     * Returns the message being written to.
+     * @return the message being written to
+     */
+    public BytesMessage getMessage(){
+        return myMessage;
+    }
+
+    /**
+     * Returns the number of bytes written through this stream.
+     * @return number of bytes written
+     */
+    public long getCount(){
+        return myCount;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        try{
+            myMessage.writeByte((byte)b);
+            myCount++;
+        }catch(JMSException ex){
+            throw new IOException(ex);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if(off < 0 || len < 0 || len > b.length - off){
+            throw new IndexOutOfBoundsException();
+        }
+        if(len == 0){
+            return;
+        }
+        try{
+            myMessage.writeBytes(b, off, len);
+            myCount += len;
+        }catch(JMSException ex){
+            throw new IOException(ex);
+        }
+    }
+}
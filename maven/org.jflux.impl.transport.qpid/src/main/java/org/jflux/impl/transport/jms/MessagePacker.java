@@ -16,12 +16,16 @@
 package org.jflux.impl.transport.jms;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Session;
 import org.jflux.api.core.Adapter;
+import org.jflux.api.core.util.Recyclable;
 
 /**
+ * Copies a byte stream into a new BytesMessage.  Pooled streams, such as
+ * PooledOutputStreams, are released once they have been copied.
  *
  * @author Matthew Stevenson <www.jflux.org>
  */
@@ -56,10 +60,16 @@ public class MessagePacker implements Adapter<ByteArrayOutputStream,BytesMessage
         }
         try{
             BytesMessage msg = mySession.createBytesMessage();
-            msg.writeBytes(a.toByteArray());
+            a.writeTo(new BytesMessageOutputStream(msg));
             return msg;
         }catch(JMSException ex){
             return null;
+        }catch(IOException ex){
+            return null;
+        }finally{
+            if(a instanceof Recyclable){
+                ((Recyclable)a).release();
+            }
         }
     }
     
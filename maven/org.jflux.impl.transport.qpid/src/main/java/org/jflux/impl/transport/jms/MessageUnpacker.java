@@ -22,10 +22,31 @@ import javax.jms.JMSException;
 import org.jflux.api.core.Adapter;
 
 /**
+ * Converts a BytesMessage into an InputStream of its body.  By default the
+ * body is copied into a new byte array.  A streaming MessageUnpacker reads
+ * directly from the message instead, which avoids allocating and copying the
+ * body when the stream is decoded as it is read.
  *
  * @author Matthew Stevenson <www.jflux.org>
  */
 public class MessageUnpacker implements Adapter<BytesMessage,InputStream> {
+    private final boolean myStreamingFlag;
+
+    /**
+     * Builds a MessageUnpacker which copies each message body.
+     */
+    public MessageUnpacker(){
+        this(false);
+    }
+
+    /**
+     * Builds a MessageUnpacker.
+     * @param streaming if true, streams read directly from the message, and
+     * the message must not be read elsewhere until the stream is consumed
+     */
+    public MessageUnpacker(boolean streaming){
+        myStreamingFlag = streaming;
+    }
 
     /**
      * Adapter to convert a message into a data stream.
@@ -33,8 +54,11 @@ public class MessageUnpacker implements Adapter<BytesMessage,InputStream> {
      * @return a data stream of the message
      */
     @Override
-    public ByteArrayInputStream adapt(BytesMessage a) {
+    public InputStream adapt(BytesMessage a) {
         try{
+            if(myStreamingFlag){
+                return new BytesMessageInputStream(a);
+            }
             long len = a.getBodyLength();
             byte[] data = new byte[(int)len];
             a.readBytes(data);
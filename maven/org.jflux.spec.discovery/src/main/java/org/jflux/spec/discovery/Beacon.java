@@ -21,22 +21,30 @@ import java.net.DatagramPacket;
 import java.net.InetAddress;
 import java.net.MulticastSocket;
 import java.net.UnknownHostException;
-import org.jflux.api.common.rk.utils.TimeUtils;
+import java.util.concurrent.TimeUnit;
+import org.jflux.api.core.util.ScheduledTask;
+import org.jflux.api.core.util.WheelTimer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Sends an SSDP alive notification every ten seconds.  Announcements are sent
+ * from the shared WheelTimer, so a Beacon does not hold a thread while it
+ * runs.
  *
  * @author Amy Jessica Book <jgpallack@gmail.com>
  */
 public class Beacon implements Runnable {
     private final static String theSsdpAddr = "239.255.255.250";
     private final static int theSsdpPort = 1900;
+    private final static long theInterval = 10000L;
     private final static Logger theLogger =
             LoggerFactory.getLogger(Beacon.class);
     
     private SerialNumberSpec mySerialNumber;
     private boolean myRunning;
+    private MulticastSocket mySocket;
+    private ScheduledTask myTask;
     
     public Beacon(SerialNumberSpec serialNumber) {
         mySerialNumber = serialNumber;
@@ -48,8 +56,15 @@ public class Beacon implements Runnable {
         mySerialNumber.setSerialNumber("000001");
     }
     
+    /**
+     * Opens the multicast socket and starts sending notifications.  Returns
+     * immediately; the notifications continue until stop is called.
+     */
     @Override
-    public void run() {
+    public synchronized void run() {
+        if(myRunning) {
+            return;
+        }
         InetAddress group;
         MulticastSocket sock;
         
@@ -84,24 +99,47 @@ public class Beacon implements Runnable {
         sb.append("\r\n");
         sb.append("NT: upnp:rootdevice\r\n");
         String http = sb.toString();
+        byte[] bytes = http.getBytes();
         
         myRunning = true;
+        mySocket = sock;
+        myTask = WheelTimer.getSharedTimer().scheduleAtFixedRate(
+                new Announcer(sock, new DatagramPacket(
+                        bytes, bytes.length, group, theSsdpPort)),
+                0, theInterval, TimeUnit.MILLISECONDS);
+    }
+    
+    public synchronized void stop() {
+        myRunning = false;
+        if(myTask != null) {
+            myTask.cancel();
+            myTask = null;
+        }
+        if(mySocket != null) {
+            mySocket.close();
+            mySocket = null;
+        }
+    }
+    
+    private static class Announcer implements Runnable {
+        private MulticastSocket mySocket;
+        private DatagramPacket myMessage;
+        
+        Announcer(MulticastSocket socket, DatagramPacket message) {
+            mySocket = socket;
+            myMessage = message;
+        }
         
-        while(myRunning) {
-            DatagramPacket message =
-                    new DatagramPacket(
-                            http.getBytes(), http.length(), group, 1900);
+        @Override
+        public void run() {
+            if(mySocket.isClosed()) {
+                return;
+            }
             try {
-                sock.send(message);
+                mySocket.send(myMessage);
             } catch(IOException ex) {
                 theLogger.error("Error sending message: " + ex.getMessage());
             }
-            
-            TimeUtils.sleep(10000);
         }
     }
-    
-    public void stop() {
-        myRunning = false;
-    }
 }